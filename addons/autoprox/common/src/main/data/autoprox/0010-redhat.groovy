@@ -20,6 +20,10 @@ import org.commonjava.indy.model.core.*;
 
 class RedHatRule extends AbstractAutoProxRule
 {
+    String getStaticMatch(){
+        "RH-*"
+    }
+
     boolean matches( String name ){
         name.startsWith( "RH-" )
     }
@@ -22,6 +22,10 @@ import org.slf4j.LoggerFactory;
 
 class JBossOrgRule extends AbstractAutoProxRule
 {
+    String getStaticMatch(){
+        "JB-*"
+    }
+
     boolean matches( String named ){
         named.startsWith( "JB-" )
     }
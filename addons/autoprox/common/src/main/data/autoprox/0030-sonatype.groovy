@@ -20,6 +20,10 @@ import org.commonjava.indy.model.core.*;
 
 class SonatypeRule extends AbstractAutoProxRule
 {
+    String getStaticMatch(){
+        "ST-*"
+    }
+
     boolean matches( String named ){
         named.startsWith( "ST-" )
     }
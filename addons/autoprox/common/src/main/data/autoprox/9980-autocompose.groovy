@@ -20,6 +20,10 @@ import org.commonjava.indy.model.core.*;
 
 class ComplexGroupsRule extends AbstractAutoProxRule
 {
+    String getStaticMatch(){
+        "/.+\\+.+/"
+    }
+
     boolean matches( String name ){
         name =~ /.+\+.+/
     }
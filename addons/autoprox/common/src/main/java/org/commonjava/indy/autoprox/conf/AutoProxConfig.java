@@ -35,10 +35,22 @@ public class AutoProxConfig
 
     public static final String ENABLED_PARAM = "enabled";
 
+    public static final String MISS_CACHE_SIZE_PARAM = "miss.cache.size";
+
+    public static final String MISS_CACHE_TTL_SECONDS_PARAM = "miss.cache.ttl.seconds";
+
+    public static final int DEFAULT_MISS_CACHE_SIZE = 10000;
+
+    public static final long DEFAULT_MISS_CACHE_TTL_SECONDS = 60;
+
     private String basedir;
 
     private boolean enabled;
 
+    private Integer missCacheSize;
+
+    private Long missCacheTtlSeconds;
+
     public AutoProxConfig()
     {
     }
@@ -71,6 +83,34 @@ public class AutoProxConfig
         this.enabled = enabled;
     }
 
+    /**
+     * Maximum number of store names remembered as having no usable rule (or as failing remote validation).
+     */
+    public int getMissCacheSize()
+    {
+        return missCacheSize == null ? DEFAULT_MISS_CACHE_SIZE : missCacheSize;
+    }
+
+    @ConfigName( AutoProxConfig.MISS_CACHE_SIZE_PARAM )
+    public void setMissCacheSize( final Integer missCacheSize )
+    {
+        this.missCacheSize = missCacheSize;
+    }
+
+    /**
+     * How long a store name stays in the miss cache. Zero or less disables the cache.
+     */
+    public long getMissCacheTtlSeconds()
+    {
+        return missCacheTtlSeconds == null ? DEFAULT_MISS_CACHE_TTL_SECONDS : missCacheTtlSeconds;
+    }
+
+    @ConfigName( AutoProxConfig.MISS_CACHE_TTL_SECONDS_PARAM )
+    public void setMissCacheTtlSeconds( final Long missCacheTtlSeconds )
+    {
+        this.missCacheTtlSeconds = missCacheTtlSeconds;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
@@ -22,9 +22,19 @@ import org.commonjava.indy.model.core.HostedRepository;
 import org.commonjava.indy.model.core.RemoteRepository;
 
 public abstract class AbstractAutoProxRule
-    implements AutoProxRule
+    implements AutoProxRule, StaticMatchRule
 {
 
+    /**
+     * Override to give {@link AutoProxCatalogManager} a static name pattern (see {@link StaticMatchRule}) to check
+     * before calling {@link #matches(String)}.
+     */
+    @Override
+    public String getStaticMatch()
+    {
+        return null;
+    }
+
     @Override
     public boolean isValidationEnabled()
     {
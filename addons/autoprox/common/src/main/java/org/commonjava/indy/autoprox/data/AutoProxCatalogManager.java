@@ -15,6 +15,10 @@
  */
 package org.commonjava.indy.autoprox.data;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.autoprox.conf.AutoProxConfig;
 import org.commonjava.indy.autoprox.rest.dto.CatalogDTO;
@@ -24,6 +28,7 @@ import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.HostedRepository;
 import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.subsys.datafile.DataFile;
 import org.commonjava.indy.subsys.datafile.DataFileManager;
 import org.slf4j.Logger;
@@ -40,6 +45,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 @ApplicationScoped
 public class AutoProxCatalogManager
@@ -58,10 +66,24 @@ public class AutoProxCatalogManager
     @Inject
     private ScriptRuleParser ruleParser;
 
-    private List<RuleMapping> ruleMappings;
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private volatile List<RuleMapping> ruleMappings;
+
+    /**
+     * Built lazily from {@link #ruleMappings}; reset whenever that list is replaced.
+     */
+    private volatile RuleMappingIndex ruleIndex;
 
     private boolean enabled;
 
+    private AutoProxMissCache missCache;
+
+    private Timer ruleEvaluationTimer;
+
+    private Meter missCacheHits;
+
     protected AutoProxCatalogManager()
     {
     }
@@ -73,12 +95,15 @@ public class AutoProxCatalogManager
         this.ffManager = ffManager;
         this.apConfig = apConfig;
         this.ruleParser = ruleParser;
+        this.metricRegistry = new MetricRegistry();
+        initMissCache();
         parseRules();
     }
 
     @PostConstruct
     public void cdiInit()
     {
+        initMissCache();
         try
         {
             parseRules();
@@ -89,6 +114,21 @@ public class AutoProxCatalogManager
         }
     }
 
+    private void initMissCache()
+    {
+        missCache = new AutoProxMissCache( apConfig.getMissCacheSize(),
+                                           TimeUnit.SECONDS.toMillis( apConfig.getMissCacheTtlSeconds() ) );
+
+        ruleEvaluationTimer = metricRegistry.timer( name( AutoProxCatalogManager.class, "rule-evaluation" ) );
+        missCacheHits = metricRegistry.meter( name( AutoProxCatalogManager.class, "miss-cache", "hits" ) );
+
+        final String sizeName = name( AutoProxCatalogManager.class, "miss-cache", "size" );
+        if ( !metricRegistry.getGauges().containsKey( sizeName ) )
+        {
+            metricRegistry.register( sizeName, (Gauge<Integer>) () -> missCache.size() );
+        }
+    }
+
     public synchronized void parseRules()
             throws AutoProxRuleException
     {
@@ -97,6 +137,8 @@ public class AutoProxCatalogManager
             return;
         }
 
+        missCache.clear();
+
         final List<RuleMapping> ruleMappings = new ArrayList<RuleMapping>();
 
         final DataFile dataDir = ffManager.getDataFile( apConfig.getBasedir() );
@@ -124,7 +166,7 @@ public class AutoProxCatalogManager
             }
         }
 
-        this.ruleMappings = ruleMappings;
+        updateRuleMappings( ruleMappings );
         this.enabled = true;
     }
 
@@ -134,6 +176,7 @@ public class AutoProxCatalogManager
         {
             this.enabled = false;
             this.ruleMappings = new ArrayList<>();
+            this.ruleIndex = null;
 
             logger.debug( "Autoprox is disabled." );
             return false;
@@ -158,6 +201,10 @@ public class AutoProxCatalogManager
         return new CatalogDTO( enabled, rules );
     }
 
+    /**
+     * @return a read-only view of the current mappings. Use {@link #addRuleMapping(RuleMapping)} or
+     * {@link #setRuleMappings(List)} to change them.
+     */
     public List<RuleMapping> getRuleMappings()
     {
         if ( !checkEnabled() )
@@ -165,7 +212,59 @@ public class AutoProxCatalogManager
             return null;
         }
 
-        return ruleMappings;
+        return Collections.unmodifiableList( ruleMappings );
+    }
+
+    public synchronized void addRuleMapping( final RuleMapping mapping )
+    {
+        if ( !checkEnabled() )
+        {
+            return;
+        }
+
+        final List<RuleMapping> mappings = new ArrayList<>( ruleMappings );
+        mappings.add( mapping );
+        updateRuleMappings( mappings );
+    }
+
+    public synchronized void setRuleMappings( final List<RuleMapping> ruleMappings )
+    {
+        if ( !checkEnabled() )
+        {
+            return;
+        }
+
+        updateRuleMappings( new ArrayList<>( ruleMappings ) );
+    }
+
+    /**
+     * Swaps in a new list of mappings and drops everything derived from the old one. Callers hold the monitor also
+     * used by {@link #getRuleIndex()}, so an index can't be built from a list that's already been replaced.
+     */
+    private void updateRuleMappings( final List<RuleMapping> ruleMappings )
+    {
+        this.ruleMappings = ruleMappings;
+        this.ruleIndex = null;
+        missCache.clear();
+    }
+
+    private RuleMappingIndex getRuleIndex()
+    {
+        RuleMappingIndex index = ruleIndex;
+        if ( index == null )
+        {
+            synchronized ( this )
+            {
+                index = ruleIndex;
+                if ( index == null )
+                {
+                    index = new RuleMappingIndex( new ArrayList<>( ruleMappings ) );
+                    ruleIndex = index;
+                }
+            }
+        }
+
+        return index;
     }
 
     public boolean isEnabled()
@@ -176,6 +275,31 @@ public class AutoProxCatalogManager
     public void setEnabled( final boolean enabled )
     {
         this.enabled = enabled;
+        missCache.clear();
+    }
+
+    /**
+     * @return true if AutoProx recently failed to create a store for this key (no rule matched, the rule produced
+     * nothing, or the rule's validation remote was unavailable), so the caller can skip rule evaluation entirely.
+     */
+    public boolean isKnownMiss( final StoreKey key )
+    {
+        if ( missCache.contains( key ) )
+        {
+            missCacheHits.mark();
+            logger.debug( "AutoProx: skipping recently failed store: {}", key );
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Remember that no store could be created for this key. Cleared whenever the rule set changes.
+     */
+    public void addMiss( final StoreKey key )
+    {
+        missCache.add( key );
     }
 
     public RuleMapping getRuleMappingMatching( final String name )
@@ -187,17 +311,22 @@ public class AutoProxCatalogManager
 
         //        logger.info( "Called via:\n  {}", join( Thread.currentThread()
         //                                                      .getStackTrace(), "\n  " ) );
-        for ( final RuleMapping mapping : getRuleMappings() )
+        final Timer.Context timer = ruleEvaluationTimer.time();
+        try
         {
-            logger.info( "Checking rule: '{}' for applicability to name: '{}'", mapping.getScriptName(), name );
-            if ( mapping.matchesName( name ) )
+            final RuleMapping mapping = getRuleIndex().findFirstMatch( name );
+            if ( mapping != null )
             {
-                logger.info( "Using rule: '{}'", mapping.getScriptName() );
+                logger.debug( "Using rule: '{}' for: '{}'", mapping.getScriptName(), name );
                 return mapping;
             }
         }
+        finally
+        {
+            timer.stop();
+        }
 
-        logger.info( "No AutoProx rule found for: '{}'", name );
+        logger.debug( "No AutoProx rule found for: '{}'", name );
 
         return null;
     }
@@ -361,8 +490,9 @@ public class AutoProxCatalogManager
             throw new AutoProxRuleException( "AutoProx is disabled" );
         }
 
+        final List<RuleMapping> mappings = new ArrayList<>( ruleMappings );
         RuleMapping mapping = null;
-        for ( final Iterator<RuleMapping> mappingIt = ruleMappings.iterator(); mappingIt.hasNext(); )
+        for ( final Iterator<RuleMapping> mappingIt = mappings.iterator(); mappingIt.hasNext(); )
         {
             final RuleMapping m = mappingIt.next();
             if ( m.getScriptName().equals( name ) )
@@ -379,6 +509,8 @@ public class AutoProxCatalogManager
             return null;
         }
 
+        updateRuleMappings( mappings );
+
         final DataFile dataDir = ffManager.getDataFile( apConfig.getBasedir() );
         if ( !dataDir.exists() )
         {
@@ -419,10 +551,11 @@ public class AutoProxCatalogManager
             throw new AutoProxRuleException( "Cannot construct RuleMapping for: {} with spec:\n\n{}\n\n", name, spec );
         }
 
-        final int idx = ruleMappings.indexOf( mapping );
+        final List<RuleMapping> mappings = new ArrayList<>( ruleMappings );
+        final int idx = mappings.indexOf( mapping );
         if ( idx > -1 )
         {
-            final RuleMapping existing = ruleMappings.get( idx );
+            final RuleMapping existing = mappings.get( idx );
             if ( mapping.getSpecification().equals( existing.getSpecification() ) )
             {
                 return existing;
@@ -430,16 +563,18 @@ public class AutoProxCatalogManager
 
             logger.info( "Replacing rule: {} at index: {}. Spec was:\n\n{}\n\n", mapping, idx, spec );
 
-            ruleMappings.set( idx, mapping );
+            mappings.set( idx, mapping );
         }
         else
         {
             logger.info( "Appending rule: {}. Spec was:\n\n{}\n\n", mapping, spec );
 
-            ruleMappings.add( mapping );
-            Collections.sort( ruleMappings );
+            mappings.add( mapping );
+            Collections.sort( mappings );
         }
 
+        updateRuleMappings( mappings );
+
         final DataFile dataDir = ffManager.getDataFile( apConfig.getBasedir() );
         if ( !dataDir.exists() )
         {
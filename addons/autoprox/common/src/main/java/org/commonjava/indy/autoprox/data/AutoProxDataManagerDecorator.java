@@ -17,6 +17,10 @@ package org.commonjava.indy.autoprox.data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
 import javax.decorator.Decorator;
 import javax.decorator.Delegate;
@@ -60,6 +64,8 @@ public abstract class AutoProxDataManagerDecorator
     @Inject
     private TransferManager transferManager;
 
+    private final ConcurrentMap<StoreKey, Creation> creations = new ConcurrentHashMap<>();
+
     protected AutoProxDataManagerDecorator()
     {
     }
@@ -98,10 +104,29 @@ public abstract class AutoProxDataManagerDecorator
 
         logger.debug( "AutoProx decorator active" );
         if ( g == null )
+        {
+            final StoreKey key = new StoreKey( StoreType.group, name );
+            if ( catalog.isKnownMiss( key ) )
+            {
+                return null;
+            }
+
+            g = (Group) createOnce( key, () -> createGroup( name, impliedBy ) );
+        }
+
+        return g;
+    }
+
+    private Group createGroup( final String name, final StoreKey impliedBy )
+            throws IndyDataException
+    {
+        Group g = dataManager.getGroup( name );
+        if ( g == null )
         {
             logger.debug( "AutoProx: creating repository for: {}", name );
             if ( !checkValidity( name ) )
             {
+                catalog.addMiss( new StoreKey( StoreType.group, name ) );
                 return null;
             }
 
@@ -116,7 +141,11 @@ public abstract class AutoProxDataManagerDecorator
                         e.getMessage() );
             }
 
-            if ( g != null )
+            if ( g == null )
+            {
+                catalog.addMiss( new StoreKey( StoreType.group, name ) );
+            }
+            else
             {
                 logger.info( "Validating group: {}", g );
                 for ( final StoreKey key : new ArrayList<>( g.getConstituents() ) )
@@ -130,6 +159,7 @@ public abstract class AutoProxDataManagerDecorator
 
                 if ( g.getConstituents().isEmpty() )
                 {
+                    catalog.addMiss( g.getKey() );
                     return null;
                 }
 
@@ -232,16 +262,39 @@ public abstract class AutoProxDataManagerDecorator
 
         logger.debug( "AutoProx decorator active" );
         if ( repo == null )
+        {
+            final StoreKey key = new StoreKey( StoreType.remote, name );
+            if ( catalog.isKnownMiss( key ) )
+            {
+                return null;
+            }
+
+            repo = (RemoteRepository) createOnce( key, () -> createRemoteRepository( name, impliedBy ) );
+        }
+
+        return repo;
+    }
+
+    private RemoteRepository createRemoteRepository( final String name, final StoreKey impliedBy )
+            throws IndyDataException
+    {
+        RemoteRepository repo = dataManager.getRemoteRepository( name );
+        if ( repo == null )
         {
             logger.info( "AutoProx: creating repository for: {}", name );
 
             try
             {
                 repo = catalog.createRemoteRepository( name );
-                if ( repo != null )
+                if ( repo == null )
+                {
+                    catalog.addMiss( new StoreKey( StoreType.remote, name ) );
+                }
+                else
                 {
                     if ( !checkValidity( name ) )
                     {
+                        catalog.addMiss( repo.getKey() );
                         return null;
                     }
 
@@ -288,6 +341,24 @@ public abstract class AutoProxDataManagerDecorator
 
         logger.debug( "AutoProx decorator active" );
         if ( repo == null )
+        {
+            final StoreKey key = new StoreKey( StoreType.hosted, name );
+            if ( catalog.isKnownMiss( key ) )
+            {
+                return null;
+            }
+
+            repo = (HostedRepository) createOnce( key, () -> createHostedRepository( name, impliedBy ) );
+        }
+
+        return repo;
+    }
+
+    private HostedRepository createHostedRepository( final String name, final StoreKey impliedBy )
+            throws IndyDataException
+    {
+        HostedRepository repo = dataManager.getHostedRepository( name );
+        if ( repo == null )
         {
             logger.info( "AutoProx: creating repository for: {}", name );
 
@@ -302,7 +373,11 @@ public abstract class AutoProxDataManagerDecorator
                         name, e.getMessage() );
             }
 
-            if ( repo != null )
+            if ( repo == null )
+            {
+                catalog.addMiss( new StoreKey( StoreType.hosted, name ) );
+            }
+            else
             {
                 final HostedRepository hosted = repo;
                 dataManager.storeArtifactStore( hosted, new ChangeSummary( ChangeSummary.SYSTEM_USER,
@@ -320,6 +395,78 @@ public abstract class AutoProxDataManagerDecorator
         return repo;
     }
 
+    /**
+     * Run {@code creator} for {@code key} unless another thread is already doing so, in which case wait for and share
+     * its result. This keeps a burst of first requests for a new name from racing through rule evaluation, remote
+     * validation and {@link StoreDataManager#storeArtifactStore} in parallel. A re-entrant request for the same key
+     * from the creating thread (a group listing itself, directly or indirectly) gets null instead of deadlocking.
+     */
+    private ArtifactStore createOnce( final StoreKey key, final StoreCreator creator )
+            throws IndyDataException
+    {
+        final Creation mine = new Creation();
+        final Creation existing = creations.putIfAbsent( key, mine );
+        if ( existing != null )
+        {
+            if ( existing.owner == Thread.currentThread() )
+            {
+                logger.warn( "AutoProx: circular reference while creating: {}", key );
+                return null;
+            }
+
+            logger.debug( "AutoProx: waiting for in-progress creation of: {}", key );
+            try
+            {
+                return existing.get();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IndyDataException( "[AUTOPROX] Interrupted while waiting for creation of: %s", e, key );
+            }
+            catch ( final ExecutionException e )
+            {
+                final Throwable cause = e.getCause();
+                if ( cause instanceof IndyDataException )
+                {
+                    throw (IndyDataException) cause;
+                }
+
+                throw new IndyDataException( "[AUTOPROX] Failed to create: %s. Reason: %s", cause, key,
+                                             cause.getMessage() );
+            }
+        }
+
+        try
+        {
+            final ArtifactStore store = creator.create();
+            mine.complete( store );
+            return store;
+        }
+        catch ( final IndyDataException | RuntimeException e )
+        {
+            mine.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            creations.remove( key, mine );
+        }
+    }
+
+    @FunctionalInterface
+    private interface StoreCreator
+    {
+        ArtifactStore create()
+                throws IndyDataException;
+    }
+
+    private static final class Creation
+            extends CompletableFuture<ArtifactStore>
+    {
+        private final Thread owner = Thread.currentThread();
+    }
+
     @Override
     public ArtifactStore getArtifactStore( final StoreKey key )
             throws IndyDataException
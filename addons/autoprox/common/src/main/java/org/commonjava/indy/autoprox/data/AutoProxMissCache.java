@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.autoprox.data;
+
+import org.commonjava.indy.model.core.StoreKey;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, expiring set of {@link StoreKey}s that AutoProx could not create a store for, either because no rule
+ * matched the name or because the matching rule's validation remote was unreachable. Entries expire after the
+ * configured TTL; the oldest entry is dropped when the cache is full.
+ */
+final class AutoProxMissCache
+{
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Map<StoreKey, Long> expirations;
+
+    AutoProxMissCache( final int maxSize, final long ttlMillis )
+    {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.expirations = new LinkedHashMap<StoreKey, Long>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<StoreKey, Long> eldest )
+            {
+                return size() > AutoProxMissCache.this.maxSize;
+            }
+        };
+    }
+
+    boolean isEnabled()
+    {
+        return ttlMillis > 0 && maxSize > 0;
+    }
+
+    synchronized boolean contains( final StoreKey key )
+    {
+        final Long expiration = expirations.get( key );
+        if ( expiration == null )
+        {
+            return false;
+        }
+
+        if ( expiration < System.currentTimeMillis() )
+        {
+            expirations.remove( key );
+            return false;
+        }
+
+        return true;
+    }
+
+    synchronized void add( final StoreKey key )
+    {
+        if ( isEnabled() )
+        {
+            // re-insert so a refreshed entry moves to the young end of the eviction order
+            expirations.remove( key );
+            expirations.put( key, System.currentTimeMillis() + ttlMillis );
+        }
+    }
+
+    synchronized void clear()
+    {
+        expirations.clear();
+    }
+
+    synchronized int size()
+    {
+        return expirations.size();
+    }
+}
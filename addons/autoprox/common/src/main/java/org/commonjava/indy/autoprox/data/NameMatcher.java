@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.autoprox.data;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a static store-name pattern (see {@link StaticMatchRule} for the syntax). Besides matching, it
+ * exposes the literal prefix every matching name must start with, which is what {@link RuleMappingIndex} files it
+ * under.
+ */
+public final class NameMatcher
+{
+
+    private static final String REGEX_META = "\\^$.|?*+()[]{}";
+
+    private static final String QUANTIFIERS = "?*{";
+
+    private enum Kind
+    {
+        ANY, EXACT, PREFIX, PATTERN
+    }
+
+    private final String spec;
+
+    private final Kind kind;
+
+    private final String literalPrefix;
+
+    private final Pattern pattern;
+
+    private NameMatcher( final String spec, final Kind kind, final String literalPrefix, final Pattern pattern )
+    {
+        this.spec = spec;
+        this.kind = kind;
+        this.literalPrefix = literalPrefix;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @return the compiled matcher, or null if {@code spec} is null or empty
+     */
+    public static NameMatcher parse( final String spec )
+    {
+        if ( spec == null || spec.trim().isEmpty() )
+        {
+            return null;
+        }
+
+        final String match = spec.trim();
+        if ( match.length() > 2 && match.charAt( 0 ) == '/' && match.charAt( match.length() - 1 ) == '/' )
+        {
+            final String regex = match.substring( 1, match.length() - 1 );
+            return new NameMatcher( spec, Kind.PATTERN, regexPrefix( regex ), Pattern.compile( regex ) );
+        }
+
+        if ( RuleMapping.DEFAULT_MATCH.equalsIgnoreCase( match ) )
+        {
+            return new NameMatcher( spec, Kind.ANY, "", null );
+        }
+
+        final int star = match.indexOf( '*' );
+        final int question = match.indexOf( '?' );
+        if ( star < 0 && question < 0 )
+        {
+            return new NameMatcher( spec, Kind.EXACT, match, null );
+        }
+
+        if ( question < 0 && star == match.length() - 1 )
+        {
+            final String prefix = match.substring( 0, star );
+            return new NameMatcher( spec, prefix.isEmpty() ? Kind.ANY : Kind.PREFIX, prefix, null );
+        }
+
+        final int firstWildcard = question < 0 ? star : ( star < 0 ? question : Math.min( star, question ) );
+        return new NameMatcher( spec, Kind.PATTERN, match.substring( 0, firstWildcard ), globToPattern( match ) );
+    }
+
+    public boolean matches( final String name )
+    {
+        switch ( kind )
+        {
+            case ANY:
+                return true;
+            case EXACT:
+                return literalPrefix.equals( name );
+            case PREFIX:
+                return name.startsWith( literalPrefix );
+            default:
+                return pattern.matcher( name ).matches();
+        }
+    }
+
+    /**
+     * @return the literal text every matching name starts with; empty if there is none
+     */
+    public String getLiteralPrefix()
+    {
+        return literalPrefix;
+    }
+
+    public String getSpec()
+    {
+        return spec;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "NameMatcher{" + spec + '}';
+    }
+
+    /**
+     * Conservative literal prefix of a regex: the leading run of plain characters, minus the last one if it is
+     * followed by a quantifier that makes it optional. Any alternation disables the prefix entirely.
+     */
+    private static String regexPrefix( final String regex )
+    {
+        if ( regex.indexOf( '|' ) > -1 )
+        {
+            return "";
+        }
+
+        int start = regex.startsWith( "^" ) ? 1 : 0;
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = start; i < regex.length(); i++ )
+        {
+            final char c = regex.charAt( i );
+            if ( REGEX_META.indexOf( c ) > -1 )
+            {
+                if ( QUANTIFIERS.indexOf( c ) > -1 && sb.length() > 0 )
+                {
+                    sb.setLength( sb.length() - 1 );
+                }
+                break;
+            }
+
+            sb.append( c );
+        }
+
+        return sb.toString();
+    }
+
+    private static Pattern globToPattern( final String glob )
+    {
+        final StringBuilder sb = new StringBuilder();
+        int literalStart = 0;
+        for ( int i = 0; i < glob.length(); i++ )
+        {
+            final char c = glob.charAt( i );
+            if ( c == '*' || c == '?' )
+            {
+                if ( i > literalStart )
+                {
+                    sb.append( Pattern.quote( glob.substring( literalStart, i ) ) );
+                }
+                sb.append( c == '*' ? ".*" : "." );
+                literalStart = i + 1;
+            }
+        }
+
+        if ( literalStart < glob.length() )
+        {
+            sb.append( Pattern.quote( glob.substring( literalStart ) ) );
+        }
+
+        return Pattern.compile( sb.toString() );
+    }
+}
@@ -31,12 +31,15 @@ public final class RuleMapping
 
     private final String spec;
 
+    private final NameMatcher staticMatcher;
+
     public RuleMapping( final String scriptName, final String match, final String spec, final AutoProxRule factory )
     {
         this.scriptName = scriptName;
         this.externalMatch = match;
         this.spec = spec;
         this.rule = factory;
+        this.staticMatcher = initStaticMatcher();
     }
 
     public RuleMapping( final String scriptName, final String spec, final AutoProxRule factory )
@@ -45,6 +48,7 @@ public final class RuleMapping
         this.spec = spec;
         this.rule = factory;
         this.externalMatch = null;
+        this.staticMatcher = initStaticMatcher();
     }
 
     public RuleMapping( final String match, final String scriptName, final RuleMapping ruleMapping )
@@ -53,6 +57,22 @@ public final class RuleMapping
         this.externalMatch = match;
         this.rule = ruleMapping.getRule();
         this.spec = ruleMapping.getSpecification();
+        this.staticMatcher = initStaticMatcher();
+    }
+
+    private NameMatcher initStaticMatcher()
+    {
+        if ( externalMatch != null )
+        {
+            return NameMatcher.parse( externalMatch );
+        }
+
+        if ( rule instanceof StaticMatchRule )
+        {
+            return NameMatcher.parse( ( (StaticMatchRule) rule ).getStaticMatch() );
+        }
+
+        return null;
     }
 
     public RuleDTO toDTO()
@@ -75,37 +95,29 @@ public final class RuleMapping
         return rule;
     }
 
+    /**
+     * The compiled static pattern for this mapping: the external match if one was given, otherwise the rule's own
+     * {@link StaticMatchRule#getStaticMatch()}. Null if names can only be checked through
+     * {@link AutoProxRule#matches(String)}.
+     */
+    public NameMatcher getStaticMatcher()
+    {
+        return staticMatcher;
+    }
+
     public boolean matchesName( final String name )
     {
         if ( externalMatch != null )
         {
-            if ( externalMatch.length() > 2 && externalMatch.charAt( 0 ) == '/'
-                && externalMatch.charAt( externalMatch.length() - 1 ) == '/' )
-            {
-                return name.matches( externalMatch.substring( 1, externalMatch.length() - 1 ) );
-            }
-            else if ( externalMatch.endsWith( "*" ) )
-            {
-                if ( externalMatch.length() == 1 )
-                {
-                    return true;
-                }
-                else
-                {
-                    return name.startsWith( externalMatch.substring( 0, externalMatch.length() - 1 ) );
-                }
-            }
-            else if ( DEFAULT_MATCH.equalsIgnoreCase( externalMatch ) )
-            {
-                return true;
-            }
+            return staticMatcher != null && staticMatcher.matches( name );
         }
-        else
+
+        if ( staticMatcher != null && !staticMatcher.matches( name ) )
         {
-            return rule.matches( name );
+            return false;
         }
 
-        return false;
+        return rule.matches( name );
     }
 
     public String getSpecification()
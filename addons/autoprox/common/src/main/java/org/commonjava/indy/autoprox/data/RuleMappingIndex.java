@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.autoprox.data;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup structure over an ordered list of {@link RuleMapping}s. Mappings with a static {@link NameMatcher}
+ * are filed in a character trie under the matcher's literal prefix; mappings without one are always candidates. A
+ * lookup walks the trie along the requested name, collects the candidate positions in a {@link BitSet}, and then
+ * evaluates only those mappings, in their original order, so the first-match-wins semantics of the plain list scan
+ * are kept.
+ */
+public final class RuleMappingIndex
+{
+
+    private static final class Node
+    {
+        private final Map<Character, Node> children = new HashMap<>();
+
+        private final BitSet rules = new BitSet();
+    }
+
+    private final RuleMapping[] mappings;
+
+    private final Node root = new Node();
+
+    private final BitSet dynamic = new BitSet();
+
+    public RuleMappingIndex( final List<RuleMapping> ruleMappings )
+    {
+        this.mappings = ruleMappings.toArray( new RuleMapping[ruleMappings.size()] );
+        for ( int i = 0; i < mappings.length; i++ )
+        {
+            final NameMatcher matcher = mappings[i].getStaticMatcher();
+            if ( matcher == null )
+            {
+                dynamic.set( i );
+                continue;
+            }
+
+            Node node = root;
+            for ( final char c : matcher.getLiteralPrefix().toCharArray() )
+            {
+                node = node.children.computeIfAbsent( c, k -> new Node() );
+            }
+
+            node.rules.set( i );
+        }
+    }
+
+    /**
+     * @return the first mapping (in list order) whose {@link RuleMapping#matchesName(String)} accepts the name, or
+     * null if there is none
+     */
+    public RuleMapping findFirstMatch( final String name )
+    {
+        final BitSet candidates = (BitSet) dynamic.clone();
+        candidates.or( root.rules );
+
+        Node node = root;
+        for ( int i = 0; i < name.length() && node != null; i++ )
+        {
+            node = node.children.get( name.charAt( i ) );
+            if ( node != null )
+            {
+                candidates.or( node.rules );
+            }
+        }
+
+        for ( int i = candidates.nextSetBit( 0 ); i > -1; i = candidates.nextSetBit( i + 1 ) )
+        {
+            if ( mappings[i].matchesName( name ) )
+            {
+                return mappings[i];
+            }
+        }
+
+        return null;
+    }
+
+    public int size()
+    {
+        return mappings.length;
+    }
+}
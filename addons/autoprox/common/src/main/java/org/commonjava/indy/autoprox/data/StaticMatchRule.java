@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.autoprox.data;
+
+/**
+ * Optional capability for an {@link AutoProxRule} that can describe, up front, the store names it could possibly
+ * apply to. {@link AutoProxCatalogManager} compiles these patterns into a {@link RuleMappingIndex}, so the rule's
+ * (usually Groovy) {@link AutoProxRule#matches(String)} is only called for names that pass the static match.
+ * <p>
+ * Pattern syntax, as parsed by {@link NameMatcher}:
+ * <ul>
+ *   <li><code>/regex/</code> - the whole name must match the regular expression</li>
+ *   <li><code>prefix*</code>, or any pattern containing <code>*</code> / <code>?</code> - a glob</li>
+ *   <li><code>default</code> - every name</li>
+ *   <li>anything else - that exact name</li>
+ * </ul>
+ */
+public interface StaticMatchRule
+{
+
+    /**
+     * @return the static name pattern for this rule, or null if every name has to be passed to
+     * {@link AutoProxRule#matches(String)}
+     */
+    String getStaticMatch();
+
+}
@@ -22,7 +22,14 @@ import static org.junit.Assert.assertThat;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.commonjava.indy.audit.ChangeSummary;
@@ -198,7 +205,7 @@ public class AutoProxDataManagerDecoratorTest
     private void simpleCatalog()
     {
         final TestAutoProxFactory fac = new TestAutoProxFactory( http );
-        catalog.getRuleMappings().add( new RuleMapping( "test.groovy", null, fac ) );
+        catalog.addRuleMapping( new RuleMapping( "test.groovy", null, fac ) );
     }
 
     @Test
@@ -290,4 +297,82 @@ public class AutoProxDataManagerDecoratorTest
         assertThat( group, nullValue() );
     }
 
+    @Test
+    public void invalidTargetIsRememberedUntilRulesChange()
+            throws Exception
+    {
+        simpleCatalog();
+
+        final String testUrl = http.formatUrl( "target", "test" );
+        http.expect( testUrl, 404, "" );
+
+        final StoreKey key = new StoreKey( StoreType.remote, "test" );
+        assertThat( proxyManager.getRemoteRepository( "test" ), nullValue() );
+        assertThat( catalog.isKnownMiss( key ), equalTo( true ) );
+
+        http.expect( testUrl + "/", 200, "" );
+        assertThat( proxyManager.getRemoteRepository( "test" ), nullValue() );
+
+        catalog.parseRules();
+        simpleCatalog();
+        assertThat( catalog.isKnownMiss( key ), equalTo( false ) );
+
+        final RemoteRepository repo = proxyManager.getRemoteRepository( "test" );
+        assertThat( repo, notNullValue() );
+        assertThat( repo.getName(), equalTo( "test" ) );
+    }
+
+    @Test
+    public void concurrentFirstRequestsCreateRepositoryOnce()
+            throws Exception
+    {
+        final AtomicInteger creations = new AtomicInteger();
+        catalog.addRuleMapping( new RuleMapping( "test.groovy", null, new TestAutoProxFactory( http )
+        {
+            @Override
+            public RemoteRepository createRemoteRepository( final String named )
+                    throws AutoProxRuleException
+            {
+                creations.incrementAndGet();
+                try
+                {
+                    Thread.sleep( 50 );
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                return super.createRemoteRepository( named );
+            }
+        } ) );
+
+        http.expect( http.formatUrl( "target", "test" ) + "/", 200, "" );
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        final List<Future<RemoteRepository>> results = new ArrayList<>();
+        for ( int i = 0; i < threads; i++ )
+        {
+            results.add( executor.submit( () -> {
+                start.await();
+                return proxyManager.getRemoteRepository( "test" );
+            } ) );
+        }
+
+        start.countDown();
+        for ( final Future<RemoteRepository> result : results )
+        {
+            final RemoteRepository repo = result.get( 10, TimeUnit.SECONDS );
+            assertThat( repo, notNullValue() );
+            assertThat( repo.getName(), equalTo( "test" ) );
+        }
+
+        executor.shutdownNow();
+
+        // one call to build the repository, one to build its validation remote
+        assertThat( creations.get(), equalTo( 2 ) );
+    }
+
 }
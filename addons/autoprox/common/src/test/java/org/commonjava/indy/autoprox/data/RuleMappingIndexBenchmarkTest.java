@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.autoprox.data;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Timing harness comparing the plain first-match list scan against {@link RuleMappingIndex}, for 10, 100 and 1000
+ * rules. It only prints timings, so it's ignored in normal builds; run it on demand with:
+ *
+ * <pre>mvn test -Dtest=RuleMappingIndexBenchmarkTest</pre>
+ *
+ * after removing the {@link Ignore} annotation.
+ */
+@Ignore( "timing harness; run manually" )
+public class RuleMappingIndexBenchmarkTest
+{
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static final int LOOKUPS_PER_ROUND = 20000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Test
+    public void compareLinearScanWithIndex()
+    {
+        for ( final int ruleCount : new int[] { 10, 100, 1000 } )
+        {
+            final List<RuleMapping> mappings = new ArrayList<>();
+            for ( int i = 0; i < ruleCount; i++ )
+            {
+                mappings.add( new RuleMapping( "rule" + i, null, new ScriptLikeRule( "repo" + i + "-*" ) ) );
+            }
+
+            final RuleMappingIndex index = new RuleMappingIndex( mappings );
+
+            // mostly hits spread over the whole rule list, plus some names nothing matches.
+            final Random random = new Random( ruleCount );
+            final String[] names = new String[LOOKUPS_PER_ROUND];
+            for ( int i = 0; i < names.length; i++ )
+            {
+                names[i] = i % 10 == 0 ? "unknown-" + i : "repo" + random.nextInt( ruleCount ) + "-build-" + i;
+            }
+
+            for ( final String name : new String[] { names[0], names[1] } )
+            {
+                assertThat( index.findFirstMatch( name ), sameInstance( scan( mappings, name ) ) );
+            }
+
+            for ( int i = 0; i < WARMUP_ROUNDS; i++ )
+            {
+                timeScan( mappings, names );
+                timeIndex( index, names );
+            }
+
+            long scanNanos = 0;
+            long indexNanos = 0;
+            for ( int i = 0; i < MEASURED_ROUNDS; i++ )
+            {
+                scanNanos += timeScan( mappings, names );
+                indexNanos += timeIndex( index, names );
+            }
+
+            final long lookups = (long) MEASURED_ROUNDS * LOOKUPS_PER_ROUND;
+            logger.info( "{} rules: linear scan {} ns/lookup, index {} ns/lookup ({}x)", ruleCount,
+                         scanNanos / lookups, indexNanos / lookups,
+                         String.format( "%.1f", (double) scanNanos / Math.max( 1, indexNanos ) ) );
+        }
+    }
+
+    private static long timeScan( final List<RuleMapping> mappings, final String[] names )
+    {
+        final long start = System.nanoTime();
+        int found = 0;
+        for ( final String name : names )
+        {
+            if ( scan( mappings, name ) != null )
+            {
+                found++;
+            }
+        }
+
+        return consume( System.nanoTime() - start, found );
+    }
+
+    private static long timeIndex( final RuleMappingIndex index, final String[] names )
+    {
+        final long start = System.nanoTime();
+        int found = 0;
+        for ( final String name : names )
+        {
+            if ( index.findFirstMatch( name ) != null )
+            {
+                found++;
+            }
+        }
+
+        return consume( System.nanoTime() - start, found );
+    }
+
+    /**
+     * The lookup AutoProxCatalogManager did before the index existed: ask every rule in order.
+     */
+    private static RuleMapping scan( final List<RuleMapping> mappings, final String name )
+    {
+        for ( final RuleMapping mapping : mappings )
+        {
+            if ( mapping.getRule().matches( name ) )
+            {
+                return mapping;
+            }
+        }
+
+        return null;
+    }
+
+    private static long consume( final long nanos, final int found )
+    {
+        // keep the JIT from discarding the lookups.
+        if ( found < 0 )
+        {
+            throw new IllegalStateException( "unreachable" );
+        }
+
+        return nanos;
+    }
+
+    /**
+     * Stands in for a Groovy rule: a static match for the index, plus a {@link #matches(String)} that does the same
+     * check the hard way, the way scripts typically do.
+     */
+    private static final class ScriptLikeRule
+            extends AbstractAutoProxRule
+    {
+        private final String staticMatch;
+
+        private final String regex;
+
+        private ScriptLikeRule( final String staticMatch )
+        {
+            this.staticMatch = staticMatch;
+            this.regex = staticMatch.replace( "-*", "-.*" );
+        }
+
+        @Override
+        public String getStaticMatch()
+        {
+            return staticMatch;
+        }
+
+        @Override
+        public boolean matches( final String name )
+        {
+            return name.matches( regex );
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.autoprox.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RuleMappingIndexTest
+{
+
+    @Test
+    public void matcherSyntax()
+    {
+        NameMatcher m = NameMatcher.parse( "RH-*" );
+        assertThat( m.getLiteralPrefix(), equalTo( "RH-" ) );
+        assertThat( m.matches( "RH-all" ), equalTo( true ) );
+        assertThat( m.matches( "JB-all" ), equalTo( false ) );
+
+        m = NameMatcher.parse( "build-*-rc?" );
+        assertThat( m.getLiteralPrefix(), equalTo( "build-" ) );
+        assertThat( m.matches( "build-1.0-rc1" ), equalTo( true ) );
+        assertThat( m.matches( "build-1.0-rc10" ), equalTo( false ) );
+
+        m = NameMatcher.parse( "/^prod-(\\d+)$/" );
+        assertThat( m.getLiteralPrefix(), equalTo( "prod-" ) );
+        assertThat( m.matches( "prod-12" ), equalTo( true ) );
+        assertThat( m.matches( "prod-x" ), equalTo( false ) );
+
+        assertThat( NameMatcher.parse( "/abc?d/" ).getLiteralPrefix(), equalTo( "ab" ) );
+        assertThat( NameMatcher.parse( "/abc|xyz/" ).getLiteralPrefix(), equalTo( "" ) );
+
+        m = NameMatcher.parse( "central" );
+        assertThat( m.matches( "central" ), equalTo( true ) );
+        assertThat( m.matches( "central2" ), equalTo( false ) );
+
+        assertThat( NameMatcher.parse( "default" ).matches( "anything" ), equalTo( true ) );
+        assertThat( NameMatcher.parse( "*" ).matches( "anything" ), equalTo( true ) );
+        assertThat( NameMatcher.parse( null ), nullValue() );
+    }
+
+    @Test
+    public void firstMatchInListOrderWins()
+    {
+        final List<RuleMapping> mappings = new ArrayList<>();
+        mappings.add( new RuleMapping( "a", null, new CountingRule( "RH-*", true ) ) );
+        mappings.add( new RuleMapping( "b", null, new CountingRule( null, true ) ) );
+        mappings.add( new RuleMapping( "c", null, new CountingRule( "RH-all", true ) ) );
+
+        final RuleMappingIndex index = new RuleMappingIndex( mappings );
+
+        assertThat( index.findFirstMatch( "RH-all" ).getScriptName(), equalTo( "a" ) );
+        assertThat( index.findFirstMatch( "JB-all" ).getScriptName(), equalTo( "b" ) );
+    }
+
+    @Test
+    public void dynamicMatchOnlyCalledWhenStaticMatchPasses()
+    {
+        final List<CountingRule> rules = new ArrayList<>();
+        final List<RuleMapping> mappings = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            final CountingRule rule = new CountingRule( "repo" + i + "-*", true );
+            rules.add( rule );
+            mappings.add( new RuleMapping( "rule" + i, null, rule ) );
+        }
+
+        final CountingRule fallback = new CountingRule( null, false );
+        mappings.add( new RuleMapping( "zz-fallback", null, fallback ) );
+
+        final RuleMappingIndex index = new RuleMappingIndex( mappings );
+
+        assertThat( index.findFirstMatch( "repo42-foo" ).getScriptName(), equalTo( "rule42" ) );
+        assertThat( index.findFirstMatch( "unknown" ), nullValue() );
+
+        for ( int i = 0; i < rules.size(); i++ )
+        {
+            assertThat( "rule" + i, rules.get( i ).calls.get(), equalTo( i == 42 ? 1 : 0 ) );
+        }
+
+        assertThat( fallback.calls.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void externalMatchNeverCallsRule()
+    {
+        final CountingRule rule = new CountingRule( null, false );
+        final RuleMapping mapping = new RuleMapping( "ext", "ext-*", null, rule );
+
+        final RuleMappingIndex index = new RuleMappingIndex( Collections.singletonList( mapping ) );
+        assertThat( index.findFirstMatch( "ext-1" ).getScriptName(), equalTo( "ext" ) );
+        assertThat( index.findFirstMatch( "other" ), nullValue() );
+        assertThat( rule.calls.get(), equalTo( 0 ) );
+    }
+
+    private static final class CountingRule
+            extends AbstractAutoProxRule
+    {
+        private final String staticMatch;
+
+        private final boolean result;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingRule( final String staticMatch, final boolean result )
+        {
+            this.staticMatch = staticMatch;
+            this.result = result;
+        }
+
+        @Override
+        public String getStaticMatch()
+        {
+            return staticMatch;
+        }
+
+        @Override
+        public boolean matches( final String name )
+        {
+            calls.incrementAndGet();
+            return result;
+        }
+    }
+}
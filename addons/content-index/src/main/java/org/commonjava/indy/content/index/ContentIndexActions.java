@@ -16,6 +16,8 @@
 package org.commonjava.indy.content.index;
 
 import org.commonjava.cdi.util.weft.ThreadContext;
+import org.commonjava.indy.change.event.ArtifactStoreDeletePostEvent;
+import org.commonjava.indy.change.event.ArtifactStoreEnablementEvent;
 import org.commonjava.indy.content.MergedContentAction;
 import org.commonjava.indy.content.StoreContentAction;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -25,6 +27,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import java.util.Set;
 
@@ -90,4 +93,17 @@ public class ContentIndexActions
         } );
     }
 
+    public void onStoreDeletion( @Observes final ArtifactStoreDeletePostEvent event )
+    {
+        event.forEach( store -> indexManager.clearIndexedStore( store.getKey(), null ) );
+    }
+
+    public void onStoreDisable( @Observes final ArtifactStoreEnablementEvent event )
+    {
+        if ( !event.isPreprocessing() && event.isDisabling() )
+        {
+            event.forEach( store -> indexManager.clearIndexedStore( store.getKey(), null ) );
+        }
+    }
+
 }
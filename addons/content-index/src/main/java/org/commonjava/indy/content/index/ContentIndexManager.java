@@ -29,13 +29,16 @@ import org.infinispan.cdi.ConfigureCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
@@ -61,6 +64,8 @@ public class ContentIndexManager
     @Inject
     private NotFoundCache nfc;
 
+    private final StorePathIndex storePathIndex = new StorePathIndex();
+
     protected ContentIndexManager(){}
 
     public ContentIndexManager( StoreDataManager storeDataManager, SpecialPathManager specialPathManager,
@@ -71,6 +76,17 @@ public class ContentIndexManager
         this.specialPathManager = specialPathManager;
         this.contentIndex = contentIndex;
         this.nfc = nfc;
+        init();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        // keep the per-store view in step with the cache, including entries it evicts on its own.
+        contentIndex.execute( cache -> {
+            cache.addListener( storePathIndex );
+            return null;
+        } );
     }
 
     public boolean removeIndexedStorePath( String path, StoreKey key, Consumer<IndexedStorePath> pathConsumer )
@@ -111,21 +127,70 @@ public class ContentIndexManager
     }
 
     /**
-     * When we store or retrieve content, index it for faster reference next time.
+     * When we store or retrieve content, index it for faster reference next time. The origin entry and the entries for
+     * all top keys are written to the cache in one batch.
      */
     public void indexPathInStores( String path, StoreKey originKey, StoreKey... topKeys )
     {
             IndexedStorePath origin = new IndexedStorePath( originKey, path );
             Logger logger = LoggerFactory.getLogger( getClass() );
             logger.trace( "Indexing path: {} in: {}", path, originKey );
-            contentIndex.put( origin, origin );
+
+            Map<IndexedStorePath, IndexedStorePath> entries = new HashMap<>();
+            entries.put( origin, origin );
 
             Set<StoreKey> keySet = new HashSet<>( Arrays.asList( topKeys ) );
             keySet.forEach( (key)->{
                 IndexedStorePath isp = new IndexedStorePath( key, originKey, path );
                 logger.trace( "Indexing path: {} in: {} via member: {}", path, key, originKey );
-                contentIndex.put( isp, origin );
+                entries.put( isp, origin );
             } );
+
+            indexStorePaths( entries );
+    }
+
+    /**
+     * Write a batch of index entries (mapping each indexed path to the path in the store its content came from) in a
+     * single cache operation.
+     */
+    public void indexStorePaths( Map<IndexedStorePath, IndexedStorePath> entries )
+    {
+        if ( entries == null || entries.isEmpty() )
+        {
+            return;
+        }
+
+        contentIndex.execute( cache -> {
+            cache.putAll( entries );
+            return null;
+        } );
+    }
+
+    /**
+     * @return every index entry stored under the given store, plus the group entries that were resolved through it
+     */
+    public Set<IndexedStorePath> getIndexedStorePaths( final StoreKey key )
+    {
+        return storePathIndex.getPathsReferencing( key );
+    }
+
+    /**
+     * Drop everything the index holds for a store, along with the group entries that point at content in it. Used
+     * when a store is deleted or disabled; the work is bounded by the number of entries referencing the store rather
+     * than the size of the index.
+     */
+    public void clearIndexedStore( final StoreKey key, Consumer<IndexedStorePath> pathConsumer )
+    {
+        Set<IndexedStorePath> paths = storePathIndex.getPathsReferencing( key );
+        if ( paths.isEmpty() )
+        {
+            return;
+        }
+
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        logger.debug( "Clearing {} indexed paths referencing: {}", paths.size(), key );
+
+        removeIndexedStorePaths( paths, pathConsumer );
     }
 
     /**
@@ -141,13 +206,16 @@ public class ContentIndexManager
         }
 
         Logger logger = LoggerFactory.getLogger( getClass() );
-//        logger.debug( "Clearing path: '{}' from content index and storage of: {}", path, groups );
+        logger.debug( "Clearing path: '{}' from content index and storage of: {}", path, groups );
 
-        groups.forEach( (group)->{
-            logger.debug( "Clearing path: '{}' from content index and storage of: {}", path, group.getName() );
+        Set<IndexedStorePath> toRemove = new HashSet<>();
+        groups.forEach( group -> toRemove.add( new IndexedStorePath( group.getKey(), path ) ) );
+
+        Set<IndexedStorePath> removed = removeIndexedStorePaths( toRemove, pathConsumer );
 
-            // if we remove an indexed path, it SHOULD mean there was content. If not, we should delete the NFC entry.
-            if ( !removeIndexedStorePath( path, group.getKey(), pathConsumer ) )
+        // if we remove an indexed path, it SHOULD mean there was content. If not, we should delete the NFC entry.
+        groups.forEach( (group)->{
+            if ( !removed.contains( new IndexedStorePath( group.getKey(), path ) ) )
             {
                 ConcreteResource resource = new ConcreteResource( LocationUtils.toLocation( group ), path );
                 nfc.clearMissing( resource );
@@ -155,4 +223,36 @@ public class ContentIndexManager
         } );
     }
 
+    /**
+     * Remove the given entries in one cache operation, passing each entry that was actually present to the consumer.
+     *
+     * @return the entries that were present and have been removed
+     */
+    private Set<IndexedStorePath> removeIndexedStorePaths( Set<IndexedStorePath> paths,
+                                                           Consumer<IndexedStorePath> pathConsumer )
+    {
+        if ( paths.isEmpty() )
+        {
+            return paths;
+        }
+
+        Set<IndexedStorePath> removed = contentIndex.execute( cache -> {
+            Set<IndexedStorePath> result = new HashSet<>();
+            paths.forEach( isp -> {
+                if ( cache.remove( isp ) != null )
+                {
+                    result.add( isp );
+                }
+            } );
+            return result;
+        } );
+
+        if ( pathConsumer != null )
+        {
+            removed.forEach( pathConsumer );
+        }
+
+        return removed;
+    }
+
 }
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.content.index;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary view over the content-index cache, keyed by {@link StoreKey}. It lets callers find every entry belonging
+ * to a store (including group entries that were resolved through it as a member) without scanning the cache. It is kept in step with the cache through cache events, so
+ * entries dropped by eviction leave the view as well.
+ * <br/>
+ * Public only because Infinispan requires it of listeners.
+ */
+@Listener
+public final class StorePathIndex
+{
+    private final Map<StoreKey, Set<IndexedStorePath>> byStore = new ConcurrentHashMap<>();
+
+    private final Map<StoreKey, Set<IndexedStorePath>> byOrigin = new ConcurrentHashMap<>();
+
+    /**
+     * @return the index keys stored under the given store, or resolved through it from a group
+     */
+    Set<IndexedStorePath> getPathsReferencing( final StoreKey key )
+    {
+        final Set<IndexedStorePath> result = new HashSet<>();
+        result.addAll( byStore.getOrDefault( key, Collections.emptySet() ) );
+        result.addAll( byOrigin.getOrDefault( key, Collections.emptySet() ) );
+        return result;
+    }
+
+    @CacheEntryCreated
+    public void created( final CacheEntryCreatedEvent<IndexedStorePath, IndexedStorePath> event )
+    {
+        if ( !event.isPre() )
+        {
+            add( event.getKey(), event.getValue() );
+        }
+    }
+
+    @CacheEntryModified
+    public void modified( final CacheEntryModifiedEvent<IndexedStorePath, IndexedStorePath> event )
+    {
+        if ( event.isCreated() )
+        {
+            return;
+        }
+
+        // the pre-event carries the value being replaced, the post-event the new one
+        if ( event.isPre() )
+        {
+            removeOrigin( event.getKey(), event.getValue() );
+        }
+        else
+        {
+            add( event.getKey(), event.getValue() );
+        }
+    }
+
+    @CacheEntryRemoved
+    public void removed( final CacheEntryRemovedEvent<IndexedStorePath, IndexedStorePath> event )
+    {
+        if ( !event.isPre() )
+        {
+            remove( event.getKey(), event.getOldValue() );
+        }
+    }
+
+    @CacheEntryExpired
+    public void expired( final CacheEntryExpiredEvent<IndexedStorePath, IndexedStorePath> event )
+    {
+        remove( event.getKey(), event.getValue() );
+    }
+
+    @CacheEntriesEvicted
+    public void evicted( final CacheEntriesEvictedEvent<IndexedStorePath, IndexedStorePath> event )
+    {
+        event.getEntries().forEach( this::remove );
+    }
+
+    private void add( final IndexedStorePath key, final IndexedStorePath value )
+    {
+        if ( key == null )
+        {
+            return;
+        }
+
+        addTo( byStore, key.getStoreKey(), key );
+
+        final StoreKey origin = originOf( key, value );
+        if ( origin != null )
+        {
+            addTo( byOrigin, origin, key );
+        }
+    }
+
+    private void remove( final IndexedStorePath key, final IndexedStorePath value )
+    {
+        if ( key == null )
+        {
+            return;
+        }
+
+        removeFrom( byStore, key.getStoreKey(), key );
+        removeOrigin( key, value );
+    }
+
+    private void removeOrigin( final IndexedStorePath key, final IndexedStorePath value )
+    {
+        final StoreKey origin = originOf( key, value );
+        if ( origin != null )
+        {
+            removeFrom( byOrigin, origin, key );
+        }
+    }
+
+    /**
+     * Group entries map to the member entry they were resolved from, so the value's store is the origin.
+     */
+    private StoreKey originOf( final IndexedStorePath key, final IndexedStorePath value )
+    {
+        if ( key == null || value == null )
+        {
+            return null;
+        }
+
+        final StoreKey origin = value.getStoreKey();
+        return origin.equals( key.getStoreKey() ) ? null : origin;
+    }
+
+    private static <K, V> void addTo( final Map<K, Set<V>> map, final K key, final V value )
+    {
+        map.compute( key, ( k, values ) -> {
+            final Set<V> result = values == null ? ConcurrentHashMap.newKeySet() : values;
+            result.add( value );
+            return result;
+        } );
+    }
+
+    private static <K, V> void removeFrom( final Map<K, Set<V>> map, final K key, final V value )
+    {
+        map.computeIfPresent( key, ( k, values ) -> {
+            values.remove( value );
+            return values.isEmpty() ? null : values;
+        } );
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.content.index;
+
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.maven.galley.nfc.MemoryNotFoundCache;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ContentIndexManagerTest
+{
+    private static final String PATH = "org/foo/bar/1/bar-1.pom";
+
+    private static final String OTHER_PATH = "org/foo/bar/2/bar-2.pom";
+
+    private final StoreKey hosted = new StoreKey( StoreType.hosted, "hosted" );
+
+    private final StoreKey other = new StoreKey( StoreType.hosted, "other" );
+
+    private final StoreKey group = new StoreKey( StoreType.group, "group" );
+
+    private final StoreKey outer = new StoreKey( StoreType.group, "outer" );
+
+    private EmbeddedCacheManager cacheManager;
+
+    private Cache<IndexedStorePath, IndexedStorePath> cache;
+
+    private ContentIndexManager manager;
+
+    @Before
+    public void setup()
+    {
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().build() );
+        cache = cacheManager.getCache( "content-index", true );
+        manager = new ContentIndexManager( null, null, new CacheHandle<>( "content-index", cache ),
+                                           new MemoryNotFoundCache() );
+    }
+
+    @After
+    public void teardown()
+    {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void indexPathInStoresWritesOriginAndTopKeys()
+            throws Exception
+    {
+        manager.indexPathInStores( PATH, hosted, group, outer );
+
+        assertThat( manager.getIndexedStorePath( hosted, PATH ), notNullValue() );
+        assertThat( manager.getIndexedStorePath( group, PATH ).getStoreKey(), equalTo( hosted ) );
+        assertThat( manager.getIndexedStorePath( outer, PATH ).getStoreKey(), equalTo( hosted ) );
+
+        assertThat( manager.getIndexedStorePaths( hosted ).size(), equalTo( 3 ) );
+        assertThat( manager.getIndexedStorePaths( group ).size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void clearIndexedStoreDropsEntriesResolvedThroughIt()
+            throws Exception
+    {
+        manager.indexPathInStores( PATH, hosted, group );
+        manager.indexPathInStores( OTHER_PATH, other, group );
+
+        Set<IndexedStorePath> cleared = new HashSet<>();
+        manager.clearIndexedStore( hosted, cleared::add );
+
+        assertThat( cleared.size(), equalTo( 2 ) );
+        assertThat( manager.getIndexedStorePath( hosted, PATH ), nullValue() );
+        assertThat( manager.getIndexedStorePath( group, PATH ), nullValue() );
+        assertThat( manager.getIndexedStorePath( group, OTHER_PATH ), notNullValue() );
+        assertThat( manager.getIndexedStorePaths( hosted ).isEmpty(), equalTo( true ) );
+    }
+
+    @Test
+    public void clearIndexedPathFromGroupsReportsRemovedEntries()
+            throws Exception
+    {
+        manager.indexPathInStores( PATH, hosted, group );
+
+        Set<IndexedStorePath> cleared = new HashSet<>();
+        Set<Group> groups = new HashSet<>();
+        groups.add( new Group( group.getName() ) );
+        groups.add( new Group( outer.getName() ) );
+
+        manager.clearIndexedPathFrom( PATH, groups, cleared::add );
+
+        assertThat( cleared.size(), equalTo( 1 ) );
+        assertThat( manager.getIndexedStorePath( group, PATH ), nullValue() );
+        assertThat( manager.getIndexedStorePath( hosted, PATH ), notNullValue() );
+        assertThat( manager.getIndexedStorePaths( hosted ).size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void evictedEntriesLeaveTheStoreIndex()
+            throws Exception
+    {
+        manager.indexPathInStores( PATH, hosted, group );
+
+        cache.evict( new IndexedStorePath( group, PATH ) );
+
+        assertThat( manager.getIndexedStorePaths( group ).isEmpty(), equalTo( true ) );
+        assertThat( manager.getIndexedStorePaths( hosted ).size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void reindexingThroughAnotherMemberMovesTheOrigin()
+            throws Exception
+    {
+        manager.indexPathInStores( PATH, hosted, group );
+        manager.indexPathInStores( PATH, other, group );
+
+        assertThat( manager.getIndexedStorePath( group, PATH ).getStoreKey(), equalTo( other ) );
+
+        manager.clearIndexedStore( hosted, null );
+
+        assertThat( manager.getIndexedStorePath( group, PATH ), notNullValue() );
+    }
+}
@@ -35,15 +35,34 @@ import javax.inject.Inject;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class FoloRecordCache
 {
 
+    /**
+     * Number of lock stripes guarding the in-progress records. Recording entries takes the shared side of a stripe, so
+     * concurrent downloads/uploads for the same tracking key proceed in parallel; sealing and deleting a record take
+     * the exclusive side so no entry can slip into the in-progress cache while it is being moved to the sealed cache.
+     */
+    private static final int LOCK_STRIPES = 64;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
+    private final ReadWriteLock[] recordLocks = new ReadWriteLock[LOCK_STRIPES];
+
+    {
+        for ( int i = 0; i < LOCK_STRIPES; i++ )
+        {
+            recordLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
     @FoloInprogressCache
     @Inject
     private CacheHandle<TrackedContentEntry, TrackedContentEntry> inProgressRecordCache;
@@ -70,54 +89,62 @@ public class FoloRecordCache
      * @param entry The TrackedContentEntry which will be cached
      * @return True if a new record was stored, otherwise false
      */
-    public synchronized boolean recordArtifact( final TrackedContentEntry entry )
+    public boolean recordArtifact( final TrackedContentEntry entry )
             throws FoloContentException,IndyWorkflowException
     {
-        if ( sealedRecordCache.containsKey( entry.getTrackingKey() ) )
-        {
-            throw new FoloContentException( "Tracking record: {} is already sealed!", entry.getTrackingKey() );
-        }
+        final TrackingKey trackingKey = entry.getTrackingKey();
+        final ReadWriteLock lock = getRecordLock( trackingKey );
 
-        Logger logger = LoggerFactory.getLogger( getClass() );
-        logger.debug( "Trying to add tracking entry: {}", entry );
-        if ( !inProgressRecordCache.containsKey( entry ) )
+        lock.readLock().lock();
+        try
         {
-            logger.debug( "Adding: {}", entry );
-            inProgressRecordCache.put( entry, entry );
-            return true;
+            checkNotSealed( trackingKey );
+
+            logger.debug( "Trying to add tracking entry: {}", entry );
+            TrackedContentEntry existing = inProgressRecordCache.putIfAbsent( entry, entry );
+            if ( existing == null )
+            {
+                logger.debug( "Added: {}", entry );
+                return true;
+            }
+
+            logger.debug( "record already contains entry: {} (existing: {})", entry, existing );
+            return false;
         }
-        else
+        finally
         {
-            logger.debug( "record already contains entry: {} (existing: {})", entry, inProgressRecordCache.get( entry ) );
+            lock.readLock().unlock();
         }
-        return false;
     }
 
-    public synchronized void delete( final TrackingKey key )
+    public void delete( final TrackingKey key )
     {
-        sealedRecordCache.remove( key );
-        inProgressByTrackingKey( key, (qb, ch)->{
-            qb.build().list().forEach( item -> ch.execute( cache -> cache.remove( item ) ) );
-            return false;
+        withExclusiveLock( key, () -> {
+            sealedRecordCache.remove( key );
+            inProgressByTrackingKey( key, ( qb, ch ) -> {
+                qb.build().list().forEach( item -> ch.execute( cache -> cache.remove( item ) ) );
+                return false;
+            } );
+            return null;
         } );
     }
 
-    public synchronized boolean hasRecord( final TrackingKey key )
+    public boolean hasRecord( final TrackingKey key )
     {
         return hasSealedRecord( key ) || hasInProgressRecord( key );
     }
 
-    public synchronized boolean hasSealedRecord( final TrackingKey key )
+    public boolean hasSealedRecord( final TrackingKey key )
     {
         return sealedRecordCache.containsKey( key );
     }
 
-    public synchronized boolean hasInProgressRecord( final TrackingKey key )
+    public boolean hasInProgressRecord( final TrackingKey key )
     {
         return !sealedRecordCache.containsKey( key ) && inProgressByTrackingKey( key, (qb, cacheHandle)->qb.build().getResultSize() > 0);
     }
 
-    public synchronized TrackedContent get( final TrackingKey key )
+    public TrackedContent get( final TrackingKey key )
     {
         return sealedRecordCache.get( key );
     }
@@ -133,35 +160,44 @@ public class FoloRecordCache
             return record;
         }
 
-        logger.debug( "Listing unsealed tracking record entries for: {}...", trackingKey );
-        return inProgressByTrackingKey( trackingKey, (qb, cacheHandle)-> {
-            Query query = qb.build();
-            List<TrackedContentEntry> results = query.list();
-            TrackedContent created = null;
-            if ( results != null )
+        return withExclusiveLock( trackingKey, () -> {
+            TrackedContent sealed = sealedRecordCache.get( trackingKey );
+            if ( sealed != null )
             {
-                logger.debug( "Adding {} entries to record: {}", results.size(), trackingKey );
-                Set<TrackedContentEntry> uploads = new TreeSet<>();
-                Set<TrackedContentEntry> downloads = new TreeSet<>();
-                results.forEach( ( result ) -> {
-                    if ( StoreEffect.DOWNLOAD == result.getEffect() )
-                    {
-                        downloads.add( result );
-                    }
-                    else if ( StoreEffect.UPLOAD == result.getEffect() )
-                    {
-                        uploads.add( result );
-                    }
-                    logger.debug( "Removing in-progress entry: {}", result );
-                    inProgressRecordCache.remove( result );
-                } );
-                created = new TrackedContent( trackingKey, uploads, downloads );
+                logger.debug( "Tracking record: {} was sealed concurrently. Returning sealed record.", trackingKey );
+                return sealed;
             }
 
-            logger.debug( "Sealing record for: {}", trackingKey );
-            sealedRecordCache.put( trackingKey, created );
-            return created;
-        });
+            logger.debug( "Listing unsealed tracking record entries for: {}...", trackingKey );
+            return inProgressByTrackingKey( trackingKey, (qb, cacheHandle)-> {
+                Query query = qb.build();
+                List<TrackedContentEntry> results = query.list();
+                TrackedContent created = null;
+                if ( results != null )
+                {
+                    logger.debug( "Adding {} entries to record: {}", results.size(), trackingKey );
+                    Set<TrackedContentEntry> uploads = new TreeSet<>();
+                    Set<TrackedContentEntry> downloads = new TreeSet<>();
+                    results.forEach( ( result ) -> {
+                        if ( StoreEffect.DOWNLOAD == result.getEffect() )
+                        {
+                            downloads.add( result );
+                        }
+                        else if ( StoreEffect.UPLOAD == result.getEffect() )
+                        {
+                            uploads.add( result );
+                        }
+                        logger.debug( "Removing in-progress entry: {}", result );
+                        inProgressRecordCache.remove( result );
+                    } );
+                    created = new TrackedContent( trackingKey, uploads, downloads );
+                }
+
+                logger.debug( "Sealing record for: {}", trackingKey );
+                sealedRecordCache.put( trackingKey, created );
+                return created;
+            });
+        } );
     }
 
     public Set<TrackingKey> getInProgressTrackingKey()
@@ -177,6 +213,37 @@ public class FoloRecordCache
         return sealedRecordCache.execute( Cache::keySet );
     }
 
+    /**
+     * Fast-path check run before every recorded entry; it only touches the sealed-record cache.
+     */
+    private void checkNotSealed( final TrackingKey trackingKey )
+            throws FoloContentException
+    {
+        if ( sealedRecordCache.containsKey( trackingKey ) )
+        {
+            throw new FoloContentException( "Tracking record: {} is already sealed!", trackingKey );
+        }
+    }
+
+    private <R> R withExclusiveLock( final TrackingKey key, final Supplier<R> operation )
+    {
+        final ReadWriteLock lock = getRecordLock( key );
+        lock.writeLock().lock();
+        try
+        {
+            return operation.get();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ReadWriteLock getRecordLock( final TrackingKey key )
+    {
+        return recordLocks[( key.hashCode() & Integer.MAX_VALUE ) % LOCK_STRIPES];
+    }
+
     private <R> R inProgressByTrackingKey( final TrackingKey key, final BiFunction<QueryBuilder, CacheHandle<TrackedContentEntry, TrackedContentEntry>, R> operation )
     {
         return inProgressRecordCache.execute( ( cache ) -> {
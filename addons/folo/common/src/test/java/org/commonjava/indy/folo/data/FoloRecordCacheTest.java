@@ -30,8 +30,16 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -163,6 +171,64 @@ public class FoloRecordCacheTest
         assertThat( cache.hasRecord( key ), equalTo( false ) );
     }
 
+    @Test
+    public void concurrentRecordingAcrossTrackingKeys()
+            throws Exception
+    {
+        for ( int keys : new int[] { 1, 8, 64 } )
+        {
+            recordConcurrently( keys, 64, 100 );
+            teardown();
+        }
+    }
+
+    private void recordConcurrently( final int keyCount, final int threads, final int entriesPerThread )
+            throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        final List<Future<?>> futures = new ArrayList<>();
+
+        final long start = System.nanoTime();
+        for ( int t = 0; t < threads; t++ )
+        {
+            final int thread = t;
+            futures.add( executor.submit( () -> {
+                for ( int i = 0; i < entriesPerThread; i++ )
+                {
+                    final TrackingKey key = new TrackingKey( "track-" + ( thread % keyCount ) );
+                    cache.recordArtifact( new TrackedContentEntry( key, new StoreKey( StoreType.remote, "foo" ),
+                                                                   AccessChannel.MAVEN_REPO, "",
+                                                                   "/path/" + thread + "/" + i, StoreEffect.DOWNLOAD,
+                                                                   1L, "", "", "" ) );
+                }
+                return null;
+            } ) );
+        }
+
+        for ( Future<?> future : futures )
+        {
+            future.get();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        logger.info( "Recorded {} tracked downloads across {} tracking keys in {}ms", threads * entriesPerThread,
+                     keyCount, TimeUnit.NANOSECONDS.toMillis( elapsed ) );
+
+        int total = 0;
+        for ( int k = 0; k < keyCount; k++ )
+        {
+            TrackedContent record = cache.seal( new TrackingKey( "track-" + k ) );
+            assertThat( record, notNullValue() );
+            total += record.getDownloads().size();
+        }
+
+        assertThat( total, equalTo( threads * entriesPerThread ) );
+    }
+
     private TrackingKey newKey()
     {
         final String id = "track";
@@ -17,38 +17,32 @@ package org.commonjava.indy.httprox.handler;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
-import org.apache.http.HttpRequestFactory;
-import org.apache.http.config.MessageConstraints;
-import org.apache.http.impl.DefaultHttpRequestFactory;
-import org.apache.http.impl.io.DefaultHttpRequestParser;
-import org.apache.http.impl.io.HttpTransportMetricsImpl;
-import org.apache.http.impl.io.SessionInputBufferImpl;
-import org.apache.http.message.BasicLineParser;
-import org.apache.http.message.LineParser;
+import org.commonjava.indy.httprox.util.HttpRequestHeadParser;
 import org.commonjava.indy.util.ApplicationHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.BufferAllocator;
+import org.xnio.ByteBufferSlicePool;
 import org.xnio.ChannelListener;
+import org.xnio.Pool;
+import org.xnio.Pooled;
 import org.xnio.conduits.ConduitStreamSinkChannel;
 import org.xnio.conduits.ConduitStreamSourceChannel;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 
 public final class ProxyRequestReader
         implements ChannelListener<ConduitStreamSourceChannel>
 {
-    private final Logger logger = LoggerFactory.getLogger( getClass() );
+    private static final int READ_BUFFER_SIZE = 4096;
 
-    private ByteArrayOutputStream req = new ByteArrayOutputStream();
+    private static final Pool<ByteBuffer> READ_BUFFERS =
+            new ByteBufferSlicePool( BufferAllocator.BYTE_BUFFER_ALLOCATOR, READ_BUFFER_SIZE, READ_BUFFER_SIZE * 128 );
 
-    private char lastChar = 0;
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
 
-    private boolean headDone = false;
+    private final HttpRequestHeadParser parser = new HttpRequestHeadParser();
 
     private final ProxyResponseWriter writer;
 
@@ -70,35 +64,29 @@ public final class ProxyRequestReader
         {
             final int read = doRead( channel );
 
-            logger.debug( "Request in progress is:\n\n'{}'", new String( req.toByteArray() ) );
-
-            if ( read < 0 || headDone )
+            if ( read < 0 || parser.isComplete() )
             {
-                logger.debug( "request done. parsing." );
-                MessageConstraints mc = MessageConstraints.DEFAULT;
-                SessionInputBufferImpl inbuf = new SessionInputBufferImpl( new HttpTransportMetricsImpl(), 1024 );
-                HttpRequestFactory requestFactory = new DefaultHttpRequestFactory();
-                LineParser lp = new BasicLineParser();
-
-                DefaultHttpRequestParser requestParser = new DefaultHttpRequestParser( inbuf, lp, requestFactory, mc );
-
-                inbuf.bind( new ByteArrayInputStream( req.toByteArray() ) );
+                if ( logger.isDebugEnabled() )
+                {
+                    logger.debug( "request done. parsing:\n\n'{}'", parser );
+                }
 
                 try
                 {
                     logger.debug( "Passing parsed http request off to response writer." );
-                    HttpRequest request = requestParser.parse();
+                    HttpRequest request = parser.parse();
                     logger.debug( "Request contains {} header: '{}'", ApplicationHeader.authorization.key(),
                                   request.getHeaders( ApplicationHeader.authorization.key() ) );
 
                     writer.setHttpRequest( request );
-                    sendResponse = true;
                 }
                 catch ( HttpException e )
                 {
                     logger.error( "Failed to parse http request: " + e.getMessage(), e );
                     writer.setError( e );
                 }
+
+                sendResponse = true;
             }
             else
             {
@@ -128,60 +116,38 @@ public final class ProxyRequestReader
         }
     }
 
+    /**
+     * Read whatever is available into the head parser, stopping as soon as the end of the request head is seen.
+     *
+     * @return the result of the last read: -1 at end of stream, otherwise the number of bytes read
+     */
     private int doRead( final ConduitStreamSourceChannel channel )
             throws IOException
     {
         int read = -1;
-        if ( headDone )
+        if ( parser.isComplete() )
         {
             return read;
         }
 
-        final ByteBuffer buf = ByteBuffer.allocate( 256 );
-        logger.debug( "Starting read: {}", channel );
-
-        PrintWriter printer = new PrintWriter( new OutputStreamWriter( req ) );
-
-        readLoop:
-        while ( ( read = channel.read( buf ) ) > 0 )
+        try (Pooled<ByteBuffer> pooled = READ_BUFFERS.allocate())
         {
-            logger.debug( "Read {} bytes", read );
-
-            buf.flip();
-            final byte[] bbuf = new byte[buf.limit()];
-            buf.get( bbuf );
-
-            //            req.write( bbuf );
-            // inefficient, but allows us to stop after header read...
-            final String part = new String( bbuf );
-//            logger.debug( part );
-            for ( final char c : part.toCharArray() )
+            final ByteBuffer buf = pooled.getResource();
+            while ( ( read = channel.read( buf ) ) > 0 )
             {
-                switch ( c )
+                logger.trace( "Read {} bytes", read );
+
+                buf.flip();
+                if ( parser.feed( buf ) )
                 {
-                    case '\r':
-                    {
-                        // check: \r\N\R\n
-                        if ( lastChar == '\n' && req.size() > 0 )
-                        {
-                            // end of request head
-                            logger.debug( "Detected end of request head. Breaking read loop." );
-                            headDone = true;
-                            break readLoop;
-                        }
-                    }
-                    default:
-                    {
-                        req.write( (byte) c & 0x00FF );
-                    }
+                    logger.debug( "Detected end of request head. Breaking read loop." );
+                    break;
                 }
-
-                lastChar = c;
+                buf.clear();
             }
         }
 
-        logger.debug( "Processed {} bytes", read );
         return read;
     }
 
-}
\ No newline at end of file
+}
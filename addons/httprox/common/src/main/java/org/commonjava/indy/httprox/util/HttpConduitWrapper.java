@@ -32,15 +32,17 @@ import org.commonjava.maven.galley.spi.cache.CacheProvider;
 import org.commonjava.maven.galley.transport.htcli.model.HttpExchangeMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xnio.channels.Channels;
+import org.xnio.ChannelListeners;
+import org.xnio.IoUtils;
 import org.xnio.conduits.ConduitStreamSinkChannel;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +62,8 @@ public class HttpConduitWrapper
 
     private CacheProvider cacheProvider;
 
+    private TransferBodySender bodySender;
+
     public HttpConduitWrapper( ConduitStreamSinkChannel channel, HttpRequest httpRequest, ContentController contentController, CacheProvider cacheProvider )
     {
         this.sinkChannel = channel;
@@ -158,8 +162,10 @@ public class HttpConduitWrapper
     {
         Logger logger = LoggerFactory.getLogger( getClass() );
         logger.debug( "Valid transfer found." );
-        try(InputStream in = txfr.openInputStream( true, eventMetadata ))
+        InputStream in = null;
+        try
         {
+            in = txfr.openInputStream( true, eventMetadata );
             final HttpExchangeMetadata metadata = contentController.getHttpMetadata( txfr );
             logger.trace( "Got HTTP metadata: {} for transfer: {}", metadata, txfr );
 
@@ -194,24 +200,11 @@ public class HttpConduitWrapper
 
             if ( writeBody )
             {
-                sinkChannel.write( ByteBuffer.wrap( "\r\n".getBytes() ) );
-
-                int capacity = 16384;
-                ByteBuffer bbuf = ByteBuffer.allocate( capacity );
-                byte[] buf = new byte[capacity];
-                int read = -1;
-                while ( ( read = in.read( buf ) ) > -1 )
-                {
-                    bbuf.clear();
-                    bbuf.put( buf, 0, read );
-                    bbuf.flip();
-                    int written = 0;
-                    do
-                    {
-                        written += sinkChannel.write( bbuf );
-                    }
-                    while ( written < read );
-                }
+                // the sender owns the stream from here, and closes it once the body is sent.
+                bodySender = new TransferBodySender( sinkChannel, ByteBuffer.wrap( "\r\n".getBytes() ), in,
+                                                     openFileChannel( txfr, bytes ) );
+                in = null;
+                bodySender.start();
             }
         }
         catch ( IndyWorkflowException e )
@@ -221,7 +214,40 @@ public class HttpConduitWrapper
         }
         finally
         {
-            cacheProvider.cleanupCurrentThread();
+            // release only this transfer's stream: other connections served by this IO thread may still be reading,
+            // so a thread-wide cache cleanup would pull their streams out from under them.
+            IOUtils.closeQuietly( in );
+        }
+    }
+
+    /**
+     * Open a channel on the file behind the transfer, so the body can be sent without copying it through the heap.
+     * Returns null (meaning: stream the body) if the content isn't a plain, completely written file of the expected
+     * length; for example, while it's still being downloaded from upstream.
+     */
+    private FileChannel openFileChannel( Transfer txfr, long expectedLength )
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        try
+        {
+            String filePath = cacheProvider.getFilePath( txfr.getResource() );
+            if ( filePath == null || cacheProvider.isWriteLocked( txfr.getResource() ) )
+            {
+                return null;
+            }
+
+            File file = new File( filePath );
+            if ( !file.isFile() || ( expectedLength > 0 && file.length() != expectedLength ) )
+            {
+                return null;
+            }
+
+            return FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            logger.debug( "Cannot open file channel for: {}; streaming instead. Reason: {}", txfr, e.getMessage() );
+            return null;
         }
     }
 
@@ -244,29 +270,48 @@ public class HttpConduitWrapper
         return result;
     }
 
+    /**
+     * Shut down the response once everything has been written. If the body is still being sent, this happens when it
+     * completes; if the channel can't flush right away, the flush is finished on write-ready events.
+     */
     public void close()
             throws IOException
     {
-        Logger logger = LoggerFactory.getLogger( getClass() );
-
-        boolean flushed = false;
-        while ( !flushed )
+        if ( bodySender != null && !bodySender.isDone() )
         {
-            flushed = sinkChannel.flush();
-            if ( !flushed )
-            {
+            bodySender.whenDone( () -> {
                 try
                 {
-                    logger.debug( "Waiting for sink channel to flush..." );
-                    wait( 100 );
+                    shutdown();
                 }
-                catch ( InterruptedException e )
+                catch ( IOException e )
                 {
-                    e.printStackTrace();
+                    Logger logger = LoggerFactory.getLogger( getClass() );
+                    logger.error( "Failed to flush/shutdown response.", e );
+                    IoUtils.safeClose( sinkChannel );
                 }
-            }
+            } );
+            return;
         }
 
+        shutdown();
+    }
+
+    private void shutdown()
+            throws IOException
+    {
         sinkChannel.shutdownWrites();
+        if ( sinkChannel.flush() )
+        {
+            sinkChannel.suspendWrites();
+            return;
+        }
+
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        logger.debug( "Waiting for sink channel to flush..." );
+        sinkChannel.getWriteSetter().set( ChannelListeners.flushingChannelListener(
+                ( ConduitStreamSinkChannel channel ) -> channel.suspendWrites(),
+                ChannelListeners.closingChannelExceptionHandler() ) );
+        sinkChannel.resumeWrites();
     }
 }
@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.util;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.MessageConstraintException;
+import org.apache.http.ParseException;
+import org.apache.http.ProtocolException;
+import org.apache.http.RequestLine;
+import org.apache.http.impl.DefaultHttpRequestFactory;
+import org.apache.http.message.BasicLineParser;
+import org.apache.http.message.ParserCursor;
+import org.apache.http.util.CharArrayBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental parser for the head (request line and headers) of an HTTP request. Bytes are appended as they arrive
+ * with {@link #feed(ByteBuffer)}, which scans only the new bytes for the blank line ending the head, without decoding
+ * them. Once the head is complete, {@link #parse()} turns it into an {@link HttpRequest} in a single pass, using the
+ * same line parser and request factory as httpcore's own request parser.
+ * <p>
+ * Anything after the blank line (a request body) is ignored, as are empty lines ahead of the request line.
+ */
+public final class HttpRequestHeadParser
+{
+    public static final int DEFAULT_MAX_HEAD_SIZE = 64 * 1024;
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private final int maxHeadSize;
+
+    private byte[] head = new byte[512];
+
+    private int length;
+
+    private int scanned;
+
+    private int headEnd = -1;
+
+    private boolean seenContent;
+
+    public HttpRequestHeadParser()
+    {
+        this( DEFAULT_MAX_HEAD_SIZE );
+    }
+
+    public HttpRequestHeadParser( final int maxHeadSize )
+    {
+        this.maxHeadSize = maxHeadSize;
+    }
+
+    /**
+     * Append the readable bytes of the buffer (up to the end of the head, if it's found).
+     *
+     * @return true once the end of the request head has been seen
+     * @throws MessageConstraintException if more than the maximum head size is received without seeing its end
+     */
+    public boolean feed( final ByteBuffer buffer )
+            throws MessageConstraintException
+    {
+        if ( isComplete() )
+        {
+            return true;
+        }
+
+        final int count = buffer.remaining();
+        if ( length + count > head.length )
+        {
+            head = Arrays.copyOf( head, Math.max( head.length * 2, length + count ) );
+        }
+
+        buffer.get( head, length, count );
+        length += count;
+
+        for ( int i = scanned; i < length; i++ )
+        {
+            final byte b = head[i];
+            if ( b != LF )
+            {
+                seenContent |= b != CR;
+                continue;
+            }
+
+            // a blank line is LF LF, or LF CR LF
+            if ( seenContent && i > 0 )
+            {
+                if ( head[i - 1] == LF )
+                {
+                    headEnd = i;
+                }
+                else if ( i > 1 && head[i - 1] == CR && head[i - 2] == LF )
+                {
+                    headEnd = i - 1;
+                }
+
+                if ( headEnd > -1 )
+                {
+                    break;
+                }
+            }
+        }
+
+        scanned = length;
+        if ( !isComplete() && length > maxHeadSize )
+        {
+            throw new MessageConstraintException( "Request head is larger than " + maxHeadSize + " bytes" );
+        }
+
+        return isComplete();
+    }
+
+    public boolean isComplete()
+    {
+        return headEnd > -1;
+    }
+
+    /**
+     * Parse the request head. If the head isn't complete (the client stopped sending before the blank line), whatever
+     * has been received is parsed.
+     */
+    public HttpRequest parse()
+            throws HttpException, ConnectionClosedException
+    {
+        final int end = isComplete() ? headEnd : length;
+        final List<CharArrayBuffer> lines = new ArrayList<>();
+
+        int pos = 0;
+        while ( pos < end )
+        {
+            int eol = pos;
+            while ( eol < end && head[eol] != LF )
+            {
+                eol++;
+            }
+
+            int lineEnd = eol;
+            if ( lineEnd > pos && head[lineEnd - 1] == CR )
+            {
+                lineEnd--;
+            }
+
+            if ( lineEnd > pos )
+            {
+                if ( lines.size() > 1 && ( head[pos] == ' ' || head[pos] == '\t' ) )
+                {
+                    // obsolete line folding; continue the previous header
+                    final CharArrayBuffer previous = lines.get( lines.size() - 1 );
+                    int start = pos;
+                    while ( start < lineEnd && ( head[start] == ' ' || head[start] == '\t' ) )
+                    {
+                        start++;
+                    }
+                    previous.append( ' ' );
+                    appendLatin1( previous, start, lineEnd );
+                }
+                else
+                {
+                    final CharArrayBuffer line = new CharArrayBuffer( lineEnd - pos );
+                    appendLatin1( line, pos, lineEnd );
+                    lines.add( line );
+                }
+            }
+
+            pos = eol + 1;
+        }
+
+        if ( lines.isEmpty() )
+        {
+            throw new ConnectionClosedException( "Client closed connection" );
+        }
+
+        try
+        {
+            final CharArrayBuffer first = lines.get( 0 );
+            final RequestLine requestLine =
+                    BasicLineParser.INSTANCE.parseRequestLine( first, new ParserCursor( 0, first.length() ) );
+
+            final HttpRequest request = DefaultHttpRequestFactory.INSTANCE.newHttpRequest( requestLine );
+            for ( int i = 1; i < lines.size(); i++ )
+            {
+                final Header header = BasicLineParser.INSTANCE.parseHeader( lines.get( i ) );
+                request.addHeader( header );
+            }
+
+            return request;
+        }
+        catch ( final ParseException e )
+        {
+            throw new ProtocolException( e.getMessage(), e );
+        }
+    }
+
+    /**
+     * @return the request head received so far, for logging
+     */
+    @Override
+    public String toString()
+    {
+        final CharArrayBuffer buf = new CharArrayBuffer( length );
+        appendLatin1( buf, 0, isComplete() ? headEnd : length );
+        return buf.toString();
+    }
+
+    private void appendLatin1( final CharArrayBuffer buf, final int from, final int to )
+    {
+        for ( int i = from; i < to; i++ )
+        {
+            buf.append( (char) ( head[i] & 0xff ) );
+        }
+    }
+}
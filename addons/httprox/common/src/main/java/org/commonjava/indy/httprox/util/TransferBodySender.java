@@ -0,0 +1,330 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.util;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.BufferAllocator;
+import org.xnio.ByteBufferSlicePool;
+import org.xnio.ChannelListener;
+import org.xnio.IoUtils;
+import org.xnio.Pool;
+import org.xnio.Pooled;
+import org.xnio.conduits.ConduitStreamSinkChannel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Writes a response body to a non-blocking sink channel without ever spinning on it. As much as the channel accepts
+ * is written straight away; when it stops accepting bytes, this sender installs itself as the channel's write listener
+ * and picks up again on the next write-ready event.
+ * <p>
+ * Bodies backed by a file are sent with {@link ConduitStreamSinkChannel#transferFrom(FileChannel, long, long)}, which
+ * lets the kernel move the bytes. Other bodies are copied through a pooled direct buffer. Reading the stream can block
+ * (eg. on content still being downloaded from upstream), so each refill of the buffer runs on one of the XNIO worker's
+ * task threads, with writes suspended; writing resumes on the IO thread once the buffer is full again.
+ * <p>
+ * The transfer's input stream is held open (and only closed once the body is sent) so galley's read lock and access
+ * events cover the whole response, even when the bytes are read from the file channel instead. Only this sender's own
+ * stream and channel are released when it finishes: the write-ready events run on an XNIO IO thread shared with other
+ * connections, so thread-wide cleanup (eg. {@code CacheProvider.cleanupCurrentThread()}) would also release their
+ * in-flight reads.
+ */
+public class TransferBodySender
+        implements ChannelListener<ConduitStreamSinkChannel>
+{
+    private static final int BUFFER_SIZE = 16384;
+
+    private static final Pool<ByteBuffer> BUFFER_POOL =
+            new ByteBufferSlicePool( BufferAllocator.DIRECT_BYTE_BUFFER_ALLOCATOR, BUFFER_SIZE, BUFFER_SIZE * 64 );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final ConduitStreamSinkChannel sinkChannel;
+
+    private final InputStream stream;
+
+    private final FileChannel fileChannel;
+
+    private final ByteBuffer prefix;
+
+    private ReadableByteChannel source;
+
+    private Pooled<ByteBuffer> pooled;
+
+    private long position;
+
+    private long count;
+
+    private boolean eof;
+
+    private IOException readFailure;
+
+    private boolean reading;
+
+    private boolean finishing;
+
+    private volatile boolean done;
+
+    private Runnable onComplete;
+
+    /**
+     * @param prefix bytes to send ahead of the body (the blank line ending the headers)
+     * @param fileChannel channel on the file backing the transfer, or null to copy from the stream
+     */
+    public TransferBodySender( ConduitStreamSinkChannel sinkChannel, ByteBuffer prefix, InputStream stream,
+                               FileChannel fileChannel )
+    {
+        this.sinkChannel = sinkChannel;
+        this.prefix = prefix;
+        this.stream = stream;
+        this.fileChannel = fileChannel;
+    }
+
+    /**
+     * Send as much of the body as the channel will take right now. If it isn't all sent, resume on write-ready events.
+     */
+    public void start()
+            throws IOException
+    {
+        try
+        {
+            if ( fileChannel != null )
+            {
+                count = fileChannel.size();
+            }
+            else
+            {
+                source = Channels.newChannel( stream );
+                pooled = BUFFER_POOL.allocate();
+                pooled.getResource().flip();
+            }
+
+            sinkChannel.getWriteSetter().set( this );
+            if ( send() )
+            {
+                finish();
+            }
+            else if ( !isReading() )
+            {
+                logger.debug( "Sink channel is full; waiting for it to become writable." );
+                sinkChannel.resumeWrites();
+            }
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            finish();
+            throw e;
+        }
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * Run the given action once the body is completely sent (right away, if it already is). The action runs exactly
+     * once, on whichever thread finishes the body or on the calling thread, even if this races with the last write.
+     */
+    public void whenDone( Runnable action )
+    {
+        synchronized ( this )
+        {
+            if ( !done )
+            {
+                onComplete = action;
+                return;
+            }
+        }
+
+        action.run();
+    }
+
+    @Override
+    public void handleEvent( ConduitStreamSinkChannel channel )
+    {
+        try
+        {
+            if ( send() )
+            {
+                channel.suspendWrites();
+                finish();
+            }
+            else if ( !isReading() )
+            {
+                // writes were suspended for the last refill of the buffer, if this call continues from one.
+                channel.resumeWrites();
+            }
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            logger.error( "Failed to send response body: " + e.getMessage(), e );
+            synchronized ( this )
+            {
+                onComplete = null;
+            }
+            finish();
+            IoUtils.safeClose( channel );
+        }
+    }
+
+    /**
+     * @return true if the whole body has been written, false if the channel stopped accepting bytes first
+     */
+    private boolean send()
+            throws IOException
+    {
+        while ( prefix.hasRemaining() )
+        {
+            if ( sinkChannel.write( prefix ) < 1 )
+            {
+                return false;
+            }
+        }
+
+        if ( fileChannel != null )
+        {
+            while ( position < count )
+            {
+                long written = sinkChannel.transferFrom( fileChannel, position, count - position );
+                if ( written < 1 )
+                {
+                    return false;
+                }
+                position += written;
+            }
+
+            return true;
+        }
+
+        if ( readFailure != null )
+        {
+            throw readFailure;
+        }
+
+        ByteBuffer buffer = pooled.getResource();
+        while ( buffer.hasRemaining() )
+        {
+            if ( sinkChannel.write( buffer ) < 1 )
+            {
+                return false;
+            }
+        }
+
+        if ( eof )
+        {
+            return true;
+        }
+
+        synchronized ( this )
+        {
+            reading = true;
+        }
+        sinkChannel.suspendWrites();
+        sinkChannel.getWorker().execute( this::fill );
+        return false;
+    }
+
+    /**
+     * Refill the buffer from the stream, off the IO thread, then carry on sending from the IO thread.
+     */
+    private void fill()
+    {
+        try
+        {
+            ByteBuffer buffer = pooled.getResource();
+            buffer.clear();
+            eof = source.read( buffer ) < 0;
+            buffer.flip();
+        }
+        catch ( IOException e )
+        {
+            readFailure = e;
+        }
+        catch ( RuntimeException e )
+        {
+            readFailure = new IOException( e );
+        }
+
+        synchronized ( this )
+        {
+            reading = false;
+            if ( finishing )
+            {
+                // finish() left the buffer for us to release, since we were still reading into it.
+                freeBuffer();
+                return;
+            }
+        }
+
+        sinkChannel.getIoThread().execute( () -> handleEvent( sinkChannel ) );
+    }
+
+    private synchronized boolean isReading()
+    {
+        return reading;
+    }
+
+    private void freeBuffer()
+    {
+        if ( pooled != null )
+        {
+            pooled.free();
+            pooled = null;
+        }
+    }
+
+    private void finish()
+    {
+        boolean freeBuffer;
+        synchronized ( this )
+        {
+            if ( finishing )
+            {
+                return;
+            }
+            finishing = true;
+            freeBuffer = !reading;
+        }
+
+        IOUtils.closeQuietly( fileChannel );
+        IOUtils.closeQuietly( stream );
+        if ( freeBuffer )
+        {
+            freeBuffer();
+        }
+
+        Runnable action;
+        synchronized ( this )
+        {
+            done = true;
+            action = onComplete;
+            onComplete = null;
+        }
+
+        if ( action != null )
+        {
+            action.run();
+        }
+    }
+}
@@ -75,10 +75,13 @@ import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -206,6 +209,42 @@ public class HttpProxyTest
         assertThat( remoteRepo.getUrl(), equalTo( server.getBaseUri() ) );
     }
 
+    @Test
+    public void proxyLargeBinaryTwice()
+            throws Exception
+    {
+        final String testRepo = "test";
+        final String path = "org/test/large/1/large-1.jar";
+        final byte[] content = new byte[4 * 1024 * 1024];
+        new Random( 42 ).nextBytes( content );
+
+        final String url = server.formatUrl( testRepo, path );
+        server.expect( url, 200, new ByteArrayInputStream( content ) );
+
+        // first request goes upstream; second is served from the local cache
+        for ( int i = 0; i < 2; i++ )
+        {
+            final HttpGet get = new HttpGet( url );
+            final CloseableHttpClient client = proxiedHttp();
+            CloseableHttpResponse response = null;
+
+            InputStream stream = null;
+            try
+            {
+                response = client.execute( get, proxyContext( USER, PASS ) );
+                assertThat( response.getStatusLine().getStatusCode(), equalTo( HttpStatus.SC_OK ) );
+
+                stream = response.getEntity().getContent();
+                assertThat( Arrays.equals( IOUtils.toByteArray( stream ), content ), equalTo( true ) );
+            }
+            finally
+            {
+                IOUtils.closeQuietly( stream );
+                HttpUtil.cleanupResources( client, get, response );
+            }
+        }
+    }
+
     @Test
     public void proxy404()
             throws Exception
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.util;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.MessageConstraintException;
+import org.apache.http.ProtocolException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class HttpRequestHeadParserTest
+{
+    private static final String REQUEST = "GET http://localhost:8080/org/foo/foo-1.pom HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "Proxy-Authorization: Basic dXNlcjpwYXNz\r\n"
+            + "X-Folded: one\r\n"
+            + "  two\r\n"
+            + "\r\n"
+            + "body that should be ignored";
+
+    @Test
+    public void parseHeadFedOneByteAtATime()
+            throws Exception
+    {
+        HttpRequestHeadParser parser = new HttpRequestHeadParser();
+        byte[] bytes = ( "\r\n" + REQUEST ).getBytes( StandardCharsets.ISO_8859_1 );
+
+        int end = REQUEST.indexOf( "\r\n\r\n" ) + 2 + 2 + 2;
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            boolean complete = parser.feed( ByteBuffer.wrap( bytes, i, 1 ) );
+            assertThat( "at byte " + i, complete, equalTo( i + 1 >= end ) );
+            if ( complete )
+            {
+                break;
+            }
+        }
+
+        HttpRequest request = parser.parse();
+        assertThat( request.getRequestLine().getMethod(), equalTo( "GET" ) );
+        assertThat( request.getRequestLine().getUri(), equalTo( "http://localhost:8080/org/foo/foo-1.pom" ) );
+        assertThat( request.getAllHeaders().length, equalTo( 3 ) );
+        assertThat( request.getFirstHeader( "Proxy-Authorization" ).getValue(), equalTo( "Basic dXNlcjpwYXNz" ) );
+        assertThat( request.getFirstHeader( "X-Folded" ).getValue(), equalTo( "one two" ) );
+    }
+
+    @Test
+    public void bareLineFeedsEndTheHead()
+            throws Exception
+    {
+        HttpRequestHeadParser parser = new HttpRequestHeadParser();
+        boolean complete =
+                parser.feed( ByteBuffer.wrap( "HEAD /foo HTTP/1.0\nHost: foo\n\n".getBytes( StandardCharsets.US_ASCII ) ) );
+
+        assertThat( complete, equalTo( true ) );
+        assertThat( parser.parse().getRequestLine().getMethod(), equalTo( "HEAD" ) );
+    }
+
+    @Test( expected = ProtocolException.class )
+    public void malformedRequestLineFails()
+            throws Exception
+    {
+        HttpRequestHeadParser parser = new HttpRequestHeadParser();
+        parser.feed( ByteBuffer.wrap( "garbage\r\n\r\n".getBytes( StandardCharsets.US_ASCII ) ) );
+        parser.parse();
+    }
+
+    @Test( expected = MessageConstraintException.class )
+    public void oversizedHeadFails()
+            throws Exception
+    {
+        HttpRequestHeadParser parser = new HttpRequestHeadParser( 64 );
+        parser.feed( ByteBuffer.wrap( REQUEST.substring( 0, 100 ).getBytes( StandardCharsets.ISO_8859_1 ) ) );
+    }
+}
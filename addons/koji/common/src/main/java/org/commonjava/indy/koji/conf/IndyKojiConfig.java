@@ -68,6 +68,8 @@ public class IndyKojiConfig
 
     public static final long DEFAULT_METADATA_TIMEOUT_SECONDS = 86400;
 
+    public static final long DEFAULT_BUILD_CACHE_TIMEOUT_SECONDS = 300;
+
     private static final boolean DEFAULT_TAG_PATTERNS_ENABLED = false;
 
     private Boolean enabled;
@@ -114,6 +116,8 @@ public class IndyKojiConfig
 
     private Long metadataTimeoutSeconds;
 
+    private Long buildCacheTimeoutSeconds;
+
     private String artifactAuthorityStore;
 
     @Override
@@ -412,6 +416,11 @@ public class IndyKojiConfig
                 this.metadataTimeoutSeconds = Long.parseLong( value );
                 break;
             }
+            case "build.cache.timeout.seconds":
+            {
+                this.buildCacheTimeoutSeconds = Long.parseLong( value );
+                break;
+            }
             case "storage.root.url":
             {
                 this.storageRootUrl = value;
@@ -594,6 +603,20 @@ public class IndyKojiConfig
         this.metadataTimeoutSeconds = metadataTimeoutSeconds;
     }
 
+    /**
+     * How long Koji build lookups (builds containing an artifact, build tags and archives) are shared between
+     * requests before being fetched again.
+     */
+    public Long getBuildCacheTimeoutSeconds()
+    {
+        return buildCacheTimeoutSeconds == null ? DEFAULT_BUILD_CACHE_TIMEOUT_SECONDS : buildCacheTimeoutSeconds;
+    }
+
+    public void setBuildCacheTimeoutSeconds( long buildCacheTimeoutSeconds )
+    {
+        this.buildCacheTimeoutSeconds = buildCacheTimeoutSeconds;
+    }
+
     public String getArtifactAuthorityStore()
     {
         return artifactAuthorityStore;
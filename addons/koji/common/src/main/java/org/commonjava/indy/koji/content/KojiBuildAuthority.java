@@ -72,11 +72,21 @@ public class KojiBuildAuthority
     @Inject
     private DirectContentAccess directContentAccess;
 
+    @Inject
+    private KojiBuildCache buildCache;
+
     protected KojiBuildAuthority(){}
 
     public KojiBuildAuthority( IndyKojiConfig config, TypeMapper typeMapper, KojiClient kojiClient,
                                StoreDataManager storeDataManager, ContentDigester contentDigester,
                                DirectContentAccess directContentAccess )
+    {
+        this( config, typeMapper, kojiClient, storeDataManager, contentDigester, directContentAccess, null );
+    }
+
+    public KojiBuildAuthority( IndyKojiConfig config, TypeMapper typeMapper, KojiClient kojiClient,
+                               StoreDataManager storeDataManager, ContentDigester contentDigester,
+                               DirectContentAccess directContentAccess, KojiBuildCache buildCache )
     {
         this.config = config;
         this.typeMapper = typeMapper;
@@ -84,6 +94,7 @@ public class KojiBuildAuthority
         this.storeDataManager = storeDataManager;
         this.contentDigester = contentDigester;
         this.directContentAccess = directContentAccess;
+        this.buildCache = buildCache;
     }
 
     /**
@@ -128,13 +139,16 @@ public class KojiBuildAuthority
             KojiBuildArchiveCollection archiveCollection = seenBuildArchives.get( build.getId() );
             if ( archiveCollection == null )
             {
-                archiveCollection = kojiClient.listArchivesForBuild( build, session );
-                seenBuildArchives.put( build.getId(), archiveCollection );
-            }
+                archiveCollection = buildCache == null ?
+                        kojiClient.listArchivesForBuild( build, session ) :
+                        buildCache.getArchives( build, session );
 
-            if ( archiveCollection == null )
-            {
-                throw new KojiClientException( "Failed to retrieve archives for build: %s", build );
+                if ( archiveCollection == null )
+                {
+                    throw new KojiClientException( "Failed to retrieve archives for build: %s", build );
+                }
+
+                seenBuildArchives.put( build.getId(), archiveCollection );
             }
 
             // @formatter:off
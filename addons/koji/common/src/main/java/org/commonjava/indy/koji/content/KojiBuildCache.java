@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.koji.content;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.redhat.red.build.koji.KojiClient;
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildArchiveCollection;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildState;
+import com.redhat.red.build.koji.model.xmlrpc.KojiSessionInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import org.commonjava.indy.change.event.ArtifactStoreDeletePostEvent;
+import org.commonjava.indy.koji.conf.IndyKojiConfig;
+import org.commonjava.indy.koji.inject.KojiArtifactBuildsCache;
+import org.commonjava.indy.koji.inject.KojiBuildArchivesCache;
+import org.commonjava.indy.koji.inject.KojiBuildTagsCache;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.SimpleArtifactRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.CREATION_TRIGGER_GAV;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.KOJI_ORIGIN;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.KOJI_ORIGIN_BINARY;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.NVR;
+
+/**
+ * Short-lived, cross-request cache of Koji build lookups: the builds containing an artifact, build tags and build
+ * archive listings. These are the same for every GA / artifact a build produced, so sharing them avoids repeating
+ * identical XML-RPC calls when metadata or content for many artifacts of the same build is requested. Entries expire
+ * after {@link IndyKojiConfig#getBuildCacheTimeoutSeconds()}. They can be dropped early per artifact or per build (e.g.
+ * after a build is tagged into or out of an allowed tag), and the entries behind a Koji build repository are dropped
+ * when that repository is deleted.
+ * Hit / miss meters and a hit-rate gauge are registered for each of the three caches.
+ */
+@ApplicationScoped
+public class KojiBuildCache
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private KojiClient kojiClient;
+
+    @Inject
+    private IndyKojiConfig kojiConfig;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @KojiArtifactBuildsCache
+    private CacheHandle<ArtifactRef, List<KojiBuildInfo>> artifactBuilds;
+
+    @Inject
+    @KojiBuildTagsCache
+    private CacheHandle<Integer, List<KojiTagInfo>> buildTags;
+
+    @Inject
+    @KojiBuildArchivesCache
+    private CacheHandle<Integer, KojiBuildArchiveCollection> buildArchives;
+
+    private LookupMetrics artifactBuildsMetrics;
+
+    private LookupMetrics buildTagsMetrics;
+
+    private LookupMetrics buildArchivesMetrics;
+
+    protected KojiBuildCache(){}
+
+    public KojiBuildCache( KojiClient kojiClient, IndyKojiConfig kojiConfig,
+                           CacheHandle<ArtifactRef, List<KojiBuildInfo>> artifactBuilds,
+                           CacheHandle<Integer, List<KojiTagInfo>> buildTags,
+                           CacheHandle<Integer, KojiBuildArchiveCollection> buildArchives )
+    {
+        this( kojiClient, kojiConfig, new MetricRegistry(), artifactBuilds, buildTags, buildArchives );
+    }
+
+    public KojiBuildCache( KojiClient kojiClient, IndyKojiConfig kojiConfig, MetricRegistry metricRegistry,
+                           CacheHandle<ArtifactRef, List<KojiBuildInfo>> artifactBuilds,
+                           CacheHandle<Integer, List<KojiTagInfo>> buildTags,
+                           CacheHandle<Integer, KojiBuildArchiveCollection> buildArchives )
+    {
+        this.kojiClient = kojiClient;
+        this.kojiConfig = kojiConfig;
+        this.metricRegistry = metricRegistry;
+        this.artifactBuilds = artifactBuilds;
+        this.buildTags = buildTags;
+        this.buildArchives = buildArchives;
+        init();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        artifactBuildsMetrics = new LookupMetrics( "artifact-builds" );
+        buildTagsMetrics = new LookupMetrics( "build-tags" );
+        buildArchivesMetrics = new LookupMetrics( "build-archives" );
+    }
+
+    /**
+     * Retrieve the builds containing the given artifact. Results listing a build that is not yet complete are not
+     * cached, since the build's state (and so whether it can be used) is still changing. Empty results are not cached
+     * either: the artifact is usually being requested because a build for it was just imported, and caching the miss
+     * would hide that build until the entry expired.
+     */
+    public List<KojiBuildInfo> getBuildsContaining( ArtifactRef artifactRef, KojiSessionInfo session )
+            throws KojiClientException
+    {
+        List<KojiBuildInfo> builds = artifactBuilds.get( artifactRef );
+        if ( builds != null )
+        {
+            artifactBuildsMetrics.hits.mark();
+            return builds;
+        }
+
+        artifactBuildsMetrics.misses.mark();
+        logger.debug( "Retrieving builds containing: {}", artifactRef );
+        builds = kojiClient.listBuildsContaining( artifactRef, session );
+        if ( builds != null && !builds.isEmpty() && builds.stream().allMatch( build -> build.getBuildState() == KojiBuildState.COMPLETE ) )
+        {
+            put( artifactBuilds, artifactRef, builds );
+        }
+
+        return builds;
+    }
+
+    public List<KojiTagInfo> getTags( int buildId, KojiSessionInfo session )
+            throws KojiClientException
+    {
+        List<KojiTagInfo> tags = buildTags.get( buildId );
+        if ( tags != null )
+        {
+            buildTagsMetrics.hits.mark();
+            return tags;
+        }
+
+        buildTagsMetrics.misses.mark();
+        logger.debug( "Retrieving tags for build: {}", buildId );
+        tags = kojiClient.listTags( buildId, session );
+        if ( tags != null )
+        {
+            put( buildTags, buildId, tags );
+        }
+
+        return tags;
+    }
+
+    public KojiBuildArchiveCollection getArchives( KojiBuildInfo build, KojiSessionInfo session )
+            throws KojiClientException
+    {
+        KojiBuildArchiveCollection archives = buildArchives.get( build.getId() );
+        if ( archives != null )
+        {
+            buildArchivesMetrics.hits.mark();
+            return archives;
+        }
+
+        buildArchivesMetrics.misses.mark();
+        logger.debug( "Retrieving archives for build: {}", build.getNvr() );
+        archives = kojiClient.listArchivesForBuild( build, session );
+        if ( archives != null )
+        {
+            put( buildArchives, build.getId(), archives );
+        }
+
+        return archives;
+    }
+
+    /**
+     * Drop the cached list of builds containing the given artifact, e.g. after a new build of it was imported.
+     */
+    public void invalidateArtifact( ArtifactRef artifactRef )
+    {
+        logger.debug( "Clearing cached Koji builds containing: {}", artifactRef );
+        artifactBuilds.remove( artifactRef );
+    }
+
+    /**
+     * Drop the cached tags and archives of the given build, e.g. after it was tagged into or out of an allowed tag.
+     */
+    public void invalidateBuild( int buildId )
+    {
+        logger.debug( "Clearing cached Koji tags and archives for build: {}", buildId );
+        buildTags.remove( buildId );
+        buildArchives.remove( buildId );
+    }
+
+    public void invalidateAll()
+    {
+        logger.debug( "Clearing all cached Koji build lookups" );
+        clear( artifactBuilds );
+        clear( buildTags );
+        clear( buildArchives );
+    }
+
+    /**
+     * A Koji build repository being deleted usually means it is going to be re-created from fresh Koji data (e.g. after
+     * the build was re-tagged), so drop the lookups it was created from: the builds containing the artifact that
+     * triggered it, and the tags and archives of its build.
+     */
+    public void onStoreDelete( @Observes final ArtifactStoreDeletePostEvent event )
+    {
+        for ( ArtifactStore store : event )
+        {
+            String origin = store.getMetadata( ArtifactStore.METADATA_ORIGIN );
+            if ( KOJI_ORIGIN.equals( origin ) || KOJI_ORIGIN_BINARY.equals( origin ) )
+            {
+                logger.debug( "Koji build repository: {} deleted; invalidating its cached build lookups",
+                              store.getKey() );
+                invalidateBuildRepository( store );
+            }
+        }
+    }
+
+    private void invalidateBuildRepository( ArtifactStore store )
+    {
+        String trigger = store.getMetadata( CREATION_TRIGGER_GAV );
+        if ( trigger == null )
+        {
+            return;
+        }
+
+        ArtifactRef artifactRef;
+        try
+        {
+            artifactRef = SimpleArtifactRef.parse( trigger );
+        }
+        catch ( RuntimeException e )
+        {
+            logger.warn( "Cannot parse creation trigger: '{}' of: {}. Reason: {}", trigger, store.getKey(),
+                         e.getMessage() );
+            return;
+        }
+
+        // the build id isn't kept on the repository, but the trigger's cached builds list it next to the NVR.
+        String nvr = store.getMetadata( NVR );
+        List<KojiBuildInfo> builds = artifactBuilds.get( artifactRef );
+        if ( builds != null && nvr != null )
+        {
+            builds.stream()
+                  .filter( build -> nvr.equals( build.getNvr() ) )
+                  .forEach( build -> invalidateBuild( build.getId() ) );
+        }
+
+        invalidateArtifact( artifactRef );
+    }
+
+    private <K, V> void put( CacheHandle<K, V> handle, K key, V value )
+    {
+        handle.execute( ( cache ) -> cache.getAdvancedCache()
+                                          .put( key, value, kojiConfig.getBuildCacheTimeoutSeconds(),
+                                                TimeUnit.SECONDS ) );
+    }
+
+    private <K, V> void clear( CacheHandle<K, V> handle )
+    {
+        handle.execute( ( cache ) -> {
+            cache.clear();
+            return null;
+        } );
+    }
+
+    private final class LookupMetrics
+    {
+        private final Meter hits;
+
+        private final Meter misses;
+
+        private LookupMetrics( String lookup )
+        {
+            hits = metricRegistry.meter( name( KojiBuildCache.class, lookup, "hits" ) );
+            misses = metricRegistry.meter( name( KojiBuildCache.class, lookup, "misses" ) );
+
+            final String hitRateName = name( KojiBuildCache.class, lookup, "hit-rate" );
+            if ( !metricRegistry.getGauges().containsKey( hitRateName ) )
+            {
+                metricRegistry.register( hitRateName, new RatioGauge()
+                {
+                    @Override
+                    protected Ratio getRatio()
+                    {
+                        return Ratio.of( hits.getOneMinuteRate(), hits.getOneMinuteRate() + misses.getOneMinuteRate() );
+                    }
+                } );
+            }
+        }
+    }
+}
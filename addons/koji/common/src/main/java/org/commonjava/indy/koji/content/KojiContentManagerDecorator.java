@@ -56,6 +56,7 @@ import javax.decorator.Delegate;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -92,9 +93,9 @@ import java.util.stream.Collectors;
 public abstract class KojiContentManagerDecorator
         implements ContentManager
 {
-    private static final String CREATION_TRIGGER_GAV = "creation-trigger-GAV";
+    static final String CREATION_TRIGGER_GAV = "creation-trigger-GAV";
 
-    private static final String NVR = "koji-NVR";
+    static final String NVR = "koji-NVR";
 
     public static final String KOJI_ORIGIN = "koji";
 
@@ -124,6 +125,9 @@ public abstract class KojiContentManagerDecorator
     @Inject
     private KojiBuildAuthority buildAuthority;
 
+    @Inject
+    private KojiBuildCache buildCache;
+
     private KojiRepositoryCreator creator;
 
     @PostConstruct
@@ -309,7 +313,7 @@ public abstract class KojiContentManagerDecorator
         try
         {
             return kojiClient.withKojiSession( ( session ) -> {
-                List<KojiBuildInfo> builds = kojiClient.listBuildsContaining( artifactRef, session );
+                List<KojiBuildInfo> builds = new ArrayList<>( buildCache.getBuildsContaining( artifactRef, session ) );
 
                 Collections.sort( builds, ( build1, build2 ) -> build2.getCreationTime()
                                                                       .compareTo( build1.getCreationTime() ) );
@@ -342,7 +346,7 @@ public abstract class KojiContentManagerDecorator
                         }
                         else
                         {
-                            List<KojiTagInfo> tags = kojiClient.listTags(build.getId(), session);
+                            List<KojiTagInfo> tags = buildCache.getTags( build.getId(), session );
                             logger.debug("Build is in {} tags...", tags.size());
 
                             for (KojiTagInfo tag : tags) {
@@ -393,7 +397,7 @@ public abstract class KojiContentManagerDecorator
         Logger logger = LoggerFactory.getLogger( getClass() );
         try
         {
-            KojiBuildArchiveCollection archiveCollection = kojiClient.listArchivesForBuild( build, session );
+            KojiBuildArchiveCollection archiveCollection = buildCache.getArchives( build, session );
 
             boolean isBinaryBuild = isBinaryBuild( build );
             String name = getRepositoryName( build, isBinaryBuild );
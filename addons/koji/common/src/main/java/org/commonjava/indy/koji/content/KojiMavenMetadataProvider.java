@@ -21,9 +21,12 @@ import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
 import com.redhat.red.build.koji.model.xmlrpc.KojiBuildArchiveCollection;
 import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
 import com.redhat.red.build.koji.model.xmlrpc.KojiBuildState;
+import com.redhat.red.build.koji.model.xmlrpc.KojiSessionInfo;
 import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
 import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.koji.conf.IndyKojiConfig;
 import org.commonjava.indy.koji.inject.KojiMavenVersionMetadataCache;
@@ -50,11 +53,16 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -84,17 +92,28 @@ public class KojiMavenMetadataProvider
     @Inject
     private KojiBuildAuthority buildAuthority;
 
+    @Inject
+    private KojiBuildCache buildCache;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "koji-metadata", threads = 8, priority = 5 )
+    private ExecutorService metadataExecutor;
+
     private final Map<ProjectRef, ReentrantLock> versionMetadataLocks = new WeakHashMap<>();
 
     protected KojiMavenMetadataProvider(){}
 
     public KojiMavenMetadataProvider( CacheHandle<ProjectRef, Metadata> versionMetadata, KojiClient kojiClient,
-                                      KojiBuildAuthority buildAuthority, IndyKojiConfig kojiConfig )
+                                      KojiBuildAuthority buildAuthority, IndyKojiConfig kojiConfig,
+                                      KojiBuildCache buildCache, ExecutorService metadataExecutor )
     {
         this.versionMetadata = versionMetadata;
         this.kojiClient = kojiClient;
         this.buildAuthority = buildAuthority;
         this.kojiConfig = kojiConfig;
+        this.buildCache = buildCache;
+        this.metadataExecutor = metadataExecutor;
     }
 
     @Override
@@ -180,103 +199,66 @@ public class KojiMavenMetadataProvider
                 {
                     metadata = kojiClient.withKojiSession( ( session ) -> {
 
-                        // short-term caches to help improve performance a bit by avoiding xml-rpc calls.
-                        Map<Integer, KojiBuildArchiveCollection> seenBuildArchives = new HashMap<>();
-                        Set<Integer> seenBuilds = new HashSet<>();
+                        // per-request cache of archive listings, shared by the parallel build checks below.
+                        Map<Integer, KojiBuildArchiveCollection> seenBuildArchives = new ConcurrentHashMap<>();
 
                         List<KojiArchiveInfo> archives = kojiClient.listArchivesMatching( ref, session );
 
+                        Map<SingleVersion, List<KojiArchiveInfo>> candidates = collectCandidates( archives );
+
+                        // Each version is checked on the metadata executor, trying its builds in order until one is
+                        // allowed. The XML-RPC round-trips for different versions overlap instead of running serially.
+                        List<Future<SingleVersion>> futures = new ArrayList<>( candidates.size() );
                         Set<SingleVersion> versions = new HashSet<>();
-                        for ( KojiArchiveInfo archive : archives )
+                        try
                         {
-                            if ( !archive.getFilename().endsWith( ".pom" ) )
-                            {
-                                logger.debug( "Skipping non-POM: {}", archive.getFilename() );
-                                continue;
-                            }
-                            SingleVersion singleVersion = VersionUtils.createSingleVersion( archive.getVersion() );
-                            if ( versions.contains( singleVersion ) )
-                            {
-                                logger.debug( "Skipping already collected version: {}", archive.getVersion() );
-                                continue;
-                            }
-
-                            KojiBuildInfo build;
-                            if ( seenBuilds.contains( archive.getBuildId() ) )
-                            {
-                                logger.debug( "Skipping already seen build: {}", archive.getBuildId() );
-                                continue;
-                            }
-                            else
+                            for ( Map.Entry<SingleVersion, List<KojiArchiveInfo>> entry : candidates.entrySet() )
                             {
-                                build = kojiClient.getBuildInfo( archive.getBuildId(), session );
-                                seenBuilds.add( archive.getBuildId() );
-                            }
+                                futures.add( metadataExecutor.submit( () -> {
+                                    for ( KojiArchiveInfo archive : entry.getValue() )
+                                    {
+                                        if ( isBuildAllowed( archive, ref, path, session, seenBuildArchives ) )
+                                        {
+                                            logger.debug( "Adding version: {} for: {}", archive.getVersion(), path );
+                                            return entry.getKey();
+                                        }
+                                    }
 
-                            if ( build == null )
-                            {
-                                logger.debug( "Cannot retrieve build info: {}. Skipping: {}", archive.getBuildId(),
-                                              archive.getFilename() );
-                                continue;
+                                    return null;
+                                } ) );
                             }
 
-                            if ( build.getBuildState() != KojiBuildState.COMPLETE )
+                            for ( Future<SingleVersion> future : futures )
                             {
-                                logger.debug( "Build: {} is not completed. The state is {}. Skipping.",
-                                              build.getNvr(), build.getBuildState() );
-                                continue;
-                            }
-
-                            if ( build.getTaskId() == null )
-                            {
-                                logger.debug( "Build: {} is not a real build. It looks like a binary import. Skipping.",
-                                              build.getNvr() );
-                                // This is not a real build, it's a binary import.
-                                continue;
+                                SingleVersion version = future.get();
+                                if ( version != null )
+                                {
+                                    versions.add( version );
+                                }
                             }
-
-                            boolean buildAllowed = false;
-                            if ( !kojiConfig.isTagPatternsEnabled() )
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                            throw new KojiClientException( "Interrupted while checking Koji builds for: %s", ref );
+                        }
+                        catch ( ExecutionException e )
+                        {
+                            Throwable cause = e.getCause();
+                            if ( cause instanceof KojiClientException )
                             {
-                                buildAllowed = true;
+                                throw (KojiClientException) cause;
                             }
-                            else
+                            else if ( cause instanceof RuntimeException )
                             {
-                                logger.debug( "Checking for builds/tags of: {}", archive );
-
-                                List<KojiTagInfo> tags = kojiClient.listTags( build.getId(), session );
-                                for ( KojiTagInfo tag : tags )
-                                {
-                                    if ( kojiConfig.isTagAllowed( tag.getName() ) )
-                                    {
-                                        logger.debug( "Koji tag: {} is allowed for proxying.", tag.getName() );
-                                        buildAllowed = true;
-                                        break;
-                                    }
-                                    else
-                                    {
-                                        logger.debug( "Koji tag: {} is not allowed for proxying.", tag.getName() );
-                                    }
-                                }
+                                throw (RuntimeException) cause;
                             }
 
-                            logger.debug(
-                                    "Checking if build passed tag whitelist check and doesn't collide with something in authority store (if configured)..." );
-
-                            if ( buildAllowed && buildAuthority.isAuthorized( path, new EventMetadata(), ref, build, session, seenBuildArchives ) )
-                            {
-                                try
-                                {
-                                    logger.debug( "Adding version: {} for: {}", archive.getVersion(), path );
-                                    versions.add( singleVersion );
-                                }
-                                catch ( InvalidVersionSpecificationException e )
-                                {
-                                    logger.warn( String.format(
-                                            "Encountered invalid version: %s for archive: %s. Reason: %s",
-                                            archive.getVersion(), archive.getArchiveId(), e.getMessage() ), e );
-                                }
-                            }
+                            throw new IllegalStateException( "Failed to check Koji builds for: " + ref, cause );
+                        }
+                        finally
+                        {
+                            futures.forEach( future -> future.cancel( true ) );
                         }
 
                         if ( versions.isEmpty() )
@@ -341,4 +323,102 @@ public class KojiMavenMetadataProvider
         logger.debug( "Returning null metadata result for unknown reason (path: '{}')", path );
         return null;
     }
+
+    /**
+     * Group the POM archives by version, keeping only the first POM seen for each build (in listing order).
+     */
+    private Map<SingleVersion, List<KojiArchiveInfo>> collectCandidates( List<KojiArchiveInfo> archives )
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
+
+        Set<Integer> seenBuilds = new HashSet<>();
+        Map<SingleVersion, List<KojiArchiveInfo>> candidates = new LinkedHashMap<>();
+        for ( KojiArchiveInfo archive : archives )
+        {
+            if ( !archive.getFilename().endsWith( ".pom" ) )
+            {
+                logger.debug( "Skipping non-POM: {}", archive.getFilename() );
+                continue;
+            }
+
+            if ( !seenBuilds.add( archive.getBuildId() ) )
+            {
+                logger.debug( "Skipping already seen build: {}", archive.getBuildId() );
+                continue;
+            }
+
+            try
+            {
+                SingleVersion version = VersionUtils.createSingleVersion( archive.getVersion() );
+                candidates.computeIfAbsent( version, v -> new ArrayList<>() ).add( archive );
+            }
+            catch ( InvalidVersionSpecificationException e )
+            {
+                logger.warn( String.format( "Encountered invalid version: %s for archive: %s. Reason: %s",
+                                            archive.getVersion(), archive.getArchiveId(), e.getMessage() ), e );
+            }
+        }
+
+        return candidates;
+    }
+
+    private boolean isBuildAllowed( KojiArchiveInfo archive, ProjectRef ref, String path, KojiSessionInfo session,
+                                    Map<Integer, KojiBuildArchiveCollection> seenBuildArchives )
+            throws KojiClientException
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
+
+        KojiBuildInfo build = kojiClient.getBuildInfo( archive.getBuildId(), session );
+        if ( build == null )
+        {
+            logger.debug( "Cannot retrieve build info: {}. Skipping: {}", archive.getBuildId(),
+                          archive.getFilename() );
+            return false;
+        }
+
+        if ( build.getBuildState() != KojiBuildState.COMPLETE )
+        {
+            logger.debug( "Build: {} is not completed. The state is {}. Skipping.", build.getNvr(),
+                          build.getBuildState() );
+            return false;
+        }
+
+        if ( build.getTaskId() == null )
+        {
+            // This is not a real build, it's a binary import.
+            logger.debug( "Build: {} is not a real build. It looks like a binary import. Skipping.", build.getNvr() );
+            return false;
+        }
+
+        boolean buildAllowed = false;
+        if ( !kojiConfig.isTagPatternsEnabled() )
+        {
+            buildAllowed = true;
+        }
+        else
+        {
+            logger.debug( "Checking for builds/tags of: {}", archive );
+
+            List<KojiTagInfo> tags = buildCache.getTags( build.getId(), session );
+            for ( KojiTagInfo tag : tags )
+            {
+                if ( kojiConfig.isTagAllowed( tag.getName() ) )
+                {
+                    logger.debug( "Koji tag: {} is allowed for proxying.", tag.getName() );
+                    buildAllowed = true;
+                    break;
+                }
+                else
+                {
+                    logger.debug( "Koji tag: {} is not allowed for proxying.", tag.getName() );
+                }
+            }
+        }
+
+        logger.debug(
+                "Checking if build passed tag whitelist check and doesn't collide with something in authority store (if configured)..." );
+
+        return buildAllowed && buildAuthority.isAuthorized( path, new EventMetadata(), ref, build, session,
+                                                            seenBuildArchives );
+    }
 }
@@ -15,15 +15,20 @@
  */
 package org.commonjava.indy.koji.inject;
 
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildArchiveCollection;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
 import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.indy.subsys.infinispan.CacheProducer;
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
 import org.commonjava.maven.atlas.ident.ref.ProjectRef;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Create ISPN caches necessary to support Koji metadata provider functions.
@@ -41,4 +46,30 @@ public class KojiCacheProducer
     {
         return cacheProducer.getCache( "koji-maven-version-metadata", ProjectRef.class, Metadata.class );
     }
+
+    @KojiArtifactBuildsCache
+    @Produces
+    @ApplicationScoped
+    @SuppressWarnings( "unchecked" )
+    public CacheHandle<ArtifactRef, List<KojiBuildInfo>> artifactBuildsCache()
+    {
+        return (CacheHandle) cacheProducer.getCache( "koji-artifact-builds", ArtifactRef.class, List.class );
+    }
+
+    @KojiBuildTagsCache
+    @Produces
+    @ApplicationScoped
+    @SuppressWarnings( "unchecked" )
+    public CacheHandle<Integer, List<KojiTagInfo>> buildTagsCache()
+    {
+        return (CacheHandle) cacheProducer.getCache( "koji-build-tags", Integer.class, List.class );
+    }
+
+    @KojiBuildArchivesCache
+    @Produces
+    @ApplicationScoped
+    public CacheHandle<Integer, KojiBuildArchiveCollection> buildArchivesCache()
+    {
+        return cacheProducer.getCache( "koji-build-archives", Integer.class, KojiBuildArchiveCollection.class );
+    }
 }
@@ -0,0 +1,353 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.koji.content;
+
+import com.codahale.metrics.MetricRegistry;
+import com.redhat.red.build.koji.KojiClient;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildArchiveCollection;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildState;
+import com.redhat.red.build.koji.model.xmlrpc.KojiSessionInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import org.commonjava.indy.change.event.ArtifactStoreDeletePostEvent;
+import org.commonjava.indy.koji.conf.IndyKojiConfig;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.SimpleArtifactRef;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.rwx.binding.error.BindException;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.commonjava.util.jhttpc.auth.MemoryPasswordManager;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.CREATION_TRIGGER_GAV;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.KOJI_ORIGIN;
+import static org.commonjava.indy.koji.content.KojiContentManagerDecorator.NVR;
+import static org.commonjava.indy.koji.content.testutil.KojiMockHandlers.configureKojiServer;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class KojiBuildCacheTest
+{
+    private static final ArtifactRef ARTIFACT = new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", null );
+
+    @Rule
+    public ExpectationServer server = new ExpectationServer();
+
+    private DefaultCacheManager cacheMgr;
+
+    private MetricRegistry metricRegistry;
+
+    private CountingKojiClient kojiClient;
+
+    private KojiBuildCache buildCache;
+
+    @Test
+    public void completeBuildsContainingArtifactAreServedFromCache()
+            throws Exception
+    {
+        kojiClient.builds = Collections.singletonList( build( 1, KojiBuildState.COMPLETE ) );
+
+        List<KojiBuildInfo> first = buildCache.getBuildsContaining( ARTIFACT, null );
+        List<KojiBuildInfo> second = buildCache.getBuildsContaining( ARTIFACT, null );
+
+        assertThat( second, sameInstance( first ) );
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void buildsContainingArtifactNotCachedWhileABuildIsIncomplete()
+            throws Exception
+    {
+        kojiClient.builds = Arrays.asList( build( 1, KojiBuildState.COMPLETE ), build( 2, KojiBuildState.BUILDING ) );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getBuildsContaining( ARTIFACT, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void emptyBuildsContainingArtifactNotCached()
+            throws Exception
+    {
+        kojiClient.builds = Collections.emptyList();
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getBuildsContaining( ARTIFACT, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 2 ) );
+
+        // once the build shows up, it's found without waiting for a cached miss to expire.
+        kojiClient.builds = Collections.singletonList( build( 1, KojiBuildState.COMPLETE ) );
+        assertThat( buildCache.getBuildsContaining( ARTIFACT, null ).size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void tagsAndArchivesAreCachedPerBuild()
+            throws Exception
+    {
+        KojiBuildInfo build1 = build( 1, KojiBuildState.COMPLETE );
+        KojiBuildInfo build2 = build( 2, KojiBuildState.COMPLETE );
+
+        buildCache.getTags( 1, null );
+        buildCache.getTags( 1, null );
+        buildCache.getTags( 2, null );
+
+        buildCache.getArchives( build1, null );
+        buildCache.getArchives( build1, null );
+        buildCache.getArchives( build2, null );
+
+        assertThat( kojiClient.tagCalls.get(), equalTo( 2 ) );
+        assertThat( kojiClient.archiveCalls.get(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void hitsAndMissesAreMeteredPerLookup()
+            throws Exception
+    {
+        kojiClient.builds = Collections.singletonList( build( 1, KojiBuildState.COMPLETE ) );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getBuildsContaining( ARTIFACT, null );
+
+        buildCache.getTags( 1, null );
+
+        assertThat( meterCount( "artifact-builds", "hits" ), equalTo( 2L ) );
+        assertThat( meterCount( "artifact-builds", "misses" ), equalTo( 1L ) );
+        assertThat( meterCount( "build-tags", "hits" ), equalTo( 0L ) );
+        assertThat( meterCount( "build-tags", "misses" ), equalTo( 1L ) );
+        assertThat( meterCount( "build-archives", "misses" ), equalTo( 0L ) );
+
+        for ( String lookup : Arrays.asList( "artifact-builds", "build-tags", "build-archives" ) )
+        {
+            assertTrue( "No hit-rate gauge for: " + lookup,
+                        metricRegistry.getGauges().containsKey( name( KojiBuildCache.class, lookup, "hit-rate" ) ) );
+        }
+    }
+
+    @Test
+    public void invalidatingABuildOnlyDropsThatBuildsLookups()
+            throws Exception
+    {
+        KojiBuildInfo build = build( 1, KojiBuildState.COMPLETE );
+        KojiBuildInfo otherBuild = build( 2, KojiBuildState.COMPLETE );
+        kojiClient.builds = Collections.singletonList( build );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getTags( 1, null );
+        buildCache.getTags( 2, null );
+        buildCache.getArchives( build, null );
+
+        // e.g. build 1 was just tagged into an allowed tag
+        buildCache.invalidateBuild( 1 );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getTags( 1, null );
+        buildCache.getTags( 2, null );
+        buildCache.getArchives( build, null );
+        buildCache.getArchives( otherBuild, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 1 ) );
+        assertThat( kojiClient.tagCalls.get(), equalTo( 3 ) );
+        assertThat( kojiClient.archiveCalls.get(), equalTo( 3 ) );
+
+        buildCache.invalidateArtifact( ARTIFACT );
+        buildCache.getBuildsContaining( ARTIFACT, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 2 ) );
+        assertThat( kojiClient.tagCalls.get(), equalTo( 3 ) );
+    }
+
+    @Test
+    public void deletingKojiBuildRepositoryInvalidatesOnlyItsLookups()
+            throws Exception
+    {
+        KojiBuildInfo build = build( 1, KojiBuildState.COMPLETE );
+        kojiClient.builds = Collections.singletonList( build );
+
+        ArtifactRef otherArtifact = new SimpleArtifactRef( "org.foo", "baz", "1.0", "jar", null );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getBuildsContaining( otherArtifact, null );
+        buildCache.getTags( 1, null );
+        buildCache.getTags( 2, null );
+        buildCache.getArchives( build, null );
+
+        RemoteRepository other = new RemoteRepository( "central", "http://repo.maven.apache.org/maven2/" );
+        other.setMetadata( CREATION_TRIGGER_GAV, ARTIFACT.toString() );
+        buildCache.onStoreDelete( deleteEvent( other ) );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getTags( 1, null );
+        buildCache.getArchives( build, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 2 ) );
+        assertThat( kojiClient.tagCalls.get(), equalTo( 2 ) );
+        assertThat( kojiClient.archiveCalls.get(), equalTo( 1 ) );
+
+        RemoteRepository kojiRepo = new RemoteRepository( "koji-bar-1.0-1", "http://kojiroot/bar/1.0/1/" );
+        kojiRepo.setMetadata( ArtifactStore.METADATA_ORIGIN, KOJI_ORIGIN );
+        kojiRepo.setMetadata( CREATION_TRIGGER_GAV, ARTIFACT.toString() );
+        kojiRepo.setMetadata( NVR, build.getNvr() );
+        buildCache.onStoreDelete( deleteEvent( kojiRepo ) );
+
+        buildCache.getBuildsContaining( ARTIFACT, null );
+        buildCache.getTags( 1, null );
+        buildCache.getArchives( build, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 3 ) );
+        assertThat( kojiClient.tagCalls.get(), equalTo( 3 ) );
+        assertThat( kojiClient.archiveCalls.get(), equalTo( 2 ) );
+
+        // lookups unrelated to the deleted repository are still cached
+        buildCache.getBuildsContaining( otherArtifact, null );
+        buildCache.getTags( 2, null );
+
+        assertThat( kojiClient.buildsContainingCalls.get(), equalTo( 3 ) );
+        assertThat( kojiClient.tagCalls.get(), equalTo( 3 ) );
+    }
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        IndyKojiConfig kojiConfig = new IndyKojiConfig();
+        kojiConfig.setEnabled( true );
+        kojiConfig.setBuildCacheTimeoutSeconds( 60 );
+        kojiConfig.setUrl( server.formatUrl( "koji" ) );
+
+        // only the client's API version check goes to the server; the build lookups are answered by the stub.
+        configureKojiServer( server, "koji", new AtomicInteger( 0 ), "koji-metadata/stubbed-session", false,
+                             "verify" );
+
+        kojiClient = new CountingKojiClient( kojiConfig );
+
+        cacheMgr = new DefaultCacheManager();
+        metricRegistry = new MetricRegistry();
+
+        buildCache = new KojiBuildCache( kojiClient, kojiConfig, metricRegistry, handle( "koji-artifact-builds" ),
+                                         handle( "koji-build-tags" ), handle( "koji-build-archives" ) );
+    }
+
+    @After
+    public void shutdown()
+    {
+        if ( kojiClient != null )
+        {
+            kojiClient.close();
+        }
+
+        if ( cacheMgr != null )
+        {
+            cacheMgr.stop();
+        }
+    }
+
+    private <K, V> CacheHandle<K, V> handle( String name )
+    {
+        return new CacheHandle( name, cacheMgr.getCache( name, true ) );
+    }
+
+    private long meterCount( String lookup, String meter )
+    {
+        return metricRegistry.meter( name( KojiBuildCache.class, lookup, meter ) ).getCount();
+    }
+
+    private ArtifactStoreDeletePostEvent deleteEvent( ArtifactStore store )
+    {
+        Map<ArtifactStore, Transfer> roots = new HashMap<>();
+        roots.put( store, null );
+
+        return new ArtifactStoreDeletePostEvent( new EventMetadata(), roots );
+    }
+
+    private static KojiBuildInfo build( int buildId, KojiBuildState state )
+    {
+        KojiBuildInfo build = new KojiBuildInfo();
+        build.setId( buildId );
+        build.setNvr( "bar-1.0-" + buildId );
+        build.setBuildState( state );
+        build.setTaskId( 100 + buildId );
+
+        return build;
+    }
+
+    /**
+     * Counts the lookups {@link KojiBuildCache} sits in front of, and answers them from fixtures.
+     */
+    private static final class CountingKojiClient
+            extends KojiClient
+    {
+        private volatile List<KojiBuildInfo> builds = Collections.emptyList();
+
+        private final AtomicInteger buildsContainingCalls = new AtomicInteger( 0 );
+
+        private final AtomicInteger tagCalls = new AtomicInteger( 0 );
+
+        private final AtomicInteger archiveCalls = new AtomicInteger( 0 );
+
+        CountingKojiClient( IndyKojiConfig config )
+                throws BindException
+        {
+            super( config, new MemoryPasswordManager(), Executors.newCachedThreadPool() );
+        }
+
+        @Override
+        public List<KojiBuildInfo> listBuildsContaining( ArtifactRef artifactRef, KojiSessionInfo session )
+        {
+            buildsContainingCalls.incrementAndGet();
+            return builds;
+        }
+
+        @Override
+        public List<KojiTagInfo> listTags( int buildId, KojiSessionInfo session )
+        {
+            tagCalls.incrementAndGet();
+
+            KojiTagInfo tag = new KojiTagInfo();
+            tag.setName( "jb-foo" );
+            return Collections.singletonList( tag );
+        }
+
+        @Override
+        public KojiBuildArchiveCollection listArchivesForBuild( KojiBuildInfo build, KojiSessionInfo session )
+        {
+            archiveCalls.incrementAndGet();
+            return new KojiBuildArchiveCollection( build, Collections.<KojiArchiveInfo>emptyList() );
+        }
+    }
+}
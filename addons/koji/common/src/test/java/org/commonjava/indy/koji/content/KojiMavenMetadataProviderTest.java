@@ -15,7 +15,14 @@
  */
 package org.commonjava.indy.koji.content;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import com.redhat.red.build.koji.KojiClient;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildArchiveCollection;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildState;
+import com.redhat.red.build.koji.model.xmlrpc.KojiSessionInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
 import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.apache.maven.artifact.repository.metadata.Versioning;
 import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
@@ -35,6 +42,7 @@ import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.io.IndyObjectMapper;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.atlas.ident.ref.SimpleProjectRef;
 import org.commonjava.maven.galley.GalleyCore;
 import org.commonjava.maven.galley.GalleyCoreBuilder;
 import org.commonjava.maven.galley.GalleyInitException;
@@ -58,8 +66,13 @@ import org.junit.rules.TestName;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -91,8 +104,6 @@ public class KojiMavenMetadataProviderTest
     @Rule
     public ExpectationServer server = new ExpectationServer();
 
-    private CacheHandle<ProjectRef, Metadata> cache;
-
     private IndyKojiConfig kojiConfig;
 
     private KojiClient kojiClient;
@@ -297,9 +308,121 @@ public class KojiMavenMetadataProviderTest
                     CoreMatchers.not( CoreMatchers.equalTo( originalLastUpdated ) ) );
     }
 
+    @Test
+    public void parallelVersionChecksMatchSerialChecks()
+            throws Exception
+    {
+        kojiConfig.setTagPatternsEnabled( true );
+        kojiConfig.setTagPatterns( Collections.singletonList( "jb-.+" ) );
+
+        StoreDataManager storeDataManager = initStubbedKojiClient();
+        String path = "org/foo/bar/maven-metadata.xml";
+
+        KojiMavenMetadataProvider serial =
+                createProvider( storeDataManager, "-serial", MoreExecutors.newDirectExecutorService() );
+
+        Metadata serialMetadata = serial.getMetadata( new StoreKey( group, "public" ), path );
+
+        ExecutorService pool = Executors.newFixedThreadPool( 4 );
+        Metadata parallelMetadata;
+        try
+        {
+            KojiMavenMetadataProvider parallel = createProvider( storeDataManager, "-parallel", pool );
+            parallelMetadata = parallel.getMetadata( new StoreKey( group, "public" ), path );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        assertThat( serialMetadata, notNullValue() );
+        assertThat( parallelMetadata, notNullValue() );
+
+        List<String> expected = Arrays.asList( "1.0", "2.0" );
+        assertThat( serialMetadata.getVersioning().getVersions(), equalTo( expected ) );
+        assertThat( parallelMetadata.getVersioning().getVersions(), equalTo( expected ) );
+        assertThat( parallelMetadata.getVersioning().getLatest(),
+                    equalTo( serialMetadata.getVersioning().getLatest() ) );
+    }
+
+    @Test
+    public void secondGAReusesCachedTagsAndArchives()
+            throws Exception
+    {
+        kojiConfig.setTagPatternsEnabled( true );
+        kojiConfig.setTagPatterns( Collections.singletonList( "jb-.+" ) );
+
+        StoreDataManager storeDataManager = initStubbedKojiClient();
+        provider = createProvider( storeDataManager, "", MoreExecutors.newDirectExecutorService() );
+
+        Metadata metadata = provider.getMetadata( new StoreKey( group, "public" ), "org/foo/bar/maven-metadata.xml" );
+        assertThat( metadata, notNullValue() );
+
+        CountingKojiClient client = (CountingKojiClient) kojiClient;
+
+        // builds 1, 4 and 5 get past the state / task checks, so those are the ones whose tags and (for the ones in
+        // an allowed tag) archives are looked up.
+        assertThat( client.tagCalls.get(), equalTo( 3 ) );
+        assertThat( client.archiveCalls.get(), equalTo( 2 ) );
+
+        metadata = provider.getMetadata( new StoreKey( group, "public" ), "org/foo/baz/maven-metadata.xml" );
+        assertThat( metadata, notNullValue() );
+        assertThat( metadata.getVersioning().getVersions(), equalTo( Arrays.asList( "1.0", "2.0" ) ) );
+
+        // baz comes out of the same builds, so nothing new goes to Koji for tags or archives.
+        assertThat( client.tagCalls.get(), equalTo( 3 ) );
+        assertThat( client.archiveCalls.get(), equalTo( 2 ) );
+    }
+
     @Rule
     public TemporaryFolder temp = new TemporaryFolder();
 
+    /**
+     * Set up a {@link CountingKojiClient} that answers the build queries itself; only session login / logout goes to
+     * the expectation server. The authority store is configured so the archive listings are consulted, but the
+     * archives in it are all Maven artifacts, which the authority check doesn't try to download.
+     */
+    private StoreDataManager initStubbedKojiClient()
+            throws Exception
+    {
+        StoreDataManager storeDataManager = new MemoryStoreDataManager( true );
+
+        RemoteRepository verifyRepo = new RemoteRepository( VERIFY_REPO, server.formatUrl( VERIFY_BASEPATH ) );
+        storeDataManager.storeArtifactStore( verifyRepo, new ChangeSummary( ChangeSummary.SYSTEM_USER,
+                                                                            "Adding verification repo" ) );
+
+        kojiConfig.setArtifactAuthorityStore( new StoreKey( remote, VERIFY_REPO ).toString() );
+
+        configureKojiServer( server, KOJI_BASEPATH, counter, "koji-metadata/stubbed-session", false,
+                             VERIFY_BASEPATH );
+
+        CountingKojiClient client = new CountingKojiClient( kojiConfig );
+
+        // 1.0: normal build in an allowed tag.
+        client.addBuild( 1, KojiBuildState.COMPLETE, 101, "jb-foo" );
+        // 1.1: binary import (no task).
+        client.addBuild( 2, KojiBuildState.COMPLETE, null, "jb-foo" );
+        // 1.2: never finished.
+        client.addBuild( 3, KojiBuildState.FAILED, 103, "jb-foo" );
+        // 2.0: first build isn't in an allowed tag, the second one is.
+        client.addBuild( 4, KojiBuildState.COMPLETE, 104, "scratch" );
+        client.addBuild( 5, KojiBuildState.COMPLETE, 105, "jb-bar" );
+
+        client.addPom( "org.foo", "bar", "1.0", 1 );
+        client.addPom( "org.foo", "bar", "1.1", 2 );
+        client.addPom( "org.foo", "bar", "1.2", 3 );
+        client.addPom( "org.foo", "bar", "2.0", 4 );
+        client.addPom( "org.foo", "bar", "2.0", 5 );
+
+        client.addPom( "org.foo", "baz", "1.0", 1 );
+        client.addPom( "org.foo", "baz", "2.0", 4 );
+        client.addPom( "org.foo", "baz", "2.0", 5 );
+
+        kojiClient = client;
+
+        return storeDataManager;
+    }
+
     private void initKojiClient( String exchangeName, boolean verifyArtifacts )
             throws BindException, IOException, GalleyInitException, IndyDataException
     {
@@ -319,8 +442,16 @@ public class KojiMavenMetadataProviderTest
         configureKojiServer( server, KOJI_BASEPATH, counter, resourceBase, verifyArtifacts, VERIFY_BASEPATH );
         kojiClient = new KojiClient( kojiConfig, new MemoryPasswordManager(), Executors.newCachedThreadPool() );
 
+        // the scripted Koji exchanges are strictly ordered, so check versions on the calling thread.
+        provider = createProvider( storeDataManager, "", MoreExecutors.newDirectExecutorService() );
+    }
+
+    private KojiMavenMetadataProvider createProvider( StoreDataManager storeDataManager, String cacheSuffix,
+                                                      ExecutorService metadataExecutor )
+            throws IOException, GalleyInitException
+    {
         GalleyCore galley = new GalleyCoreBuilder(
-                new FileCacheProviderFactory( temp.newFolder( "cache" ) ) ).withEnabledTransports(
+                new FileCacheProviderFactory( temp.newFolder( "cache" + cacheSuffix ) ) ).withEnabledTransports(
                 new HttpClientTransport( new HttpImpl( new org.commonjava.maven.galley.auth.MemoryPasswordManager() ),
                                          new IndyObjectMapper( true ), new GlobalHttpConfiguration() ) ).build();
 
@@ -330,11 +461,21 @@ public class KojiMavenMetadataProviderTest
         DirectContentAccess directContentAccess = new DefaultDirectContentAccess( downloadManager,
                                                                                   Executors.newCachedThreadPool() );
 
+        String mdCacheName = "koji-maven-metadata" + cacheSuffix;
+        String buildsCacheName = "koji-artifact-builds" + cacheSuffix;
+        String tagsCacheName = "koji-build-tags" + cacheSuffix;
+        String archivesCacheName = "koji-build-archives" + cacheSuffix;
+        KojiBuildCache buildCache = new KojiBuildCache( kojiClient, kojiConfig,
+                                                        new CacheHandle( buildsCacheName, cacheMgr.getCache( buildsCacheName, true ) ),
+                                                        new CacheHandle( tagsCacheName, cacheMgr.getCache( tagsCacheName, true ) ),
+                                                        new CacheHandle( archivesCacheName, cacheMgr.getCache( archivesCacheName, true ) ) );
+
         KojiBuildAuthority buildAuthority =
                 new KojiBuildAuthority( kojiConfig, new StandardTypeMapper(), kojiClient, storeDataManager,
-                                        new ContentDigester( downloadManager ), directContentAccess );
+                                        new ContentDigester( downloadManager ), directContentAccess, buildCache );
 
-        provider = new KojiMavenMetadataProvider( this.cache, kojiClient, buildAuthority, kojiConfig );
+        return new KojiMavenMetadataProvider( new CacheHandle( mdCacheName, cacheMgr.getCache( mdCacheName, true ) ),
+                                              kojiClient, buildAuthority, kojiConfig, buildCache, metadataExecutor );
     }
 
     @Before
@@ -343,9 +484,6 @@ public class KojiMavenMetadataProviderTest
     {
         Thread.currentThread().setName( named.getMethodName() );
         cacheMgr = new DefaultCacheManager();
-        String mdCacheName = "koji-maven-metadata";
-
-        cache = new CacheHandle( mdCacheName, cacheMgr.getCache( mdCacheName, true ) );
 
         kojiConfig = new IndyKojiConfig();
         kojiConfig.setEnabled( true );
@@ -372,4 +510,89 @@ public class KojiMavenMetadataProviderTest
             cacheMgr.stop();
         }
     }
+
+    /**
+     * Answers the build queries from in-memory fixtures and counts the calls that {@link KojiBuildCache} is supposed
+     * to absorb.
+     */
+    private static final class CountingKojiClient
+            extends KojiClient
+    {
+        private final Map<ProjectRef, List<KojiArchiveInfo>> archivesByGA = new HashMap<>();
+
+        private final Map<Integer, KojiBuildInfo> builds = new HashMap<>();
+
+        private final Map<Integer, List<KojiTagInfo>> tags = new HashMap<>();
+
+        private final Map<Integer, List<KojiArchiveInfo>> archivesByBuild = new HashMap<>();
+
+        private final AtomicInteger archiveIds = new AtomicInteger( 0 );
+
+        private final AtomicInteger tagCalls = new AtomicInteger( 0 );
+
+        private final AtomicInteger archiveCalls = new AtomicInteger( 0 );
+
+        CountingKojiClient( IndyKojiConfig config )
+                throws BindException
+        {
+            super( config, new MemoryPasswordManager(), Executors.newCachedThreadPool() );
+        }
+
+        void addBuild( int buildId, KojiBuildState state, Integer taskId, String tagName )
+        {
+            KojiBuildInfo build = new KojiBuildInfo();
+            build.setId( buildId );
+            build.setNvr( "build-" + buildId );
+            build.setBuildState( state );
+            build.setTaskId( taskId );
+            builds.put( buildId, build );
+
+            KojiTagInfo tag = new KojiTagInfo();
+            tag.setName( tagName );
+            tags.put( buildId, Collections.singletonList( tag ) );
+        }
+
+        void addPom( String groupId, String artifactId, String version, int buildId )
+        {
+            KojiArchiveInfo archive = new KojiArchiveInfo();
+            archive.setArchiveId( archiveIds.incrementAndGet() );
+            archive.setBuildId( buildId );
+            archive.setGroupId( groupId );
+            archive.setArtifactId( artifactId );
+            archive.setVersion( version );
+            archive.setFilename( artifactId + "-" + version + ".pom" );
+            archive.setExtension( "pom" );
+
+            archivesByGA.computeIfAbsent( new SimpleProjectRef( groupId, artifactId ), ga -> new ArrayList<>() )
+                        .add( archive );
+            archivesByBuild.computeIfAbsent( buildId, id -> new ArrayList<>() ).add( archive );
+        }
+
+        @Override
+        public List<KojiArchiveInfo> listArchivesMatching( ProjectRef ga, KojiSessionInfo session )
+        {
+            return archivesByGA.getOrDefault( ga, Collections.emptyList() );
+        }
+
+        @Override
+        public KojiBuildInfo getBuildInfo( int buildId, KojiSessionInfo session )
+        {
+            return builds.get( buildId );
+        }
+
+        @Override
+        public List<KojiTagInfo> listTags( int buildId, KojiSessionInfo session )
+        {
+            tagCalls.incrementAndGet();
+            return tags.getOrDefault( buildId, Collections.emptyList() );
+        }
+
+        @Override
+        public KojiBuildArchiveCollection listArchivesForBuild( KojiBuildInfo build, KojiSessionInfo session )
+        {
+            archiveCalls.incrementAndGet();
+            return new KojiBuildArchiveCollection( build, archivesByBuild.getOrDefault( build.getId(),
+                                                                                          Collections.emptyList() ) );
+        }
+    }
 }
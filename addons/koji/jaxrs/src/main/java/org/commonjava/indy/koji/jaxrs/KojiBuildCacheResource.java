@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.koji.jaxrs;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.commonjava.indy.bind.jaxrs.IndyResources;
+import org.commonjava.indy.koji.content.KojiBuildCache;
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.SimpleArtifactRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Response;
+
+import static javax.ws.rs.core.Response.noContent;
+import static org.commonjava.indy.bind.jaxrs.util.ResponseUtils.formatBadRequestResponse;
+
+/**
+ * Lets administrators drop cached Koji build lookups before they expire, e.g. when a build was just tagged into (or
+ * out of) an allowed tag and Indy shouldn't wait for the cache timeout to notice.
+ */
+@Api( "Koji Build Lookup Cache" )
+@Path( "/api/admin/koji/build-cache" )
+@ApplicationScoped
+public class KojiBuildCacheResource
+        implements IndyResources
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private KojiBuildCache buildCache;
+
+    @ApiOperation( "Drop the cached tags and archives of a Koji build, e.g. after it was tagged or untagged" )
+    @ApiResponse( code = 204, message = "Cached lookups for the build were dropped" )
+    @Path( "/builds/{buildId}" )
+    @DELETE
+    public Response invalidateBuild( @ApiParam( "Koji build id" ) final @PathParam( "buildId" ) int buildId )
+    {
+        logger.info( "Invalidating cached Koji lookups for build: {}", buildId );
+        buildCache.invalidateBuild( buildId );
+        return noContent().build();
+    }
+
+    @ApiOperation( "Drop the cached list of Koji builds containing an artifact" )
+    @ApiResponses( { @ApiResponse( code = 204, message = "Cached builds for the artifact were dropped" ),
+                           @ApiResponse( code = 400, message = "The artifact reference could not be parsed" ) } )
+    @Path( "/artifacts/{artifact}" )
+    @DELETE
+    public Response invalidateArtifact(
+            @ApiParam( "Artifact, as groupId:artifactId:type:version[:classifier]" ) final @PathParam( "artifact" )
+                    String artifact )
+    {
+        final ArtifactRef artifactRef;
+        try
+        {
+            artifactRef = SimpleArtifactRef.parse( artifact );
+        }
+        catch ( final RuntimeException e )
+        {
+            return formatBadRequestResponse(
+                    String.format( "Invalid artifact: '%s'. Reason: %s", artifact, e.getMessage() ) );
+        }
+
+        logger.info( "Invalidating cached Koji builds containing: {}", artifactRef );
+        buildCache.invalidateArtifact( artifactRef );
+        return noContent().build();
+    }
+}
@@ -15,11 +15,15 @@
  */
 package org.commonjava.indy.pkg.maven.content;
 
+import com.codahale.metrics.MetricRegistry;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.DirectContentAccess;
 import org.commonjava.indy.content.StoreResource;
 import org.commonjava.indy.core.content.AbstractMergedContentGenerator;
 import org.commonjava.indy.content.MergedContentAction;
+import org.commonjava.indy.core.content.group.GroupMergeCoordinator;
 import org.commonjava.indy.core.content.group.GroupMergeHelper;
 import org.commonjava.indy.pkg.maven.content.group.MavenMetadataMerger;
 import org.commonjava.indy.data.StoreDataManager;
@@ -60,6 +64,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.commonjava.indy.conf.DefaultIndyConfiguration.DEFAULT_GROUP_MERGE_TIMEOUT_SECONDS;
 import static org.commonjava.maven.galley.util.PathUtils.normalize;
 import static org.commonjava.maven.galley.util.PathUtils.parentPath;
 
@@ -118,6 +123,9 @@ public class MavenMetadataGenerator
     @Inject
     private MavenMetadataMerger merger;
 
+    @Inject
+    private GroupMergeCoordinator mergeCoordinator;
+
     protected MavenMetadataGenerator()
     {
     }
@@ -126,11 +134,23 @@ public class MavenMetadataGenerator
                                    final XMLInfrastructure xml, final TypeMapper typeMapper,
                                    final MavenMetadataMerger merger, final GroupMergeHelper mergeHelper,
                                    final NotFoundCache nfc, final MergedContentAction... mergedContentActions )
+    {
+        this( fileManager, storeManager, xml, typeMapper, merger, mergeHelper,
+              new GroupMergeCoordinator( new MetricRegistry(), DEFAULT_GROUP_MERGE_TIMEOUT_SECONDS ), nfc,
+              mergedContentActions );
+    }
+
+    public MavenMetadataGenerator( final DirectContentAccess fileManager, final StoreDataManager storeManager,
+                                   final XMLInfrastructure xml, final TypeMapper typeMapper,
+                                   final MavenMetadataMerger merger, final GroupMergeHelper mergeHelper,
+                                   final GroupMergeCoordinator mergeCoordinator, final NotFoundCache nfc,
+                                   final MergedContentAction... mergedContentActions )
     {
         super( fileManager, storeManager, mergeHelper, nfc, mergedContentActions );
         this.xml = xml;
         this.typeMapper = typeMapper;
         this.merger = merger;
+        this.mergeCoordinator = mergeCoordinator;
     }
 
     @Override
@@ -308,6 +328,21 @@ public class MavenMetadataGenerator
 
         logger.debug( "Working on metadata file: {} (already exists? {})", target, target != null && target.exists() );
 
+        if ( !target.exists() )
+        {
+            // concurrent requests for the same missing file wait on a single merge rather than each running their own
+            return mergeCoordinator.merge( group.getKey(), path,
+                                           () -> mergeGroupMetadata( group, members, path, target, eventMetadata ) );
+        }
+
+        return target;
+    }
+
+    private Transfer mergeGroupMetadata( final Group group, final List<ArtifactStore> members, final String path,
+                                         final Transfer target, final EventMetadata eventMetadata )
+        throws IndyWorkflowException
+    {
+        // another caller may have finished generating it between our existence check and taking over the merge
         if ( !target.exists() )
         {
             String toMergePath = path;
@@ -317,14 +352,14 @@ public class MavenMetadataGenerator
             }
 
             final List<Transfer> sources = fileManager.retrieveAllRaw( members, toMergePath, new EventMetadata() );
-            final byte[] merged = merger.merge( sources, group, toMergePath );
+            final Metadata merged = merger.mergeMetadata( sources, group, toMergePath );
             if ( merged != null )
             {
                 OutputStream fos = null;
                 try
                 {
                     fos = target.openOutputStream( TransferOperation.GENERATE, true, eventMetadata );
-                    fos.write( merged );
+                    new MetadataXpp3Writer().write( fos, merged );
 
                 }
                 catch ( final IOException e )
@@ -337,7 +372,7 @@ public class MavenMetadataGenerator
                     closeQuietly( fos );
                 }
 
-                helper.writeMergeInfo( merged, sources, group, toMergePath );
+                helper.writeMergeInfo( sources, group, toMergePath );
             }
         }
 
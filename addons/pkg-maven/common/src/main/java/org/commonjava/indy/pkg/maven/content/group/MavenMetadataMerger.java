@@ -15,13 +15,12 @@
  */
 package org.commonjava.indy.pkg.maven.content.group;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
 import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
 import org.apache.maven.artifact.repository.metadata.Versioning;
-import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
 import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.core.content.group.MetadataMerger;
 import org.commonjava.indy.model.core.Group;
@@ -36,16 +35,17 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
@@ -107,6 +107,36 @@ public class MavenMetadataMerger
 
     @Override
     public byte[] merge( final Collection<Transfer> sources, final Group group, final String path )
+    {
+        final Metadata master = mergeMetadata( sources, group, path );
+        if ( master != null )
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try
+            {
+                new MetadataXpp3Writer().write( baos, master );
+
+                return baos.toByteArray();
+            }
+            catch ( final IOException e )
+            {
+                Logger logger = LoggerFactory.getLogger( getClass() );
+                logger.error( String.format( "Cannot write consolidated metadata: %s to: %s. Reason: %s", path, group.getKey(), e.getMessage() ), e );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Merge the given metadata sources (plus any {@link MavenMetadataProvider} content) into a single model. Each
+     * source is parsed straight off its stream rather than being buffered into a String first, and versions are
+     * de-duplicated through a hash set instead of the list scans done by {@link Metadata#merge(Metadata)}, while
+     * keeping the same merge semantics.
+     *
+     * @return the merged metadata, or null if nothing could be merged
+     */
+    public Metadata mergeMetadata( final Collection<Transfer> sources, final Group group, final String path )
     {
         Logger logger = LoggerFactory.getLogger( getClass() );
         logger.debug( "Generating merged metadata in: {}:{}", group.getKey(), path );
@@ -114,9 +144,8 @@ public class MavenMetadataMerger
         final Metadata master = new Metadata();
         master.setVersioning( new Versioning() );
 
-        final MetadataXpp3Reader reader = new MetadataXpp3Reader();
-        final FileReader fr = null;
-        InputStream stream = null;
+        final Set<String> versionSet = new HashSet<>();
+        final MavenMetadataStaxReader reader = new MavenMetadataStaxReader();
 
         boolean merged = false;
         Transfer snapshotProvider = null;
@@ -127,14 +156,14 @@ public class MavenMetadataMerger
                 continue;
             }
 
+            InputStream stream = null;
             try
             {
                 stream = src.openInputStream();
-                String content = IOUtils.toString( stream );
-                logger.debug( "Adding in metadata content from: {}\n\n{}\n\n", src, content );
+                logger.debug( "Adding in metadata content from: {}", src );
 
                 // there is a lot of junk in here to make up for Metadata's anemic merge() method.
-                final Metadata md = reader.read( new StringReader( content ), false );
+                final Metadata md = reader.read( stream );
 
                 if ( md.getGroupId() != null )
                 {
@@ -151,7 +180,7 @@ public class MavenMetadataMerger
                     master.setVersion( md.getVersion() );
                 }
 
-                master.merge( md );
+                mergeInto( master, md, versionSet );
 
                 Versioning versioning = master.getVersioning();
                 Versioning mdVersioning = md.getVersioning();
@@ -164,21 +193,13 @@ public class MavenMetadataMerger
 
                     versioning.setSnapshot( mdVersioning.getSnapshot() );
 
-                    final List<SnapshotVersion> snapshotVersions = versioning
-                            .getSnapshotVersions();
-                    boolean added = false;
-                    for ( final SnapshotVersion snap : mdVersioning
-                            .getSnapshotVersions() )
-                    {
-                        if ( !snapshotVersions.contains( snap ) )
-                        {
-                            snapshotVersions.add( snap );
-                            added = true;
-                        }
-                    }
+                    final List<SnapshotVersion> snapshotVersions = versioning.getSnapshotVersions();
+                    final List<SnapshotVersion> mdSnapshotVersions = mdVersioning.getSnapshotVersions();
 
-                    if ( added )
+                    // SnapshotVersion has no equals(), so every entry from the source is new to the master list.
+                    if ( !mdSnapshotVersions.isEmpty() )
                     {
+                        snapshotVersions.addAll( mdSnapshotVersions );
                         Collections.sort( snapshotVersions, new SnapshotVersionComparator() );
                     }
                 }
@@ -194,14 +215,13 @@ public class MavenMetadataMerger
                 final StoreKey key = getKey( src );
                 logger.error( String.format( "Cannot read metadata: %s from artifact-store: %s. Reason: %s", src.getPath(), key, e.getMessage() ), e );
             }
-            catch ( final XmlPullParserException e )
+            catch ( final XMLStreamException e )
             {
                 final StoreKey key = getKey( src );
                 logger.error( String.format( "Cannot parse metadata: %s from artifact-store: %s. Reason: %s", src.getPath(), key, e.getMessage() ), e );
             }
             finally
             {
-                closeQuietly( fr );
                 closeQuietly( stream );
             }
         }
@@ -218,7 +238,7 @@ public class MavenMetadataMerger
                         Metadata toMerge = provider.getMetadata( group.getKey(), path );
                         if ( toMerge != null )
                         {
-                            merged = master.merge( toMerge ) || merged;
+                            merged = mergeInto( master, toMerge, versionSet ) || merged;
                         }
                     }
                     catch ( IndyWorkflowException e )
@@ -237,22 +257,111 @@ public class MavenMetadataMerger
                     versionObjects.stream().map( SingleVersion::renderStandard ).collect( Collectors.toList() ) );
         }
 
-        if ( merged )
+        return merged ? master : null;
+    }
+
+    /**
+     * Same contract as {@link Metadata#merge(Metadata)}, but checks version membership against {@code versionSet}
+     * (which mirrors the master version list) so merging n sources stays linear in the number of versions.
+     */
+    private boolean mergeInto( final Metadata master, final Metadata source, final Set<String> versionSet )
+    {
+        boolean changed = false;
+
+        for ( final Plugin plugin : source.getPlugins() )
         {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try
+            boolean found = false;
+            for ( final Plugin existing : master.getPlugins() )
             {
-                new MetadataXpp3Writer().write( baos, master );
+                if ( existing.getPrefix() != null && existing.getPrefix().equals( plugin.getPrefix() ) )
+                {
+                    found = true;
+                    break;
+                }
+            }
 
-                return baos.toByteArray();
+            if ( !found )
+            {
+                final Plugin copy = new Plugin();
+                copy.setName( plugin.getName() );
+                copy.setPrefix( plugin.getPrefix() );
+                copy.setArtifactId( plugin.getArtifactId() );
+                master.addPlugin( copy );
+                changed = true;
             }
-            catch ( final IOException e )
+        }
+
+        final Versioning srcVersioning = source.getVersioning();
+        if ( srcVersioning == null )
+        {
+            return changed;
+        }
+
+        Versioning versioning = master.getVersioning();
+        if ( versioning == null )
+        {
+            versioning = new Versioning();
+            master.setVersioning( versioning );
+            changed = true;
+        }
+
+        for ( final String version : srcVersioning.getVersions() )
+        {
+            if ( versionSet.add( version ) )
             {
-                logger.error( String.format( "Cannot write consolidated metadata: %s to: %s. Reason: %s", path, group.getKey(), e.getMessage() ), e );
+                versioning.addVersion( version );
+                changed = true;
             }
         }
 
-        return null;
+        if ( "null".equals( srcVersioning.getLastUpdated() ) )
+        {
+            srcVersioning.setLastUpdated( null );
+        }
+
+        if ( "null".equals( versioning.getLastUpdated() ) )
+        {
+            versioning.setLastUpdated( null );
+        }
+
+        if ( srcVersioning.getLastUpdated() == null || srcVersioning.getLastUpdated().length() == 0 )
+        {
+            srcVersioning.setLastUpdated( versioning.getLastUpdated() );
+        }
+
+        if ( versioning.getLastUpdated() == null || versioning.getLastUpdated().length() == 0
+                || srcVersioning.getLastUpdated().compareTo( versioning.getLastUpdated() ) >= 0 )
+        {
+            changed = true;
+            versioning.setLastUpdated( srcVersioning.getLastUpdated() );
+
+            if ( srcVersioning.getRelease() != null )
+            {
+                versioning.setRelease( srcVersioning.getRelease() );
+            }
+
+            if ( srcVersioning.getLatest() != null )
+            {
+                versioning.setLatest( srcVersioning.getLatest() );
+            }
+
+            final Snapshot srcSnapshot = srcVersioning.getSnapshot();
+            if ( srcSnapshot != null )
+            {
+                Snapshot snapshot = versioning.getSnapshot();
+                if ( snapshot == null )
+                {
+                    snapshot = new Snapshot();
+                    versioning.setSnapshot( snapshot );
+                }
+
+                snapshot.setTimestamp( srcSnapshot.getTimestamp() );
+                snapshot.setBuildNumber( srcSnapshot.getBuildNumber() );
+                snapshot.setLocalCopy( srcSnapshot.isLocalCopy() );
+            }
+        }
+
+        return changed;
     }
 
 }
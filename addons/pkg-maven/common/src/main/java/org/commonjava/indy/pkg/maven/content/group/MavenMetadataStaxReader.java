@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pkg.maven.content.group;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Reads maven-metadata.xml straight off a stream with StAX, without buffering the document. Unknown elements are
+ * skipped and values are trimmed, the way the lenient (non-strict) {@code MetadataXpp3Reader} behaves.
+ */
+final class MavenMetadataStaxReader
+{
+
+    private static final XMLInputFactory FACTORY;
+
+    static
+    {
+        FACTORY = XMLInputFactory.newInstance();
+        FACTORY.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        FACTORY.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+        FACTORY.setProperty( XMLInputFactory.IS_COALESCING, true );
+    }
+
+    Metadata read( final InputStream stream )
+            throws XMLStreamException
+    {
+        final XMLStreamReader reader = FACTORY.createXMLStreamReader( stream );
+        try
+        {
+            reader.nextTag();
+            if ( !"metadata".equals( reader.getLocalName() ) )
+            {
+                throw new XMLStreamException( "Expected root element 'metadata' but found: " + reader.getLocalName(),
+                                              reader.getLocation() );
+            }
+
+            return readMetadata( reader );
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private Metadata readMetadata( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        final Metadata metadata = new Metadata();
+        while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+            switch ( reader.getLocalName() )
+            {
+                case "groupId":
+                    metadata.setGroupId( text( reader ) );
+                    break;
+                case "artifactId":
+                    metadata.setArtifactId( text( reader ) );
+                    break;
+                case "version":
+                    metadata.setVersion( text( reader ) );
+                    break;
+                case "versioning":
+                    metadata.setVersioning( readVersioning( reader ) );
+                    break;
+                case "plugins":
+                    while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+                    {
+                        if ( "plugin".equals( reader.getLocalName() ) )
+                        {
+                            metadata.addPlugin( readPlugin( reader ) );
+                        }
+                        else
+                        {
+                            skip( reader );
+                        }
+                    }
+                    break;
+                default:
+                    skip( reader );
+            }
+        }
+
+        return metadata;
+    }
+
+    private Versioning readVersioning( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        final Versioning versioning = new Versioning();
+        while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+            switch ( reader.getLocalName() )
+            {
+                case "latest":
+                    versioning.setLatest( text( reader ) );
+                    break;
+                case "release":
+                    versioning.setRelease( text( reader ) );
+                    break;
+                case "lastUpdated":
+                    versioning.setLastUpdated( text( reader ) );
+                    break;
+                case "snapshot":
+                    versioning.setSnapshot( readSnapshot( reader ) );
+                    break;
+                case "versions":
+                    while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+                    {
+                        if ( "version".equals( reader.getLocalName() ) )
+                        {
+                            versioning.addVersion( text( reader ) );
+                        }
+                        else
+                        {
+                            skip( reader );
+                        }
+                    }
+                    break;
+                case "snapshotVersions":
+                    while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+                    {
+                        if ( "snapshotVersion".equals( reader.getLocalName() ) )
+                        {
+                            versioning.addSnapshotVersion( readSnapshotVersion( reader ) );
+                        }
+                        else
+                        {
+                            skip( reader );
+                        }
+                    }
+                    break;
+                default:
+                    skip( reader );
+            }
+        }
+
+        return versioning;
+    }
+
+    private Snapshot readSnapshot( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        final Snapshot snapshot = new Snapshot();
+        while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+            switch ( reader.getLocalName() )
+            {
+                case "timestamp":
+                    snapshot.setTimestamp( text( reader ) );
+                    break;
+                case "buildNumber":
+                    snapshot.setBuildNumber( intValue( text( reader ) ) );
+                    break;
+                case "localCopy":
+                    snapshot.setLocalCopy( Boolean.parseBoolean( text( reader ) ) );
+                    break;
+                default:
+                    skip( reader );
+            }
+        }
+
+        return snapshot;
+    }
+
+    private SnapshotVersion readSnapshotVersion( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        final SnapshotVersion snapshotVersion = new SnapshotVersion();
+        while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+            switch ( reader.getLocalName() )
+            {
+                case "classifier":
+                    snapshotVersion.setClassifier( text( reader ) );
+                    break;
+                case "extension":
+                    snapshotVersion.setExtension( text( reader ) );
+                    break;
+                case "value":
+                    snapshotVersion.setVersion( text( reader ) );
+                    break;
+                case "updated":
+                    snapshotVersion.setUpdated( text( reader ) );
+                    break;
+                default:
+                    skip( reader );
+            }
+        }
+
+        return snapshotVersion;
+    }
+
+    private Plugin readPlugin( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        final Plugin plugin = new Plugin();
+        while ( reader.nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+            switch ( reader.getLocalName() )
+            {
+                case "name":
+                    plugin.setName( text( reader ) );
+                    break;
+                case "prefix":
+                    plugin.setPrefix( text( reader ) );
+                    break;
+                case "artifactId":
+                    plugin.setArtifactId( text( reader ) );
+                    break;
+                default:
+                    skip( reader );
+            }
+        }
+
+        return plugin;
+    }
+
+    private String text( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        return reader.getElementText().trim();
+    }
+
+    private int intValue( final String value )
+    {
+        try
+        {
+            return Integer.parseInt( value );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    private void skip( final XMLStreamReader reader )
+            throws XMLStreamException
+    {
+        int depth = 1;
+        while ( depth > 0 )
+        {
+            final int event = reader.next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                depth++;
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                depth--;
+            }
+        }
+    }
+}
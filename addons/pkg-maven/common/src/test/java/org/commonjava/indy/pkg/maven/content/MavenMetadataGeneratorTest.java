@@ -15,15 +15,24 @@
  */
 package org.commonjava.indy.pkg.maven.content;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.IndyLocationExpander;
 import org.commonjava.indy.content.StoreResource;
 import org.commonjava.indy.core.content.DefaultDirectContentAccess;
 import org.commonjava.indy.core.content.DefaultDownloadManager;
+import org.commonjava.indy.core.content.group.GroupMergeCoordinator;
 import org.commonjava.indy.core.content.group.GroupMergeHelper;
 import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
 import org.commonjava.indy.model.core.RemoteRepository;
 import org.commonjava.indy.model.galley.KeyedLocation;
 import org.commonjava.indy.pkg.maven.content.group.MavenMetadataMerger;
@@ -45,6 +54,7 @@ import org.commonjava.maven.galley.maven.spi.type.TypeMapper;
 import org.commonjava.maven.galley.model.ConcreteResource;
 import org.commonjava.maven.galley.model.ListingResult;
 import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
 import org.commonjava.maven.galley.nfc.MemoryNotFoundCache;
 import org.commonjava.maven.galley.spi.transport.LocationExpander;
 import org.commonjava.maven.galley.testing.core.transport.job.TestListing;
@@ -53,10 +63,21 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
@@ -74,6 +95,10 @@ public class MavenMetadataGeneratorTest
 
     private MavenMetadataReader metadataReader;
 
+    private DownloadManager downloads;
+
+    private DefaultDirectContentAccess contentAccess;
+
     private final ChangeSummary summary = new ChangeSummary( "test-user", "test" );
 
     @Before
@@ -84,14 +109,14 @@ public class MavenMetadataGeneratorTest
 
         final LocationExpander locations = new IndyLocationExpander( stores );
 
-        final DownloadManager downloads = new DefaultDownloadManager( stores, fixture.getTransferManager(), locations );
+        downloads = new DefaultDownloadManager( stores, fixture.getTransferManager(), locations );
 
         final XMLInfrastructure xml = new XMLInfrastructure();
         final TypeMapper types = new StandardTypeMapper();
         final MavenMetadataMerger merger = new MavenMetadataMerger( Collections.emptyList() );
         final GroupMergeHelper helper = new GroupMergeHelper( downloads );
 
-        DefaultDirectContentAccess contentAccess = new DefaultDirectContentAccess( downloads,
+        contentAccess = new DefaultDirectContentAccess( downloads,
                                                                                    Executors.newCachedThreadPool() );
 
         generator = new MavenMetadataGenerator( contentAccess, stores, xml, types, merger, helper, new MemoryNotFoundCache() );
@@ -238,6 +263,102 @@ public class MavenMetadataGeneratorTest
         }
     }
 
+    @Test
+    public void concurrentGroupMetadataRequestsShareOneMerge()
+        throws Exception
+    {
+        final String path = "org/group/artifact/maven-metadata.xml";
+        final HostedRepository h1 = new HostedRepository( "hosted-1" );
+        final HostedRepository h2 = new HostedRepository( "hosted-2" );
+        stores.storeArtifactStore( h1, summary, new EventMetadata() );
+        stores.storeArtifactStore( h2, summary, new EventMetadata() );
+        writeVersionMetadata( h1, path, "1.0" );
+        writeVersionMetadata( h2, path, "1.1" );
+
+        final Group group = new Group( "test-group", h1.getKey(), h2.getKey() );
+        stores.storeArtifactStore( group, summary, new EventMetadata() );
+        final List<ArtifactStore> members = Arrays.asList( h1, h2 );
+
+        final AtomicInteger merges = new AtomicInteger();
+        final MavenMetadataMerger countingMerger = new MavenMetadataMerger( Collections.emptyList() )
+        {
+            @Override
+            public Metadata mergeMetadata( final Collection<Transfer> sources, final Group group, final String path )
+            {
+                merges.incrementAndGet();
+                try
+                {
+                    // hold the merge open long enough for the other requests to pile up behind it
+                    Thread.sleep( 500 );
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.mergeMetadata( sources, group, path );
+            }
+        };
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        generator = new MavenMetadataGenerator( contentAccess, stores, new XMLInfrastructure(), new StandardTypeMapper(),
+                                                countingMerger, new GroupMergeHelper( downloads ),
+                                                new GroupMergeCoordinator( metricRegistry, 30 ),
+                                                new MemoryNotFoundCache() );
+
+        final int requests = 100;
+        final ExecutorService executor = Executors.newFixedThreadPool( requests );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List<Future<Transfer>> results = new ArrayList<>();
+        for ( int i = 0; i < requests; i++ )
+        {
+            results.add( executor.submit( () -> {
+                start.await();
+                return generator.generateGroupFileContent( group, members, path, new EventMetadata() );
+            } ) );
+        }
+
+        start.countDown();
+        for ( final Future<Transfer> result : results )
+        {
+            final Transfer transfer = result.get( 60, TimeUnit.SECONDS );
+            assertThat( transfer, notNullValue() );
+            assertThat( transfer.exists(), equalTo( true ) );
+        }
+        executor.shutdownNow();
+
+        assertThat( merges.get(), equalTo( 1 ) );
+
+        final long coalesced = metricRegistry.meter( name( GroupMergeCoordinator.class, "coalesced" ) ).getCount();
+        assertThat( coalesced > 0, equalTo( true ) );
+
+        final Transfer target = downloads.getStorageReference( group, path );
+        try (InputStream in = target.openInputStream())
+        {
+            final Metadata merged = new MetadataXpp3Reader().read( in );
+            assertThat( merged.getVersioning().getVersions(), equalTo( Arrays.asList( "1.0", "1.1" ) ) );
+        }
+    }
+
+    private void writeVersionMetadata( final HostedRepository repo, final String path, final String version )
+        throws Exception
+    {
+        final Versioning versioning = new Versioning();
+        versioning.addVersion( version );
+        versioning.setLatest( version );
+        versioning.setRelease( version );
+
+        final Metadata metadata = new Metadata();
+        metadata.setGroupId( "org.group" );
+        metadata.setArtifactId( "artifact" );
+        metadata.setVersioning( versioning );
+
+        final Transfer transfer = downloads.getStorageReference( repo, path );
+        try (OutputStream out = transfer.openOutputStream( TransferOperation.UPLOAD, false ))
+        {
+            new MetadataXpp3Writer().write( out, metadata );
+        }
+    }
+
     private StoreResource setupVersionsStructureWith2Versions()
         throws Exception
     {
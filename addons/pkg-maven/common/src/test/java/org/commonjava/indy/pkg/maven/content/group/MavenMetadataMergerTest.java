@@ -17,8 +17,11 @@ package org.commonjava.indy.pkg.maven.content.group;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
 import org.apache.maven.artifact.repository.metadata.Versioning;
 import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.HostedRepository;
@@ -40,12 +43,17 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -329,6 +337,129 @@ public class MavenMetadataMergerTest
         assertThat( versions.get( idx ), equalTo( "1.0" ) );
     }
 
+    @Test
+    public void streamingMergeMatchesModelMerge()
+            throws Exception
+    {
+        String path = "org/foo/bar/maven-metadata.xml";
+        for ( int size : new int[] { 1, 10, 500 } )
+        {
+            List<Transfer> sources = new ArrayList<>();
+            List<StoreKey> members = new ArrayList<>();
+            for ( int i = 0; i < 4; i++ )
+            {
+                HostedRepository h = new HostedRepository( "test-hosted-" + size + "-" + i );
+                members.add( h.getKey() );
+
+                Transfer t = cacheProvider.getTransfer( new ConcreteResource( LocationUtils.toLocation( h ), path ) );
+                writeTestData( t, syntheticMetadata( size, i ) );
+                sources.add( t );
+            }
+
+            Group g = new Group( "test-group-" + size, members );
+
+            byte[] expected = modelMerge( sources );
+            byte[] output = new MavenMetadataMerger( Collections.emptyList() ).merge( sources, g, path );
+
+            assertThat( "merged output differs for " + size + " versions per source", new String( output ),
+                        equalTo( new String( expected ) ) );
+        }
+    }
+
+    private Metadata syntheticMetadata( int size, int idx )
+    {
+        Versioning versioning = new Versioning();
+        for ( int v = 0; v < size; v++ )
+        {
+            // overlap half of the versions with the previous source
+            versioning.addVersion( "1." + ( v + idx * size / 2 ) );
+        }
+        versioning.setLatest( versioning.getVersions().get( size - 1 ) );
+        versioning.setRelease( versioning.getLatest() );
+        versioning.setLastUpdated( "2016110" + idx + "120000" );
+
+        if ( idx % 2 == 1 )
+        {
+            SnapshotVersion sv = new SnapshotVersion();
+            sv.setExtension( "jar" );
+            sv.setVersion( "2.0-20161102.12000" + idx + "-" + idx );
+            sv.setUpdated( "2016110" + idx + "120000" );
+            versioning.addSnapshotVersion( sv );
+        }
+
+        Metadata md = new Metadata();
+        md.setGroupId( "org.foo" );
+        md.setArtifactId( "bar" );
+        md.setVersioning( versioning );
+
+        Plugin plugin = new Plugin();
+        plugin.setName( "Plugin " + ( idx % 2 ) );
+        plugin.setPrefix( "prefix-" + ( idx % 2 ) );
+        plugin.setArtifactId( "bar-plugin-" + ( idx % 2 ) );
+        md.addPlugin( plugin );
+
+        return md;
+    }
+
+    /**
+     * The original buffered merge, using {@link MetadataXpp3Reader} and {@link Metadata#merge(Metadata)}, kept here as
+     * a reference for the streaming merge.
+     */
+    private byte[] modelMerge( List<Transfer> sources )
+            throws Exception
+    {
+        Metadata master = new Metadata();
+        master.setVersioning( new Versioning() );
+
+        for ( Transfer src : sources )
+        {
+            Metadata md;
+            try (InputStream in = src.openInputStream())
+            {
+                md = new MetadataXpp3Reader().read( new StringReader( IOUtils.toString( in ) ), false );
+            }
+
+            master.setGroupId( md.getGroupId() );
+            master.setArtifactId( md.getArtifactId() );
+            master.merge( md );
+
+            Versioning versioning = master.getVersioning();
+            Versioning mdVersioning = md.getVersioning();
+            if ( versioning.getSnapshot() == null && mdVersioning != null )
+            {
+                versioning.setSnapshot( mdVersioning.getSnapshot() );
+                if ( !mdVersioning.getSnapshotVersions().isEmpty() )
+                {
+                    versioning.getSnapshotVersions().addAll( mdVersioning.getSnapshotVersions() );
+                    versioning.getSnapshotVersions()
+                              .sort( Comparator.comparing( SnapshotVersion::getVersion )
+                                               .thenComparing( SnapshotVersion::getExtension ) );
+                }
+            }
+        }
+
+        Versioning versioning = master.getVersioning();
+        versioning.setVersions( versioning.getVersions()
+                                          .stream()
+                                          .map( VersionUtils::createSingleVersion )
+                                          .sorted()
+                                          .map( SingleVersion::renderStandard )
+                                          .collect( Collectors.toList() ) );
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new MetadataXpp3Writer().write( baos, master );
+        return baos.toByteArray();
+    }
+
+    private void writeTestData( Transfer transfer, Metadata metadata )
+            throws IOException
+    {
+        try (OutputStream out = transfer.openOutputStream( TransferOperation.DOWNLOAD, false ))
+        {
+            new MetadataXpp3Writer().write( out, metadata );
+        }
+    }
+
     private void initTestData( Transfer transfer, String resourcePath )
             throws IOException
     {
@@ -27,6 +27,10 @@ class ArtifactRefAvailability implements ValidationRule {
         def logger = LoggerFactory.getLogger(ValidationRule.class)
 
         def pomTC = new SimpleTypeAndClassifier("pom")
+
+        // collect every referenced artifact (and its POM) first, so availability can be resolved in one bulk lookup
+        def refs = []
+        def neededPaths = new HashSet()
         request.getSourcePaths().each { it ->
             if (it.endsWith(".pom")) {
                 def relationships = tools.getRelationshipsForPom(it, dc, request, verifyStoreKeys)
@@ -45,52 +49,29 @@ class ArtifactRefAvailability implements ValidationRule {
                             def path = tools.toArtifactPath(target)
                             def pomPath = tools.toArtifactPath(target.asPomArtifact())
 
-                            def found = false
-                            def foundPom = false
-
-                            verifyStoreKeys.each{ verifyStoreKey ->
-                                if( !found ){
-                                    def txfr = tools.getTransfer(verifyStoreKey, path)
-                                    logger.info("{} in {}: {}. Exists? {}", target, verifyStoreKey, txfr, txfr == null ? false : txfr.exists())
-                                    if (txfr != null  && txfr.exists()) {
-                                        logger.info("Marking as found: {}", target.asPomArtifact());
-                                        found = true
-                                    }
-                                }
-
-                                if (!foundPom) {
-                                    def txfr = tools.getTransfer(verifyStoreKey, pomPath)
-                                    logger.info("POM {} in {}: {}. Exists? {}", target.asPomArtifact(), verifyStoreKey, txfr, txfr == null ? false : txfr.exists())
-                                    if (txfr != null && txfr.exists()) {
-                                        logger.info("Marking as found: {}", target.asPomArtifact());
-                                        foundPom = true
-                                    }
-                                }
-                            }
+                            refs << [source: it, path: path, pomPath: pomPath]
+                            neededPaths << path
+                            neededPaths << pomPath
+                        }
+                    }
+                }
+            }
+        }
 
-                            if ( !found ) {
-                                if (builder.length() > 0) {
-                                    builder.append("\n")
-                                }
-                                builder.append(it)
-                                        .append(" is invalid: ")
-                                        .append(path)
-                                        .append(" is not available via: ")
-                                        .append(StringUtils.join(verifyStoreKeys, ", " ))
-                            }
+        def available = tools.getAvailablePaths(neededPaths, verifyStoreKeys, request)
+        logger.debug("{} of {} referenced paths are available via: {}", available.size(), neededPaths.size(), verifyStoreKeys)
 
-                            if ( !foundPom ) {
-                                if (builder.length() > 0) {
-                                    builder.append("\n")
-                                }
-                                builder.append(it)
-                                        .append(" is invalid: ")
-                                        .append(tools.toArtifactPath(target.asPomArtifact()))
-                                        .append(" is not available via: ")
-                                        .append(StringUtils.join(verifyStoreKeys, ", " ))
-                            }
-                        }
+        refs.each { ref ->
+            [ref.path, ref.pomPath].unique().each { path ->
+                if (!available.contains(path)) {
+                    if (builder.length() > 0) {
+                        builder.append("\n")
                     }
+                    builder.append(ref.source)
+                            .append(" is invalid: ")
+                            .append(path)
+                            .append(" is not available via: ")
+                            .append(StringUtils.join(verifyStoreKeys, ", " ))
                 }
             }
         }
@@ -12,17 +12,14 @@ class NoPreExistingPaths implements ValidationRule {
         def builder = new StringBuilder()
         def tools = request.getTools()
 
-        request.getSourcePaths().each { it ->
-            def aref = tools.getArtifact(it);
-            if (aref != null) {
-                verifyStoreKeys.each { verifyStoreKey ->
-                    if (tools.exists(verifyStoreKey, it)) {
-                        if (builder.length() > 0) {
-                            builder.append("\n")
-                        }
-                        builder.append(it).append(" is already available in: ").append(verifyStoreKey);
-                    }
+        def artifactPaths = request.getSourcePaths().findAll { it -> tools.getArtifact(it) != null }
+
+        tools.getStoresContaining(artifactPaths, verifyStoreKeys, request).each { path, storeKeys ->
+            storeKeys.each { verifyStoreKey ->
+                if (builder.length() > 0) {
+                    builder.append("\n")
                 }
+                builder.append(path).append(" is already available in: ").append(verifyStoreKey);
             }
         }
 
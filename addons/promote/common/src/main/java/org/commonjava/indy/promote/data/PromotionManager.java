@@ -16,6 +16,8 @@
 package org.commonjava.indy.promote.data;
 
 import org.apache.commons.lang.StringUtils;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.ContentManager;
@@ -49,7 +51,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
@@ -81,6 +90,11 @@ public class PromotionManager
     @Inject
     private PromotionValidator validator;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( priority = 6, threads = 8, named = "promote-transfers" )
+    private ExecutorService transferExecutor;
+
     private Map<StoreKey, ReentrantLock> byPathTargetLocks = new WeakHashMap<>();
 
     protected PromotionManager()
@@ -88,13 +102,15 @@ public class PromotionManager
     }
 
     public PromotionManager( PromotionValidator validator, final ContentManager contentManager,
-                             final DownloadManager downloadManager, final StoreDataManager storeManager, PromoteConfig config )
+                             final DownloadManager downloadManager, final StoreDataManager storeManager, PromoteConfig config,
+                             final ExecutorService transferExecutor )
     {
         this.validator = validator;
         this.contentManager = contentManager;
         this.downloadManager = downloadManager;
         this.storeManager = storeManager;
         this.config = config;
+        this.transferExecutor = transferExecutor;
     }
 
     public GroupPromoteResult promoteToGroup( GroupPromoteRequest request, String user, String baseUrl )
@@ -437,10 +453,25 @@ public class PromotionManager
             }
         }
 
-        final Set<String> complete = prevComplete == null ? new HashSet<>() : new HashSet<>( prevComplete );
-        final Set<String> skipped = prevSkipped == null ? new HashSet<>() : new HashSet<>( prevSkipped );
+        final Set<String> remaining = ConcurrentHashMap.newKeySet();
+        remaining.addAll( pending );
+
+        final Set<String> complete = ConcurrentHashMap.newKeySet();
+        if ( prevComplete != null )
+        {
+            complete.addAll( prevComplete );
+        }
+
+        final Set<String> skipped = ConcurrentHashMap.newKeySet();
+        if ( prevSkipped != null )
+        {
+            skipped.addAll( prevSkipped );
+        }
 
-        List<String> errors = new ArrayList<>();
+        final AtomicLong transferredBytes = new AtomicLong();
+        long start = System.currentTimeMillis();
+
+        List<String> errors = Collections.synchronizedList( new ArrayList<>() );
         boolean locked = false;
         try
         {
@@ -465,65 +496,63 @@ public class PromotionManager
                 logger.info( "Running promotions from: {} (key: {})\n  to: {} (key: {})", sourceStore, request.getSource(),
                              targetStore, request.getTarget() );
 
-                final boolean purgeSource = request.isPurgeSource();
-                contents.forEach( (transfer)->{
+                start = System.currentTimeMillis();
+
+                // paths are independent of each other, so copy them on the transfer pool (bounded by its thread
+                // count) instead of one at a time. Every copy counts down 'settled' when it's done (or skipped), so we
+                // can make sure none is still writing to the target before the target lock is released.
+                final AtomicBoolean abandoned = new AtomicBoolean( false );
+                final CountDownLatch settled = new CountDownLatch( contents.size() );
+                final List<Future<?>> copies = new ArrayList<>( contents.size() );
+                contents.forEach( ( transfer ) -> copies.add( transferExecutor.submit( () -> {
                     try
                     {
-                        final String path = transfer.getPath();
-
-                        Transfer target = contentManager.getTransfer( targetStore, path, TransferOperation.UPLOAD );
-                        //                        synchronized ( target )
-                        //                        {
-                        // TODO: Should the request object have an overwrite attribute? Is that something the user is qualified to decide?
-                        if ( target != null && target.exists() )
+                        if ( !abandoned.get() )
                         {
-                            logger.warn( "NOT promoting: {} from: {} to: {}. Target file already exists.", path,
-                                         request.getSource(), request.getTarget() );
-
-                            // TODO: There's no guarantee that the pre-existing content is the same!
-                            pending.remove( path );
-                            skipped.add( path );
+                            promotePath( request, sourceStore, targetStore, transfer, remaining, complete, skipped,
+                                         transferredBytes, errors );
                         }
-                        else
-                        {
-                            try (InputStream stream = transfer.openInputStream( true ))
-                            {
-                                contentManager.store( targetStore, path, stream, TransferOperation.UPLOAD,
-                                                      new EventMetadata() );
-
-                                pending.remove( path );
-                                complete.add( path );
-
-                                stream.close();
+                    }
+                    finally
+                    {
+                        settled.countDown();
+                    }
+                } ) ) );
 
-                                if ( purgeSource )
-                                {
-                                    contentManager.delete( sourceStore, path, new EventMetadata() );
-                                }
-                            }
-                            catch ( final IOException e )
-                            {
-                                String msg = String.format( "Failed to open input stream for: %s. Reason: %s", transfer,
-                                                            e.getMessage() );
-                                errors.add( msg );
-                                logger.error( msg, e );
-                            }
-                        }
+                for ( final Future<?> copy : copies )
+                {
+                    try
+                    {
+                        copy.get();
                     }
-                    catch ( final IndyWorkflowException e )
+                    catch ( final ExecutionException e )
                     {
-                        String msg =
-                                String.format( "Failed to promote path: %s to: %s. Reason: %s", transfer, targetStore,
-                                               e.getMessage() );
+                        String msg = String.format( "Failed to promote path to: %s. Reason: %s", targetStore,
+                                                    e.getCause().getMessage() );
                         errors.add( msg );
-                        logger.error( msg, e );
+                        logger.error( msg, e.getCause() );
                     }
-                } );
+                    catch ( final InterruptedException e )
+                    {
+                        // copies that haven't started are skipped, leaving their paths pending; the ones in flight
+                        // have to finish before we give up the target lock.
+                        abandoned.set( true );
+                        awaitUninterruptibly( settled );
+                        Thread.currentThread().interrupt();
+
+                        String error = String.format( "Interrupted while promoting paths to: %s. %d paths left pending.",
+                                                      targetKey, remaining.size() );
+                        errors.add( error );
+                        logger.warn( error );
+                        break;
+                    }
+                }
             }
 
         }
         catch ( InterruptedException e )
         {
+            Thread.currentThread().interrupt();
             String error = String.format( "Interrupted waiting for promotion lock on target: %s", targetKey );
             errors.add( error );
             logger.warn( error );
@@ -550,7 +579,96 @@ public class PromotionManager
             error = StringUtils.join( errors, "\n" );
         }
 
-        return new PathsPromoteResult( request, pending, complete, skipped, error, validation );
+        final PathsPromoteResult result =
+                new PathsPromoteResult( request, new HashSet<>( remaining ), new HashSet<>( complete ),
+                                        new HashSet<>( skipped ), error, validation );
+
+        result.setTransferredBytes( transferredBytes.get() );
+        result.setTransferMillis( System.currentTimeMillis() - start );
+
+        logger.info( "Promoted {} bytes from: {} to: {} in {}ms", result.getTransferredBytes(), request.getSource(),
+                     request.getTarget(), result.getTransferMillis() );
+
+        return result;
+    }
+
+    private static void awaitUninterruptibly( final CountDownLatch latch )
+    {
+        boolean interrupted = false;
+        while ( true )
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch ( final InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void promotePath( final PathsPromoteRequest request, final ArtifactStore sourceStore,
+                              final ArtifactStore targetStore, final Transfer transfer, final Set<String> pending,
+                              final Set<String> complete, final Set<String> skipped, final AtomicLong transferredBytes,
+                              final List<String> errors )
+    {
+        try
+        {
+            final String path = transfer.getPath();
+
+            Transfer target = contentManager.getTransfer( targetStore, path, TransferOperation.UPLOAD );
+            // TODO: Should the request object have an overwrite attribute? Is that something the user is qualified to decide?
+            if ( target != null && target.exists() )
+            {
+                logger.warn( "NOT promoting: {} from: {} to: {}. Target file already exists.", path,
+                             request.getSource(), request.getTarget() );
+
+                // TODO: There's no guarantee that the pre-existing content is the same!
+                pending.remove( path );
+                skipped.add( path );
+            }
+            else
+            {
+                final long length = transfer.length();
+                try (InputStream stream = transfer.openInputStream( true ))
+                {
+                    contentManager.store( targetStore, path, stream, TransferOperation.UPLOAD,
+                                          new EventMetadata() );
+
+                    pending.remove( path );
+                    complete.add( path );
+                    transferredBytes.addAndGet( length );
+
+                    stream.close();
+
+                    if ( request.isPurgeSource() )
+                    {
+                        contentManager.delete( sourceStore, path, new EventMetadata() );
+                    }
+                }
+                catch ( final IOException e )
+                {
+                    String msg = String.format( "Failed to open input stream for: %s. Reason: %s", transfer,
+                                                e.getMessage() );
+                    errors.add( msg );
+                    logger.error( msg, e );
+                }
+            }
+        }
+        catch ( final IndyWorkflowException e )
+        {
+            String msg = String.format( "Failed to promote path: %s to: %s. Reason: %s", transfer, targetStore,
+                                        e.getMessage() );
+            errors.add( msg );
+            logger.error( msg, e );
+        }
     }
 
     private List<Transfer> getTransfersForPaths( final StoreKey source, final Set<String> paths )
@@ -15,6 +15,8 @@
  */
 package org.commonjava.indy.promote.validate;
 
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.ContentDigest;
 import org.commonjava.indy.content.ContentDigester;
@@ -39,12 +41,19 @@ import org.commonjava.maven.galley.TransferException;
 import org.commonjava.maven.galley.TransferManager;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.maven.GalleyMavenException;
+import org.commonjava.maven.galley.maven.model.view.DocRef;
 import org.commonjava.maven.galley.maven.model.view.MavenPomView;
+import org.commonjava.maven.galley.maven.model.view.MavenXmlMixin;
+import org.commonjava.maven.galley.maven.model.view.MavenXmlView;
+import org.commonjava.maven.galley.maven.model.view.XPathManager;
 import org.commonjava.maven.galley.maven.model.view.meta.MavenMetadataView;
 import org.commonjava.maven.galley.maven.parse.MavenMetadataReader;
 import org.commonjava.maven.galley.maven.parse.MavenPomReader;
+import org.commonjava.maven.galley.maven.parse.XMLInfrastructure;
 import org.commonjava.maven.galley.maven.rel.MavenModelProcessor;
 import org.commonjava.maven.galley.maven.rel.ModelProcessorConfig;
+import org.commonjava.maven.galley.maven.spi.defaults.MavenPluginDefaults;
+import org.commonjava.maven.galley.maven.spi.defaults.MavenPluginImplications;
 import org.commonjava.maven.galley.maven.spi.type.TypeMapper;
 import org.commonjava.maven.galley.maven.util.ArtifactPathUtils;
 import org.commonjava.maven.galley.model.Location;
@@ -53,15 +62,24 @@ import org.commonjava.maven.galley.model.TransferOperation;
 import org.commonjava.maven.galley.transport.htcli.model.HttpExchangeMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 
 import javax.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -102,6 +120,23 @@ public class PromotionValidationTools
     @Inject
     private ContentDigester contentDigester;
 
+    @Inject
+    private XPathManager xpath;
+
+    @Inject
+    private XMLInfrastructure xml;
+
+    @Inject
+    private MavenPluginDefaults pluginDefaults;
+
+    @Inject
+    private MavenPluginImplications pluginImplications;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( priority = 6, threads = 8, named = "promote-validation-lookups" )
+    private ExecutorService lookupExecutor;
+
     protected PromotionValidationTools()
     {
     }
@@ -109,7 +144,11 @@ public class PromotionValidationTools
     public PromotionValidationTools( final ContentManager manager, final StoreDataManager storeDataManager,
                                      final MavenPomReader pomReader, final MavenMetadataReader metadataReader,
                                      final MavenModelProcessor modelProcessor, final TypeMapper typeMapper,
-                                     final TransferManager transferManager, final ContentDigester contentDigester )
+                                     final TransferManager transferManager, final ContentDigester contentDigester,
+                                     final XPathManager xpath, final XMLInfrastructure xml,
+                                     final MavenPluginDefaults pluginDefaults,
+                                     final MavenPluginImplications pluginImplications,
+                                     final ExecutorService lookupExecutor )
     {
         contentManager = manager;
         this.storeDataManager = storeDataManager;
@@ -119,6 +158,11 @@ public class PromotionValidationTools
         this.typeMapper = typeMapper;
         this.transferManager = transferManager;
         this.contentDigester = contentDigester;
+        this.xpath = xpath;
+        this.xml = xml;
+        this.pluginDefaults = pluginDefaults;
+        this.pluginImplications = pluginImplications;
+        this.lookupExecutor = lookupExecutor;
     }
 
     public StoreKey[] getValidationStoreKeys( final ValidationRequest request, final boolean includeSource )
@@ -204,83 +248,304 @@ public class PromotionValidationTools
         logger.trace( "Retrieving relationships for POM: {} (using extra locations: {})", path,
                       Arrays.asList( extraLocations ) );
 
+        final String memoKey = String.format( "relationships:%s:%s:%s:%s:%s", path, config.isIncludeBuildSection(),
+                                              config.isIncludeManagedDependencies(), config.isIncludeManagedPlugins(),
+                                              Arrays.toString( extraLocations ) );
+
+        return memoized( request, memoKey, () -> {
+            MavenPomView pomView = readPom( path, request, extraLocations );
+            if ( pomView == null )
+            {
+                return null;
+            }
+
+            StoreKey key = request.getSourceRepository().getKey();
+            try
+            {
+                URI source = new URI( "indy:" + key.getType().name() + ":" + key.getName() );
+
+                // only the relationships are shared between rules; the view (and its DOM) stays with this thread.
+                return Collections.unmodifiableSet(
+                        modelProcessor.readRelationships( pomView, source, config ).getAllRelationships() );
+            }
+            catch ( final URISyntaxException e )
+            {
+                throw new IllegalStateException(
+                        "Failed to construct URI for ArtifactStore: " + key + ". Reason: " + e.getMessage(), e );
+            }
+        } );
+    }
+
+    public void addLocations( final List<Location> locations, final StoreKey... extraLocations )
+            throws IndyDataException
+    {
+        for ( StoreKey extra : extraLocations )
+        {
+            ArtifactStore store = getArtifactStore( extra );
+            locations.add( LocationUtils.toLocation( store ) );
+        }
+    }
+
+    /**
+     * Read the POM at the given path in the request's source repository, resolving parents and imports through the
+     * extra locations. The POM (with its parents and imports) is retrieved and parsed once per validation request, but
+     * every call gets its own view over private copies of the parsed documents: views and their DOMs aren't safe for
+     * concurrent reads, and rules run in parallel.
+     */
+    public MavenPomView readPom( final String path, final ValidationRequest request, final StoreKey... extraLocations )
+            throws IndyWorkflowException, GalleyMavenException, IndyDataException
+    {
         ArtifactRef artifactRef = getArtifact( path );
         if ( artifactRef == null )
         {
-            logger.trace( "{} is not a valid artifact reference. Skipping.", path );
             return null;
         }
 
-        StoreKey key = request.getSourceRepository().getKey();
-        Transfer transfer = retrieve( request.getSourceRepository(), path );
-        if ( transfer == null )
+        final MavenPomView parsed =
+                memoized( request, "pom:" + path + ":" + Arrays.toString( extraLocations ), () -> {
+                    Transfer transfer = retrieve( request.getSourceRepository(), path );
+                    if ( transfer == null )
+                    {
+                        Logger logger = LoggerFactory.getLogger( getClass() );
+                        logger.trace( "Could not retrieve Transfer instance for: {} (path: {}, extra locations: {})",
+                                      request.getSourceRepository().getKey(), path,
+                                      Arrays.asList( extraLocations ) );
+                        return null;
+                    }
+
+                    List<Location> locations = new ArrayList<>( extraLocations.length + 1 );
+                    locations.add( transfer.getLocation() );
+                    addLocations( locations, extraLocations );
+
+                    return pomReader.read( artifactRef.asProjectVersionRef(), transfer, locations,
+                                           MavenPomView.ALL_PROFILES );
+                } );
+
+        return parsed == null ? null : copyView( parsed );
+    }
+
+    /**
+     * Read the POM at the given path in the request's source repository, without resolving parents or imports. Parsed
+     * once per validation request; see {@link #readPom(String, ValidationRequest, StoreKey...)}.
+     */
+    public MavenPomView readLocalPom( final String path, final ValidationRequest request )
+            throws IndyWorkflowException, GalleyMavenException
+    {
+        ArtifactRef artifactRef = getArtifact( path );
+        if ( artifactRef == null )
         {
-            logger.trace( "Could not retrieve Transfer instance for: {} (path: {}, extra locations: {})", key, path,
-                          Arrays.asList( extraLocations ) );
-            return null;
+            throw new IndyWorkflowException( "Invalid artifact path: %s. Could not parse ArtifactRef from path.",
+                                             path );
         }
 
-        List<Location> locations = new ArrayList<>( extraLocations.length + 1 );
-        locations.add( transfer.getLocation() );
-        addLocations( locations, extraLocations );
+        final MavenPomView parsed;
+        try
+        {
+            parsed = memoized( request, "local-pom:" + path, () -> {
+                Transfer transfer = retrieve( request.getSourceRepository(), path );
 
-        MavenPomView pomView =
-                pomReader.read( artifactRef.asProjectVersionRef(), transfer, locations, MavenPomView.ALL_PROFILES );
+                return pomReader.readLocalPom( artifactRef.asProjectVersionRef(), transfer,
+                                               MavenPomView.ALL_PROFILES );
+            } );
+        }
+        catch ( final IndyDataException e )
+        {
+            throw new IndyWorkflowException( "Failed to read POM: %s. Reason: %s", e, path, e.getMessage() );
+        }
 
-        try
+        return parsed == null ? null : copyView( parsed );
+    }
+
+    /**
+     * A new view with the same structure (parent stack, imported BOM mixins and active profiles) as the given one,
+     * over deep copies of its documents.
+     */
+    private MavenPomView copyView( final MavenPomView view )
+    {
+        final List<DocRef<ProjectVersionRef>> stack = new ArrayList<>( view.getDocRefStack().size() );
+        for ( final DocRef<ProjectVersionRef> docRef : view.getDocRefStack() )
         {
-            URI source = new URI( "indy:" + key.getType().name() + ":" + key.getName() );
+            stack.add( new DocRef<>( docRef.getRef(), docRef.getSource(), copyDocument( docRef.getDoc() ) ) );
+        }
 
-            return modelProcessor.readRelationships( pomView, source, config ).getAllRelationships();
+        final Set<String> profiles = view.getActiveProfileIds();
+        final MavenPomView copy = new MavenPomView( view.getRef(), stack, xpath, pluginDefaults, pluginImplications, xml,
+                                                    profiles.toArray( new String[profiles.size()] ) );
+
+        for ( final MavenXmlMixin<ProjectVersionRef> mixin : view.getMixins() )
+        {
+            final MavenXmlView<ProjectVersionRef> mixinView = mixin.getMixin();
+            copy.addMixin( new MavenXmlMixin<>(
+                    mixinView instanceof MavenPomView ? copyView( (MavenPomView) mixinView ) : mixinView,
+                    mixin.getSubPaths() ) );
         }
-        catch ( final URISyntaxException e )
+
+        return copy;
+    }
+
+    private static Document copyDocument( final Document doc )
+    {
+        // even reading a DOM can change its internal state, so copies of the same document are made one at a time.
+        synchronized ( doc )
         {
-            throw new IllegalStateException(
-                    "Failed to construct URI for ArtifactStore: " + key + ". Reason: " + e.getMessage(), e );
+            return (Document) doc.cloneNode( true );
         }
     }
 
-    public void addLocations( final List<Location> locations, final StoreKey... extraLocations )
-            throws IndyDataException
+    /**
+     * Check whether a path exists in the given store, remembering the answer for the rest of the validation request.
+     */
+    public boolean exists( final StoreKey storeKey, final String path, final ValidationRequest request )
+            throws IndyWorkflowException, IndyDataException
     {
-        for ( StoreKey extra : extraLocations )
+        try
         {
-            ArtifactStore store = getArtifactStore( extra );
-            locations.add( LocationUtils.toLocation( store ) );
+            return memoized( request, "exists:" + storeKey + ":" + path, () -> exists( storeKey, path ) );
+        }
+        catch ( GalleyMavenException e )
+        {
+            throw new IndyWorkflowException( "Failed to check for: %s in: %s. Reason: %s", e, path, storeKey,
+                                             e.getMessage() );
         }
     }
 
-    public MavenPomView readPom( final String path, final ValidationRequest request, final StoreKey... extraLocations )
-            throws IndyWorkflowException, GalleyMavenException, IndyDataException
+    /**
+     * Check whether {@link #getTransfer(StoreKey, String)} finds existing content for the path, remembering the answer
+     * for the rest of the validation request.
+     */
+    public boolean transferExists( final StoreKey storeKey, final String path, final ValidationRequest request )
+            throws IndyWorkflowException
     {
-        ArtifactRef artifactRef = getArtifact( path );
-        if ( artifactRef == null )
+        try
         {
-            return null;
+            return memoized( request, "transfer-exists:" + storeKey + ":" + path, () -> {
+                Transfer txfr = getTransfer( storeKey, path );
+                return txfr != null && txfr.exists();
+            } );
         }
+        catch ( GalleyMavenException | IndyDataException e )
+        {
+            throw new IndyWorkflowException( "Failed to check for: %s in: %s. Reason: %s", e, path, storeKey,
+                                             e.getMessage() );
+        }
+    }
 
-        Transfer transfer = retrieve( request.getSourceRepository(), path );
+    /**
+     * Resolve in one pass which of the given paths are available via any of the stores, in the sense of
+     * {@link #transferExists(StoreKey, String, ValidationRequest)}. Paths are de-duplicated and looked up in parallel,
+     * and each path stops at the first store that has it. Lookups go through the {@link ContentManager}, so they are
+     * answered from the content index when it is deployed.
+     *
+     * @return the subset of paths that are available
+     */
+    public Set<String> getAvailablePaths( final Collection<String> paths, final StoreKey[] storeKeys,
+                                          final ValidationRequest request )
+            throws IndyWorkflowException
+    {
+        Map<String, Boolean> found = lookupAll( paths, path -> {
+            for ( StoreKey storeKey : storeKeys )
+            {
+                if ( transferExists( storeKey, path, request ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        } );
+
+        return found.entrySet()
+                    .stream()
+                    .filter( Map.Entry::getValue )
+                    .map( Map.Entry::getKey )
+                    .collect( Collectors.toSet() );
+    }
+
+    /**
+     * Resolve in one pass which of the given stores already contain each path, in the sense of
+     * {@link #exists(StoreKey, String, ValidationRequest)}. Paths are de-duplicated and looked up in parallel.
+     *
+     * @return mapping of path to the stores containing it, for the paths found in at least one store
+     */
+    public Map<String, Set<StoreKey>> getStoresContaining( final Collection<String> paths, final StoreKey[] storeKeys,
+                                                           final ValidationRequest request )
+            throws IndyWorkflowException
+    {
+        Map<String, Set<StoreKey>> found = lookupAll( paths, path -> {
+            Set<StoreKey> containing = new LinkedHashSet<>();
+            for ( StoreKey storeKey : storeKeys )
+            {
+                if ( exists( storeKey, path, request ) )
+                {
+                    containing.add( storeKey );
+                }
+            }
+            return containing;
+        } );
 
-        List<Location> locations = new ArrayList<>( extraLocations.length + 1 );
-        locations.add( transfer.getLocation() );
-        addLocations( locations, extraLocations );
+        found.values().removeIf( Set::isEmpty );
+        return found;
+    }
 
-        return pomReader.read( artifactRef.asProjectVersionRef(), transfer, locations, MavenPomView.ALL_PROFILES );
+    @FunctionalInterface
+    private interface PathLookup<T>
+    {
+        T lookup( String path )
+                throws IndyWorkflowException, IndyDataException;
     }
 
-    public MavenPomView readLocalPom( final String path, final ValidationRequest request )
-            throws IndyWorkflowException, GalleyMavenException
+    private <T> Map<String, T> lookupAll( final Collection<String> paths, final PathLookup<T> lookup )
+            throws IndyWorkflowException
     {
-        ArtifactRef artifactRef = getArtifact( path );
-        if ( artifactRef == null )
+        final Map<String, Future<T>> lookups = new LinkedHashMap<>();
+        for ( String path : new LinkedHashSet<>( paths ) )
         {
-            throw new IndyWorkflowException( "Invalid artifact path: %s. Could not parse ArtifactRef from path.",
-                                             path );
+            lookups.put( path, lookupExecutor.submit( () -> lookup.lookup( path ) ) );
         }
 
-        Transfer transfer = retrieve( request.getSourceRepository(), path );
+        final Map<String, T> results = new LinkedHashMap<>();
+        try
+        {
+            for ( Map.Entry<String, Future<T>> entry : lookups.entrySet() )
+            {
+                results.put( entry.getKey(), entry.getValue().get() );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            lookups.values().forEach( f -> f.cancel( true ) );
+            Thread.currentThread().interrupt();
+            throw new IndyWorkflowException( "Interrupted while looking up paths: %s", e, paths );
+        }
+        catch ( ExecutionException e )
+        {
+            lookups.values().forEach( f -> f.cancel( true ) );
+            Throwable cause = e.getCause();
+            if ( cause instanceof IndyWorkflowException )
+            {
+                throw (IndyWorkflowException) cause;
+            }
+
+            throw new IndyWorkflowException( "Failed to look up paths. Reason: %s", cause, cause.getMessage() );
+        }
 
-        return pomReader.readLocalPom( artifactRef.asProjectVersionRef(), transfer, MavenPomView.ALL_PROFILES );
+        return results;
+    }
+
+    private <T> T memoized( final ValidationRequest request, final String key, final Callable<T> producer )
+            throws IndyWorkflowException, GalleyMavenException, IndyDataException
+    {
+        try
+        {
+            return request.memoize( key, producer );
+        }
+        catch ( IndyWorkflowException | GalleyMavenException | IndyDataException | RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new IndyWorkflowException( "Failed to compute: %s. Reason: %s", e, key, e.getMessage() );
+        }
     }
 
     public ArtifactRef getArtifact( final String path )
@@ -16,6 +16,8 @@
 package org.commonjava.indy.promote.validate;
 
 import org.apache.commons.lang.StringUtils;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.data.IndyDataException;
@@ -37,8 +39,15 @@ import javax.inject.Inject;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by jdcasey on 9/11/15.
@@ -56,16 +65,22 @@ public class PromotionValidator
     @Inject
     private StoreDataManager storeDataMgr;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( priority = 6, threads = 8, named = "promote-validation-rules" )
+    private ExecutorService ruleExecutor;
+
     protected PromotionValidator()
     {
     }
 
     public PromotionValidator( PromoteValidationsManager validationsManager, PromotionValidationTools validationTools,
-                               StoreDataManager storeDataMgr )
+                               StoreDataManager storeDataMgr, ExecutorService ruleExecutor )
     {
         this.validationsManager = validationsManager;
         this.validationTools = validationTools;
         this.storeDataMgr = storeDataMgr;
+        this.ruleExecutor = ruleExecutor;
     }
 
     public void validate( PromoteRequest request, ValidationResult result, String baseUrl )
@@ -86,40 +101,82 @@ public class PromotionValidator
                 try
                 {
                     final ValidationRequest req = new ValidationRequest( request, set, validationTools, store );
+
+                    // rules don't depend on each other, and share parsed POMs through the request; run them side by
+                    // side, then report in rule-set order.
+                    final Map<String, Future<String>> runs = new LinkedHashMap<>();
+                    final Map<String, Long> timings = new ConcurrentHashMap<>();
                     for ( String ruleRef : ruleNames )
                     {
                         String ruleName =
                                 new File( ruleRef ).getName(); // flatten in case some path fragment leaks in...
 
                         ValidationRuleMapping rule = validationsManager.getRuleMappingNamed( ruleName );
-                        if ( rule != null )
+                        if ( rule != null && !runs.containsKey( rule.getName() ) )
                         {
-                            try
-                            {
+                            runs.put( rule.getName(), ruleExecutor.submit( () -> {
                                 logger.debug( "Running promotion validation rule: {}", rule.getName() );
-                                String error = rule.getRule().validate( req );
-                                if ( StringUtils.isNotEmpty( error ) )
+                                long start = System.nanoTime();
+                                try
                                 {
-                                    logger.debug( "{} failed", rule.getName() );
-                                    result.addValidatorError( rule.getName(), error );
+                                    return rule.getRule().validate( req );
                                 }
-                                else
+                                finally
                                 {
-                                    logger.debug( "{} succeeded", rule.getName() );
+                                    timings.put( rule.getName(),
+                                                 TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
                                 }
+                            } ) );
+                        }
+                    }
+
+                    PromotionValidationException failure = null;
+                    for ( Map.Entry<String, Future<String>> run : runs.entrySet() )
+                    {
+                        String ruleName = run.getKey();
+                        try
+                        {
+                            String error = run.getValue().get();
+                            if ( StringUtils.isNotEmpty( error ) )
+                            {
+                                logger.debug( "{} failed", ruleName );
+                                result.addValidatorError( ruleName, error );
                             }
-                            catch ( Exception e )
+                            else
                             {
-                                if ( e instanceof PromotionValidationException )
-                                {
-                                    throw (PromotionValidationException) e;
-                                }
-
-                                throw new PromotionValidationException(
-                                        "Failed to run validation rule: {} for request: {}. Reason: {}", e,
-                                        rule.getName(), request, e );
+                                logger.debug( "{} succeeded", ruleName );
                             }
                         }
+                        catch ( ExecutionException e )
+                        {
+                            if ( failure == null )
+                            {
+                                Throwable cause = e.getCause();
+                                failure = cause instanceof PromotionValidationException ?
+                                        (PromotionValidationException) cause :
+                                        new PromotionValidationException(
+                                                "Failed to run validation rule: {} for request: {}. Reason: {}", cause,
+                                                ruleName, request, cause );
+                            }
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            runs.values().forEach( f -> f.cancel( true ) );
+                            Thread.currentThread().interrupt();
+                            throw new PromotionValidationException(
+                                    "Interrupted while running validation rules for request: {}", e, request );
+                        }
+
+                        Long elapsed = timings.get( ruleName );
+                        if ( elapsed != null )
+                        {
+                            result.addRuleTiming( ruleName, elapsed );
+                        }
+                    }
+
+                    if ( failure != null )
+                    {
+                        throw failure;
                     }
                 }
                 finally
@@ -29,7 +29,14 @@ import org.commonjava.maven.galley.model.Transfer;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -48,6 +55,8 @@ public class ValidationRequest
 
     private ArtifactStore sourceRepository;
 
+    private final Map<String, Future<Optional<?>>> memo = new ConcurrentHashMap<>();
+
     public ValidationRequest( PromoteRequest promoteRequest, ValidationRuleSet ruleSet, PromotionValidationTools tools, ArtifactStore sourceRepository )
     {
         this.promoteRequest = promoteRequest;
@@ -139,6 +148,42 @@ public class ValidationRequest
         }
     }
 
+    /**
+     * Compute a value at most once for this validation request, so rules running side by side can share parsed POMs,
+     * relationships and existence checks. Concurrent callers asking for the same key wait for the first one's result.
+     * Failures are not memoized.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T memoize( final String key, final Callable<T> producer )
+            throws Exception
+    {
+        FutureTask<Optional<?>> task = new FutureTask<>( () -> Optional.ofNullable( producer.call() ) );
+        Future<Optional<?>> future = memo.putIfAbsent( key, task );
+        if ( future == null )
+        {
+            future = task;
+            task.run();
+        }
+
+        try
+        {
+            return (T) future.get().orElse( null );
+        }
+        catch ( ExecutionException e )
+        {
+            memo.remove( key, future );
+
+            Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+
+            throw new PromotionValidationException( "Failed to compute: {}. Reason: {}", cause, key,
+                                                    cause.getMessage() );
+        }
+    }
+
     public PromoteRequest getPromoteRequest()
     {
         return promoteRequest;
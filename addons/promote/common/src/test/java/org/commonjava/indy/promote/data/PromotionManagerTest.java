@@ -64,8 +64,13 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -128,12 +133,18 @@ public class PromotionManagerTest
                                                                           galleyParts.getMavenMetadataReader(),
                                                                           modelProcessor, galleyParts.getTypeMapper(),
                                                                           galleyParts.getTransferManager(),
-                                                                          contentDigester ),
-                                            storeManager );
+                                                                          contentDigester,
+                                                                          galleyParts.getXPathManager(),
+                                                                          galleyParts.getXmlInfrastructure(),
+                                                                          galleyParts.getPluginDefaults(),
+                                                                          galleyParts.getPluginImplications(),
+                                                                          Executors.newFixedThreadPool( 4 ) ),
+                                            storeManager, Executors.newFixedThreadPool( 4 ) );
 
         PromoteConfig config = new PromoteConfig();
 
-        manager = new PromotionManager( validator, contentManager, downloadManager, storeManager, config );
+        manager = new PromotionManager( validator, contentManager, downloadManager, storeManager, config,
+                                        Executors.newFixedThreadPool( 4 ) );
 
         executor = Executors.newCachedThreadPool();
     }
@@ -401,6 +412,46 @@ public class PromotionManagerTest
         assertThat( ref.exists(), equalTo( true ) );
     }
 
+    @Test
+    public void promoteAllByPath_ManyArtifacts_VerifyAllCopiedAndBytesCounted()
+            throws Exception
+    {
+        final HostedRepository source = new HostedRepository( "source" );
+        storeManager.storeArtifactStore( source, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" ),
+                                         new EventMetadata() );
+
+        final int count = 200;
+        long bytes = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            byte[] content = ( "This is test content #" + i ).getBytes();
+            bytes += content.length;
+            contentManager.store( source, "/path/" + i + "/file", new ByteArrayInputStream( content ),
+                                  TransferOperation.UPLOAD, new EventMetadata() );
+        }
+
+        final HostedRepository target = new HostedRepository( "target" );
+        storeManager.storeArtifactStore( target, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" ),
+                                         new EventMetadata() );
+
+        final PathsPromoteResult result =
+                manager.promotePaths( new PathsPromoteRequest( source.getKey(), target.getKey() ), FAKE_BASE_URL );
+
+        assertThat( result.getError(), nullValue() );
+        assertThat( result.getPendingPaths().isEmpty(), equalTo( true ) );
+        assertThat( result.getCompletedPaths().size(), equalTo( count ) );
+        assertThat( result.getTransferredBytes(), equalTo( bytes ) );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            Transfer ref = downloadManager.getStorageReference( target, "/path/" + i + "/file" );
+            try (InputStream in = ref.openInputStream())
+            {
+                assertThat( IOUtils.toString( in ), equalTo( "This is test content #" + i ) );
+            }
+        }
+    }
+
     @Test
     public void promoteAllByPath_PushTwoArtifactsToHostedRepo_DryRun_VerifyPendingPathsPopulated()
             throws Exception
@@ -608,4 +659,86 @@ public class PromotionManagerTest
         ref = downloadManager.getStorageReference( source, second );
         assertThat( ref.exists(), equalTo( true ) );
     }
+
+    @Test
+    public void promoteAllByPath_Interrupted_WaitsForCopiesBeforeReleasingTarget()
+            throws Exception
+    {
+        final HostedRepository source = new HostedRepository( "source" );
+        final HostedRepository target = new HostedRepository( "target" );
+        storeManager.storeArtifactStore( source, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" ),
+                                         new EventMetadata() );
+        storeManager.storeArtifactStore( target, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" ),
+                                         new EventMetadata() );
+
+        final String[] paths = { "/path/one", "/path/two", "/path/three" };
+        for ( String path : paths )
+        {
+            contentManager.store( source, path, new ByteArrayInputStream( path.getBytes() ), TransferOperation.UPLOAD,
+                                  new EventMetadata() );
+        }
+
+        // hold the first copy on its pool thread until we've interrupted the promotion.
+        final CountDownLatch copyStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseCopy = new CountDownLatch( 1 );
+        final ExecutorService transfers =
+                new ThreadPoolExecutor( 1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>() )
+                {
+                    @Override
+                    protected void beforeExecute( final Thread t, final Runnable r )
+                    {
+                        copyStarted.countDown();
+                        try
+                        {
+                            releaseCopy.await();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                };
+
+        final PromotionManager gatedManager =
+                new PromotionManager( validator, contentManager, downloadManager, storeManager, new PromoteConfig(),
+                                      transfers );
+
+        final AtomicBoolean stillInterrupted = new AtomicBoolean( false );
+        final FutureTask<PathsPromoteResult> promotion = new FutureTask<>( () -> {
+            PathsPromoteResult result = gatedManager.promotePaths(
+                    new PathsPromoteRequest( source.getKey(), target.getKey(), paths ), FAKE_BASE_URL );
+            stillInterrupted.set( Thread.currentThread().isInterrupted() );
+            return result;
+        } );
+
+        final Thread promoter = new Thread( promotion, "interrupted-promotion" );
+        promoter.start();
+
+        assertThat( copyStarted.await( 10, TimeUnit.SECONDS ), equalTo( true ) );
+        promoter.interrupt();
+
+        // the copy is still running, so the promotion has to keep holding the target lock.
+        Thread.sleep( 500 );
+        assertThat( promotion.isDone(), equalTo( false ) );
+
+        releaseCopy.countDown();
+        PathsPromoteResult result = promotion.get( 10, TimeUnit.SECONDS );
+        transfers.shutdown();
+
+        assertThat( stillInterrupted.get(), equalTo( true ) );
+        assertThat( result.getError(), notNullValue() );
+        assertThat( result.getError().contains( "Interrupted" ), equalTo( true ) );
+
+        // nothing that was left pending was written to the target.
+        for ( String path : result.getPendingPaths() )
+        {
+            assertThat( downloadManager.getStorageReference( target, path ).exists(), equalTo( false ) );
+        }
+        assertThat( result.getPendingPaths().size() + result.getCompletedPaths().size(), equalTo( paths.length ) );
+
+        // and the target lock was released.
+        result = manager.promotePaths( new PathsPromoteRequest( source.getKey(), target.getKey(), paths ),
+                                       FAKE_BASE_URL );
+        assertThat( result.getError(), nullValue() );
+    }
 }
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.validate;
+
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.content.ContentDigester;
+import org.commonjava.indy.content.ContentGenerator;
+import org.commonjava.indy.content.ContentManager;
+import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.content.IndyLocationExpander;
+import org.commonjava.indy.core.content.DefaultContentManager;
+import org.commonjava.indy.core.content.DefaultDownloadManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.promote.model.PathsPromoteRequest;
+import org.commonjava.indy.promote.model.ValidationRuleSet;
+import org.commonjava.indy.promote.validate.model.ValidationRequest;
+import org.commonjava.indy.test.fixture.core.MockContentAdvisor;
+import org.commonjava.indy.test.fixture.core.MockInstance;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.maven.model.view.MavenPomView;
+import org.commonjava.maven.galley.maven.rel.MavenModelProcessor;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.nfc.MemoryNotFoundCache;
+import org.commonjava.maven.galley.testing.maven.GalleyMavenFixture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PromotionValidationToolsTest
+{
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MemoryStoreDataManager storeManager;
+
+    private ContentManager contentManager;
+
+    private PromotionValidationTools tools;
+
+    private ExecutorService executor;
+
+    private HostedRepository first;
+
+    private HostedRepository second;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        GalleyMavenFixture galleyParts = new GalleyMavenFixture( true, temp );
+        galleyParts.initMissingComponents();
+
+        storeManager = new MemoryStoreDataManager( true );
+
+        DownloadManager downloadManager =
+                new DefaultDownloadManager( storeManager, galleyParts.getTransferManager(),
+                                            new IndyLocationExpander( storeManager ),
+                                            new MockInstance<>( new MockContentAdvisor() ) );
+
+        ContentDigester contentDigester = new ContentDigester( downloadManager );
+        contentManager = new DefaultContentManager( storeManager, downloadManager, new IndyObjectMapper( true ),
+                                                    new SpecialPathManagerImpl(), new MemoryNotFoundCache(),
+                                                    contentDigester, Collections.<ContentGenerator>emptySet() );
+
+        executor = Executors.newFixedThreadPool( 4 );
+        tools = new PromotionValidationTools( contentManager, storeManager, galleyParts.getPomReader(),
+                                              galleyParts.getMavenMetadataReader(), new MavenModelProcessor(),
+                                              galleyParts.getTypeMapper(), galleyParts.getTransferManager(),
+                                              contentDigester, galleyParts.getXPathManager(),
+                                              galleyParts.getXmlInfrastructure(), galleyParts.getPluginDefaults(),
+                                              galleyParts.getPluginImplications(), executor );
+
+        first = new HostedRepository( "first" );
+        second = new HostedRepository( "second" );
+        storeManager.storeArtifactStore( first, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" ),
+                                         new EventMetadata() );
+        storeManager.storeArtifactStore( second, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" ),
+                                         new EventMetadata() );
+
+        store( first, "org/foo/foo/1/foo-1.pom" );
+        store( second, "org/foo/foo/1/foo-1.jar" );
+        store( second, "org/foo/foo/1/foo-1.pom" );
+    }
+
+    @After
+    public void teardown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void availablePathsAreResolvedAcrossStores()
+            throws Exception
+    {
+        Set<String> available = tools.getAvailablePaths(
+                Arrays.asList( "org/foo/foo/1/foo-1.pom", "org/foo/foo/1/foo-1.jar", "org/foo/foo/1/foo-1.jar",
+                               "org/bar/bar/1/bar-1.jar" ), new StoreKey[] { first.getKey(), second.getKey() },
+                newRequest() );
+
+        assertThat( available,
+                    equalTo( new HashSet<>( Arrays.asList( "org/foo/foo/1/foo-1.pom", "org/foo/foo/1/foo-1.jar" ) ) ) );
+    }
+
+    @Test
+    public void storesContainingListsEveryStoreWithThePath()
+            throws Exception
+    {
+        Map<String, Set<StoreKey>> containing = tools.getStoresContaining(
+                Arrays.asList( "org/foo/foo/1/foo-1.pom", "org/foo/foo/1/foo-1.jar", "org/bar/bar/1/bar-1.jar" ),
+                new StoreKey[] { first.getKey(), second.getKey() }, newRequest() );
+
+        assertThat( containing.size(), equalTo( 2 ) );
+        assertThat( containing.get( "org/foo/foo/1/foo-1.pom" ),
+                    equalTo( new HashSet<>( Arrays.asList( first.getKey(), second.getKey() ) ) ) );
+        assertThat( containing.get( "org/foo/foo/1/foo-1.jar" ),
+                    equalTo( Collections.singleton( second.getKey() ) ) );
+    }
+
+    @Test
+    public void eachReadOfAPomGetsItsOwnView()
+            throws Exception
+    {
+        contentManager.store( first, "org/foo/bar/1/bar-1.pom", new ByteArrayInputStream(
+                ( "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId><artifactId>bar</artifactId>"
+                        + "<version>1</version></project>" ).getBytes() ), TransferOperation.UPLOAD,
+                              new EventMetadata() );
+
+        ValidationRequest request = newRequest();
+        MavenPomView one = tools.readPom( "org/foo/bar/1/bar-1.pom", request );
+        MavenPomView two = tools.readPom( "org/foo/bar/1/bar-1.pom", request );
+
+        assertThat( two, not( sameInstance( one ) ) );
+        assertThat( two.getDocRefStack().get( 0 ).getDoc(),
+                    not( sameInstance( one.getDocRefStack().get( 0 ).getDoc() ) ) );
+        assertThat( two.getArtifactId(), equalTo( one.getArtifactId() ) );
+        assertThat( one.getArtifactId(), equalTo( "bar" ) );
+    }
+
+    private ValidationRequest newRequest()
+    {
+        return new ValidationRequest( new PathsPromoteRequest( first.getKey(), second.getKey() ),
+                                      new ValidationRuleSet(), tools, first );
+    }
+
+    private void store( final HostedRepository repo, final String path )
+            throws Exception
+    {
+        contentManager.store( repo, path, new ByteArrayInputStream( path.getBytes() ), TransferOperation.UPLOAD,
+                              new EventMetadata() );
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.validate.model;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.promote.model.PathsPromoteRequest;
+import org.commonjava.indy.promote.model.ValidationRuleSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ValidationRequestTest
+{
+
+    private final ValidationRequest request =
+            new ValidationRequest( new PathsPromoteRequest( new StoreKey( StoreType.hosted, "source" ),
+                                                            new StoreKey( StoreType.hosted, "target" ) ),
+                                   new ValidationRuleSet(), null, null );
+
+    @Test
+    public void concurrentCallersShareOneComputation()
+            throws Exception
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<String>> results = new ArrayList<>();
+            for ( int i = 0; i < 8; i++ )
+            {
+                results.add( executor.submit( () -> {
+                    start.await();
+                    return request.memoize( "pom:org/foo/1/foo-1.pom", () -> {
+                        calls.incrementAndGet();
+                        Thread.sleep( 100 );
+                        return "parsed";
+                    } );
+                } ) );
+            }
+
+            start.countDown();
+            for ( Future<String> result : results )
+            {
+                assertThat( result.get( 10, TimeUnit.SECONDS ), equalTo( "parsed" ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertThat( calls.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void nullResultsAreMemoized()
+            throws Exception
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertThat( request.memoize( "missing", () -> {
+                calls.incrementAndGet();
+                return null;
+            } ), nullValue() );
+        }
+
+        assertThat( calls.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void failuresAreRethrownAndNotMemoized()
+            throws Exception
+    {
+        try
+        {
+            request.memoize( "broken", () -> {
+                throw new IOException( "boom" );
+            } );
+            fail( "expected the producer's failure" );
+        }
+        catch ( IOException e )
+        {
+            assertThat( e.getMessage(), equalTo( "boom" ) );
+        }
+
+        assertThat( request.memoize( "broken", () -> "fixed" ), equalTo( "fixed" ) );
+    }
+}
@@ -48,6 +48,12 @@ public class PathsPromoteResult
     @ApiModelProperty( "Error message, if promomotion failed" )
     private String error;
 
+    @ApiModelProperty( "Number of bytes copied to the target by this promotion (or resume) call" )
+    private long transferredBytes;
+
+    @ApiModelProperty( "Time spent copying paths to the target in this promotion (or resume) call, in milliseconds" )
+    private long transferMillis;
+
     public PathsPromoteResult()
     {
     }
@@ -124,6 +130,26 @@ public class PathsPromoteResult
         this.error = error;
     }
 
+    public long getTransferredBytes()
+    {
+        return transferredBytes;
+    }
+
+    public void setTransferredBytes( final long transferredBytes )
+    {
+        this.transferredBytes = transferredBytes;
+    }
+
+    public long getTransferMillis()
+    {
+        return transferMillis;
+    }
+
+    public void setTransferMillis( final long transferMillis )
+    {
+        this.transferMillis = transferMillis;
+    }
+
     public PathsPromoteRequest getRequest()
     {
         return request;
@@ -137,8 +163,9 @@ public class PathsPromoteResult
     @Override
     public String toString()
     {
-        return String.format( "PathsPromoteResult [\n  request=%s\n  pendingPaths=%s\n  completedPaths=%s\n  skippedPaths=%s\n  error=%s\n  validations:\n  %s\n]",
-                              request, pendingPaths, completedPaths, skippedPaths, error, validations );
+        return String.format( "PathsPromoteResult [\n  request=%s\n  pendingPaths=%s\n  completedPaths=%s\n  skippedPaths=%s\n  error=%s\n  transferredBytes=%s\n  transferMillis=%s\n  validations:\n  %s\n]",
+                              request, pendingPaths, completedPaths, skippedPaths, error, transferredBytes,
+                              transferMillis, validations );
     }
 
 }
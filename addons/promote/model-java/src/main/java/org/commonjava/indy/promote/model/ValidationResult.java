@@ -18,6 +18,7 @@ package org.commonjava.indy.promote.model;
 import io.swagger.annotations.ApiModelProperty;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -34,12 +35,20 @@ public class ValidationResult
     @ApiModelProperty( "Name of validation rule-set applied" )
     private String ruleSet;
 
+    @ApiModelProperty( "Mapping of rule name to the time it took to run, in milliseconds" )
+    private Map<String, Long> ruleTimings = new LinkedHashMap<>();
+
     public void addValidatorError( String validatorName, String message )
     {
         valid = false;
         validatorErrors.put( validatorName, message );
     }
 
+    public void addRuleTiming( String ruleName, long millis )
+    {
+        ruleTimings.put( ruleName, millis );
+    }
+
     public boolean isValid()
     {
         return valid;
@@ -70,6 +79,16 @@ public class ValidationResult
         return ruleSet;
     }
 
+    public Map<String, Long> getRuleTimings()
+    {
+        return ruleTimings;
+    }
+
+    public void setRuleTimings( Map<String, Long> ruleTimings )
+    {
+        this.ruleTimings = ruleTimings;
+    }
+
     @Override
     public boolean equals( Object o )
     {
@@ -114,6 +133,7 @@ public class ValidationResult
                 "valid=" + valid +
                 ", validatorErrors=" + validatorErrors +
                 ", ruleSet='" + ruleSet + '\'' +
+                ", ruleTimings=" + ruleTimings +
                 '}';
     }
 }
@@ -21,8 +21,14 @@ import static org.apache.commons.lang.StringUtils.join;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -30,6 +36,10 @@ import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
 import org.apache.commons.io.FileUtils;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.action.IndyLifecycleException;
+import org.commonjava.indy.action.ShutdownAction;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.change.event.IndyLifecycleEvent;
 import org.commonjava.indy.flat.data.DataFileStoreDataManager;
@@ -47,18 +57,36 @@ import org.slf4j.LoggerFactory;
 
 @ApplicationScoped
 public class RevisionsManager
+    implements ShutdownAction
 {
 
     private static final String[] DATA_DIR_GITIGNORES = { "depgraph", "scheduler" };
 
     public static final String CATCHUP_CHANGELOG = "Committing files modified outside of the Indy UI.";
 
+    public static final String BATCH_CHANGELOG = "Committing %d batched data-file changes.";
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     private GitManager dataFileGit;
 
     private boolean started;
 
+    /**
+     * Data-file changes waiting for the next commit, keyed by file. Later events for the same file replace the
+     * earlier add / delete decision, but all of their summaries are kept for the commit message.
+     */
+    private final Map<File, PendingChange> pendingChanges = new LinkedHashMap<>();
+
+    private boolean flushScheduled;
+
+    private final Object commitLock = new Object();
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( priority = 5, threads = 1, named = "revisions-commit" )
+    private ExecutorService commitExecutor;
+
     @Inject
     private RevisionsConfig revisionsConfig;
 
@@ -75,10 +103,22 @@ public class RevisionsManager
     public RevisionsManager( final RevisionsConfig revisionsConfig, final DataFileManager dataFileManager,
                              final DataFileStoreDataManager storeManager )
         throws GitSubsystemException, IOException
+    {
+        this( revisionsConfig, dataFileManager, storeManager, null );
+    }
+
+    /**
+     * @param commitExecutor runs the batching timer. It's owned by the caller; if null, every change is committed as
+     * soon as it's seen, regardless of {@link RevisionsConfig#getCommitBatchMillis()}.
+     */
+    public RevisionsManager( final RevisionsConfig revisionsConfig, final DataFileManager dataFileManager,
+                             final DataFileStoreDataManager storeManager, final ExecutorService commitExecutor )
+        throws GitSubsystemException, IOException
     {
         this.revisionsConfig = revisionsConfig;
         this.dataFileManager = dataFileManager;
         this.storeManager = storeManager;
+        this.commitExecutor = commitExecutor;
         setup();
     }
 
@@ -152,33 +192,200 @@ public class RevisionsManager
             return;
         }
 
-        try
+        if ( event.getType() == DataFileEventType.accessed )
         {
-            if ( event.getType() == DataFileEventType.accessed )
+            return;
+        }
+
+        final long batchMillis = commitExecutor == null ? 0 : revisionsConfig.getCommitBatchMillis();
+        boolean schedule = false;
+        synchronized ( pendingChanges )
+        {
+            PendingChange change = pendingChanges.get( event.getFile() );
+            if ( change == null )
             {
-                return;
+                change = new PendingChange( event.getFile() );
+                pendingChanges.put( event.getFile(), change );
+            }
+
+            change.deleted = event.getType() == DataFileEventType.deleted;
+            change.summaries.add( event.getSummary() );
+
+            if ( batchMillis > 0 && !flushScheduled )
+            {
+                flushScheduled = true;
+                schedule = true;
+            }
+        }
+
+        if ( batchMillis < 1 )
+        {
+            flushPendingCommits();
+        }
+        else if ( schedule )
+        {
+            commitExecutor.execute( () -> {
+                try
+                {
+                    Thread.sleep( batchMillis );
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                flushPendingCommits();
+            } );
+        }
+    }
+
+    /**
+     * Commit every queued data-file change in a single git commit (and push, if enabled). This is called from the
+     * batching timer, before any changelog read or pull / push, and on shutdown so queued changes aren't lost. If the
+     * commit fails, the batch goes back on the queue so the next flush retries it.
+     */
+    public void flushPendingCommits()
+    {
+        synchronized ( commitLock )
+        {
+            final List<PendingChange> batch;
+            synchronized ( pendingChanges )
+            {
+                flushScheduled = false;
+                if ( pendingChanges.isEmpty() )
+                {
+                    return;
+                }
+
+                batch = new ArrayList<>( pendingChanges.values() );
+                pendingChanges.clear();
+            }
+
+            final List<File> added = new ArrayList<>();
+            final List<File> deleted = new ArrayList<>();
+            for ( final PendingChange change : batch )
+            {
+                ( change.deleted ? deleted : added ).add( change.file );
             }
 
-            if ( event.getType() == DataFileEventType.deleted )
+            try
             {
-                dataFileGit.deleteAndCommit( event.getSummary(), event.getFile() );
+                dataFileGit.commitFileChanges( mergeSummaries( batch ), added, deleted );
             }
-            else
+            catch ( final GitSubsystemException e )
             {
-                dataFileGit.addAndCommitFiles( event.getSummary(), event.getFile() );
+                logger.error( String.format( "Failed to commit changes to: %s. Reason: %s", join( added, ", " )
+                                  + ( deleted.isEmpty() ? "" : " (deleted: " + join( deleted, ", " ) + ")" ),
+                                             e.getMessage() ), e );
+
+                requeue( batch );
+                return;
             }
 
             if ( revisionsConfig.isPushEnabled() )
             {
-                dataFileGit.pushUpdates();
+                try
+                {
+                    dataFileGit.pushUpdates();
+                }
+                catch ( final GitSubsystemException e )
+                {
+                    logger.error( "Failed to push committed data-file changes. Reason: " + e.getMessage(), e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Put a batch that failed to commit back in front of the queue. If a file changed again in the meantime, the newer
+     * add / delete decision wins, but the older summaries are kept (first) for the commit message.
+     */
+    private void requeue( final List<PendingChange> batch )
+    {
+        synchronized ( pendingChanges )
+        {
+            final Map<File, PendingChange> newer = new LinkedHashMap<>( pendingChanges );
+            pendingChanges.clear();
+
+            for ( final PendingChange change : batch )
+            {
+                final PendingChange later = newer.remove( change.file );
+                if ( later != null )
+                {
+                    change.deleted = later.deleted;
+                    change.summaries.addAll( later.summaries );
+                }
+
+                pendingChanges.put( change.file, change );
+            }
+
+            pendingChanges.putAll( newer );
+        }
+    }
+
+    private ChangeSummary mergeSummaries( final List<PendingChange> batch )
+    {
+        final Set<String> users = new LinkedHashSet<>();
+        final Set<String> messages = new LinkedHashSet<>();
+        int count = 0;
+        for ( final PendingChange change : batch )
+        {
+            for ( final ChangeSummary summary : change.summaries )
+            {
+                users.add( summary.getUser() );
+                messages.add( summary.getSummary() );
+                count++;
+            }
+        }
+
+        final String user = users.size() == 1 ? users.iterator().next() : ChangeSummary.SYSTEM_USER;
+        if ( messages.size() == 1 )
+        {
+            return new ChangeSummary( user, messages.iterator().next() );
+        }
+
+        final StringBuilder sb = new StringBuilder( String.format( BATCH_CHANGELOG, count ) ).append( "\n" );
+        final File basedir = dataFileManager.getDetachedDataBasedir();
+        for ( final PendingChange change : batch )
+        {
+            final String path = Paths.get( basedir.toURI() ).relativize( Paths.get( change.file.toURI() ) ).toString();
+            for ( final ChangeSummary summary : change.summaries )
+            {
+                sb.append( "\n" )
+                  .append( change.deleted ? "[deleted] " : "" )
+                  .append( path )
+                  .append( " (" )
+                  .append( summary.getUser() )
+                  .append( "): " )
+                  .append( summary.getSummary() );
             }
         }
-        catch ( final GitSubsystemException e )
+
+        return new ChangeSummary( user, sb.toString() );
+    }
+
+    @Override
+    public String getId()
+    {
+        return "revisions-commit-queue";
+    }
+
+    @Override
+    public void stop()
+        throws IndyLifecycleException
+    {
+        if ( revisionsConfig.isEnabled() )
         {
-            logger.error( String.format( "Failed to commit changes: %s. Reason: %s", event, e.getMessage() ), e );
+            flushPendingCommits();
         }
     }
 
+    @Override
+    public int getShutdownPriority()
+    {
+        return 90;
+    }
+
     public void pullDataUpdates()
         throws GitSubsystemException
     {
@@ -187,6 +394,7 @@ public class RevisionsManager
             return;
         }
 
+        flushPendingCommits();
         dataFileGit.pullUpdates( revisionsConfig.getConflictStrategy() );
 
         // FIXME: fire events to signal data owners to reload...
@@ -201,6 +409,7 @@ public class RevisionsManager
             return;
         }
 
+        flushPendingCommits();
         dataFileGit.pushUpdates();
         // FIXME: Return some sort of status
     }
@@ -213,6 +422,8 @@ public class RevisionsManager
             return Collections.emptyList();
         }
 
+        flushPendingCommits();
+
         final DataFile dataFile = storeManager.getDataFile( key );
         return dataFileGit.getChangelog( dataFile.getDetachedFile(), start, count );
     }
@@ -249,6 +460,7 @@ public class RevisionsManager
                                   .getDetachedFile();
         }
 
+        flushPendingCommits();
         return dataFileGit.getChangelog( file, start, length );
     }
 
@@ -260,7 +472,22 @@ public class RevisionsManager
             return Collections.emptyList();
         }
 
+        flushPendingCommits();
         return dataFileGit.getChangelog( f, start, count );
     }
 
+    private static final class PendingChange
+    {
+        private final File file;
+
+        private final List<ChangeSummary> summaries = new ArrayList<>();
+
+        private boolean deleted;
+
+        private PendingChange( final File file )
+        {
+            this.file = file;
+        }
+    }
+
 }
@@ -30,6 +30,8 @@ public class RevisionsConfig
     implements IndyConfigInfo
 {
 
+    public static final long DEFAULT_COMMIT_BATCH_MILLIS = 250;
+
     private boolean enabled = false;
 
     private boolean pushEnabled = false;
@@ -42,6 +44,8 @@ public class RevisionsConfig
 
     private String userEmail;
 
+    private Long commitBatchMillis;
+
     public boolean isEnabled()
     {
         return enabled;
@@ -129,6 +133,21 @@ public class RevisionsConfig
         this.userEmail = userEmail;
     }
 
+    /**
+     * How long data-file changes are collected before being committed together. Zero (or less) commits every change
+     * as it happens.
+     */
+    public long getCommitBatchMillis()
+    {
+        return commitBatchMillis == null ? DEFAULT_COMMIT_BATCH_MILLIS : commitBatchMillis;
+    }
+
+    @ConfigName( "commit.batch.millis" )
+    public void setCommitBatchMillis( final Long commitBatchMillis )
+    {
+        this.commitBatchMillis = commitBatchMillis;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
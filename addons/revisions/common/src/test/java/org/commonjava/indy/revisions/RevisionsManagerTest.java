@@ -20,6 +20,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -75,6 +76,7 @@ public class RevisionsManagerTest
 
         config = container.instance().select( RevisionsConfig.class ).get();
         config.setEnabled( true );
+        config.setCommitBatchMillis( 0L );
 
         revManager = container.instance()
                               .select( RevisionsManager.class )
@@ -194,6 +196,60 @@ public class RevisionsManagerTest
                            .startsWith( testSummary ), equalTo( true ) );
     }
 
+    @Test
+    public void batchedChangesToSeveralFilesLandInOneCommit()
+        throws Exception
+    {
+        // long enough that the timer never fires during the test; the changelog read has to flush the queue.
+        config.setCommitBatchMillis( 60000L );
+        lcEvents.fireStarted();
+
+        final DataFile f1 = dfManager.getDataFile( "test/foo.txt" );
+        f1.writeString( "this is a test", "UTF-8", new ChangeSummary( "test-user", "test for first file." ) );
+
+        final DataFile f2 = dfManager.getDataFile( "test/bar.txt" );
+        f2.writeString( "this is a test", "UTF-8", new ChangeSummary( "test-user", "test for second file." ) );
+        f2.writeString( "this is another test", "UTF-8", new ChangeSummary( "test-user", "test (2) for second file." ) );
+
+        listener.waitForEvents( 3 );
+
+        final List<ChangeSummary> fooLog = revManager.getDataChangeLog( f1.getPath(), 0, -1 );
+        final List<ChangeSummary> barLog = revManager.getDataChangeLog( f2.getPath(), 0, -1 );
+        assertThat( fooLog.size(), equalTo( 1 ) );
+        assertThat( barLog.size(), equalTo( 1 ) );
+
+        final ChangeSummary summary = barLog.get( 0 );
+        assertThat( summary.getRevisionId(), equalTo( fooLog.get( 0 ).getRevisionId() ) );
+        assertThat( summary.getUser(), equalTo( "test-user" ) );
+        assertThat( summary.getSummary().contains( "test for first file." ), equalTo( true ) );
+        assertThat( summary.getSummary().contains( "test (2) for second file." ), equalTo( true ) );
+    }
+
+    @Test
+    public void failedCommitIsRetriedOnNextFlush()
+        throws Exception
+    {
+        config.setCommitBatchMillis( 60000L );
+        lcEvents.fireStarted();
+
+        final DataFile f1 = dfManager.getDataFile( "test/foo.txt" );
+        f1.writeString( "this is a test", "UTF-8", new ChangeSummary( "test-user", "test for first file." ) );
+
+        listener.waitForEvents( 1 );
+
+        // a stale index lock makes the commit fail.
+        final File indexLock = new File( dfManager.getDetachedDataBasedir(), ".git/index.lock" );
+        assertThat( indexLock.createNewFile(), equalTo( true ) );
+
+        revManager.flushPendingCommits();
+
+        assertThat( indexLock.delete(), equalTo( true ) );
+
+        final List<ChangeSummary> changeLog = revManager.getDataChangeLog( f1.getPath(), 0, -1 );
+        assertThat( changeLog.size(), equalTo( 1 ) );
+        assertThat( changeLog.get( 0 ).getSummary().contains( "test for first file." ), equalTo( true ) );
+    }
+
     @ApplicationScoped
     static class DataFileTestEventListener
     {
@@ -35,6 +35,14 @@ public class DefaultIndyConfiguration
 
     public static final int DEFAULT_NOT_FOUND_CACHE_TIMEOUT_SECONDS = 300;
 
+    public static final int DEFAULT_NOT_FOUND_CACHE_MAX_SIZE = 1000000;
+
+    public static final int DEFAULT_NOT_FOUND_CACHE_SWEEP_SECONDS = 60;
+
+    public static final int DEFAULT_DNS_CACHE_TIMEOUT_SECONDS = 300;
+
+    public static final int DEFAULT_GROUP_MERGE_TIMEOUT_SECONDS = 60;
+
     public static final int DEFAULT_REQUEST_TIMEOUT_SECONDS = 5;
 
     public static final int DEFAULT_STORE_DISABLE_TIMEOUT_SECONDS = 1800; // 30 minutes
@@ -43,6 +51,14 @@ public class DefaultIndyConfiguration
 
     private Integer notFoundCacheTimeoutSeconds;
 
+    private Integer notFoundCacheMaxSize;
+
+    private Integer notFoundCacheSweepSeconds;
+
+    private Integer dnsCacheTimeoutSeconds;
+
+    private Integer groupMergeTimeoutSeconds;
+
     private Integer requestTimeoutSeconds;
 
     private Integer storeDisableTimeoutSeconds;
@@ -75,6 +91,54 @@ public class DefaultIndyConfiguration
         return notFoundCacheTimeoutSeconds == null ? DEFAULT_NOT_FOUND_CACHE_TIMEOUT_SECONDS : notFoundCacheTimeoutSeconds;
     }
 
+    @ConfigName( "nfc.max.size" )
+    public void setNotFoundCacheMaxSize( final int maxSize )
+    {
+        notFoundCacheMaxSize = maxSize;
+    }
+
+    @Override
+    public int getNotFoundCacheMaxSize()
+    {
+        return notFoundCacheMaxSize == null ? DEFAULT_NOT_FOUND_CACHE_MAX_SIZE : notFoundCacheMaxSize;
+    }
+
+    @ConfigName( "nfc.sweep.period" )
+    public void setNotFoundCacheSweepSeconds( final int seconds )
+    {
+        notFoundCacheSweepSeconds = seconds;
+    }
+
+    @Override
+    public int getNotFoundCacheSweepSeconds()
+    {
+        return notFoundCacheSweepSeconds == null ? DEFAULT_NOT_FOUND_CACHE_SWEEP_SECONDS : notFoundCacheSweepSeconds;
+    }
+
+    @ConfigName( "dns.cache.timeout" )
+    public void setDnsCacheTimeoutSeconds( final int seconds )
+    {
+        dnsCacheTimeoutSeconds = seconds;
+    }
+
+    @Override
+    public int getDnsCacheTimeoutSeconds()
+    {
+        return dnsCacheTimeoutSeconds == null ? DEFAULT_DNS_CACHE_TIMEOUT_SECONDS : dnsCacheTimeoutSeconds;
+    }
+
+    @ConfigName( "group.merge.timeout" )
+    public void setGroupMergeTimeoutSeconds( final int seconds )
+    {
+        groupMergeTimeoutSeconds = seconds;
+    }
+
+    @Override
+    public int getGroupMergeTimeoutSeconds()
+    {
+        return groupMergeTimeoutSeconds == null ? DEFAULT_GROUP_MERGE_TIMEOUT_SECONDS : groupMergeTimeoutSeconds;
+    }
+
     @Override
     public int getRequestTimeoutSeconds()
     {
@@ -40,6 +40,29 @@ public interface IndyConfiguration
      */
     int getNotFoundCacheTimeoutSeconds();
 
+    /**
+     * Maximum number of entries the not-found cache will hold before the least-recently used records are evicted.
+     */
+    int getNotFoundCacheMaxSize();
+
+    /**
+     * Number of seconds between background sweeps of the not-found cache, which remove expired records and enforce
+     * the maximum size.
+     */
+    int getNotFoundCacheSweepSeconds();
+
+    /**
+     * Number of seconds a resolved remote-repository host address is reused before it is looked up again in the
+     * background.
+     */
+    int getDnsCacheTimeoutSeconds();
+
+    /**
+     * Number of seconds a request waits on another request that is already generating the same merged group file
+     * (e.g. maven-metadata.xml) before giving up.
+     */
+    int getGroupMergeTimeoutSeconds();
+
     int getRequestTimeoutSeconds();
 
     int getStoreDisableTimeoutSeconds();
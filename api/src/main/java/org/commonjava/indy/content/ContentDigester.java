@@ -8,11 +8,12 @@ import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.maven.galley.model.Transfer;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -30,6 +31,11 @@ public class ContentDigester
     @Inject
     private DownloadManager downloadManager;
 
+    @Inject
+    private Instance<ArtifactDataCache> artifactDataCacheInstance;
+
+    private ArtifactDataCache artifactDataCache;
+
     protected ContentDigester(){}
 
     public ContentDigester( DownloadManager downloadManager )
@@ -37,6 +43,21 @@ public class ContentDigester
         this.downloadManager = downloadManager;
     }
 
+    public ContentDigester( DownloadManager downloadManager, ArtifactDataCache artifactDataCache )
+    {
+        this.downloadManager = downloadManager;
+        this.artifactDataCache = artifactDataCache;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if ( artifactDataCacheInstance != null && !artifactDataCacheInstance.isUnsatisfied() )
+        {
+            artifactDataCache = artifactDataCacheInstance.get();
+        }
+    }
+
     public ArtifactData digest( final StoreKey key, final String path, final ContentDigest... types )
             throws IndyWorkflowException
     {
@@ -46,48 +67,35 @@ public class ContentDigester
             return new ArtifactData( Collections.emptyMap(), 0L);
         }
 
+        ArtifactData cached = getCachedArtifactData( key, path, txfr, types );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
         InputStream stream = null;
         try
         {
-            long artifactSize = 0L;
-            // TODO: Compute it as the file is uploaded/downloaded into cache.
+            // Digests are normally computed as the file is written into storage (see DigestingTransferDecorator).
+            // Only read the file again if that record is missing or doesn't cover the requested digests.
             stream = txfr.openInputStream( false );
 
-            final Map<ContentDigest, MessageDigest> digests = new HashMap<>();
-            for ( final ContentDigest digest : types )
-            {
-                digests.put( digest, MessageDigest.getInstance( digest.digestName() ) );
-            }
+            final DigestCalculator calculator = new DigestCalculator( types );
 
             final byte[] buf = new byte[16384];
             int read = -1;
             while ( ( read = stream.read( buf ) ) > -1 )
             {
-                for ( final MessageDigest digest : digests.values() )
-                {
-                    digest.update( buf, 0, read );
-                }
-                artifactSize += read;
+                calculator.update( buf, 0, read );
             }
 
-            final Map<ContentDigest, String> digestResultMap = new HashMap<>();
-            for ( final Map.Entry<ContentDigest, MessageDigest> entry : digests.entrySet() )
+            ArtifactData result = calculator.getArtifactData();
+            if ( artifactDataCache != null && types.length == ContentDigest.values().length )
             {
-                final StringBuilder sb = new StringBuilder();
-                for ( final byte b : entry.getValue().digest() )
-                {
-                    final String hex = Integer.toHexString( b & 0xff );
-                    if ( hex.length() < 2 )
-                    {
-                        sb.append( '0' );
-                    }
-                    sb.append( hex );
-                }
-
-                digestResultMap.put( entry.getKey(), sb.toString() );
+                artifactDataCache.put( key, path, result );
             }
 
-            return new ArtifactData( digestResultMap, artifactSize );
+            return result;
         }
         catch ( IOException | NoSuchAlgorithmException e )
         {
@@ -99,4 +107,33 @@ public class ContentDigester
             IOUtils.closeQuietly( stream );
         }
     }
+
+    private ArtifactData getCachedArtifactData( final StoreKey key, final String path, final Transfer txfr,
+                                                final ContentDigest... types )
+    {
+        if ( artifactDataCache == null )
+        {
+            return null;
+        }
+
+        ArtifactData cached = artifactDataCache.get( key, path );
+        if ( cached == null || cached.getSize() == null || cached.getSize() != txfr.length() )
+        {
+            return null;
+        }
+
+        final Map<ContentDigest, String> digests = new HashMap<>();
+        for ( final ContentDigest type : types )
+        {
+            String value = cached.getDigests().get( type );
+            if ( value == null )
+            {
+                return null;
+            }
+
+            digests.put( type, value );
+        }
+
+        return new ArtifactData( digests, cached.getSize() );
+    }
 }
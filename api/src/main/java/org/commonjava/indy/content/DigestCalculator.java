@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.content;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accumulates a set of {@link ContentDigest}s and the byte count over a stream of content, which can then be
+ * rendered as {@link ArtifactData}.
+ */
+public final class DigestCalculator
+{
+
+    private final Map<ContentDigest, MessageDigest> digests = new HashMap<>();
+
+    private long size;
+
+    public DigestCalculator( final ContentDigest... types )
+            throws NoSuchAlgorithmException
+    {
+        for ( final ContentDigest digest : types )
+        {
+            digests.put( digest, MessageDigest.getInstance( digest.digestName() ) );
+        }
+    }
+
+    public void update( final int b )
+    {
+        for ( final MessageDigest digest : digests.values() )
+        {
+            digest.update( (byte) b );
+        }
+        size++;
+    }
+
+    public void update( final byte[] buf, final int off, final int len )
+    {
+        for ( final MessageDigest digest : digests.values() )
+        {
+            digest.update( buf, off, len );
+        }
+        size += len;
+    }
+
+    public ArtifactData getArtifactData()
+    {
+        final Map<ContentDigest, String> digestResultMap = new HashMap<>();
+        for ( final Map.Entry<ContentDigest, MessageDigest> entry : digests.entrySet() )
+        {
+            final StringBuilder sb = new StringBuilder();
+            for ( final byte b : entry.getValue().digest() )
+            {
+                final String hex = Integer.toHexString( b & 0xff );
+                if ( hex.length() < 2 )
+                {
+                    sb.append( '0' );
+                }
+                sb.append( hex );
+            }
+
+            digestResultMap.put( entry.getKey(), sb.toString() );
+        }
+
+        return new ArtifactData( digestResultMap, size );
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.content;
+
+import org.commonjava.indy.model.galley.KeyedLocation;
+import org.commonjava.maven.galley.io.AbstractTransferDecorator;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.spi.io.TransferDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes every {@link ContentDigest} and the size of content as it is written to storage, and records the result in
+ * an {@link ArtifactDataCache}. This should be the innermost decorator in the chain, so it sees exactly the bytes that
+ * land on disk.
+ */
+public class DigestingTransferDecorator
+        extends AbstractTransferDecorator
+{
+
+    private final ArtifactDataCache artifactDataCache;
+
+    public DigestingTransferDecorator( final ArtifactDataCache artifactDataCache )
+    {
+        this.artifactDataCache = artifactDataCache;
+    }
+
+    public DigestingTransferDecorator( final TransferDecorator next, final ArtifactDataCache artifactDataCache )
+    {
+        super( next );
+        this.artifactDataCache = artifactDataCache;
+    }
+
+    @Override
+    protected OutputStream decorateWriteInternal( final OutputStream stream, final Transfer transfer,
+                                                  final TransferOperation op )
+            throws IOException
+    {
+        final Location location = transfer.getLocation();
+        if ( artifactDataCache == null || !( location instanceof KeyedLocation ) )
+        {
+            return stream;
+        }
+
+        // drop any record for the previous content right away; the new one is only published after a clean close.
+        artifactDataCache.remove( ( (KeyedLocation) location ).getKey(), transfer.getPath() );
+
+        try
+        {
+            return new DigestingOutputStream( stream, transfer, new DigestCalculator( ContentDigest.values() ) );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            Logger logger = LoggerFactory.getLogger( getClass() );
+            logger.warn( "Cannot digest {} while writing: {}", transfer, e.getMessage() );
+            return stream;
+        }
+    }
+
+    @Override
+    protected void decorateDeleteInternal( final Transfer transfer )
+            throws IOException
+    {
+        final Location location = transfer.getLocation();
+        if ( artifactDataCache != null && location instanceof KeyedLocation )
+        {
+            artifactDataCache.remove( ( (KeyedLocation) location ).getKey(), transfer.getPath() );
+        }
+    }
+
+    private final class DigestingOutputStream
+            extends FilterOutputStream
+    {
+        private final Transfer transfer;
+
+        private final DigestCalculator calculator;
+
+        private boolean failed;
+
+        private boolean closed;
+
+        DigestingOutputStream( final OutputStream out, final Transfer transfer, final DigestCalculator calculator )
+        {
+            super( out );
+            this.transfer = transfer;
+            this.calculator = calculator;
+        }
+
+        @Override
+        public void write( final int b )
+                throws IOException
+        {
+            try
+            {
+                out.write( b );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                failed = true;
+                throw e;
+            }
+            calculator.update( b );
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len )
+                throws IOException
+        {
+            try
+            {
+                out.write( b, off, len );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                failed = true;
+                throw e;
+            }
+            calculator.update( b, off, len );
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            if ( closed )
+            {
+                return;
+            }
+
+            closed = true;
+            try
+            {
+                super.close();
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                failed = true;
+                throw e;
+            }
+            finally
+            {
+                if ( !failed )
+                {
+                    artifactDataCache.put( ( (KeyedLocation) transfer.getLocation() ).getKey(), transfer.getPath(),
+                                           calculator.getArtifactData() );
+                }
+            }
+        }
+    }
+}
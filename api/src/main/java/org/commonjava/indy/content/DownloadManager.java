@@ -215,4 +215,16 @@ public interface DownloadManager
      */
     boolean exists( ArtifactStore store, String path )
         throws IndyWorkflowException;
+
+    /**
+     * Artifact existence check like {@link #exists(ArtifactStore, String)}, except that a failed check against a remote
+     * repository (timeout, server error, SSL failure...) is reported as an error instead of as a missing path. Use this
+     * when a negative answer is going to be trusted to skip the store. This method doesn't fire any events.
+     *
+     * @param store The store in which the check is performed
+     * @param path The path of the Transfer inside the store
+     * @throws IndyWorkflowException in case the check itself fails
+     */
+    boolean checkExists( ArtifactStore store, String path )
+        throws IndyWorkflowException;
 }
@@ -20,6 +20,7 @@ import org.commonjava.indy.bind.jaxrs.IndyResources;
 import org.commonjava.indy.bind.jaxrs.util.JaxRsRequestHelper;
 import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.core.bind.jaxrs.util.TransferStreamingOutput;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics;
 import org.commonjava.indy.core.ctl.ContentController;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
@@ -47,6 +48,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Date;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
 import static org.commonjava.indy.bind.jaxrs.util.ResponseUtils.formatOkResponseWithEntity;
@@ -70,6 +72,9 @@ public class ContentAccessHandler
     @Inject
     private JaxRsRequestHelper jaxRsRequestHelper;
 
+    @Inject
+    private ContentRetrievalMetrics retrievalMetrics;
+
     protected ContentAccessHandler()
     {
     }
@@ -333,7 +338,8 @@ public class ContentAccessHandler
                         logger.info( "RETURNING: retrieval of content: {}:{}", sk, path );
                         // open the stream here to prevent deletion while waiting for the transfer back to the user to start...
                         InputStream in = item.openInputStream( true, eventMetadata );
-                        final ResponseBuilder builder = Response.ok( new TransferStreamingOutput( in ) );
+                        final ResponseBuilder builder =
+                                Response.ok( new TransferStreamingOutput( in, bytesWrittenFrom( item, path ) ) );
                         setInfoHeaders( builder, item, sk, path, true, contentController.getContentType( path ),
                                         contentController.getHttpMetadata( item ) );
 
@@ -360,6 +366,17 @@ public class ContentAccessHandler
         return response;
     }
 
+    private LongConsumer bytesWrittenFrom( final Transfer item, final String path )
+    {
+        final StoreKey key = LocationUtils.getKey( item );
+        if ( retrievalMetrics == null || key == null )
+        {
+            return null;
+        }
+
+        return bytes -> retrievalMetrics.recordBytes( key, path, bytes );
+    }
+
     private Response handleMissingContentQuery( final StoreKey sk, final String path )
     {
         Response response = null;
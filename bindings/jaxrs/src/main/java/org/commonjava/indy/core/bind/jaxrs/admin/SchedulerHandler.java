@@ -26,6 +26,7 @@ import org.commonjava.indy.bind.jaxrs.util.ResponseUtils;
 import org.commonjava.indy.core.ctl.SchedulerController;
 import org.commonjava.indy.core.expire.Expiration;
 import org.commonjava.indy.core.expire.ExpirationSet;
+import org.commonjava.indy.core.expire.RescheduleStatus;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
 import org.commonjava.indy.util.ApplicationContent;
@@ -37,6 +38,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 import static org.commonjava.indy.bind.jaxrs.util.ResponseUtils.throwError;
 
@@ -94,4 +96,31 @@ public class SchedulerHandler
 
         throw new WebApplicationException( "Impossible Error", 500 );
     }
+
+    @ApiOperation( "Retrieve the progress of the latest background reschedule of content timeouts in a repository" )
+    @ApiResponses( { @ApiResponse( code = 200, message = "Reschedule progress retrieved successfully." ),
+                     @ApiResponse( code = 404, message = "No reschedule has run for the repository since startup." ) } )
+    @Path( "store/{type}/{name}/reschedule" )
+    @GET
+    public RescheduleStatus getRescheduleStatus( @ApiParam( allowableValues = "hosted,remote", required=true ) @PathParam( "type" ) String storeType,
+                                                 @ApiParam( required=true ) @PathParam( "name" ) String storeName )
+    {
+        StoreKey storeKey = new StoreKey( StoreType.get( storeType ), storeName );
+        RescheduleStatus status = controller.getRescheduleStatus( storeKey );
+        if ( status == null )
+        {
+            throw new WebApplicationException( Response.Status.NOT_FOUND );
+        }
+
+        return status;
+    }
+
+    @ApiOperation( "Retrieve the progress of the latest background reschedule of content timeouts in every repository" )
+    @ApiResponse( code = 200, message = "List of reschedule progress, one per repository." )
+    @Path( "store/all/reschedule" )
+    @GET
+    public List<RescheduleStatus> getRescheduleStatuses()
+    {
+        return controller.getRescheduleStatuses();
+    }
 }
@@ -18,6 +18,7 @@ package org.commonjava.indy.core.bind.jaxrs.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.function.LongConsumer;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.StreamingOutput;
@@ -35,9 +36,20 @@ public class TransferStreamingOutput
 
     private InputStream stream;
 
+    private LongConsumer bytesWritten;
+
     public TransferStreamingOutput( final InputStream stream )
+    {
+        this( stream, null );
+    }
+
+    /**
+     * @param bytesWritten told how many bytes were written, once the copy finishes
+     */
+    public TransferStreamingOutput( final InputStream stream, final LongConsumer bytesWritten )
     {
         this.stream = stream;
+        this.bytesWritten = bytesWritten;
     }
 
     @Override
@@ -51,6 +63,11 @@ public class TransferStreamingOutput
 
             Logger logger = LoggerFactory.getLogger( getClass() );
             logger.debug( "Wrote: {} bytes", cout.getByteCount() );
+
+            if ( bytesWritten != null )
+            {
+                bytesWritten.accept( cout.getByteCount() );
+            }
         }
         finally
         {
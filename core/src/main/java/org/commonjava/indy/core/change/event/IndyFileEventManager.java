@@ -19,12 +19,16 @@ import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.change.event.IndyStoreErrorEvent;
 import org.commonjava.indy.content.ContentManager;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics;
+import org.commonjava.indy.model.galley.KeyedLocation;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.event.FileAccessEvent;
 import org.commonjava.maven.galley.event.FileDeletionEvent;
 import org.commonjava.maven.galley.event.FileErrorEvent;
 import org.commonjava.maven.galley.event.FileNotFoundEvent;
 import org.commonjava.maven.galley.event.FileStorageEvent;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.model.TransferOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +83,15 @@ public class IndyFileEventManager
     @Override
     public void fire( final FileStorageEvent evt )
     {
+        if ( evt.getType() == TransferOperation.DOWNLOAD )
+        {
+            final Location location = evt.getTransfer().getLocation();
+            if ( location instanceof KeyedLocation )
+            {
+                ContentRetrievalMetrics.markDownloaded( evt.getEventMetadata(), ( (KeyedLocation) location ).getKey() );
+            }
+        }
+
         if ( fireEvent( evt.getEventMetadata() ) )
         {
             doFire( storageEvent, evt );
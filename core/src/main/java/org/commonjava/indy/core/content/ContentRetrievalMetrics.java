@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.SpecialPathInfo;
+import org.commonjava.maven.galley.spi.io.SpecialPathManager;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Latency timers and byte meters for content retrieval, recorded from inside {@link DefaultContentManager} and
+ * {@link DefaultDownloadManager}. Every retrieval is recorded twice: once against its store type, path class and
+ * {@link Outcome}, and once against its {@link StoreKey}. The first set is bounded by the enums; the per-store set is
+ * capped at {@link #MAX_TRACKED_STORES}, after which further stores are folded into {@link #OTHER_STORES}. Bytes are
+ * metered separately, as content is written to the client, so recording a retrieval never has to stat a file.
+ * <p>
+ * All metrics are named under this class, so the existing Graphite reporters pick them up without changes.
+ */
+@ApplicationScoped
+public class ContentRetrievalMetrics
+{
+    public static final int MAX_TRACKED_STORES = 200;
+
+    public static final String OTHER_STORES = "_other";
+
+    private static final String[] CHECKSUM_SUFFIXES = { ".md5", ".sha1", ".sha256", ".sha384", ".sha512", ".asc" };
+
+    public enum PathClass
+    {
+        ARTIFACT, METADATA, CHECKSUM
+    }
+
+    public enum Outcome
+    {
+        /** Served from local storage (hosted content, or a cached remote copy). */
+        LOCAL_HIT,
+        /** Downloaded from a remote repository. */
+        REMOTE_FETCH,
+        /** Short-circuited by the not-found cache. */
+        NFC_HIT,
+        /** Not found anywhere. */
+        MISS,
+        /** Produced by a content generator (eg. merged group metadata). */
+        GENERATED,
+        /** Served by one of a group's members. */
+        MEMBER_HIT
+    }
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private SpecialPathManager specialPathManager;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, Meter> meters = new ConcurrentHashMap<>();
+
+    private final Map<StoreKey, String> trackedStores = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<ConcreteResource> NFC_HIT = new ThreadLocal<>();
+
+    protected ContentRetrievalMetrics()
+    {
+    }
+
+    public ContentRetrievalMetrics( final MetricRegistry metricRegistry, final SpecialPathManager specialPathManager )
+    {
+        this.metricRegistry = metricRegistry;
+        this.specialPathManager = specialPathManager;
+    }
+
+    /**
+     * Record one retrieval of {@code path} from {@code key}.
+     *
+     * @param elapsedNanos time spent, as measured with {@link System#nanoTime()}
+     */
+    public void record( final StoreKey key, final String path, final Outcome outcome, final long elapsedNanos )
+    {
+        final String type = key.getType().name();
+        final String pathClass = classify( path ).name().toLowerCase();
+        final String outcomeName = outcome.name().toLowerCase();
+        final String store = storeName( key );
+
+        timer( name( ContentRetrievalMetrics.class, "type", type, pathClass, outcomeName ) ).update( elapsedNanos,
+                                                                                                     TimeUnit.NANOSECONDS );
+        timer( name( ContentRetrievalMetrics.class, "store", store, outcomeName ) ).update( elapsedNanos,
+                                                                                           TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Record {@code bytes} of {@code path} served from the store {@code key}, counted as the content was written out.
+     */
+    public void recordBytes( final StoreKey key, final String path, final long bytes )
+    {
+        if ( bytes > 0 )
+        {
+            final String type = key.getType().name();
+            final String pathClass = classify( path ).name().toLowerCase();
+
+            meter( name( ContentRetrievalMetrics.class, "type", type, pathClass, "bytes" ) ).mark( bytes );
+            meter( name( ContentRetrievalMetrics.class, "store", storeName( key ), "bytes" ) ).mark( bytes );
+        }
+    }
+
+    /**
+     * Note in a retrieval's {@link EventMetadata} that galley downloaded content into the store {@code key}, rather
+     * than serving a copy it already had. This is called from the download's storage event, so the outcome comes from
+     * what the retrieval actually did instead of a separate probe.
+     */
+    public static void markDownloaded( final EventMetadata eventMetadata, final StoreKey key )
+    {
+        if ( eventMetadata != null )
+        {
+            eventMetadata.set( new DownloadMarker( key ), Boolean.TRUE );
+        }
+    }
+
+    /**
+     * Check for, and clear, a mark left by {@link #markDownloaded(EventMetadata, StoreKey)}. The mark is cleared so an
+     * {@link EventMetadata} reused for several retrievals (eg. across group members) doesn't carry it forward.
+     */
+    public static boolean takeDownloaded( final EventMetadata eventMetadata, final StoreKey key )
+    {
+        return eventMetadata != null && eventMetadata.getMetadata().remove( new DownloadMarker( key ) ) != null;
+    }
+
+    /**
+     * Note that the not-found cache answered for {@code resource} on this thread. Galley consults the cache on the
+     * retrieving thread without firing an event, so this is how a retrieval learns it was short-circuited.
+     */
+    public static void markNotFoundCacheHit( final ConcreteResource resource )
+    {
+        NFC_HIT.set( resource );
+    }
+
+    /**
+     * Check for, and clear, a mark left on this thread by {@link #markNotFoundCacheHit(ConcreteResource)}.
+     */
+    public static boolean takeNotFoundCacheHit( final ConcreteResource resource )
+    {
+        final ConcreteResource marked = NFC_HIT.get();
+        NFC_HIT.remove();
+        return marked != null && marked.equals( resource );
+    }
+
+    public PathClass classify( final String path )
+    {
+        if ( path != null )
+        {
+            for ( final String suffix : CHECKSUM_SUFFIXES )
+            {
+                if ( path.endsWith( suffix ) )
+                {
+                    return PathClass.CHECKSUM;
+                }
+            }
+
+            if ( specialPathManager != null )
+            {
+                final SpecialPathInfo info = specialPathManager.getSpecialPathInfo( path );
+                if ( info != null && info.isMetadata() )
+                {
+                    return PathClass.METADATA;
+                }
+            }
+        }
+
+        return PathClass.ARTIFACT;
+    }
+
+    private String storeName( final StoreKey key )
+    {
+        String store = trackedStores.get( key );
+        if ( store == null )
+        {
+            if ( trackedStores.size() >= MAX_TRACKED_STORES )
+            {
+                return OTHER_STORES;
+            }
+
+            // Graphite splits metric paths on '.', so keep the store name in a single segment.
+            store = trackedStores.computeIfAbsent( key, k -> k.getType().name() + "-" + k.getName().replace( '.', '_' ) );
+        }
+
+        return store;
+    }
+
+    private Timer timer( final String name )
+    {
+        return timers.computeIfAbsent( name, n -> metricRegistry.timer( n ) );
+    }
+
+    private Meter meter( final String name )
+    {
+        return meters.computeIfAbsent( name, n -> metricRegistry.meter( n ) );
+    }
+
+    private static final class DownloadMarker
+    {
+        private final StoreKey key;
+
+        DownloadMarker( final StoreKey key )
+        {
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals( final Object other )
+        {
+            return other instanceof DownloadMarker && key.equals( ( (DownloadMarker) other ).key );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 + key.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "downloaded:" + key;
+        }
+    }
+}
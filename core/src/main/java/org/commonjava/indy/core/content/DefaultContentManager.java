@@ -15,8 +15,13 @@
  */
 package org.commonjava.indy.core.content;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.ArtifactData;
 import org.commonjava.indy.content.ContentDigest;
@@ -25,6 +30,7 @@ import org.commonjava.indy.content.ContentGenerator;
 import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics.Outcome;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.model.core.AbstractRepository;
@@ -54,8 +60,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static org.commonjava.indy.model.core.StoreType.group;
 import static org.commonjava.indy.util.ContentUtils.dedupeListing;
 
@@ -63,6 +71,8 @@ public class DefaultContentManager
         implements ContentManager
 {
 
+    private static final int DEFAULT_HEDGED_PROBES = 3;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     @Inject
@@ -88,6 +98,23 @@ public class DefaultContentManager
     @Inject
     private ContentDigester contentDigester;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( priority = 8, threads = 8, named = "hedged-retrieval" )
+    private ExecutorService hedgeExecutor;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private ContentRetrievalMetrics retrievalMetrics;
+
+    private Meter hedgedProbes;
+
+    private Meter wastedHedgedProbes;
+
+    private Histogram hedgedTimeSaved;
+
     protected DefaultContentManager()
     {
     }
@@ -95,6 +122,21 @@ public class DefaultContentManager
     public DefaultContentManager( final StoreDataManager storeManager, final DownloadManager downloadManager,
                                   final IndyObjectMapper mapper, final SpecialPathManager specialPathManager,
                                   final NotFoundCache nfc, final ContentDigester contentDigester, final Set<ContentGenerator> contentProducers )
+    {
+        this( storeManager, downloadManager, mapper, specialPathManager, nfc, contentDigester, contentProducers, null,
+              null );
+    }
+
+    /**
+     * @param hedgeExecutor runs the probes for groups with hedged retrieval; if null, group members are only ever tried
+     * one at a time.
+     * @param metricRegistry receives the hedging and retrieval metrics; if null, nothing is recorded.
+     */
+    public DefaultContentManager( final StoreDataManager storeManager, final DownloadManager downloadManager,
+                                  final IndyObjectMapper mapper, final SpecialPathManager specialPathManager,
+                                  final NotFoundCache nfc, final ContentDigester contentDigester,
+                                  final Set<ContentGenerator> contentProducers, final ExecutorService hedgeExecutor,
+                                  final MetricRegistry metricRegistry )
     {
         this.storeManager = storeManager;
         this.downloadManager = downloadManager;
@@ -103,6 +145,13 @@ public class DefaultContentManager
         this.nfc = nfc;
         this.contentDigester = contentDigester;
         this.contentGenerators = contentProducers == null ? new HashSet<ContentGenerator>() : contentProducers;
+        this.hedgeExecutor = hedgeExecutor;
+        this.metricRegistry = metricRegistry;
+        if ( metricRegistry != null )
+        {
+            this.retrievalMetrics = new ContentRetrievalMetrics( metricRegistry, specialPathManager );
+        }
+        initMetrics();
     }
 
     @PostConstruct
@@ -116,6 +165,22 @@ public class DefaultContentManager
                 contentGenerators.add( producer );
             }
         }
+
+        initMetrics();
+    }
+
+    private void initMetrics()
+    {
+        if ( metricRegistry == null )
+        {
+            return;
+        }
+
+        hedgedProbes = metricRegistry.meter( name( DefaultContentManager.class, "hedged-retrieval", "probes" ) );
+        wastedHedgedProbes =
+                metricRegistry.meter( name( DefaultContentManager.class, "hedged-retrieval", "wasted-probes" ) );
+        hedgedTimeSaved =
+                metricRegistry.histogram( name( DefaultContentManager.class, "hedged-retrieval", "time-saved-ms" ) );
     }
 
     @Override
@@ -243,6 +308,7 @@ public class DefaultContentManager
                 logger.debug( "{} is a group. Attempting downloads from (in order):\n  {}", store.getKey(), StringUtils.join(members, "\n  ") );
             }
 
+            final long start = System.nanoTime();
             item = null;
             boolean generated = false;
             for ( final ContentGenerator generator : contentGenerators )
@@ -259,23 +325,45 @@ public class DefaultContentManager
 
             if ( !generated )
             {
-                for ( final ArtifactStore member : members )
+                final HedgedMemberProbes probes = getHedgedProbes( (Group) store, members, path );
+                try
                 {
-                    try
-                    {
-                        item = doRetrieve( member, path, eventMetadata );
-                    }
-                    catch ( IndyWorkflowException e )
+                    for ( int i = 0; i < members.size(); i++ )
                     {
-                        logger.error( "Failed to retrieve artifact from for path {} from {} in group {}, error is: {}",
-                                      path, member, store, e.getMessage() );
+                        final ArtifactStore member = members.get( i );
+                        boolean knownMissing = false;
+                        if ( probes != null )
+                        {
+                            probes.advance( i );
+                            knownMissing = Boolean.FALSE.equals( probes.consume( i ) );
+                        }
+
+                        try
+                        {
+                            item = doRetrieve( member, path, knownMissing, eventMetadata );
+                        }
+                        catch ( IndyWorkflowException e )
+                        {
+                            logger.error(
+                                    "Failed to retrieve artifact from for path {} from {} in group {}, error is: {}",
+                                    path, member, store, e.getMessage() );
+                        }
+                        if ( item != null )
+                        {
+                            break;
+                        }
                     }
-                    if ( item != null )
+                }
+                finally
+                {
+                    if ( probes != null )
                     {
-                        break;
+                        probes.finish();
                     }
                 }
             }
+
+            recordGroupRetrieval( store.getKey(), path, generated, item, start );
         }
         else
         {
@@ -287,6 +375,21 @@ public class DefaultContentManager
         return item;
     }
 
+    private void recordGroupRetrieval( final StoreKey key, final String path, final boolean generated,
+                                       final Transfer item, final long start )
+    {
+        if ( retrievalMetrics == null )
+        {
+            return;
+        }
+
+        // bytes are metered as the content is written out, against the store that holds it.
+        final long elapsed = System.nanoTime() - start;
+        retrievalMetrics.record( key, path,
+                                 item == null ? Outcome.MISS : generated ? Outcome.GENERATED : Outcome.MEMBER_HIT,
+                                 elapsed );
+    }
+
     private boolean checkMask( final ArtifactStore store, final String path )
     {
         if ( !( store instanceof AbstractRepository ) )
@@ -314,8 +417,59 @@ public class DefaultContentManager
         return false;
     }
 
+    /**
+     * If the group asks for hedged retrieval (see {@link Group#METADATA_HEDGED_RETRIEVAL}), return probes that check the
+     * next few remote members for the path in parallel while earlier members are tried. Otherwise, return null.
+     */
+    private HedgedMemberProbes getHedgedProbes( final Group group, final List<ArtifactStore> members,
+                                                final String path )
+    {
+        final String value = group.getMetadata( Group.METADATA_HEDGED_RETRIEVAL );
+        if ( value == null || members.size() < 2 || hedgeExecutor == null || hedgedProbes == null )
+        {
+            return null;
+        }
+
+        int width;
+        if ( Boolean.parseBoolean( value ) )
+        {
+            width = DEFAULT_HEDGED_PROBES;
+        }
+        else
+        {
+            try
+            {
+                width = Integer.parseInt( value.trim() );
+            }
+            catch ( final NumberFormatException e )
+            {
+                logger.warn( "Invalid {} value: '{}' in: {}", Group.METADATA_HEDGED_RETRIEVAL, value, group.getKey() );
+                return null;
+            }
+        }
+
+        if ( width < 1 )
+        {
+            return null;
+        }
+
+        return new HedgedMemberProbes( members, path, width, member -> checkMask( member, path ), downloadManager,
+                                       hedgeExecutor, hedgedProbes, wastedHedgedProbes, hedgedTimeSaved );
+    }
+
     private Transfer doRetrieve( final ArtifactStore store, final String path, final EventMetadata eventMetadata )
             throws IndyWorkflowException
+    {
+        return doRetrieve( store, path, false, eventMetadata );
+    }
+
+    /**
+     * @param knownMissing the store has already been probed and doesn't have the path, so only content generators are
+     * consulted.
+     */
+    private Transfer doRetrieve( final ArtifactStore store, final String path, final boolean knownMissing,
+                                 final EventMetadata eventMetadata )
+            throws IndyWorkflowException
     {
         logger.info( "Attempting to retrieve: {} from: {}", path, store.getKey() );
 
@@ -327,7 +481,10 @@ public class DefaultContentManager
         Transfer item = null;
         try
         {
-            item = downloadManager.retrieve( store, path, eventMetadata );
+            if ( !knownMissing )
+            {
+                item = downloadManager.retrieve( store, path, eventMetadata );
+            }
 
             if ( item == null )
             {
@@ -23,6 +23,7 @@ import org.commonjava.indy.core.change.event.IndyFileEventManager;
 import org.commonjava.indy.change.event.IndyStoreErrorEvent;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics.Outcome;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -108,6 +109,9 @@ public class DefaultDownloadManager
     @Any
     private Instance<ContentAdvisor> contentAdvisors;
 
+    @Inject
+    private ContentRetrievalMetrics retrievalMetrics;
+
     protected DefaultDownloadManager()
     {
     }
@@ -443,13 +447,32 @@ public class DefaultDownloadManager
             return null;
         }
 
+        final long start = System.nanoTime();
+        Outcome outcome = null;
         Transfer target = null;
         try
         {
             final ConcreteResource res = new ConcreteResource( LocationUtils.toLocation( store ), path );
             if ( store instanceof RemoteRepository )
             {
+                // drop any stale marks before galley runs; see ContentRetrievalMetrics.markDownloaded()
+                ContentRetrievalMetrics.takeDownloaded( eventMetadata, store.getKey() );
+                ContentRetrievalMetrics.takeNotFoundCacheHit( res );
+
                 target = transfers.retrieve( res, suppressFailures, eventMetadata );
+
+                if ( ContentRetrievalMetrics.takeDownloaded( eventMetadata, store.getKey() ) )
+                {
+                    outcome = Outcome.REMOTE_FETCH;
+                }
+                else if ( target == null && ContentRetrievalMetrics.takeNotFoundCacheHit( res ) )
+                {
+                    outcome = Outcome.NFC_HIT;
+                }
+                else
+                {
+                    outcome = Outcome.LOCAL_HIT;
+                }
             }
             else
             {
@@ -458,6 +481,7 @@ public class DefaultDownloadManager
                 {
                     target = null;
                 }
+                outcome = Outcome.LOCAL_HIT;
             }
 
             //            if ( target != null && target.exists() )
@@ -487,24 +511,61 @@ public class DefaultDownloadManager
             throw new IndyWorkflowException( "Failed to retrieve path: {} from: {}. Reason: {}", e, path, store,
                                              e.getMessage() );
         }
+        finally
+        {
+            recordRetrieval( store.getKey(), path, outcome, target == null, start );
+        }
 
         return target;
     }
 
+    private void recordRetrieval( final StoreKey key, final String path, final Outcome outcome, final boolean missing,
+                                  final long start )
+    {
+        if ( retrievalMetrics == null || outcome == null )
+        {
+            return;
+        }
+
+        // bytes are metered as the content is written out (see ContentRetrievalMetrics.recordBytes()), not here.
+        retrievalMetrics.record( key, path, missing && outcome != Outcome.NFC_HIT ? Outcome.MISS : outcome,
+                                 System.nanoTime() - start );
+    }
+
     @Override
     public boolean exists(final ArtifactStore store, String path)
             throws IndyWorkflowException
     {
-        final ConcreteResource res = new ConcreteResource( LocationUtils.toLocation( store ), path );
         if ( store instanceof RemoteRepository )
         {
             try {
-                return transfers.exists( res );
-            } catch (TransferException e) {
+                return checkExists( store, path );
+            } catch (IndyWorkflowException e) {
                 logger.warn( "Existence check: " + e.getMessage(), e );
                 return false;
             }
         }
+
+        return checkExists( store, path );
+    }
+
+    @Override
+    public boolean checkExists( final ArtifactStore store, final String path )
+            throws IndyWorkflowException
+    {
+        final ConcreteResource res = new ConcreteResource( LocationUtils.toLocation( store ), path );
+        if ( store instanceof RemoteRepository )
+        {
+            try
+            {
+                return transfers.exists( res );
+            }
+            catch ( final TransferException e )
+            {
+                throw new IndyWorkflowException( "Failed to check existence of path: {} in: {}. Reason: {}", e, path,
+                                                 store.getKey(), e.getMessage() );
+            }
+        }
         else
         {
             Transfer target = transfers.getCacheReference(res);
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Existence probes for the remote members of a group that come next in line while an earlier member is being tried.
+ * The members are still consulted in order; a probe only lets the caller skip the upstream request for a member once
+ * it's known to be missing there. Probes that never get used are counted as wasted upstream requests.
+ */
+final class HedgedMemberProbes
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final List<ArtifactStore> members;
+
+    private final String path;
+
+    private final int width;
+
+    private final Predicate<ArtifactStore> eligible;
+
+    private final DownloadManager downloadManager;
+
+    private final ExecutorService executor;
+
+    private final Meter probeCount;
+
+    private final Meter wastedProbes;
+
+    private final Histogram timeSaved;
+
+    private final Map<Integer, Probe> probes = new HashMap<>();
+
+    private long savedNanos;
+
+    HedgedMemberProbes( final List<ArtifactStore> members, final String path, final int width,
+                        final Predicate<ArtifactStore> eligible, final DownloadManager downloadManager,
+                        final ExecutorService executor, final Meter probeCount, final Meter wastedProbes,
+                        final Histogram timeSaved )
+    {
+        this.members = members;
+        this.path = path;
+        this.width = width;
+        this.eligible = eligible;
+        this.downloadManager = downloadManager;
+        this.executor = executor;
+        this.probeCount = probeCount;
+        this.wastedProbes = wastedProbes;
+        this.timeSaved = timeSaved;
+    }
+
+    /**
+     * Start probes for the remote members that follow the given position, up to the configured width.
+     */
+    void advance( final int current )
+    {
+        final int last = Math.min( current + width, members.size() - 1 );
+        for ( int i = current + 1; i <= last; i++ )
+        {
+            final ArtifactStore member = members.get( i );
+            if ( probes.containsKey( i ) || !( member instanceof RemoteRepository ) || !eligible.test( member ) )
+            {
+                continue;
+            }
+
+            final Probe probe = new Probe();
+            try
+            {
+                probe.future = executor.submit( () -> {
+                    probe.started = true;
+                    try
+                    {
+                        return downloadManager.checkExists( member, path );
+                    }
+                    finally
+                    {
+                        probe.finished = System.nanoTime();
+                    }
+                } );
+            }
+            catch ( final RejectedExecutionException e )
+            {
+                logger.debug( "Hedged probe executor is saturated; not probing: {} in: {}", path, member.getKey() );
+                return;
+            }
+
+            probes.put( i, probe );
+            probeCount.mark();
+        }
+    }
+
+    /**
+     * @return {@link Boolean#FALSE} if the member at the given position is known not to have the path,
+     * {@link Boolean#TRUE} if it does, or null if it wasn't probed (or the probe failed).
+     */
+    Boolean consume( final int idx )
+    {
+        final Probe probe = probes.remove( idx );
+        if ( probe == null )
+        {
+            return null;
+        }
+
+        final long needed = System.nanoTime();
+        final Boolean exists;
+        try
+        {
+            exists = probe.future.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            wastedProbes.mark();
+            return null;
+        }
+        catch ( final ExecutionException e )
+        {
+            logger.debug( "Hedged probe failed for: {} in: {}. Reason: {}", path, members.get( idx ).getKey(),
+                          e.getCause() == null ? e.getMessage() : e.getCause().getMessage() );
+            wastedProbes.mark();
+            return null;
+        }
+
+        if ( exists )
+        {
+            // we still have to go upstream for the content itself, so the probe bought us nothing.
+            wastedProbes.mark();
+        }
+        else
+        {
+            savedNanos += Math.min( needed, probe.finished ) - probe.submitted;
+        }
+
+        return exists;
+    }
+
+    /**
+     * Cancel outstanding probes once the retrieval is over, and record the time saved.
+     */
+    void finish()
+    {
+        probes.values().forEach( probe -> {
+            probe.future.cancel( false );
+            if ( probe.started )
+            {
+                wastedProbes.mark();
+            }
+        } );
+        probes.clear();
+
+        timeSaved.update( TimeUnit.NANOSECONDS.toMillis( savedNanos ) );
+    }
+
+    private static final class Probe
+    {
+        private final long submitted = System.nanoTime();
+
+        private Future<Boolean> future;
+
+        private volatile boolean started;
+
+        private volatile long finished;
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content.group;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.model.Transfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Makes sure only one request at a time generates a given merged file in a group. The first caller for a
+ * (group, path) pair runs the merge; callers arriving while it is in progress wait for that result instead of merging
+ * the same members again and racing to write the same file.
+ */
+@ApplicationScoped
+public class GroupMergeCoordinator
+{
+
+    /**
+     * Generation of a merged group file.
+     */
+    @FunctionalInterface
+    public interface Merge
+    {
+        Transfer generate()
+                throws IndyWorkflowException;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<MergeKey, CompletableFuture<Transfer>> inProgress = new ConcurrentHashMap<>();
+
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private long timeoutSeconds;
+
+    private Meter merges;
+
+    private Meter coalesced;
+
+    private Meter timeouts;
+
+    protected GroupMergeCoordinator()
+    {
+    }
+
+    public GroupMergeCoordinator( final MetricRegistry metricRegistry, final long timeoutSeconds )
+    {
+        this.metricRegistry = metricRegistry;
+        this.timeoutSeconds = timeoutSeconds;
+        initMetrics();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        timeoutSeconds = config.getGroupMergeTimeoutSeconds();
+        initMetrics();
+    }
+
+    private void initMetrics()
+    {
+        merges = metricRegistry.meter( name( GroupMergeCoordinator.class, "merges" ) );
+        coalesced = metricRegistry.meter( name( GroupMergeCoordinator.class, "coalesced" ) );
+        timeouts = metricRegistry.meter( name( GroupMergeCoordinator.class, "timeouts" ) );
+    }
+
+    /**
+     * Run the given merge for the path in the group, unless one is already running, in which case wait (up to the
+     * configured timeout) for its result and return that instead. Failures of the running merge are passed on to the
+     * waiting callers.
+     */
+    public Transfer merge( final StoreKey group, final String path, final Merge merge )
+            throws IndyWorkflowException
+    {
+        final MergeKey key = new MergeKey( group, path );
+        final CompletableFuture<Transfer> mine = new CompletableFuture<>();
+        final CompletableFuture<Transfer> running = inProgress.putIfAbsent( key, mine );
+        if ( running != null )
+        {
+            coalesced.mark();
+            logger.debug( "Waiting for in-progress merge of: {} in: {}", path, group );
+            return await( running, group, path );
+        }
+
+        merges.mark();
+        try
+        {
+            final Transfer result = merge.generate();
+            mine.complete( result );
+            return result;
+        }
+        catch ( final IndyWorkflowException | RuntimeException e )
+        {
+            mine.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            inProgress.remove( key, mine );
+        }
+    }
+
+    private Transfer await( final CompletableFuture<Transfer> running, final StoreKey group, final String path )
+            throws IndyWorkflowException
+    {
+        try
+        {
+            return running.get( timeoutSeconds, TimeUnit.SECONDS );
+        }
+        catch ( final TimeoutException e )
+        {
+            timeouts.mark();
+            throw new IndyWorkflowException( "Timed out after {} seconds waiting for merge of: {} in: {}", e,
+                                             timeoutSeconds, path, group );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IndyWorkflowException( "Interrupted waiting for merge of: {} in: {}", e, path, group );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof IndyWorkflowException )
+            {
+                throw (IndyWorkflowException) cause;
+            }
+
+            throw new IndyWorkflowException( "Merge of: {} in: {} failed: {}", cause, path, group,
+                                             cause.getMessage() );
+        }
+    }
+
+    private static final class MergeKey
+    {
+        private final StoreKey group;
+
+        private final String path;
+
+        MergeKey( final StoreKey group, final String path )
+        {
+            this.group = group;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof MergeKey ) )
+            {
+                return false;
+            }
+
+            final MergeKey other = (MergeKey) o;
+            return group.equals( other.group ) && path.equals( other.path );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( group, path );
+        }
+    }
+}
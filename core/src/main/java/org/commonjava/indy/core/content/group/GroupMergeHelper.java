@@ -84,6 +84,11 @@ public class GroupMergeHelper
 
     public final void writeMergeInfo( final byte[] data, final List<Transfer> sources, final Group group,
                                       final String path )
+    {
+        writeMergeInfo( sources, group, path );
+    }
+
+    public final void writeMergeInfo( final List<Transfer> sources, final Group group, final String path )
     {
         final Transfer targetInfo = downloadManager.getStorageReference( group, path + MERGEINFO_SUFFIX );
 
@@ -19,6 +19,7 @@ import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.core.change.StoreEnablementManager;
 import org.commonjava.indy.core.expire.Expiration;
 import org.commonjava.indy.core.expire.ExpirationSet;
+import org.commonjava.indy.core.expire.RescheduleStatus;
 import org.commonjava.indy.core.expire.ScheduleManager;
 import org.commonjava.indy.core.expire.StoreKeyMatcher;
 import org.commonjava.indy.data.IndyDataException;
@@ -31,6 +32,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -108,6 +110,20 @@ public class SchedulerController
         }
     }
 
+    /**
+     * Retrieve the progress of the latest background reschedule of content timeouts in a store, or null if the store's
+     * timeouts haven't been changed since startup.
+     */
+    public RescheduleStatus getRescheduleStatus( StoreKey storeKey )
+    {
+        return scheduleManager.getRescheduleStatus( storeKey );
+    }
+
+    public List<RescheduleStatus> getRescheduleStatuses()
+    {
+        return scheduleManager.getRescheduleStatuses();
+    }
+
     private Expiration indefiniteDisable( ArtifactStore store )
     {
         return new Expiration( ScheduleManager.groupName( store.getKey(), StoreEnablementManager.DISABLE_TIMEOUT ), StoreEnablementManager.DISABLE_TIMEOUT );
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.expire;
+
+import org.commonjava.indy.model.core.StoreKey;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.commonjava.indy.core.expire.RescheduleStatus.State;
+
+/**
+ * Tracks one background bulk reschedule of a store's content expirations. A newer request for the same store
+ * supersedes this one, which then stops at its next batch boundary.
+ */
+final class RescheduleJob
+{
+    private final StoreKey storeKey;
+
+    private final int timeoutSeconds;
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong rescheduled = new AtomicLong();
+
+    private volatile State state = State.QUEUED;
+
+    private volatile long total;
+
+    private volatile Date started;
+
+    private volatile Date finished;
+
+    private volatile String error;
+
+    RescheduleJob( final StoreKey storeKey, final int timeoutSeconds )
+    {
+        this.storeKey = storeKey;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    StoreKey getStoreKey()
+    {
+        return storeKey;
+    }
+
+    int getTimeoutSeconds()
+    {
+        return timeoutSeconds;
+    }
+
+    boolean isSuperseded()
+    {
+        return state == State.SUPERSEDED;
+    }
+
+    synchronized void supersede()
+    {
+        if ( state == State.QUEUED || state == State.RUNNING )
+        {
+            state = State.SUPERSEDED;
+            finished = new Date();
+        }
+    }
+
+    synchronized void start( final long total )
+    {
+        this.total = total;
+        this.started = new Date();
+        if ( state == State.QUEUED )
+        {
+            state = State.RUNNING;
+        }
+    }
+
+    void batchDone( final int batchSize, final int batchRescheduled )
+    {
+        processed.addAndGet( batchSize );
+        rescheduled.addAndGet( batchRescheduled );
+    }
+
+    synchronized void done()
+    {
+        if ( state == State.RUNNING )
+        {
+            state = State.DONE;
+            finished = new Date();
+        }
+    }
+
+    synchronized void failed( final Throwable cause )
+    {
+        error = cause.getMessage();
+        state = State.FAILED;
+        finished = new Date();
+    }
+
+    RescheduleStatus toStatus()
+    {
+        final RescheduleStatus status = new RescheduleStatus( storeKey.toString(), timeoutSeconds, state );
+        status.setTotal( total );
+        status.setProcessed( processed.get() );
+        status.setRescheduled( rescheduled.get() );
+        status.setStarted( started );
+        status.setFinished( finished );
+        status.setError( error );
+        return status;
+    }
+}
@@ -54,8 +54,9 @@ public class ScheduleKey
 
     public static ScheduleKey fromGroupWithName( final String group, final String name )
     {
-        final String[] splits = group.split( ":" );
-        return new ScheduleKey( StoreKey.fromString( splits[0] ), splits[1], name );
+        // group names are "<type>:<name>:<jobType>", so the store key itself contains a colon
+        final int idx = group.lastIndexOf( ':' );
+        return new ScheduleKey( StoreKey.fromString( group.substring( 0, idx ) ), group.substring( idx + 1 ), name );
     }
 
     @Override
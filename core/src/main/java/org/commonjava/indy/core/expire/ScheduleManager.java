@@ -18,6 +18,8 @@ package org.commonjava.indy.core.expire;
 import static org.commonjava.indy.core.change.StoreEnablementManager.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.action.BootupAction;
 import org.commonjava.indy.action.IndyLifecycleException;
 import org.commonjava.indy.action.ShutdownAction;
@@ -61,16 +63,25 @@ import javax.inject.Inject;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 /**
@@ -123,6 +134,62 @@ public class ScheduleManager
     @Inject
     private Event<SchedulerEvent> eventDispatcher;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( priority = 4, threads = 2, named = "schedule-reschedule" )
+    private ExecutorService rescheduleExecutor;
+
+    /**
+     * Number of lock stripes guarding the schedules of stores (the schedule cache plus {@link #scheduledByStore}, which
+     * the cache listeners update in the calling thread). Scheduling or cancelling a single entry takes the shared side
+     * of its store's stripe; rescheduling a store's entries in bulk takes the exclusive side, one batch at a time.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    private final ReadWriteLock[] storeLocks = new ReadWriteLock[LOCK_STRIPES];
+
+    /**
+     * Scheduled keys by store, maintained from the schedule cache's events, so that work on one store's schedule
+     * doesn't have to scan the keys of every other store.
+     */
+    private final Map<StoreKey, Set<ScheduleKey>> scheduledByStore = new ConcurrentHashMap<>();
+
+    /**
+     * Number of scheduled entries a bulk reschedule reads and writes back per cache call.
+     */
+    private static final int RESCHEDULE_BATCH_SIZE = 1000;
+
+    /**
+     * Latest bulk reschedule submitted for each store.
+     */
+    private final Map<StoreKey, RescheduleJob> rescheduleJobs = new ConcurrentHashMap<>();
+
+    {
+        for ( int i = 0; i < LOCK_STRIPES; i++ )
+        {
+            storeLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    protected ScheduleManager()
+    {
+    }
+
+    public ScheduleManager( final IndySchedulerConfig schedulerConfig, final IndyConfiguration config,
+                            final StoreDataManager dataManager, final SpecialPathManager specialPathManager,
+                            final IndyObjectMapper objectMapper, final CacheHandle<ScheduleKey, Map> scheduleCache,
+                            final Event<SchedulerEvent> eventDispatcher, final ExecutorService rescheduleExecutor )
+    {
+        this.schedulerConfig = schedulerConfig;
+        this.config = config;
+        this.dataManager = dataManager;
+        this.specialPathManager = specialPathManager;
+        this.objectMapper = objectMapper;
+        this.scheduleCache = scheduleCache;
+        this.eventDispatcher = eventDispatcher;
+        this.rescheduleExecutor = rescheduleExecutor;
+    }
+
     @Override
     public void init()
             throws IndyLifecycleException
@@ -140,7 +207,7 @@ public class ScheduleManager
         } );
     }
 
-    public synchronized void rescheduleSnapshotTimeouts( final HostedRepository deploy )
+    public void rescheduleSnapshotTimeouts( final HostedRepository deploy )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -157,20 +224,11 @@ public class ScheduleManager
 
         if ( timeout > 0 )
         {
-            final Set<ScheduleKey> canceled =
-                    cancelAllBefore( new StoreKeyMatcher( deploy.getKey(), CONTENT_JOB_TYPE ), timeout );
-
-            for ( final ScheduleKey key : canceled )
-            {
-                final String path = key.getName();
-                final StoreKey sk = storeKeyFrom( key.groupName() );
-
-                scheduleContentExpiration( sk, path, timeout );
-            }
+            submitReschedule( deploy.getKey(), timeout );
         }
     }
 
-    public synchronized void rescheduleProxyTimeouts( final RemoteRepository repo )
+    public void rescheduleProxyTimeouts( final RemoteRepository repo )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -191,19 +249,124 @@ public class ScheduleManager
 
         if ( timeout > 0 )
         {
-            final Set<ScheduleKey> canceled =
-                    cancelAllBefore( new StoreKeyMatcher( repo.getKey(), CONTENT_JOB_TYPE ), timeout );
-            for ( final ScheduleKey key : canceled )
+            submitReschedule( repo.getKey(), timeout );
+        }
+    }
+
+    /**
+     * Retrieve the progress of the latest bulk reschedule submitted for a store, or null if there hasn't been one.
+     */
+    public RescheduleStatus getRescheduleStatus( final StoreKey key )
+    {
+        final RescheduleJob job = rescheduleJobs.get( key );
+        return job == null ? null : job.toStatus();
+    }
+
+    public List<RescheduleStatus> getRescheduleStatuses()
+    {
+        return rescheduleJobs.values().stream().map( RescheduleJob::toStatus ).collect( Collectors.toList() );
+    }
+
+    /**
+     * Queue a background job moving every content expiration of the store that falls before the new timeout out to
+     * it. A job still pending for the same store is superseded, since only the latest timeout matters.
+     */
+    private void submitReschedule( final StoreKey key, final int timeoutSeconds )
+    {
+        final RescheduleJob job = new RescheduleJob( key, timeoutSeconds );
+        final RescheduleJob previous = rescheduleJobs.put( key, job );
+        if ( previous != null )
+        {
+            previous.supersede();
+        }
+
+        logger.info( "Queued reschedule of content expirations in: {} to {} seconds", key, timeoutSeconds );
+        rescheduleExecutor.execute( () -> runReschedule( job ) );
+    }
+
+    private void runReschedule( final RescheduleJob job )
+    {
+        final StoreKey storeKey = job.getStoreKey();
+        try
+        {
+            final StoreKeyMatcher matcher = new StoreKeyMatcher( storeKey, CONTENT_JOB_TYPE );
+            final List<ScheduleKey> keys = new ArrayList<>( keysMatching( matcher ) );
+            job.start( keys.size() );
+
+            final Date to = new Date( System.currentTimeMillis() + ( job.getTimeoutSeconds() * 1000L ) );
+            for ( int i = 0; i < keys.size() && !job.isSuperseded(); i += RESCHEDULE_BATCH_SIZE )
             {
-                final String path = key.getName();
-                final StoreKey sk = storeKeyFrom( key.groupName() );
+                final List<ScheduleKey> batch = keys.subList( i, Math.min( keys.size(), i + RESCHEDULE_BATCH_SIZE ) );
 
-                scheduleContentExpiration( sk, path, timeout );
+                // only hold the store's exclusive lock for one batch, so downloads into the store can keep updating
+                // their own timeouts in between.
+                final Lock lock = getStoreLock( storeKey ).writeLock();
+                lock.lock();
+                try
+                {
+                    job.batchDone( batch.size(), rescheduleBatch( batch, to, job.getTimeoutSeconds() ) );
+                }
+                finally
+                {
+                    lock.unlock();
+                }
             }
+
+            job.done();
+            logger.info( "Finished reschedule of content expirations: {}", job.toStatus() );
+        }
+        catch ( final RuntimeException e )
+        {
+            job.failed( e );
+            logger.error( String.format( "Failed to reschedule content expirations in: %s. Reason: %s", storeKey,
+                                         e.getMessage() ), e );
         }
     }
 
-    public synchronized void setProxyTimeouts( final StoreKey key, final String path )
+    /**
+     * Reads the batch's entries in one call and writes back every one that would expire before {@code to} in a
+     * single putAll(), with a fresh schedule time and the new lifespan.
+     *
+     * @return the number of entries rescheduled
+     */
+    private int rescheduleBatch( final Collection<ScheduleKey> batch, final Date to, final int timeoutSeconds )
+    {
+        return scheduleCache.execute( cache -> {
+            final Map<ScheduleKey, CacheEntry<ScheduleKey, Map>> entries =
+                    cache.getAdvancedCache().getAllCacheEntries( new HashSet<>( batch ) );
+
+            final long now = System.currentTimeMillis();
+            final Map<ScheduleKey, Map> updates = new HashMap<>( entries.size() );
+            entries.forEach( ( key, entry ) -> {
+                final Map data = entry.getValue();
+                if ( data == null )
+                {
+                    return;
+                }
+
+                final Object scheduled = data.get( SCHEDULE_TIME );
+                final Date nextFire = scheduled == null ?
+                        null :
+                        calculateNextExpireTime( entry.getMetadata().lifespan(), (Long) scheduled );
+
+                if ( nextFire == null || !nextFire.after( to ) )
+                {
+                    final Map<String, Object> dataMap = new HashMap<>( data );
+                    dataMap.put( SCHEDULE_TIME, now );
+                    updates.put( key, dataMap );
+                }
+            } );
+
+            if ( !updates.isEmpty() )
+            {
+                cache.putAll( updates, timeoutSeconds, TimeUnit.SECONDS );
+            }
+
+            return updates.size();
+        } );
+    }
+
+    public void setProxyTimeouts( final StoreKey key, final String path )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -256,14 +419,23 @@ public class ScheduleManager
         {
             //            logger.info( "[PROXY TIMEOUT SET] {}/{}; {}", repo.getKey(), path, new Date( System.currentTimeMillis()
             //                + timeout ) );
-            cancel( new StoreKeyMatcher( key, CONTENT_JOB_TYPE ), path );
+            final Lock lock = getStoreLock( key ).readLock();
+            lock.lock();
+            try
+            {
+                removeCache( new ScheduleKey( key, CONTENT_JOB_TYPE, path ) );
 
-            scheduleContentExpiration( key, path, timeout );
+                scheduleContentExpiration( key, path, timeout );
+            }
+            finally
+            {
+                lock.unlock();
+            }
         }
     }
 
-    public synchronized void scheduleForStore( final StoreKey key, final String jobType, final String jobName,
-                                               final Object payload, final int startSeconds )
+    public void scheduleForStore( final StoreKey key, final String jobType, final String jobName,
+                                  final Object payload, final int startSeconds )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -288,12 +460,21 @@ public class ScheduleManager
 
         final ScheduleKey cacheKey = new ScheduleKey( key, jobType, jobName );
 
-        scheduleCache.execute( cache -> cache.put( cacheKey, dataMap, startSeconds, TimeUnit.SECONDS ) );
+        final Lock lock = getStoreLock( key ).readLock();
+        lock.lock();
+        try
+        {
+            scheduleCache.execute( cache -> cache.put( cacheKey, dataMap, startSeconds, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
         logger.debug( "Scheduled for the key {} with timeout: {} seconds", cacheKey, startSeconds );
     }
 
-    public synchronized void scheduleContentExpiration( final StoreKey key, final String path,
-                                                        final int timeoutSeconds )
+    public void scheduleContentExpiration( final StoreKey key, final String path,
+                                           final int timeoutSeconds )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -308,7 +489,7 @@ public class ScheduleManager
         scheduleForStore( key, CONTENT_JOB_TYPE, path, new ContentExpiration( key, path ), timeoutSeconds );
     }
 
-    public synchronized void setSnapshotTimeouts( final StoreKey key, final String path )
+    public void setSnapshotTimeouts( final StoreKey key, final String path )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -369,7 +550,7 @@ public class ScheduleManager
         }
     }
 
-    public synchronized void rescheduleDisableTimeout( final StoreKey key )
+    public void rescheduleDisableTimeout( final StoreKey key )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -438,8 +619,8 @@ public class ScheduleManager
         return null;
     }
 
-    public synchronized Set<ScheduleKey> cancelAllBefore( final CacheKeyMatcher<ScheduleKey> matcher,
-                                                          final long timeout )
+    public Set<ScheduleKey> cancelAllBefore( final CacheKeyMatcher<ScheduleKey> matcher,
+                                             final long timeout )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -451,7 +632,7 @@ public class ScheduleManager
         final Set<ScheduleKey> canceled = new HashSet<>();
 
         final Date to = new Date( System.currentTimeMillis() + ( timeout * 1000 ) );
-        matcher.matches( scheduleCache ).forEach( key -> {
+        keysMatching( matcher ).forEach( key -> {
             final Date nextFire = getNextExpireTime( key );
             if ( nextFire == null || !nextFire.after( to ) )
             {
@@ -466,13 +647,13 @@ public class ScheduleManager
         return canceled;
     }
 
-    public synchronized Set<ScheduleKey> cancelAll( final CacheKeyMatcher<ScheduleKey> matcher )
+    public Set<ScheduleKey> cancelAll( final CacheKeyMatcher<ScheduleKey> matcher )
             throws IndySchedulerException
     {
         return cancel( matcher, ANY );
     }
 
-    public synchronized Set<ScheduleKey> cancel( final CacheKeyMatcher<ScheduleKey> matcher, final String name )
+    public Set<ScheduleKey> cancel( final CacheKeyMatcher<ScheduleKey> matcher, final String name )
             throws IndySchedulerException
     {
         if ( !schedulerConfig.isEnabled() )
@@ -481,12 +662,19 @@ public class ScheduleManager
             return Collections.emptySet();
         }
 
+        if ( !ANY.equals( name ) && matcher instanceof StoreKeyMatcher )
+        {
+            // a single named job of a store is a direct lookup
+            final ScheduleKey key = ( (StoreKeyMatcher) matcher ).keyFor( name );
+            return removeCache( key ) ? Collections.singleton( key ) : Collections.emptySet();
+        }
+
         Set<ScheduleKey> canceled = new HashSet<>();
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = keysMatching( matcher );
         if ( keys != null && !keys.isEmpty() )
         {
             Set<ScheduleKey> unscheduled = null;
-            if ( name == ANY )
+            if ( ANY.equals( name ) )
             {
                 for ( final ScheduleKey k : keys )
                 {
@@ -516,7 +704,7 @@ public class ScheduleManager
         return canceled;
     }
 
-    public synchronized Expiration findSingleExpiration( final StoreKeyMatcher matcher )
+    public Expiration findSingleExpiration( final StoreKeyMatcher matcher )
     {
         if ( !schedulerConfig.isEnabled() )
         {
@@ -524,7 +712,7 @@ public class ScheduleManager
             return null;
         }
 
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = keysMatching( matcher );
         if ( keys != null && !keys.isEmpty() )
         {
             ScheduleKey triggerKey = keys.iterator().next();
@@ -534,7 +722,7 @@ public class ScheduleManager
         return null;
     }
 
-    public synchronized ExpirationSet findMatchingExpirations( final CacheKeyMatcher<ScheduleKey> matcher )
+    public ExpirationSet findMatchingExpirations( final CacheKeyMatcher<ScheduleKey> matcher )
     {
         if ( !schedulerConfig.isEnabled() )
         {
@@ -542,7 +730,7 @@ public class ScheduleManager
             return null;
         }
 
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = keysMatching( matcher );
         Set<Expiration> expirations = new HashSet<>( keys.size() );
         if ( keys != null && !keys.isEmpty() )
         {
@@ -593,7 +781,7 @@ public class ScheduleManager
         return null;
     }
 
-    public synchronized ScheduleKey findFirstMatchingTrigger( final CacheKeyMatcher<ScheduleKey> matcher )
+    public ScheduleKey findFirstMatchingTrigger( final CacheKeyMatcher<ScheduleKey> matcher )
     {
         if ( !schedulerConfig.isEnabled() )
         {
@@ -601,7 +789,7 @@ public class ScheduleManager
             return null;
         }
 
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = keysMatching( matcher );
         if ( keys != null && !keys.isEmpty() )
         {
             return keys.iterator().next();
@@ -635,7 +823,7 @@ public class ScheduleManager
         return null;
     }
 
-    public synchronized boolean deleteJob( final String group, final String name )
+    public boolean deleteJob( final String group, final String name )
     {
         if ( !schedulerConfig.isEnabled() )
         {
@@ -644,13 +832,7 @@ public class ScheduleManager
         }
 
         final ScheduleKey cacheKey = ScheduleKey.fromGroupWithName( group, name );
-        if ( scheduleCache.containsKey( cacheKey ) )
-        {
-            removeCache( cacheKey );
-            return true;
-        }
-
-        return false;
+        return removeCache( cacheKey );
     }
 
     @Override
@@ -684,19 +866,70 @@ public class ScheduleManager
         scheduleCache.stop();
     }
 
-    private synchronized void removeCache( final ScheduleKey cacheKey )
+    /**
+     * Removes under the shared side of the store's stripe, so a bulk reschedule of the store can't write a cancelled
+     * entry back between reading and updating its batch.
+     */
+    private boolean removeCache( final ScheduleKey cacheKey )
     {
-        if ( scheduleCache.containsKey( cacheKey ) )
+        final Lock lock = getStoreLock( cacheKey.getStoreKey() ).readLock();
+        lock.lock();
+        try
         {
-            scheduleCache.remove( cacheKey );
+            return scheduleCache.remove( cacheKey ) != null;
+        }
+        finally
+        {
+            lock.unlock();
         }
     }
 
+    /**
+     * Resolve the keys a matcher selects. Store-based matchers are answered from the per-store index; anything else
+     * still has to look at the whole cache.
+     */
+    private Set<ScheduleKey> keysMatching( final CacheKeyMatcher<ScheduleKey> matcher )
+    {
+        if ( matcher instanceof StoreKeyMatcher )
+        {
+            final StoreKeyMatcher storeMatcher = (StoreKeyMatcher) matcher;
+            final Set<ScheduleKey> keys =
+                    scheduledByStore.getOrDefault( storeMatcher.getStoreKey(), Collections.emptySet() );
+
+            return keys.stream().filter( storeMatcher::matches ).collect( Collectors.toSet() );
+        }
+
+        return matcher.matches( scheduleCache );
+    }
+
+    private ReadWriteLock getStoreLock( final StoreKey key )
+    {
+        return storeLocks[( key.hashCode() & Integer.MAX_VALUE ) % LOCK_STRIPES];
+    }
+
+    private void index( final ScheduleKey key )
+    {
+        scheduledByStore.computeIfAbsent( key.getStoreKey(), k -> ConcurrentHashMap.newKeySet() ).add( key );
+    }
+
+    private void unindex( final ScheduleKey key )
+    {
+        scheduledByStore.computeIfPresent( key.getStoreKey(), ( k, keys ) -> {
+            keys.remove( key );
+            return keys.isEmpty() ? null : keys;
+        } );
+    }
+
     @CacheEntryCreated
     public void scheduled( final CacheEntryCreatedEvent<ScheduleKey, Map> e )
     {
         final ScheduleKey expiredKey = e.getKey();
         final Map expiredContent = e.getValue();
+        if ( expiredKey != null && !e.isPre() )
+        {
+            index( expiredKey );
+        }
+
         if ( expiredKey != null && expiredContent != null )
         {
             logger.debug( "Expiration Created: {}", expiredKey );
@@ -711,6 +944,11 @@ public class ScheduleManager
     {
         final ScheduleKey expiredKey = e.getKey();
         final Map expiredContent = e.getValue();
+        if ( expiredKey != null )
+        {
+            unindex( expiredKey );
+        }
+
         if ( expiredKey != null && expiredContent != null )
         {
             logger.debug( "EXPIRED: {}", expiredKey );
@@ -723,6 +961,11 @@ public class ScheduleManager
     @CacheEntryRemoved
     public void cancelled( CacheEntryRemovedEvent<ScheduleKey, Map> e )
     {
+        if ( e.getKey() != null && !e.isPre() )
+        {
+            unindex( e.getKey() );
+        }
+
         logger.info( "Cache removed to cancel scheduling, Key is {}, Value is {}", e.getKey(), e.getValue() );
     }
 
@@ -31,8 +31,6 @@ public class StoreKeyMatcher
         implements CacheKeyMatcher<ScheduleKey>
 {
 
-    //TODO: will have a thought to replace this type of matcher with a ISPN query API in the future to get better performance.
-
     private final StoreKey storeKey;
 
     private final String eventType;
@@ -43,12 +41,38 @@ public class StoreKeyMatcher
         this.eventType = eventType;
     }
 
+    public StoreKey getStoreKey()
+    {
+        return storeKey;
+    }
+
+    public String getEventType()
+    {
+        return eventType;
+    }
+
+    /**
+     * @return the key of the job with the given name that this matcher would select
+     */
+    public ScheduleKey keyFor( final String name )
+    {
+        return new ScheduleKey( storeKey, eventType, name );
+    }
+
+    public boolean matches( final ScheduleKey key )
+    {
+        return storeKey.equals( key.getStoreKey() ) && eventType.equals( key.getType() );
+    }
+
+    /**
+     * Scans every key in the cache. {@link ScheduleManager} answers this matcher from its per-store index instead.
+     */
     @Override
     public Set<ScheduleKey> matches( CacheHandle<ScheduleKey, ?> cacheHandle )
     {
         return cacheHandle.execute( Cache::keySet )
                           .stream()
-                          .filter( key -> key.groupName().equals( ScheduleManager.groupName( storeKey, eventType ) ) )
+                          .filter( this::matches )
                           .collect( Collectors.toSet() );
     }
 }
@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.commonjava.maven.galley.util.PathUtils.normalize;
+
+import java.text.SimpleDateFormat;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics;
+import org.commonjava.indy.model.galley.RepositoryLocation;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.spi.nfc.NotFoundCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory {@link NotFoundCache} that is safe for concurrent use. Lookups never lock, records are indexed by
+ * {@link Location} so clearing a location only touches that location's entries, and a background sweeper removes
+ * expired records and evicts the least-recently used ones once {@link IndyConfiguration#getNotFoundCacheMaxSize()}
+ * is exceeded. Hits, misses and evictions are reported through the {@link MetricRegistry}.
+ */
+@ApplicationScoped
+@Default
+//@Production
+public class IndexedMemoryNotFoundCache
+    implements NotFoundCache
+{
+
+    private static final String TIMEOUT_FORMAT = "yyyy-MM-dd hh:mm:ss z";
+
+    private static final Comparator<Map.Entry<ConcreteResource, MissingEntry>> MOST_RECENT_FIRST =
+            ( first, second ) -> Long.compare( second.getValue().lastAccess, first.getValue().lastAccess );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    protected IndyConfiguration config;
+
+    @Inject
+    protected MetricRegistry metricRegistry;
+
+    protected final Map<ConcreteResource, MissingEntry> missingWithTimeout = new ConcurrentHashMap<>();
+
+    protected final Map<Location, Set<ConcreteResource>> missingByLocation = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweepPending = new AtomicBoolean( false );
+
+    private ScheduledExecutorService sweeper;
+
+    private Meter hits;
+
+    private Meter misses;
+
+    private Meter evictions;
+
+    protected IndexedMemoryNotFoundCache()
+    {
+    }
+
+    public IndexedMemoryNotFoundCache( final IndyConfiguration config )
+    {
+        this( config, new MetricRegistry() );
+    }
+
+    public IndexedMemoryNotFoundCache( final IndyConfiguration config, final MetricRegistry metricRegistry )
+    {
+        this.config = config;
+        this.metricRegistry = metricRegistry;
+        init();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        hits = metricRegistry.meter( name( IndexedMemoryNotFoundCache.class, "hits" ) );
+        misses = metricRegistry.meter( name( IndexedMemoryNotFoundCache.class, "misses" ) );
+        evictions = metricRegistry.meter( name( IndexedMemoryNotFoundCache.class, "evictions" ) );
+
+        final String sizeName = name( IndexedMemoryNotFoundCache.class, "size" );
+        if ( !metricRegistry.getGauges().containsKey( sizeName ) )
+        {
+            metricRegistry.register( sizeName, (Gauge<Integer>) missingWithTimeout::size );
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor( ( runnable ) -> {
+            final Thread t = new Thread( runnable, "indy-nfc-sweeper" );
+            t.setDaemon( true );
+            t.setPriority( Thread.MIN_PRIORITY );
+            return t;
+        } );
+
+        final int period = Math.max( 1, config.getNotFoundCacheSweepSeconds() );
+        sweeper.scheduleWithFixedDelay( this::sweep, period, period, TimeUnit.SECONDS );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        sweeper.shutdownNow();
+    }
+
+    @Override
+    public void addMissing( final ConcreteResource resource )
+    {
+        final long now = System.currentTimeMillis();
+        long timeout = Long.MAX_VALUE;
+        if ( config.getNotFoundCacheTimeoutSeconds() > 0 )
+        {
+            timeout = now + config.getNotFoundCacheTimeoutSeconds() * 1000;
+        }
+
+        final Location loc = resource.getLocation();
+        final Integer to = loc.getAttribute( RepositoryLocation.ATTR_NFC_TIMEOUT_SECONDS, Integer.class );
+        if ( to != null && to > 0 )
+        {
+            timeout = now + ( to * 1000 );
+        }
+
+        final long tstamp = timeout;
+        logger.info( "[NFC] '{}' will not be checked again until: {}", new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return normalize( resource.getLocationUri(), resource.getPath() );
+            }
+        }, new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return new SimpleDateFormat( TIMEOUT_FORMAT ).format( new Date( tstamp ) );
+            }
+        } );
+
+        missingWithTimeout.put( resource, new MissingEntry( timeout, now ) );
+        missingByLocation.compute( loc, ( l, resources ) -> {
+            final Set<ConcreteResource> result = resources == null ? ConcurrentHashMap.newKeySet() : resources;
+            result.add( resource );
+            return result;
+        } );
+
+        if ( missingWithTimeout.size() > config.getNotFoundCacheMaxSize() && sweepPending.compareAndSet( false, true ) )
+        {
+            try
+            {
+                sweeper.execute( this::sweep );
+            }
+            catch ( final RejectedExecutionException e )
+            {
+                // the cache is being destroyed; whatever is over the limit goes along with it.
+                sweepPending.set( false );
+                logger.debug( "NFC sweeper is shut down; not sweeping." );
+            }
+        }
+    }
+
+    @Override
+    public boolean isMissing( final ConcreteResource resource )
+    {
+        final MissingEntry entry = missingWithTimeout.get( resource );
+        boolean result = false;
+        if ( entry != null )
+        {
+            final long now = System.currentTimeMillis();
+            if ( now < entry.timeout )
+            {
+                entry.lastAccess = now;
+                result = true;
+            }
+            else
+            {
+                remove( resource, entry );
+            }
+        }
+
+        if ( result )
+        {
+            hits.mark();
+            ContentRetrievalMetrics.markNotFoundCacheHit( resource );
+        }
+        else
+        {
+            misses.mark();
+        }
+
+        logger.debug( "NFC check: {} result is: {}", resource, result );
+        return result;
+    }
+
+    @Override
+    public void clearMissing( final Location location )
+    {
+        final Set<ConcreteResource> resources = missingByLocation.remove( location );
+        if ( resources != null )
+        {
+            resources.forEach( missingWithTimeout::remove );
+        }
+    }
+
+    @Override
+    public void clearMissing( final ConcreteResource resource )
+    {
+        final MissingEntry entry = missingWithTimeout.get( resource );
+        if ( entry != null )
+        {
+            remove( resource, entry );
+        }
+    }
+
+    @Override
+    public void clearAllMissing()
+    {
+        this.missingByLocation.clear();
+        this.missingWithTimeout.clear();
+    }
+
+    @Override
+    public Map<Location, Set<String>> getAllMissing()
+    {
+        final Map<Location, Set<String>> result = new HashMap<Location, Set<String>>();
+        for ( final Location loc : missingByLocation.keySet() )
+        {
+            final Set<String> paths = getMissing( loc );
+            if ( !paths.isEmpty() )
+            {
+                result.put( loc, paths );
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Set<String> getMissing( final Location location )
+    {
+        final Set<String> paths = new HashSet<String>();
+        final Set<ConcreteResource> resources = missingByLocation.get( location );
+        if ( resources == null )
+        {
+            return paths;
+        }
+
+        final long now = System.currentTimeMillis();
+        for ( final ConcreteResource resource : resources )
+        {
+            final MissingEntry entry = missingWithTimeout.get( resource );
+            if ( entry == null )
+            {
+                // left behind by a concurrent clearMissing( Location )
+                resources.remove( resource );
+                continue;
+            }
+
+            if ( now < entry.timeout )
+            {
+                paths.add( resource.getPath() );
+            }
+            else
+            {
+                remove( resource, entry );
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Remove expired records, then evict the least-recently used records until the cache is back within its
+     * configured maximum size. This runs on the background sweeper thread.
+     */
+    protected void sweep()
+    {
+        sweepPending.set( false );
+        try
+        {
+            final long now = System.currentTimeMillis();
+            missingWithTimeout.forEach( ( resource, entry ) -> {
+                if ( now >= entry.timeout )
+                {
+                    remove( resource, entry );
+                }
+            } );
+
+            final int excess = missingWithTimeout.size() - config.getNotFoundCacheMaxSize();
+            if ( excess <= 0 )
+            {
+                return;
+            }
+
+            // keep the 'excess' least-recently used records, with the most recent of them at the head so it can be
+            // displaced cheaply when an older record turns up.
+            final PriorityQueue<Map.Entry<ConcreteResource, MissingEntry>> oldest =
+                    new PriorityQueue<>( excess, MOST_RECENT_FIRST );
+
+            for ( final Map.Entry<ConcreteResource, MissingEntry> e : missingWithTimeout.entrySet() )
+            {
+                if ( oldest.size() < excess )
+                {
+                    oldest.add( e );
+                }
+                else if ( e.getValue().lastAccess < oldest.peek().getValue().lastAccess )
+                {
+                    oldest.poll();
+                    oldest.add( e );
+                }
+            }
+
+            logger.debug( "[NFC] Evicting {} least-recently used records", oldest.size() );
+            oldest.forEach( e -> {
+                if ( remove( e.getKey(), e.getValue() ) )
+                {
+                    evictions.mark();
+                }
+            } );
+        }
+        catch ( final RuntimeException e )
+        {
+            logger.error( "[NFC] Sweep failed: " + e.getMessage(), e );
+        }
+    }
+
+    private boolean remove( final ConcreteResource resource, final MissingEntry entry )
+    {
+        if ( !missingWithTimeout.remove( resource, entry ) )
+        {
+            return false;
+        }
+
+        missingByLocation.computeIfPresent( resource.getLocation(), ( l, resources ) -> {
+            // a concurrent addMissing() may have re-added the resource after we removed the old entry
+            if ( !missingWithTimeout.containsKey( resource ) )
+            {
+                resources.remove( resource );
+            }
+
+            return resources.isEmpty() ? null : resources;
+        } );
+
+        return true;
+    }
+
+    private static final class MissingEntry
+    {
+        private final long timeout;
+
+        private volatile long lastAccess;
+
+        MissingEntry( final long timeout, final long lastAccess )
+        {
+            this.timeout = timeout;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+}
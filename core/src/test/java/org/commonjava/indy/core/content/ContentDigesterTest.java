@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.content.ArtifactData;
+import org.commonjava.indy.content.ArtifactDataCache;
+import org.commonjava.indy.content.ContentDigest;
+import org.commonjava.indy.content.ContentDigester;
+import org.commonjava.indy.content.DigestingTransferDecorator;
+import org.commonjava.indy.content.IndyLocationExpander;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.GalleyCore;
+import org.commonjava.maven.galley.GalleyCoreBuilder;
+import org.commonjava.maven.galley.cache.FileCacheProviderFactory;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.enterprise.inject.Alternative;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ContentDigesterTest
+{
+    private static final String CONTENT = "This is a test artifact.";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private DefaultDownloadManager downloadManager;
+
+    private StoreDataManager storeManager;
+
+    private MapArtifactDataCache artifactDataCache;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        artifactDataCache = new MapArtifactDataCache();
+
+        GalleyCore core = new GalleyCoreBuilder( new FileCacheProviderFactory( temp.newFolder( "cache" ) ) ).withTransferDecorator(
+                new DigestingTransferDecorator( artifactDataCache ) ).build();
+
+        storeManager = new MemoryStoreDataManager( true );
+
+        downloadManager = new DefaultDownloadManager( storeManager, core.getTransferManager(),
+                                                      new IndyLocationExpander( storeManager ) );
+    }
+
+    @Test
+    public void digestsAreComputedWhileStoring()
+            throws Exception
+    {
+        HostedRepository hosted = new HostedRepository( "one" );
+        storeManager.storeArtifactStore( hosted, new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" ) );
+
+        String path = "/org/foo/bar/1/bar-1.jar";
+        downloadManager.store( hosted, path, new ByteArrayInputStream( CONTENT.getBytes( StandardCharsets.UTF_8 ) ),
+                               TransferOperation.UPLOAD );
+
+        ArtifactData recorded = artifactDataCache.get( hosted.getKey(), path );
+        assertThat( recorded, notNullValue() );
+        assertThat( recorded.getSize(), equalTo( (long) CONTENT.length() ) );
+        assertThat( recorded.getDigests().get( ContentDigest.MD5 ), equalTo( DigestUtils.md5Hex( CONTENT ) ) );
+        assertThat( recorded.getDigests().get( ContentDigest.SHA_1 ), equalTo( DigestUtils.shaHex( CONTENT ) ) );
+        assertThat( recorded.getDigests().get( ContentDigest.SHA_256 ), equalTo( DigestUtils.sha256Hex( CONTENT ) ) );
+
+        ArtifactData digested = new ContentDigester( downloadManager, artifactDataCache ).digest( hosted.getKey(), path,
+                                                                                                 ContentDigest.MD5 );
+        assertThat( digested.getDigests().size(), equalTo( 1 ) );
+        assertThat( digested.getDigests().get( ContentDigest.MD5 ), equalTo( DigestUtils.md5Hex( CONTENT ) ) );
+    }
+
+    @Test
+    public void digesterFallsBackToReadingContentWhenRecordIsMissing()
+            throws Exception
+    {
+        HostedRepository hosted = new HostedRepository( "one" );
+        storeManager.storeArtifactStore( hosted, new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" ) );
+
+        String path = "/org/foo/bar/1/bar-1.pom";
+        downloadManager.store( hosted, path, new ByteArrayInputStream( CONTENT.getBytes( StandardCharsets.UTF_8 ) ),
+                               TransferOperation.UPLOAD );
+
+        artifactDataCache.remove( hosted.getKey(), path );
+        assertThat( artifactDataCache.get( hosted.getKey(), path ), nullValue() );
+
+        ArtifactData digested = new ContentDigester( downloadManager, artifactDataCache ).digest( hosted.getKey(), path,
+                                                                                                 ContentDigest.values() );
+        assertThat( digested.getSize(), equalTo( (long) CONTENT.length() ) );
+        assertThat( digested.getDigests().get( ContentDigest.SHA_256 ), equalTo( DigestUtils.sha256Hex( CONTENT ) ) );
+
+        // the full read should have repopulated the record
+        assertThat( artifactDataCache.get( hosted.getKey(), path ), notNullValue() );
+    }
+
+    @Alternative
+    private static final class MapArtifactDataCache
+            implements ArtifactDataCache
+    {
+        private final Map<String, ArtifactData> data = new ConcurrentHashMap<>();
+
+        @Override
+        public ArtifactData get( final StoreKey key, final String path )
+        {
+            return data.get( key + path );
+        }
+
+        @Override
+        public void put( final StoreKey key, final String path, final ArtifactData artifactData )
+        {
+            data.put( key + path, artifactData );
+        }
+
+        @Override
+        public void remove( final StoreKey key, final String path )
+        {
+            data.remove( key + path );
+        }
+    }
+}
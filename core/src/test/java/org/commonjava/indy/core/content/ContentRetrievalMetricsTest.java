@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics.Outcome;
+import org.commonjava.indy.core.content.ContentRetrievalMetrics.PathClass;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.SimpleLocation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ContentRetrievalMetricsTest
+{
+
+    private MetricRegistry registry;
+
+    private ContentRetrievalMetrics metrics;
+
+    @Before
+    public void setup()
+    {
+        registry = new MetricRegistry();
+        metrics = new ContentRetrievalMetrics( registry, new SpecialPathManagerImpl() );
+    }
+
+    @Test
+    public void classifyPaths()
+    {
+        assertThat( metrics.classify( "/org/foo/bar/1/bar-1.jar" ), equalTo( PathClass.ARTIFACT ) );
+        assertThat( metrics.classify( "/org/foo/bar/maven-metadata.xml" ), equalTo( PathClass.METADATA ) );
+        assertThat( metrics.classify( "/org/foo/bar/1/bar-1.jar.sha1" ), equalTo( PathClass.CHECKSUM ) );
+        assertThat( metrics.classify( "/org/foo/bar/maven-metadata.xml.md5" ), equalTo( PathClass.CHECKSUM ) );
+    }
+
+    @Test
+    public void recordByTypeAndStore()
+    {
+        final StoreKey key = new StoreKey( StoreType.remote, "central.repo" );
+        metrics.record( key, "/org/foo/bar/1/bar-1.jar", Outcome.REMOTE_FETCH, TimeUnit.MILLISECONDS.toNanos( 5 ) );
+        metrics.recordBytes( key, "/org/foo/bar/1/bar-1.jar", 100 );
+        metrics.record( key, "/org/foo/bar/1/bar-1.pom", Outcome.REMOTE_FETCH, TimeUnit.MILLISECONDS.toNanos( 5 ) );
+        metrics.recordBytes( key, "/org/foo/bar/1/bar-1.pom", 20 );
+
+        assertThat( registry.timer( name( ContentRetrievalMetrics.class, "type", "remote", "artifact", "remote_fetch" ) )
+                            .getCount(), equalTo( 2L ) );
+        assertThat( registry.timer( name( ContentRetrievalMetrics.class, "store", "remote-central_repo",
+                                          "remote_fetch" ) ).getCount(), equalTo( 2L ) );
+        assertThat( registry.meter( name( ContentRetrievalMetrics.class, "store", "remote-central_repo", "bytes" ) )
+                            .getCount(), equalTo( 120L ) );
+    }
+
+    @Test
+    public void downloadMarkIsTakenOnceAndOnlyForItsStore()
+    {
+        final StoreKey central = new StoreKey( StoreType.remote, "central" );
+        final StoreKey other = new StoreKey( StoreType.remote, "other" );
+        final EventMetadata eventMetadata = new EventMetadata();
+
+        ContentRetrievalMetrics.markDownloaded( eventMetadata, central );
+
+        assertThat( ContentRetrievalMetrics.takeDownloaded( eventMetadata, other ), equalTo( false ) );
+        assertThat( ContentRetrievalMetrics.takeDownloaded( eventMetadata, central ), equalTo( true ) );
+        assertThat( ContentRetrievalMetrics.takeDownloaded( eventMetadata, central ), equalTo( false ) );
+        assertThat( ContentRetrievalMetrics.takeDownloaded( null, central ), equalTo( false ) );
+    }
+
+    @Test
+    public void notFoundCacheHitIsTakenOnceAndOnlyForItsResource()
+    {
+        final ConcreteResource resource =
+                new ConcreteResource( new SimpleLocation( "http://repo.example.com/" ), "/org/foo/bar/1/bar-1.jar" );
+        final ConcreteResource other =
+                new ConcreteResource( new SimpleLocation( "http://repo.example.com/" ), "/org/foo/bar/1/bar-1.pom" );
+
+        ContentRetrievalMetrics.markNotFoundCacheHit( resource );
+        assertThat( ContentRetrievalMetrics.takeNotFoundCacheHit( other ), equalTo( false ) );
+
+        ContentRetrievalMetrics.markNotFoundCacheHit( resource );
+        assertThat( ContentRetrievalMetrics.takeNotFoundCacheHit( resource ), equalTo( true ) );
+        assertThat( ContentRetrievalMetrics.takeNotFoundCacheHit( resource ), equalTo( false ) );
+    }
+
+    @Test
+    public void storesBeyondLimitAreFolded()
+    {
+        for ( int i = 0; i < ContentRetrievalMetrics.MAX_TRACKED_STORES + 10; i++ )
+        {
+            metrics.record( new StoreKey( StoreType.hosted, "h" + i ), "/foo.jar", Outcome.MISS, 1000 );
+        }
+
+        final String otherTimer =
+                name( ContentRetrievalMetrics.class, "store", ContentRetrievalMetrics.OTHER_STORES, "miss" );
+        assertThat( registry.getTimers().get( otherTimer ).getCount(), equalTo( 10L ) );
+        final String untracked = name( ContentRetrievalMetrics.class, "store",
+                                       "hosted-h" + ContentRetrievalMetrics.MAX_TRACKED_STORES, "miss" );
+        assertThat( registry.getTimers().get( untracked ), nullValue() );
+    }
+}
@@ -15,15 +15,124 @@
  */
 package org.commonjava.indy.core.content;
 
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.content.ContentGenerator;
+import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.nfc.MemoryNotFoundCache;
+import org.commonjava.maven.galley.testing.core.CoreFixture;
+import org.junit.Rule;
 import org.junit.Test;
 
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
 public class DefaultContentManagerTest
 {
 
+    private static final String PATH = "/org/foo/bar/1/bar-1.pom";
+
+    @Rule
+    public CoreFixture fixture = new CoreFixture();
+
     @Test
     public void hexOfZero()
     {
         System.out.println( Integer.toHexString( 0x00 & 0xff ) );
     }
 
+    @Test
+    public void hedgedRetrievalStillTriesMemberWhoseProbeFailed()
+            throws Exception
+    {
+        fixture.initMissingComponents();
+
+        final HostedRepository hosted = new HostedRepository( "hosted" );
+        final RemoteRepository flaky = new RemoteRepository( "flaky", "http://flaky.example.invalid/" );
+        final RemoteRepository backup = new RemoteRepository( "backup", "http://backup.example.invalid/" );
+
+        final Group group = new Group( "public", hosted.getKey(), flaky.getKey(), backup.getKey() );
+        group.setMetadata( Group.METADATA_HEDGED_RETRIEVAL, "true" );
+
+        final MemoryStoreDataManager storeManager = new MemoryStoreDataManager( true );
+        final ChangeSummary summary = new ChangeSummary( ChangeSummary.SYSTEM_USER, "test setup" );
+        for ( ArtifactStore store : Arrays.asList( hosted, flaky, backup, group ) )
+        {
+            storeManager.storeArtifactStore( store, summary, new EventMetadata() );
+        }
+
+        // both remotes have the content, but probing 'flaky' fails; it still has to win, since it comes first.
+        final List<String> retrieved = new CopyOnWriteArrayList<>();
+        final DownloadManager downloadManager =
+                (DownloadManager) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                          new Class<?>[] { DownloadManager.class },
+                                                          ( proxy, method, args ) -> {
+                                                              ArtifactStore store = (ArtifactStore) args[0];
+                                                              switch ( method.getName() )
+                                                              {
+                                                                  case "checkExists":
+                                                                      if ( store == flaky )
+                                                                      {
+                                                                          throw new IndyWorkflowException(
+                                                                                  "Timed out probing: %s",
+                                                                                  store.getKey() );
+                                                                      }
+                                                                      return store == backup;
+                                                                  case "retrieve":
+                                                                      retrieved.add( store.getName() );
+                                                                      return store == hosted ? null : transfer(
+                                                                              store );
+                                                                  default:
+                                                                      throw new UnsupportedOperationException(
+                                                                              method.getName() );
+                                                              }
+                                                          } );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final DefaultContentManager contentManager =
+                    new DefaultContentManager( storeManager, downloadManager, new IndyObjectMapper( true ),
+                                               new SpecialPathManagerImpl(), new MemoryNotFoundCache(), null,
+                                               Collections.<ContentGenerator>emptySet(), executor,
+                                               new MetricRegistry() );
+
+            final Transfer result = contentManager.retrieve( group, PATH, new EventMetadata() );
+
+            assertThat( result, notNullValue() );
+            assertThat( result.getLocation().getName(), equalTo( LocationUtils.toLocation( flaky ).getName() ) );
+            assertThat( retrieved, equalTo( Arrays.asList( "hosted", "flaky" ) ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private Transfer transfer( final ArtifactStore store )
+    {
+        return fixture.getCache().getTransfer( new ConcreteResource( LocationUtils.toLocation( store ), PATH ) );
+    }
+
 }
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class HedgedMemberProbesTest
+{
+
+    private static final String PATH = "/org/foo/bar/1/bar-1.pom";
+
+    private final HostedRepository hosted = new HostedRepository( "hosted" );
+
+    private final RemoteRepository missing = new RemoteRepository( "missing", "http://missing.example.invalid/" );
+
+    private final RemoteRepository present = new RemoteRepository( "present", "http://present.example.invalid/" );
+
+    private final RemoteRepository flaky = new RemoteRepository( "flaky", "http://flaky.example.invalid/" );
+
+    private final List<ArtifactStore> members = Arrays.asList( hosted, missing, present );
+
+    private final Set<String> probed = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+
+    private MetricRegistry registry;
+
+    private Meter probes;
+
+    private Meter wasted;
+
+    private Histogram timeSaved;
+
+    @Before
+    public void setup()
+    {
+        executor = Executors.newFixedThreadPool( 2 );
+        registry = new MetricRegistry();
+        probes = registry.meter( "probes" );
+        wasted = registry.meter( "wasted" );
+        timeSaved = registry.histogram( "time-saved" );
+    }
+
+    @After
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void probesRemoteMembersAheadAndReportsMissingOnes()
+    {
+        HedgedMemberProbes hedged = newProbes( 2 );
+
+        hedged.advance( 0 );
+        assertThat( hedged.consume( 0 ), nullValue() );
+        assertThat( probes.getCount(), equalTo( 2L ) );
+
+        hedged.advance( 1 );
+        assertThat( hedged.consume( 1 ), equalTo( Boolean.FALSE ) );
+
+        hedged.advance( 2 );
+        assertThat( hedged.consume( 2 ), equalTo( Boolean.TRUE ) );
+
+        hedged.finish();
+
+        assertThat( probed, equalTo( new HashSet<>( Arrays.asList( "missing", "present" ) ) ) );
+        assertThat( probes.getCount(), equalTo( 2L ) );
+
+        // the probe for 'present' didn't save the GET, so it counts as wasted
+        assertThat( wasted.getCount(), equalTo( 1L ) );
+        assertThat( timeSaved.getCount(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void unusedProbesAreCountedAsWasted()
+            throws Exception
+    {
+        HedgedMemberProbes hedged = newProbes( 5 );
+
+        hedged.advance( 0 );
+
+        executor.shutdown();
+        executor.awaitTermination( 5, TimeUnit.SECONDS );
+
+        // the hosted member satisfied the request
+        hedged.finish();
+
+        assertThat( probes.getCount(), equalTo( 2L ) );
+        assertThat( wasted.getCount(), equalTo( 2L ) );
+    }
+
+    @Test
+    public void probesOnlyWithinWidth()
+    {
+        HedgedMemberProbes hedged = newProbes( 1 );
+
+        hedged.advance( 0 );
+        assertThat( probes.getCount(), equalTo( 1L ) );
+        assertThat( hedged.consume( 2 ), nullValue() );
+
+        hedged.finish();
+    }
+
+    @Test
+    public void failedProbeLeavesMemberUnknown()
+    {
+        HedgedMemberProbes hedged =
+                new HedgedMemberProbes( Arrays.asList( hosted, flaky, present ), PATH, 2, store -> true,
+                                        stubDownloadManager(), executor, probes, wasted, timeSaved );
+
+        hedged.advance( 0 );
+        assertThat( hedged.consume( 0 ), nullValue() );
+
+        // the probe error must not read as "missing", or the member's own retrieval would be skipped.
+        hedged.advance( 1 );
+        assertThat( hedged.consume( 1 ), nullValue() );
+
+        hedged.advance( 2 );
+        assertThat( hedged.consume( 2 ), equalTo( Boolean.TRUE ) );
+
+        hedged.finish();
+
+        assertThat( probed, equalTo( new HashSet<>( Arrays.asList( "flaky", "present" ) ) ) );
+        assertThat( wasted.getCount(), equalTo( 2L ) );
+    }
+
+    private HedgedMemberProbes newProbes( final int width )
+    {
+        return new HedgedMemberProbes( members, PATH, width, store -> true, stubDownloadManager(), executor, probes,
+                                       wasted, timeSaved );
+    }
+
+    private DownloadManager stubDownloadManager()
+    {
+        return (DownloadManager) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                         new Class<?>[] { DownloadManager.class },
+                                                         ( proxy, method, args ) -> {
+                                                             if ( "checkExists".equals( method.getName() ) )
+                                                             {
+                                                                 ArtifactStore store = (ArtifactStore) args[0];
+                                                                 probed.add( store.getName() );
+                                                                 if ( store == flaky )
+                                                                 {
+                                                                     throw new IndyWorkflowException(
+                                                                             "Timed out probing: %s",
+                                                                             store.getKey() );
+                                                                 }
+                                                                 return store == present;
+                                                             }
+
+                                                             throw new UnsupportedOperationException(
+                                                                     method.getName() );
+                                                         } );
+    }
+}
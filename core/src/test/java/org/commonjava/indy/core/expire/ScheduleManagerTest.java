@@ -15,18 +15,49 @@
  */
 package org.commonjava.indy.core.expire;
 
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.core.conf.IndySchedulerConfig;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.enterprise.event.Event;
+import java.lang.reflect.Proxy;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static org.commonjava.indy.core.expire.ScheduleManager.CONTENT_JOB_TYPE;
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -34,6 +65,239 @@ import static org.junit.Assert.assertTrue;
  */
 public class ScheduleManagerTest
 {
+    private final StoreKey remoteKey = new StoreKey( StoreType.remote, "remote" );
+
+    private final StoreKey otherKey = new StoreKey( StoreType.remote, "other" );
+
+    private EmbeddedCacheManager cacheManager;
+
+    private Cache<ScheduleKey, Map> cache;
+
+    private ScheduleManager scheduleManager;
+
+    private RemoteRepository remote;
+
+    private ExecutorService rescheduleExecutor;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        MemoryStoreDataManager stores = new MemoryStoreDataManager( true );
+        remote = new RemoteRepository( remoteKey.getName(), "http://foo.bar/" );
+        remote.setCacheTimeoutSeconds( 3600 );
+        stores.storeArtifactStore( remote, new ChangeSummary( ChangeSummary.SYSTEM_USER, "test" ),
+                                   new EventMetadata() );
+
+        rescheduleExecutor = Executors.newSingleThreadExecutor();
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().build() );
+        cache = cacheManager.getCache( "schedule", true );
+
+        @SuppressWarnings( "unchecked" )
+        Event<SchedulerEvent> events = (Event<SchedulerEvent>) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                                                      new Class<?>[] { Event.class },
+                                                                                      ( proxy, method, args ) -> null );
+
+        scheduleManager = new ScheduleManager( new IndySchedulerConfig(), new DefaultIndyConfiguration(), stores,
+                                               new SpecialPathManagerImpl(), new IndyObjectMapper( true ),
+                                               new CacheHandle<>( "schedule", cache ), events, rescheduleExecutor );
+        scheduleManager.init();
+    }
+
+    @After
+    public void teardown()
+    {
+        rescheduleExecutor.shutdownNow();
+        cacheManager.stop();
+    }
+
+    @Test
+    public void setProxyTimeoutsReplacesOnlyThatPath()
+            throws Exception
+    {
+        scheduleManager.setProxyTimeouts( remoteKey, "org/foo/1/foo-1.pom" );
+        scheduleManager.setProxyTimeouts( remoteKey, "org/foo/1/foo-1.jar" );
+        scheduleManager.setProxyTimeouts( remoteKey, "org/foo/1/foo-1.pom" );
+        scheduleContent( otherKey, 10 );
+
+        StoreKeyMatcher matcher = new StoreKeyMatcher( remoteKey, CONTENT_JOB_TYPE );
+        assertThat( scheduleManager.findMatchingExpirations( matcher ).getItems().size(), equalTo( 2 ) );
+
+        Set<ScheduleKey> canceled = scheduleManager.cancelAll( matcher );
+        assertThat( canceled.size(), equalTo( 2 ) );
+        assertThat( scheduleManager.findMatchingExpirations( matcher ).getItems().size(), equalTo( 0 ) );
+        assertThat( scheduleManager.findMatchingExpirations( new StoreKeyMatcher( otherKey, CONTENT_JOB_TYPE ) )
+                                   .getItems()
+                                   .size(), equalTo( 10 ) );
+    }
+
+    @Test
+    public void cancelTreatsAnyByValue()
+            throws Exception
+    {
+        scheduleContent( remoteKey, 3 );
+
+        // eg. a name read back from a request or deserialized, rather than the constant itself
+        String any = new String( ScheduleManager.ANY );
+
+        StoreKeyMatcher matcher = new StoreKeyMatcher( remoteKey, CONTENT_JOB_TYPE );
+        assertThat( scheduleManager.cancel( matcher, any ).size(), equalTo( 3 ) );
+        assertThat( scheduleManager.findMatchingExpirations( matcher ).getItems().size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void deleteJobDropsItFromStoreMatches()
+            throws Exception
+    {
+        scheduleManager.setProxyTimeouts( remoteKey, "org/foo/1/foo-1.pom" );
+
+        assertThat( scheduleManager.deleteJob( ScheduleManager.groupName( remoteKey, CONTENT_JOB_TYPE ),
+                                               "org/foo/1/foo-1.pom" ), equalTo( true ) );
+        assertThat( scheduleManager.findFirstMatchingTrigger( new StoreKeyMatcher( remoteKey, CONTENT_JOB_TYPE ) ),
+                    equalTo( null ) );
+    }
+
+    /**
+     * Stands in for a benchmark: updating the timeout of one downloaded path should cost the same whether few or many
+     * other paths are scheduled.
+     */
+    @Test
+    public void proxyTimeoutCostDoesNotDependOnScheduleSize()
+            throws Exception
+    {
+        final int updates = 500;
+
+        scheduleContent( otherKey, 1000 );
+        timeProxyTimeoutUpdates( updates ); // warm up
+        long small = timeProxyTimeoutUpdates( updates );
+
+        scheduleContent( otherKey, 100000 );
+        long large = timeProxyTimeoutUpdates( updates );
+
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        logger.info( "{} timeout updates took {}ms with ~1k scheduled entries, {}ms with ~100k", updates,
+                     TimeUnit.NANOSECONDS.toMillis( small ), TimeUnit.NANOSECONDS.toMillis( large ) );
+
+        // a scan of the schedule cache per update would be ~100x slower here; leave plenty of room for noise.
+        assertTrue( "timeout updates slowed down with schedule size: " + small + "ns vs. " + large + "ns",
+                    large < small * 10 + TimeUnit.MILLISECONDS.toNanos( 200 ) );
+    }
+
+    private long timeProxyTimeoutUpdates( final int updates )
+            throws Exception
+    {
+        long start = System.nanoTime();
+        for ( int i = 0; i < updates; i++ )
+        {
+            scheduleManager.setProxyTimeouts( remoteKey, "org/foo/" + ( i % 50 ) + "/foo.jar" );
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void rescheduleProxyTimeoutsMovesEarlierExpirationsInBackground()
+            throws Exception
+    {
+        scheduleContent( remoteKey, 2500, 60 );
+        scheduleContent( otherKey, 10, 60 );
+        scheduleManager.setProxyTimeouts( remoteKey, "org/foo/1/foo-1.pom" );
+
+        remote.setCacheTimeoutSeconds( 7200 );
+        scheduleManager.rescheduleProxyTimeouts( remote );
+
+        RescheduleStatus status = awaitReschedule( remoteKey );
+        assertThat( status.getState(), equalTo( RescheduleStatus.State.DONE ) );
+        assertThat( status.getTotal(), equalTo( 2501L ) );
+        assertThat( status.getProcessed(), equalTo( 2501L ) );
+        assertThat( status.getRescheduled(), equalTo( 2501L ) );
+
+        ScheduleKey key = new ScheduleKey( remoteKey, CONTENT_JOB_TYPE, "org/bar/42/bar.jar" );
+        assertThat( cache.getAdvancedCache().getCacheEntry( key ).getMetadata().lifespan(),
+                    equalTo( TimeUnit.SECONDS.toMillis( 7200 ) ) );
+
+        ScheduleKey other = new ScheduleKey( otherKey, CONTENT_JOB_TYPE, "org/bar/1/bar.jar" );
+        assertThat( cache.getAdvancedCache().getCacheEntry( other ).getMetadata().lifespan(),
+                    equalTo( TimeUnit.SECONDS.toMillis( 60 ) ) );
+
+        assertThat( scheduleManager.findMatchingExpirations( new StoreKeyMatcher( remoteKey, CONTENT_JOB_TYPE ) )
+                                   .getItems()
+                                   .size(), equalTo( 2501 ) );
+    }
+
+    @Test
+    public void newerRescheduleSupersedesQueuedOne()
+            throws Exception
+    {
+        scheduleContent( remoteKey, 10, 60 );
+
+        CountDownLatch blocker = new CountDownLatch( 1 );
+        rescheduleExecutor.execute( () -> {
+            try
+            {
+                blocker.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+
+        remote.setCacheTimeoutSeconds( 7200 );
+        scheduleManager.rescheduleProxyTimeouts( remote );
+        assertThat( scheduleManager.getRescheduleStatus( remoteKey ).getState(),
+                    equalTo( RescheduleStatus.State.QUEUED ) );
+
+        remote.setCacheTimeoutSeconds( 9000 );
+        scheduleManager.rescheduleProxyTimeouts( remote );
+
+        // the download path isn't held up by queued reschedules
+        scheduleManager.setProxyTimeouts( remoteKey, "org/foo/1/foo-1.pom" );
+
+        blocker.countDown();
+
+        RescheduleStatus status = awaitReschedule( remoteKey );
+        assertThat( status.getState(), equalTo( RescheduleStatus.State.DONE ) );
+        assertThat( status.getTimeoutSeconds(), equalTo( 9000 ) );
+        assertThat( scheduleManager.getRescheduleStatuses().size(), equalTo( 1 ) );
+
+        ScheduleKey key = new ScheduleKey( remoteKey, CONTENT_JOB_TYPE, "org/bar/3/bar.jar" );
+        assertThat( cache.getAdvancedCache().getCacheEntry( key ).getMetadata().lifespan(),
+                    equalTo( TimeUnit.SECONDS.toMillis( 9000 ) ) );
+    }
+
+    private RescheduleStatus awaitReschedule( final StoreKey key )
+            throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( 30 );
+        RescheduleStatus status = scheduleManager.getRescheduleStatus( key );
+        while ( status != null && ( status.getState() == RescheduleStatus.State.QUEUED
+                || status.getState() == RescheduleStatus.State.RUNNING ) && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 20 );
+            status = scheduleManager.getRescheduleStatus( key );
+        }
+
+        assertNotNull( status );
+        return status;
+    }
+
+    private void scheduleContent( final StoreKey key, final int count )
+    {
+        scheduleContent( key, count, 3600 );
+    }
+
+    private void scheduleContent( final StoreKey key, final int count, final int lifespanSeconds )
+    {
+        Map<String, Object> data = new HashMap<>();
+        data.put( ScheduleManager.JOB_TYPE, CONTENT_JOB_TYPE );
+        data.put( ScheduleManager.SCHEDULE_TIME, System.currentTimeMillis() );
+        for ( int i = 0; i < count; i++ )
+        {
+            cache.put( new ScheduleKey( key, CONTENT_JOB_TYPE, "org/bar/" + i + "/bar.jar" ), data, lifespanSeconds,
+                       TimeUnit.SECONDS );
+        }
+    }
+
     @Test
     public void testCalculateNextExpireTime()
             throws Exception
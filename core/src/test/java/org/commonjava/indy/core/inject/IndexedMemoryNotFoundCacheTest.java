@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.model.SimpleLocation;
+import org.junit.Test;
+
+public class IndexedMemoryNotFoundCacheTest
+{
+
+    @Test
+    public void expireUsingConfiguredValue()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheTimeoutSeconds( 1 );
+
+        final IndexedMemoryNotFoundCache nfc = new IndexedMemoryNotFoundCache( config );
+
+        final ConcreteResource res = new ConcreteResource( new SimpleLocation( "test:uri" ), "/path/to/expired/object" );
+
+        nfc.addMissing( res );
+        assertThat( nfc.isMissing( res ), equalTo( true ) );
+
+        Thread.sleep( TimeUnit.SECONDS.toMillis( 1 ) );
+
+        assertThat( nfc.isMissing( res ), equalTo( false ) );
+
+        final Set<String> locMissing = nfc.getMissing( res.getLocation() );
+        assertThat( locMissing == null || locMissing.isEmpty(), equalTo( true ) );
+
+        final Map<Location, Set<String>> allMissing = nfc.getAllMissing();
+        assertThat( allMissing == null || allMissing.isEmpty(), equalTo( true ) );
+    }
+
+    @Test
+    public void expireUsingConfiguredValue_DirectCheckDoesntAffectAggregateChecks()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheTimeoutSeconds( 1 );
+
+        final IndexedMemoryNotFoundCache nfc = new IndexedMemoryNotFoundCache( config );
+
+        final ConcreteResource res = new ConcreteResource( new SimpleLocation( "test:uri" ), "/path/to/expired/object" );
+
+        nfc.addMissing( res );
+        assertThat( nfc.isMissing( res ), equalTo( true ) );
+
+        Thread.sleep( TimeUnit.SECONDS.toMillis( 1 ) );
+
+        Set<String> locMissing = nfc.getMissing( res.getLocation() );
+        assertThat( locMissing == null || locMissing.isEmpty(), equalTo( true ) );
+
+        Map<Location, Set<String>> allMissing = nfc.getAllMissing();
+        assertThat( allMissing == null || allMissing.isEmpty(), equalTo( true ) );
+
+        assertThat( nfc.isMissing( res ), equalTo( false ) );
+
+        locMissing = nfc.getMissing( res.getLocation() );
+        assertThat( locMissing == null || locMissing.isEmpty(), equalTo( true ) );
+
+        allMissing = nfc.getAllMissing();
+        assertThat( allMissing == null || allMissing.isEmpty(), equalTo( true ) );
+    }
+
+    @Test
+    public void clearLocationLeavesOtherLocationsAlone()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        final IndexedMemoryNotFoundCache nfc = new IndexedMemoryNotFoundCache( config );
+
+        final ConcreteResource first = new ConcreteResource( new SimpleLocation( "test:first" ), "/path/to/object" );
+        final ConcreteResource second = new ConcreteResource( new SimpleLocation( "test:second" ), "/path/to/object" );
+
+        nfc.addMissing( first );
+        nfc.addMissing( second );
+
+        nfc.clearMissing( first.getLocation() );
+
+        assertThat( nfc.isMissing( first ), equalTo( false ) );
+        assertThat( nfc.isMissing( second ), equalTo( true ) );
+        assertThat( nfc.getMissing( first.getLocation() ).isEmpty(), equalTo( true ) );
+        assertThat( nfc.getAllMissing().keySet().size(), equalTo( 1 ) );
+        assertThat( nfc.getAllMissing().get( second.getLocation() ), notNullValue() );
+    }
+
+    @Test
+    public void sweepEvictsLeastRecentlyUsedBeyondMaxSize()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheMaxSize( 2 );
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final IndexedMemoryNotFoundCache nfc = new IndexedMemoryNotFoundCache( config, metricRegistry );
+
+        // sweep only when told to below; a background sweep running alongside would evict a second record
+        nfc.shutdown();
+
+        final Location loc = new SimpleLocation( "test:uri" );
+        final ConcreteResource first = new ConcreteResource( loc, "/path/to/first" );
+        final ConcreteResource second = new ConcreteResource( loc, "/path/to/second" );
+        final ConcreteResource third = new ConcreteResource( loc, "/path/to/third" );
+
+        nfc.addMissing( first );
+        Thread.sleep( 5 );
+        nfc.addMissing( second );
+        Thread.sleep( 5 );
+
+        // touch the first record so the second one becomes the least-recently used
+        assertThat( nfc.isMissing( first ), equalTo( true ) );
+        Thread.sleep( 5 );
+
+        nfc.addMissing( third );
+        nfc.sweep();
+
+        assertThat( nfc.isMissing( first ), equalTo( true ) );
+        assertThat( nfc.isMissing( second ), equalTo( false ) );
+        assertThat( nfc.isMissing( third ), equalTo( true ) );
+        assertThat( nfc.getMissing( loc ).size(), equalTo( 2 ) );
+
+        assertThat( metricRegistry.meter( MetricRegistry.name( IndexedMemoryNotFoundCache.class, "evictions" ) )
+                                  .getCount() >= 1, equalTo( true ) );
+    }
+
+    @Test
+    public void addMissingStillWorksAfterShutdown()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheMaxSize( 1 );
+
+        final IndexedMemoryNotFoundCache nfc = new IndexedMemoryNotFoundCache( config );
+        nfc.shutdown();
+
+        final Location loc = new SimpleLocation( "test:uri" );
+        final ConcreteResource first = new ConcreteResource( loc, "/path/to/first" );
+        final ConcreteResource second = new ConcreteResource( loc, "/path/to/second" );
+
+        // going over the max size would normally queue a sweep on the (now stopped) sweeper
+        nfc.addMissing( first );
+        nfc.addMissing( second );
+
+        assertThat( nfc.isMissing( second ), equalTo( true ) );
+    }
+
+    @Test
+    public void addMissingSurvivesShutdownWhileAdding()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheMaxSize( 1 );
+
+        final Location loc = new SimpleLocation( "test:uri" );
+        final int threads = 4;
+        final ExecutorService adders = Executors.newFixedThreadPool( threads );
+        try
+        {
+            // the window between checking the sweeper and handing it a sweep is narrow, so destroy a cache many times
+            for ( int round = 0; round < 200; round++ )
+            {
+                final IndexedMemoryNotFoundCache nfc = new IndexedMemoryNotFoundCache( config );
+                final CountDownLatch started = new CountDownLatch( threads );
+                final AtomicBoolean stop = new AtomicBoolean( false );
+                final List<Future<?>> results = new ArrayList<>();
+                for ( int t = 0; t < threads; t++ )
+                {
+                    final int id = t;
+                    results.add( adders.submit( () -> {
+                        started.countDown();
+                        for ( int i = 0; !stop.get(); i++ )
+                        {
+                            nfc.addMissing( new ConcreteResource( loc, "/path/" + id + "/" + i ) );
+                        }
+                    } ) );
+                }
+
+                started.await();
+                nfc.shutdown();
+                stop.set( true );
+
+                for ( final Future<?> result : results )
+                {
+                    // rethrows anything addMissing threw, eg. a RejectedExecutionException from the stopped sweeper
+                    result.get( 10, TimeUnit.SECONDS );
+                }
+            }
+        }
+        finally
+        {
+            adders.shutdownNow();
+        }
+    }
+
+}
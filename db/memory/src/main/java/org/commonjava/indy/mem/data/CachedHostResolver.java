@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.mem.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Host to IP cache that never blocks its callers on DNS. Unknown or expired hosts are resolved in the background; until
+ * then, callers get the previous answer (or nothing). Failed lookups are cached for the same period, so an unresolvable
+ * host doesn't turn into a stream of lookups.
+ */
+final class CachedHostResolver
+{
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger( 0 );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> hostsByIp = new ConcurrentHashMap<>();
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final long timeoutMillis;
+
+    private final Executor executor;
+
+    CachedHostResolver( final long timeoutMillis )
+    {
+        this.timeoutMillis = timeoutMillis;
+
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor( 2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), ( r ) -> {
+                    final Thread t = new Thread( r, "indy-dns-resolver-" + THREAD_COUNTER.incrementAndGet() );
+                    t.setDaemon( true );
+                    return t;
+                } );
+        executor.allowCoreThreadTimeOut( true );
+        this.executor = executor;
+    }
+
+    CachedHostResolver( final long timeoutMillis, final Executor executor )
+    {
+        this.timeoutMillis = timeoutMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the last known IP address of the host, or null if it hasn't been resolved (yet). Schedules a background
+     * lookup if the host is unknown or its entry has expired.
+     */
+    String getIp( final String host )
+    {
+        final Resolution resolution = resolutions.get( host );
+        if ( resolution == null || resolution.expires < System.currentTimeMillis() )
+        {
+            refresh( host );
+        }
+
+        return resolution == null ? null : resolution.ip;
+    }
+
+    /**
+     * @return the hosts currently known to resolve to the given IP address.
+     */
+    Set<String> getHostsWithIp( final String ip )
+    {
+        final Set<String> hosts = hostsByIp.get( ip );
+        return hosts == null ? Collections.emptySet() : new HashSet<>( hosts );
+    }
+
+    private void refresh( final String host )
+    {
+        if ( !pending.add( host ) )
+        {
+            return;
+        }
+
+        executor.execute( () -> {
+            try
+            {
+                resolve( host );
+            }
+            finally
+            {
+                pending.remove( host );
+            }
+        } );
+    }
+
+    private void resolve( final String host )
+    {
+        String ip = null;
+        try
+        {
+            ip = InetAddress.getByName( host ).getHostAddress();
+        }
+        catch ( final UnknownHostException e )
+        {
+            logger.debug( "Failed to resolve: {}. Reason: {}", host, e.getMessage() );
+        }
+
+        final Resolution old = resolutions.put( host, new Resolution( ip, System.currentTimeMillis() + timeoutMillis ) );
+        final String oldIp = old == null ? null : old.ip;
+        if ( oldIp != null && !oldIp.equals( ip ) )
+        {
+            hostsByIp.computeIfPresent( oldIp, ( k, hosts ) -> {
+                hosts.remove( host );
+                return hosts.isEmpty() ? null : hosts;
+            } );
+        }
+
+        if ( ip != null )
+        {
+            hostsByIp.compute( ip, ( k, hosts ) -> {
+                final Set<String> result = hosts == null ? ConcurrentHashMap.newKeySet() : hosts;
+                result.add( host );
+                return result;
+            } );
+        }
+    }
+
+    private static final class Resolution
+    {
+        private final String ip;
+
+        private final long expires;
+
+        Resolution( final String ip, final long expires )
+        {
+            this.ip = ip;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.mem.data;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.StoreKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reverse index of group membership (member {@link StoreKey} to the keys of the groups that directly contain it), plus
+ * a cache of the transitive closure of that relation. {@link MemoryStoreDataManager} updates it as stores are stored
+ * and deleted, so membership queries don't have to scan every store definition.
+ */
+final class GroupMembershipIndex
+{
+
+    private final Map<StoreKey, Set<StoreKey>> membersByGroup = new ConcurrentHashMap<>();
+
+    private final Map<StoreKey, Set<StoreKey>> groupsByMember = new ConcurrentHashMap<>();
+
+    private final Map<StoreKey, Set<StoreKey>> affectedGroupsCache = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Re-index the membership of the given store, if it's a group. Membership changes are detected against the last
+     * indexed snapshot, not against the previous store instance, since callers sometimes modify the stored instance
+     * in place.
+     */
+    void update( final ArtifactStore store )
+    {
+        if ( !( store instanceof Group ) )
+        {
+            return;
+        }
+
+        final StoreKey groupKey = store.getKey();
+        final List<StoreKey> constituents = ( (Group) store ).getConstituents();
+        final Set<StoreKey> members =
+                constituents == null ? Collections.emptySet() : Collections.unmodifiableSet( new HashSet<>( constituents ) );
+
+        final Set<StoreKey> old = membersByGroup.put( groupKey, members );
+        reindex( groupKey, old == null ? Collections.emptySet() : old, members );
+    }
+
+    void remove( final StoreKey key )
+    {
+        final Set<StoreKey> old = membersByGroup.remove( key );
+        if ( old != null )
+        {
+            reindex( key, old, Collections.emptySet() );
+        }
+    }
+
+    void clear()
+    {
+        membersByGroup.clear();
+        groupsByMember.clear();
+        invalidate();
+    }
+
+    /**
+     * @return the keys of the groups that directly contain the given member.
+     */
+    Set<StoreKey> getGroupsContaining( final StoreKey member )
+    {
+        final Set<StoreKey> groups = groupsByMember.get( member );
+        return groups == null ? Collections.emptySet() : Collections.unmodifiableSet( new HashSet<>( groups ) );
+    }
+
+    /**
+     * @return the keys of every group that contains the given key, directly or through other groups.
+     */
+    Set<StoreKey> getGroupsAffectedBy( final StoreKey key )
+    {
+        Set<StoreKey> result = affectedGroupsCache.get( key );
+        if ( result != null )
+        {
+            return result;
+        }
+
+        final long start = version.get();
+        result = Collections.unmodifiableSet( computeGroupsAffectedBy( key ) );
+
+        affectedGroupsCache.put( key, result );
+        if ( version.get() != start )
+        {
+            // membership changed while we were walking the index; don't keep a possibly stale answer around.
+            affectedGroupsCache.remove( key, result );
+        }
+
+        return result;
+    }
+
+    private Set<StoreKey> computeGroupsAffectedBy( final StoreKey key )
+    {
+        final Set<StoreKey> result = new HashSet<>();
+        final List<StoreKey> toProcess = new ArrayList<>();
+        toProcess.add( key );
+
+        while ( !toProcess.isEmpty() )
+        {
+            final StoreKey next = toProcess.remove( toProcess.size() - 1 );
+            final Set<StoreKey> containing = groupsByMember.get( next );
+            if ( containing == null )
+            {
+                continue;
+            }
+
+            for ( final StoreKey group : containing )
+            {
+                if ( result.add( group ) )
+                {
+                    toProcess.add( group );
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void reindex( final StoreKey groupKey, final Set<StoreKey> oldMembers, final Set<StoreKey> newMembers )
+    {
+        boolean changed = false;
+        for ( final StoreKey member : oldMembers )
+        {
+            if ( !newMembers.contains( member ) )
+            {
+                groupsByMember.computeIfPresent( member, ( k, groups ) -> {
+                    groups.remove( groupKey );
+                    return groups.isEmpty() ? null : groups;
+                } );
+                changed = true;
+            }
+        }
+
+        for ( final StoreKey member : newMembers )
+        {
+            if ( !oldMembers.contains( member ) )
+            {
+                groupsByMember.compute( member, ( k, groups ) -> {
+                    final Set<StoreKey> result = groups == null ? ConcurrentHashMap.newKeySet() : groups;
+                    result.add( groupKey );
+                    return result;
+                } );
+                changed = true;
+            }
+        }
+
+        if ( changed )
+        {
+            invalidate();
+        }
+    }
+
+    private void invalidate()
+    {
+        version.incrementAndGet();
+        affectedGroupsCache.clear();
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.commonjava.indy.mem.data;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.change.event.ArtifactStoreUpdateType;
 import org.commonjava.indy.conf.DefaultIndyConfiguration;
@@ -29,15 +32,14 @@ import org.commonjava.indy.model.core.HostedRepository;
 import org.commonjava.indy.model.core.RemoteRepository;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
-import org.commonjava.indy.util.UrlInfo;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,14 +47,15 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static org.commonjava.indy.model.core.StoreType.remote;
 
 @ApplicationScoped
@@ -66,6 +69,14 @@ public class MemoryStoreDataManager
 
     private final Map<StoreKey, ReentrantLock> opLocks = new WeakHashMap<>();
 
+    private final GroupMembershipIndex groupMembership = new GroupMembershipIndex();
+
+    private final Map<GroupOrderingKey, List<ArtifactStore>> groupOrderings = new ConcurrentHashMap<>();
+
+    private final AtomicLong groupOrderingVersion = new AtomicLong();
+
+    private RemoteRepositoryUrlIndex remoteUrls;
+
     //    private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     @Inject
@@ -74,6 +85,13 @@ public class MemoryStoreDataManager
     @Inject
     private IndyConfiguration config;
 
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private Meter groupOrderingHits;
+
+    private Meter groupOrderingMisses;
+
     protected MemoryStoreDataManager()
     {
     }
@@ -82,12 +100,40 @@ public class MemoryStoreDataManager
     {
         this.dispatcher = new NoOpStoreEventDispatcher();
         this.config = new DefaultIndyConfiguration();
+        this.metricRegistry = new MetricRegistry();
+        init();
     }
 
     public MemoryStoreDataManager( final StoreEventDispatcher dispatcher, final IndyConfiguration config )
     {
         this.dispatcher = dispatcher;
         this.config = config;
+        this.metricRegistry = new MetricRegistry();
+        init();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        remoteUrls = new RemoteRepositoryUrlIndex(
+                new CachedHostResolver( TimeUnit.SECONDS.toMillis( config.getDnsCacheTimeoutSeconds() ) ) );
+
+        groupOrderingHits = metricRegistry.meter( name( MemoryStoreDataManager.class, "group-ordering", "hits" ) );
+        groupOrderingMisses = metricRegistry.meter( name( MemoryStoreDataManager.class, "group-ordering", "misses" ) );
+
+        final String hitRateName = name( MemoryStoreDataManager.class, "group-ordering", "hit-rate" );
+        if ( !metricRegistry.getGauges().containsKey( hitRateName ) )
+        {
+            metricRegistry.register( hitRateName, new RatioGauge()
+            {
+                @Override
+                protected Ratio getRatio()
+                {
+                    return Ratio.of( groupOrderingHits.getOneMinuteRate(),
+                                     groupOrderingHits.getOneMinuteRate() + groupOrderingMisses.getOneMinuteRate() );
+                }
+            } );
+        }
     }
 
     @Override
@@ -311,6 +357,9 @@ public class MemoryStoreDataManager
             preDelete( store, summary, true, eventMetadata );
 
             ArtifactStore removed = stores.remove( key );
+            groupMembership.remove( key );
+            remoteUrls.remove( key );
+            invalidateGroupOrderings( key );
             logger.trace( "Removed store: {}", removed );
 
             postDelete( store, summary, true, eventMetadata );
@@ -333,6 +382,10 @@ public class MemoryStoreDataManager
             throws IndyDataException
     {
         stores.clear();
+        groupMembership.clear();
+        remoteUrls.clear();
+        groupOrderingVersion.incrementAndGet();
+        groupOrderings.clear();
     }
 
     @Override
@@ -342,99 +395,22 @@ public class MemoryStoreDataManager
         Logger logger = LoggerFactory.getLogger( getClass() );
         logger.debug( "Getting groups containing: {}", repo );
 
-        Set<ArtifactStore> all = new HashSet<>( stores.values() );
-
-        Set<Group> result = all.parallelStream()
-                               .filter( ( store ) -> ( ( store instanceof Group ) && ( (Group) store ).getConstituents()
-                                                                                                      .contains(
-                                                                                                              repo ) ) )
-                               .map( ( store ) -> (Group) store )
-                               .collect( Collectors.toSet() );
-
-        return result;
+        return toGroups( groupMembership.getGroupsContaining( repo ) );
     }
 
     @Override
     public RemoteRepository findRemoteRepository( final String url )
     {
-
-        List<Map.Entry<StoreKey, ArtifactStore>> copy = new ArrayList<>( stores.entrySet() );
-
-        /*
-           This filter do these things:
-             * First compare ip, if ip same, and the path(without last slash) same too, the repo is found
-             * If ip not same, then compare the url without scheme and last slash (if has) to find the repo
-         */
-        UrlInfo temp = null;
-        try
+        for ( final StoreKey key : remoteUrls.find( url ) )
         {
-            temp = new UrlInfo( url );
-        }
-        catch ( IllegalArgumentException error )
-        {
-            logger.error( "Failed to find repository for: '{}'. Reason: {}", error, url, error.getMessage() );
-        }
-        final UrlInfo urlInfo = temp;
-        Predicate<Map.Entry<StoreKey, ArtifactStore>> findingRepoFilter = e -> {
-            if ( ( remote == e.getValue().getKey().getType() ) && urlInfo != null )
+            final ArtifactStore store = stores.get( key );
+            if ( store instanceof RemoteRepository )
             {
-                final String targetUrl = ( (RemoteRepository) e.getValue() ).getUrl();
-                UrlInfo targetUrlInfo = null;
-                try
-                {
-                    targetUrlInfo = new UrlInfo( targetUrl );
-                }
-                catch ( IllegalArgumentException error )
-                {
-                    logger.error( "Failed to find repository for: '{}'. Reason: {}", error, targetUrl, error.getMessage() );
-                }
-
-                if (  targetUrlInfo != null )
-                {
-                    String ipForUrl = null;
-                    String ipForTargetUrl = null;
-                    try
-                    {
-                        ipForUrl = urlInfo.getIpForUrl();
-                        ipForTargetUrl = targetUrlInfo.getIpForUrl();
-                        if ( ipForUrl != null && ipForUrl.equals( ipForTargetUrl ) )
-                        {
-                            if ( urlInfo.getFileWithNoLastSlash().equals( targetUrlInfo.getFileWithNoLastSlash() ) )
-                            {
-                                logger.debug( "Repository found because of same ip, url is {}, store key is {}", url,
-                                              e.getValue().getKey() );
-                                return true;
-                            }
-                            else
-                            {
-                                return false;
-                            }
-                        }
-                    }
-                    catch ( UnknownHostException ue )
-                    {
-                        logger.warn( "Failed to filter remote: ip fetch error.", ue );
-                    }
-
-                    logger.debug( "ip not same: ip for url:{}-{}; ip for searching repo: {}-{}", url, ipForUrl,
-                                  e.getValue().getKey(), ipForTargetUrl );
-
-                    if ( urlInfo.getUrlWithNoSchemeAndLastSlash()
-                                .equals( targetUrlInfo.getUrlWithNoSchemeAndLastSlash() ) )
-                    {
-                        logger.debug( "Repository found because of same host, url is {}, store key is {}", url,
-                                      e.getValue().getKey() );
-                        return true;
-                    }
-                }
+                return (RemoteRepository) store;
             }
+        }
 
-            return false;
-        };
-
-        Optional<RemoteRepository> found =
-                copy.stream().filter( findingRepoFilter ).map( ( e ) -> (RemoteRepository) e.getValue() ).findFirst();
-        return found.isPresent() ? found.get() : null;
+        return null;
     }
 
     @Override
@@ -505,45 +481,20 @@ public class MemoryStoreDataManager
         Logger logger = LoggerFactory.getLogger( getClass() );
         logger.debug( "Getting groups affected by: {}", keys );
 
-        Set<ArtifactStore> all = new HashSet<>( stores.values() );
-
-        List<StoreKey> toProcess = new ArrayList<>();
-        toProcess.addAll( keys.parallelStream().collect( Collectors.toSet() ) );
-
-        Set<StoreKey> processed = new HashSet<>();
-
-        Set<Group> groups = new HashSet<>();
+        Set<StoreKey> groupKeys = new HashSet<>();
+        keys.forEach( key -> groupKeys.addAll( groupMembership.getGroupsAffectedBy( key ) ) );
 
-        while ( !toProcess.isEmpty() )
-        {
-            // as long as we have another key to process, pop it off the list (remove it) and process it.
-            StoreKey next = toProcess.remove( 0 );
-            if ( processed.contains( next ) )
-            {
-                // if we've already handled this group (via another branch in the group membership tree, etc. then don't bother.
-                continue;
-            }
-
-            // use this to avoid reprocessing groups we've already encountered.
-            processed.add( next );
-
-            for ( ArtifactStore store : all )
-            {
-                if ( !processed.contains( store.getKey() ) && ( store instanceof Group ) )
-                {
-                    Group g = (Group) store;
-                    if ( g.getConstituents() != null && g.getConstituents().contains( next ) )
-                    {
-                        groups.add( g );
-
-                        // add this group as another one to process for groups that contain it...and recurse upwards
-                        toProcess.add( g.getKey() );
-                    }
-                }
-            }
-        }
+        return toGroups( groupKeys );
+    }
 
-        return groups;
+    private Set<Group> toGroups( final Collection<StoreKey> groupKeys )
+    {
+        // the index only holds keys; resolve them against the live definitions, in case a deletion is in flight.
+        return groupKeys.stream()
+                        .map( stores::get )
+                        .filter( store -> store instanceof Group )
+                        .map( store -> (Group) store )
+                        .collect( Collectors.toSet() );
     }
 
     private boolean store( final ArtifactStore store, final ChangeSummary summary, final boolean skipIfExists,
@@ -566,8 +517,22 @@ public class MemoryStoreDataManager
 
             if ( !skipIfExists || original == null )
             {
-                preStore( store, original, summary, original != null, fireEvents, eventMetadata );
+                // the membership index moves together with the store map, and both are in place before the
+                // pre-store event fires, so listeners looking up groups get the same answer a full scan would give.
                 final ArtifactStore old = stores.put( store.getKey(), store );
+                reindex( store );
+                try
+                {
+                    preStore( store, original, summary, original != null, fireEvents, eventMetadata );
+                }
+                catch ( final IndyDataException e )
+                {
+                    rollback( store, old );
+                    throw e;
+                }
+
+                // pre-store listeners may adjust the store in place (eg. implied repositories), so re-sync.
+                reindex( store );
                 try
                 {
                     postStore( store, original, summary, original != null, fireEvents, eventMetadata );
@@ -576,7 +541,7 @@ public class MemoryStoreDataManager
                 catch ( final IndyDataException e )
                 {
                     logger.error( "postStore() failed for: {}. Rolling back to old value: {}", store, old );
-                    stores.put( old.getKey(), old );
+                    rollback( store, old );
                 }
             }
 
@@ -588,6 +553,29 @@ public class MemoryStoreDataManager
         }
     }
 
+    private void reindex( final ArtifactStore store )
+    {
+        groupMembership.update( store );
+        remoteUrls.update( store );
+        invalidateGroupOrderings( store.getKey() );
+    }
+
+    private void rollback( final ArtifactStore store, final ArtifactStore old )
+    {
+        if ( old == null )
+        {
+            stores.remove( store.getKey() );
+            groupMembership.remove( store.getKey() );
+            remoteUrls.remove( store.getKey() );
+            invalidateGroupOrderings( store.getKey() );
+        }
+        else
+        {
+            stores.put( old.getKey(), old );
+            reindex( old );
+        }
+    }
+
     private ReentrantLock getOpLock( StoreKey key )
     {
         ReentrantLock opLock;
@@ -608,18 +596,52 @@ public class MemoryStoreDataManager
                                                   final boolean recurseGroups, final boolean enabledOnly )
             throws IndyDataException
     {
-        final Group master = (Group) stores.get( new StoreKey( StoreType.group, groupName ) );
+        final StoreKey groupKey = new StoreKey( StoreType.group, groupName );
+        final GroupOrderingKey orderingKey = new GroupOrderingKey( groupKey, includeGroups, recurseGroups, enabledOnly );
+
+        List<ArtifactStore> result = groupOrderings.get( orderingKey );
+        if ( result != null )
+        {
+            groupOrderingHits.mark();
+            return result;
+        }
+
+        groupOrderingMisses.mark();
+
+        final long version = groupOrderingVersion.get();
+        final Group master = (Group) stores.get( groupKey );
         if ( master == null )
         {
             return Collections.emptyList();
         }
 
-        final List<ArtifactStore> result = new ArrayList<>();
-        recurseGroup( master, result, new HashSet<>(), includeGroups, recurseGroups, enabledOnly );
+        final List<ArtifactStore> ordering = new ArrayList<>();
+        recurseGroup( master, ordering, new HashSet<>(), includeGroups, recurseGroups, enabledOnly );
+
+        result = Collections.unmodifiableList( ordering );
+        groupOrderings.put( orderingKey, result );
+        if ( groupOrderingVersion.get() != version )
+        {
+            // some store changed while we were walking the membership; don't cache what may be a stale ordering.
+            groupOrderings.remove( orderingKey, result );
+        }
 
         return result;
     }
 
+    /**
+     * Drop cached orderings for the given store (if it's a group) and for every group that contains it, directly or
+     * not. Called after the store map and the membership index reflect the change.
+     */
+    private void invalidateGroupOrderings( final StoreKey key )
+    {
+        final Set<StoreKey> affected = new HashSet<>( groupMembership.getGroupsAffectedBy( key ) );
+        affected.add( key );
+
+        groupOrderingVersion.incrementAndGet();
+        groupOrderings.keySet().removeIf( orderingKey -> affected.contains( orderingKey.groupKey ) );
+    }
+
     private void recurseGroup( final Group master, final List<ArtifactStore> result, final Set<StoreKey> seen,
                                final boolean includeGroups, final boolean recurseGroups, final boolean enabledOnly )
     {
@@ -677,4 +699,51 @@ public class MemoryStoreDataManager
                    .collect( Collectors.toList() );
     }
 
+    private static final class GroupOrderingKey
+    {
+        private final StoreKey groupKey;
+
+        private final boolean includeGroups;
+
+        private final boolean recurseGroups;
+
+        private final boolean enabledOnly;
+
+        GroupOrderingKey( final StoreKey groupKey, final boolean includeGroups, final boolean recurseGroups,
+                          final boolean enabledOnly )
+        {
+            this.groupKey = groupKey;
+            this.includeGroups = includeGroups;
+            this.recurseGroups = recurseGroups;
+            this.enabledOnly = enabledOnly;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof GroupOrderingKey ) )
+            {
+                return false;
+            }
+
+            final GroupOrderingKey that = (GroupOrderingKey) o;
+            return includeGroups == that.includeGroups && recurseGroups == that.recurseGroups
+                    && enabledOnly == that.enabledOnly && groupKey.equals( that.groupKey );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = groupKey.hashCode();
+            result = 31 * result + ( includeGroups ? 1 : 0 );
+            result = 31 * result + ( recurseGroups ? 1 : 0 );
+            result = 31 * result + ( enabledOnly ? 1 : 0 );
+            return result;
+        }
+    }
+
 }
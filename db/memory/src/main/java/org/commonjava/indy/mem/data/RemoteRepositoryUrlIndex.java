@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.mem.data;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.util.UrlInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of remote repositories by URL, used to answer {@link MemoryStoreDataManager#findRemoteRepository(String)}
+ * without walking every store. Repositories are indexed by URL without scheme and trailing slash, and by host plus
+ * path; the latter is joined with {@link CachedHostResolver} so that URLs whose hosts share an IP address still match
+ * the way they did when every lookup resolved both hosts inline.
+ */
+final class RemoteRepositoryUrlIndex
+{
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<StoreKey, UrlInfo> indexed = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<StoreKey>> byUrl = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<StoreKey>> byHostAndPath = new ConcurrentHashMap<>();
+
+    private final CachedHostResolver resolver;
+
+    RemoteRepositoryUrlIndex( final CachedHostResolver resolver )
+    {
+        this.resolver = resolver;
+    }
+
+    void update( final ArtifactStore store )
+    {
+        if ( !( store instanceof RemoteRepository ) )
+        {
+            return;
+        }
+
+        final StoreKey key = store.getKey();
+        final UrlInfo urlInfo = parse( ( (RemoteRepository) store ).getUrl() );
+
+        final UrlInfo old = urlInfo == null ? indexed.remove( key ) : indexed.put( key, urlInfo );
+        if ( old != null )
+        {
+            unindex( key, old );
+        }
+
+        if ( urlInfo != null )
+        {
+            addTo( byUrl, urlInfo.getUrlWithNoSchemeAndLastSlash(), key );
+            addTo( byHostAndPath, hostAndPath( urlInfo ), key );
+
+            // warm up the address cache, so the first lookup can already match on IP.
+            resolver.getIp( urlInfo.getHost() );
+        }
+    }
+
+    void remove( final StoreKey key )
+    {
+        final UrlInfo old = indexed.remove( key );
+        if ( old != null )
+        {
+            unindex( key, old );
+        }
+    }
+
+    void clear()
+    {
+        indexed.clear();
+        byUrl.clear();
+        byHostAndPath.clear();
+    }
+
+    /**
+     * Find the remote repositories matching the given URL. If the URL's host has a known IP address, a repository
+     * whose host resolves to the same address and whose path matches is preferred. Otherwise, URLs are compared
+     * without scheme and trailing slash.
+     */
+    Set<StoreKey> find( final String url )
+    {
+        final UrlInfo urlInfo = parse( url );
+        if ( urlInfo == null )
+        {
+            return Collections.emptySet();
+        }
+
+        final String ip = resolver.getIp( urlInfo.getHost() );
+        if ( ip != null )
+        {
+            final Set<StoreKey> result = new HashSet<>();
+            for ( final String host : resolver.getHostsWithIp( ip ) )
+            {
+                final Set<StoreKey> keys = byHostAndPath.get( host + urlInfo.getFileWithNoLastSlash() );
+                if ( keys != null )
+                {
+                    result.addAll( keys );
+                }
+            }
+
+            if ( !result.isEmpty() )
+            {
+                logger.debug( "Repositories found because of same ip, url is {}, store keys are {}", url, result );
+                return result;
+            }
+        }
+
+        final Set<StoreKey> keys = byUrl.get( urlInfo.getUrlWithNoSchemeAndLastSlash() );
+        if ( keys == null )
+        {
+            return Collections.emptySet();
+        }
+
+        logger.debug( "Repositories found because of same host, url is {}, store keys are {}", url, keys );
+        return new HashSet<>( keys );
+    }
+
+    private void unindex( final StoreKey key, final UrlInfo urlInfo )
+    {
+        removeFrom( byUrl, urlInfo.getUrlWithNoSchemeAndLastSlash(), key );
+        removeFrom( byHostAndPath, hostAndPath( urlInfo ), key );
+    }
+
+    private void addTo( final Map<String, Set<StoreKey>> index, final String indexKey, final StoreKey key )
+    {
+        index.compute( indexKey, ( k, keys ) -> {
+            final Set<StoreKey> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            result.add( key );
+            return result;
+        } );
+    }
+
+    private void removeFrom( final Map<String, Set<StoreKey>> index, final String indexKey, final StoreKey key )
+    {
+        index.computeIfPresent( indexKey, ( k, keys ) -> {
+            keys.remove( key );
+            return keys.isEmpty() ? null : keys;
+        } );
+    }
+
+    private String hostAndPath( final UrlInfo urlInfo )
+    {
+        return urlInfo.getHost() + urlInfo.getFileWithNoLastSlash();
+    }
+
+    private UrlInfo parse( final String url )
+    {
+        if ( url == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return new UrlInfo( url );
+        }
+        catch ( final IllegalArgumentException error )
+        {
+            logger.error( "Failed to index repository URL: '{}'. Reason: {}", url, error.getMessage() );
+            return null;
+        }
+    }
+}
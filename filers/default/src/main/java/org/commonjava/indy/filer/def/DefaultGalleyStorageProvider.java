@@ -17,6 +17,8 @@ package org.commonjava.indy.filer.def;
 
 import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.content.ArtifactDataCache;
+import org.commonjava.indy.content.DigestingTransferDecorator;
 import org.commonjava.indy.filer.def.conf.DefaultStorageProviderConfiguration;
 import org.commonjava.indy.model.galley.KeyedLocation;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
@@ -75,6 +77,9 @@ public class DefaultGalleyStorageProvider
     @Inject
     private SpecialPathManager specialPathManager;
 
+    @Inject
+    private ArtifactDataCache artifactDataCache;
+
     @ExecutorConfig( named = "indy-fast-local-executor", threads = 5, priority = 2, daemon = true )
     @WeftManaged
     @Inject
@@ -124,7 +129,10 @@ public class DefaultGalleyStorageProvider
 
         specialPathManager.registerSpecialPathInfo( infoSpi );
 
-        transferDecorator = new ChecksummingTransferDecorator( Collections.singleton( TransferOperation.GENERATE ),
+        // digesting sits innermost, so digests and size are computed over exactly the bytes written to storage.
+        transferDecorator = new DigestingTransferDecorator( artifactDataCache );
+        transferDecorator = new ChecksummingTransferDecorator( transferDecorator,
+                                                               Collections.singleton( TransferOperation.GENERATE ),
                                                                specialPathManager, new Md5GeneratorFactory(),
                                                                new Sha1GeneratorFactory(),
                                                                new Sha256GeneratorFactory() );
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.filer.def;
+
+import org.commonjava.indy.content.ArtifactData;
+import org.commonjava.indy.content.ArtifactDataCache;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.indy.subsys.infinispan.CacheProducer;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * {@link ArtifactDataCache} backed by the "indy-artifact-data" cache in infinispan.xml.
+ */
+@ApplicationScoped
+public class InfinispanArtifactDataCache
+        implements ArtifactDataCache
+{
+    private static final String ARTIFACT_DATA_CACHE = "indy-artifact-data";
+
+    @Inject
+    private CacheProducer cacheProducer;
+
+    private CacheHandle<String, ArtifactData> cache;
+
+    protected InfinispanArtifactDataCache()
+    {
+    }
+
+    public InfinispanArtifactDataCache( final CacheHandle<String, ArtifactData> cache )
+    {
+        this.cache = cache;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        cache = cacheProducer.getCache( ARTIFACT_DATA_CACHE, String.class, ArtifactData.class );
+    }
+
+    @Override
+    public ArtifactData get( final StoreKey key, final String path )
+    {
+        return cache.get( toCacheKey( key, path ) );
+    }
+
+    @Override
+    public void put( final StoreKey key, final String path, final ArtifactData data )
+    {
+        cache.put( toCacheKey( key, path ), data );
+    }
+
+    @Override
+    public void remove( final StoreKey key, final String path )
+    {
+        cache.remove( toCacheKey( key, path ) );
+    }
+
+    private String toCacheKey( final StoreKey key, final String path )
+    {
+        return key + ( path.startsWith( "/" ) ? path : "/" + path );
+    }
+}
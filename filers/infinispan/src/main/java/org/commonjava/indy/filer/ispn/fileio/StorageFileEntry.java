@@ -53,6 +53,13 @@ public class StorageFileEntry
         this.metadataInstance = new StorageFileMetadata( entry.getMetadata() );
     }
 
+    public StorageFileEntry( String path, StorageFileMetadata metadata, byte[] data )
+    {
+        this.path = path;
+        this.metadataInstance = metadata;
+        this.data = data;
+    }
+
     public StorageFileEntry()
     {
     }
@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.filer.ispn.fileio;
+
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.container.versioning.NumericVersion;
+import org.infinispan.metadata.InternalMetadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned binary layout for storage chunks written by {@link StorageFileIO}. Each file is a fixed-size header,
+ * followed by the UTF-8 key, an optional serialized {@link EntryVersion} (only for non-numeric versions), and the chunk
+ * bytes, either raw or deflated:
+ *
+ * <pre>
+ *  0  int   magic ("ISFE")
+ *  4  byte  format version
+ *  5  byte  flags (compressed, numeric version)
+ *  6  short reserved
+ *  8  long  expiry time
+ * 16  long  created
+ * 24  long  last used
+ * 32  long  lifespan
+ * 40  long  max idle
+ * 48  long  numeric version
+ * 56  int   key length
+ * 60  int   serialized version length (0 if there's no version, or it isn't numeric or serializable)
+ * 64  int   stored data length
+ * 68  int   raw data length
+ * </pre>
+ *
+ * Files written by earlier releases are GZIP'd Java serialization of {@link StorageFileEntry}; {@link #isLegacy(Path)}
+ * detects those so they can be migrated.
+ */
+public final class StorageFileFormat
+{
+    public static final int MAGIC = 0x49534645;
+
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final int HEADER_SIZE = 72;
+
+    private static final int EXPIRY_OFFSET = 8;
+
+    private static final byte FLAG_COMPRESSED = 0x1;
+
+    private static final byte FLAG_NUMERIC_VERSION = 0x2;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final String TEMP_SUFFIX = ".isfe-tmp";
+
+    private StorageFileFormat()
+    {
+    }
+
+    /**
+     * Write the entry to the given file, replacing any existing content. If {@code compress} is set the data is
+     * deflated, unless that doesn't make it any smaller. The entry is written to a temp file next to the target and
+     * moved into place, so readers (and a restart after a crash) see either the old file or the complete new one.
+     */
+    public static void write( final Path file, final String key, final InternalMetadata metadata, final byte[] data,
+                              final boolean compress )
+            throws IOException
+    {
+        byte flags = 0;
+        byte[] stored = data == null ? new byte[0] : data;
+        int storedLength = stored.length;
+        final int rawLength = stored.length;
+
+        if ( compress && rawLength > 0 )
+        {
+            final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+            try
+            {
+                deflater.setInput( stored );
+                deflater.finish();
+
+                final byte[] out = new byte[rawLength];
+                final int len = deflater.deflate( out );
+                if ( deflater.finished() && len < rawLength )
+                {
+                    stored = out;
+                    storedLength = len;
+                    flags |= FLAG_COMPRESSED;
+                }
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+
+        long numericVersion = 0;
+        byte[] versionBytes = new byte[0];
+        final EntryVersion version = metadata == null ? null : metadata.version();
+        if ( version instanceof NumericVersion )
+        {
+            flags |= FLAG_NUMERIC_VERSION;
+            numericVersion = ( (NumericVersion) version ).getVersion();
+        }
+        else if ( version instanceof Serializable )
+        {
+            versionBytes = serialize( version );
+        }
+
+        final byte[] keyBytes = key.getBytes( StandardCharsets.UTF_8 );
+
+        final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+        header.putInt( MAGIC );
+        header.put( FORMAT_VERSION );
+        header.put( flags );
+        header.putShort( (short) 0 );
+        header.putLong( metadata == null ? -1 : metadata.expiryTime() );
+        header.putLong( metadata == null ? -1 : metadata.created() );
+        header.putLong( metadata == null ? -1 : metadata.lastUsed() );
+        header.putLong( metadata == null ? -1 : metadata.lifespan() );
+        header.putLong( metadata == null ? -1 : metadata.maxIdle() );
+        header.putLong( numericVersion );
+        header.putInt( keyBytes.length );
+        header.putInt( versionBytes.length );
+        header.putInt( storedLength );
+        header.putInt( rawLength );
+        header.flip();
+
+        final ByteBuffer[] buffers = { header, ByteBuffer.wrap( keyBytes ), ByteBuffer.wrap( versionBytes ),
+                ByteBuffer.wrap( stored, 0, storedLength ) };
+
+        final Path temp = Files.createTempFile( file.getParent(), "." + file.getFileName(), TEMP_SUFFIX );
+        boolean moved = false;
+        try
+        {
+            try (FileChannel channel = FileChannel.open( temp, StandardOpenOption.WRITE ))
+            {
+                long remaining = 0;
+                for ( final ByteBuffer buffer : buffers )
+                {
+                    remaining += buffer.remaining();
+                }
+
+                while ( remaining > 0 )
+                {
+                    remaining -= channel.write( buffers );
+                }
+            }
+
+            try
+            {
+                Files.move( temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch ( final AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+            }
+
+            moved = true;
+        }
+        finally
+        {
+            if ( !moved )
+            {
+                Files.deleteIfExists( temp );
+            }
+        }
+    }
+
+    /**
+     * @return true if the file is an in-progress (or abandoned) write from {@link #write}, rather than a chunk.
+     */
+    public static boolean isTempFile( final Path file )
+    {
+        return file.getFileName().toString().endsWith( TEMP_SUFFIX );
+    }
+
+    /**
+     * Read an entry in the current format. The header is always read; metadata and data are only materialized when
+     * asked for, so key-only scans never touch the chunk bytes.
+     */
+    public static StorageFileEntry read( final Path file, final boolean readMetadata, final boolean readData )
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+        {
+            final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+            readFully( channel, header, file );
+            header.flip();
+
+            if ( header.getInt() != MAGIC )
+            {
+                throw new IOException( "Not a storage chunk file: " + file );
+            }
+
+            final byte formatVersion = header.get();
+            if ( formatVersion != FORMAT_VERSION )
+            {
+                throw new IOException( "Unsupported storage chunk format version: " + formatVersion + " in: " + file );
+            }
+
+            final byte flags = header.get();
+            header.getShort();
+
+            final long expiryTime = header.getLong();
+            final long created = header.getLong();
+            final long lastUsed = header.getLong();
+            final long lifespan = header.getLong();
+            final long maxIdle = header.getLong();
+            final long numericVersion = header.getLong();
+            final int keyLength = header.getInt();
+            final int versionLength = header.getInt();
+            final int storedLength = header.getInt();
+            final int rawLength = header.getInt();
+
+            final ByteBuffer keyBuffer = ByteBuffer.allocate( keyLength );
+            readFully( channel, keyBuffer, file );
+            final String key = new String( keyBuffer.array(), StandardCharsets.UTF_8 );
+
+            StorageFileMetadata metadata = null;
+            if ( readMetadata )
+            {
+                EntryVersion version = null;
+                if ( ( flags & FLAG_NUMERIC_VERSION ) != 0 )
+                {
+                    version = new NumericVersion( numericVersion );
+                }
+                else if ( versionLength > 0 )
+                {
+                    final ByteBuffer versionBuffer = ByteBuffer.allocate( versionLength );
+                    readFully( channel, versionBuffer, file );
+                    version = (EntryVersion) deserialize( versionBuffer.array(), file );
+                }
+
+                metadata = new StorageFileMetadata( created, expiryTime, lastUsed, lifespan, maxIdle, version );
+            }
+
+            byte[] data = null;
+            if ( readData )
+            {
+                channel.position( HEADER_SIZE + keyLength + versionLength );
+
+                final byte[] stored = new byte[storedLength];
+                readFully( channel, ByteBuffer.wrap( stored ), file );
+
+                data = ( flags & FLAG_COMPRESSED ) != 0 ? inflate( stored, rawLength, file ) : stored;
+            }
+
+            return new StorageFileEntry( key, metadata, data );
+        }
+    }
+
+    /**
+     * Read the expiry time from the fixed header without reading anything else.
+     */
+    public static long peekExpiryTime( final Path file )
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate( Long.BYTES );
+            channel.position( EXPIRY_OFFSET );
+            readFully( channel, buffer, file );
+            buffer.flip();
+            return buffer.getLong();
+        }
+    }
+
+    /**
+     * Whether the file was written in the legacy GZIP'd Java serialization format.
+     */
+    public static boolean isLegacy( final Path file )
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate( 2 );
+            while ( buffer.hasRemaining() )
+            {
+                if ( channel.read( buffer ) < 0 )
+                {
+                    return false;
+                }
+            }
+
+            final int magic = ( buffer.get( 0 ) & 0xff ) | ( ( buffer.get( 1 ) & 0xff ) << 8 );
+            return magic == GZIP_MAGIC;
+        }
+    }
+
+    private static void readFully( final FileChannel channel, final ByteBuffer buffer, final Path file )
+            throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer ) < 0 )
+            {
+                throw new EOFException( "Truncated storage chunk file: " + file );
+            }
+        }
+    }
+
+    private static byte[] inflate( final byte[] stored, final int rawLength, final Path file )
+            throws IOException
+    {
+        final Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput( stored );
+            final byte[] raw = new byte[rawLength];
+            int read = 0;
+            while ( read < rawLength && !inflater.finished() )
+            {
+                final int len = inflater.inflate( raw, read, rawLength - read );
+                if ( len == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    break;
+                }
+                read += len;
+            }
+
+            if ( read != rawLength )
+            {
+                throw new IOException( "Corrupt compressed storage chunk: " + file + " (expected " + rawLength
+                                               + " bytes, got " + read + ")" );
+            }
+
+            return raw;
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Corrupt compressed storage chunk: " + file, e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static byte[] serialize( final Object value )
+            throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream( baos ))
+        {
+            out.writeObject( value );
+        }
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize( final byte[] bytes, final Path file )
+            throws IOException
+    {
+        try (ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes ) ))
+        {
+            return in.readObject();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new IOException( "Cannot read entry version from: " + file, e );
+        }
+    }
+}
@@ -28,24 +28,27 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.context.ApplicationScoped;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * AdvancedCacheLoader / AdvancedCacheWriter implementation designed to preserve the directory structure (if not the exact content!)
  * of the storage filesystem. This enables things like new File(..).exists() to work properly.
+ * <p>
+ * Entries are written in the raw {@link StorageFileFormat} layout. Chunks of files whose extension is listed in the
+ * {@link #COMPRESSED_EXTENSIONS} property are deflated; everything else (jars, zips, etc.) is stored as-is. Entries
+ * still in the legacy GZIP'd serialization format are rewritten in the new layout the first time they're loaded.
  *
  * Created by jdcasey on 3/11/16.
  */
@@ -55,8 +58,16 @@ public class StorageFileIO
 {
     public static final String STORAGE_ROOT_DIR = "storage-root";
 
+    public static final String COMPRESSED_EXTENSIONS = "compressed-extensions";
+
+    public static final String DEFAULT_COMPRESSED_EXTENSIONS = "pom,xml,json,txt,properties,html";
+
+    private static final String CHUNK_SEPARATOR = ".#";
+
     private String storageRoot;
 
+    private Set<String> compressedExtensions;
+
     @Override
     public void init( InitializationContext ctx )
     {
@@ -69,6 +80,13 @@ public class StorageFileIO
             throw new RuntimeException( "No " + STORAGE_ROOT_DIR + " property provided for cache! Cannot initialize "
                                                 + getClass().getName() );
         }
+
+        compressedExtensions = new HashSet<>();
+        String extensions = properties.getProperty( COMPRESSED_EXTENSIONS, DEFAULT_COMPRESSED_EXTENSIONS );
+        Stream.of( extensions.split( "\\s*,\\s*" ) )
+              .map( String::trim )
+              .filter( ext -> !ext.isEmpty() )
+              .forEach( ext -> compressedExtensions.add( ext.toLowerCase() ) );
     }
 
     @Override
@@ -84,10 +102,9 @@ public class StorageFileIO
             throw new RuntimeException( "Cannot create storage directory: " + dir );
         }
 
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new GZIPOutputStream( new FileOutputStream( path.toFile() ) ) ))
+        try
         {
-            out.writeObject( new StorageFileEntry( entry ) );
+            StorageFileFormat.write( path, key, entry.getMetadata(), entry.getValue(), isCompressed( key ) );
         }
         catch ( IOException e )
         {
@@ -95,6 +112,33 @@ public class StorageFileIO
         }
     }
 
+    /**
+     * Decide whether a chunk should be deflated, based on the extension of the file it belongs to. GridFilesystem
+     * chunk keys look like: {@code /path/to/file.pom.#0}
+     */
+    boolean isCompressed( String key )
+    {
+        if ( compressedExtensions == null || compressedExtensions.isEmpty() )
+        {
+            return false;
+        }
+
+        String filePath = key;
+        int chunkIdx = filePath.lastIndexOf( CHUNK_SEPARATOR );
+        if ( chunkIdx > 0 )
+        {
+            filePath = filePath.substring( 0, chunkIdx );
+        }
+
+        int extIdx = filePath.lastIndexOf( '.' );
+        if ( extIdx < 0 || extIdx < filePath.lastIndexOf( '/' ) )
+        {
+            return false;
+        }
+
+        return compressedExtensions.contains( filePath.substring( extIdx + 1 ).toLowerCase() );
+    }
+
     @Override
     public boolean delete( Object key )
     {
@@ -115,9 +159,14 @@ public class StorageFileIO
             return null;
         }
 
-        try (ObjectInputStream in = new ObjectInputStream( new GZIPInputStream( new FileInputStream( file ) ) ))
+        try
         {
-            return (StorageFileEntry) in.readObject();
+            if ( StorageFileFormat.isLegacy( path ) )
+            {
+                return migrateLegacy( path );
+            }
+
+            return StorageFileFormat.read( path, true, true );
         }
         catch ( ClassNotFoundException | IOException e )
         {
@@ -125,6 +174,51 @@ public class StorageFileIO
         }
     }
 
+    /**
+     * Read an entry written in the legacy GZIP'd serialization format, and rewrite it in the current format. The
+     * rewrite replaces the legacy file atomically (see {@link StorageFileFormat#write}); if it fails, the legacy file
+     * is left alone and the entry is still returned.
+     */
+    private StorageFileEntry migrateLegacy( Path path )
+            throws IOException, ClassNotFoundException
+    {
+        StorageFileEntry entry;
+        try (ObjectInputStream in = new ObjectInputStream( new GZIPInputStream( new FileInputStream( path.toFile() ) ) ))
+        {
+            entry = (StorageFileEntry) in.readObject();
+        }
+
+        try
+        {
+            String key = entry.getKey();
+            StorageFileFormat.write( path, key, entry.getMetadata(), entry.getValue(), isCompressed( key ) );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            Logger logger = LoggerFactory.getLogger( getClass() );
+            logger.warn( "Cannot migrate legacy storage entry: " + path, e );
+        }
+
+        return entry;
+    }
+
+    private StorageFileEntry readEntry( Path path, boolean readMetadata, boolean readData )
+            throws IOException, ClassNotFoundException
+    {
+        if ( StorageFileFormat.isLegacy( path ) )
+        {
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new GZIPInputStream( new FileInputStream( path.toFile() ) ) ))
+            {
+                StorageFileEntry entry = new StorageFileEntry();
+                entry.load( in, readMetadata, readData );
+                return entry;
+            }
+        }
+
+        return StorageFileFormat.read( path, readMetadata, readData );
+    }
+
     private void logKey( String operation, Object key )
     {
         Logger logger = LoggerFactory.getLogger( getClass() );
@@ -165,11 +259,9 @@ public class StorageFileIO
                         return;
                     }
 
-                    try (ObjectInputStream in = new ObjectInputStream(
-                            new GZIPInputStream( new FileInputStream( path.toFile() ) ) ))
+                    try
                     {
-                        StorageFileEntry entry = new StorageFileEntry();
-                        entry.load( in, fetchMetadata, fetchValue );
+                        StorageFileEntry entry = readEntry( path, fetchMetadata, fetchValue );
 
                         StorageFileTaskContext ctx = new StorageFileTaskContext();
                         task.processEntry( entry, ctx );
@@ -233,10 +325,20 @@ public class StorageFileIO
         walkFiles( ( p ) -> {
             threadPool.execute( () -> {
                 long expiration = -1;
-                try (ObjectInputStream in = new ObjectInputStream(
-                        new GZIPInputStream( new FileInputStream( p.toFile() ) ) ))
+                try
                 {
-                    expiration = StorageFileEntry.peekExpiryTime( in );
+                    if ( StorageFileFormat.isLegacy( p ) )
+                    {
+                        try (ObjectInputStream in = new ObjectInputStream(
+                                new GZIPInputStream( new FileInputStream( p.toFile() ) ) ))
+                        {
+                            expiration = StorageFileEntry.peekExpiryTime( in );
+                        }
+                    }
+                    else
+                    {
+                        expiration = StorageFileFormat.peekExpiryTime( p );
+                    }
                 }
                 catch ( IOException e )
                 {
@@ -265,7 +367,7 @@ public class StorageFileIO
             {
                 walkFiles( p, operation );
             }
-            else
+            else if ( !StorageFileFormat.isTempFile( p ) )
             {
                 operation.accept( p );
             }
@@ -45,6 +45,10 @@ public class StorageFileMetadata
 
     private EntryVersion version;
 
+    public StorageFileMetadata()
+    {
+    }
+
     public StorageFileMetadata( InternalMetadata metadata )
     {
         created = metadata.created();
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.filer.ispn.fileio;
+
+import org.infinispan.configuration.cache.StoreConfiguration;
+import org.infinispan.container.versioning.NumericVersion;
+import org.infinispan.metadata.InternalMetadata;
+import org.infinispan.persistence.spi.InitializationContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StorageFileFormatTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File storageRoot;
+
+    private StorageFileIO fileIO;
+
+    @Before
+    public void setup()
+            throws IOException
+    {
+        storageRoot = temp.newFolder( "data" );
+
+        Properties props = new Properties();
+        props.setProperty( StorageFileIO.STORAGE_ROOT_DIR, storageRoot.getAbsolutePath() );
+
+        StoreConfiguration config = proxy( StoreConfiguration.class, "properties", props );
+        fileIO = new StorageFileIO();
+        fileIO.init( proxy( InitializationContext.class, "getConfiguration", config ) );
+    }
+
+    @Test
+    public void roundTripRawAndCompressed()
+            throws IOException
+    {
+        byte[] data = new byte[8192];
+        Arrays.fill( data, (byte) 'a' );
+
+        InternalMetadata metadata = new StorageFileMetadata( 1L, 2L, 3L, 4L, 5L, new NumericVersion( 6L ) );
+
+        for ( boolean compress : new boolean[] { false, true } )
+        {
+            Path file = temp.newFile().toPath();
+            StorageFileFormat.write( file, "/org/foo/foo.pom.#0", metadata, data, compress );
+
+            long expectedSize = StorageFileFormat.HEADER_SIZE + "/org/foo/foo.pom.#0".length() + data.length;
+            assertThat( Files.size( file ) < expectedSize, equalTo( compress ) );
+
+            StorageFileEntry entry = StorageFileFormat.read( file, true, true );
+            assertThat( entry.getKey(), equalTo( "/org/foo/foo.pom.#0" ) );
+            assertThat( Arrays.equals( entry.getValue(), data ), equalTo( true ) );
+            assertThat( entry.getMetadata().expiryTime(), equalTo( 2L ) );
+            assertThat( entry.getMetadata().maxIdle(), equalTo( 5L ) );
+            assertThat( entry.getMetadata().version(), equalTo( new NumericVersion( 6L ) ) );
+            assertThat( StorageFileFormat.peekExpiryTime( file ), equalTo( 2L ) );
+
+            StorageFileEntry keyOnly = StorageFileFormat.read( file, false, false );
+            assertThat( keyOnly.getValue(), nullValue() );
+        }
+    }
+
+    @Test
+    public void compressionFollowsFileExtension()
+    {
+        assertThat( fileIO.isCompressed( "/org/foo/foo-1.pom.#0" ), equalTo( true ) );
+        assertThat( fileIO.isCompressed( "/org/foo/maven-metadata.xml.#3" ), equalTo( true ) );
+        assertThat( fileIO.isCompressed( "/org/foo/foo-1.jar.#0" ), equalTo( false ) );
+        assertThat( fileIO.isCompressed( "/org/foo.bar/README.#0" ), equalTo( false ) );
+    }
+
+    @Test
+    public void legacyEntryIsMigratedOnLoad()
+            throws IOException
+    {
+        String key = "/org/foo/foo-1.jar.#0";
+        byte[] data = "legacy content".getBytes( StandardCharsets.UTF_8 );
+
+        File file = new File( storageRoot, key );
+        file.getParentFile().mkdirs();
+        try (ObjectOutputStream out = new ObjectOutputStream( new GZIPOutputStream( new FileOutputStream( file ) ) ))
+        {
+            // the legacy format can't serialize NumericVersion, so legacy entries carry no version
+            out.writeObject( new StorageFileEntry( key, new StorageFileMetadata( 1L, 2L, 3L, 4L, 5L, null ), data ) );
+        }
+
+        assertThat( StorageFileFormat.isLegacy( file.toPath() ), equalTo( true ) );
+
+        StorageFileEntry entry = (StorageFileEntry) fileIO.load( key );
+        assertThat( Arrays.equals( entry.getValue(), data ), equalTo( true ) );
+        assertThat( entry.getMetadata().expiryTime(), equalTo( 2L ) );
+
+        assertThat( StorageFileFormat.isLegacy( file.toPath() ), equalTo( false ) );
+        assertThat( Arrays.equals( fileIO.load( key ).getValue(), data ), equalTo( true ) );
+    }
+
+    @Test
+    public void writeReplacesFileWithoutLeavingPartialWrites()
+            throws IOException
+    {
+        String key = "/org/foo/foo-1.pom.#0";
+        Path file = new File( storageRoot, key ).toPath();
+        file.getParent().toFile().mkdirs();
+
+        StorageFileFormat.write( file, key, null, "first".getBytes( StandardCharsets.UTF_8 ), false );
+        StorageFileFormat.write( file, key, null, "second".getBytes( StandardCharsets.UTF_8 ), false );
+
+        assertThat( Arrays.asList( file.getParent().toFile().list() ),
+                    equalTo( Arrays.asList( file.getFileName().toString() ) ) );
+
+        // what a crash in the middle of a write leaves behind is ignored, and the last complete entry still loads.
+        Path abandoned = file.resolveSibling( "." + file.getFileName() + "123.isfe-tmp" );
+        Files.write( abandoned, new byte[] { 0x49, 0x53 } );
+
+        assertThat( StorageFileFormat.isTempFile( abandoned ), equalTo( true ) );
+        assertThat( fileIO.size(), equalTo( 1 ) );
+        assertThat( new String( fileIO.load( key ).getValue(), StandardCharsets.UTF_8 ), equalTo( "second" ) );
+    }
+
+    private static <T> T proxy( Class<T> type, String method, Object result )
+    {
+        return type.cast( Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[] { type },
+                                                  ( p, m, args ) -> method.equals( m.getName() ) ? result : null ) );
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.ftest.core.content;
+
+import static org.commonjava.indy.model.core.StoreType.group;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.indy.ftest.core.AbstractContentManagementTest;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Fires a burst of concurrent requests for group metadata that hasn't been merged yet. All of them should get the
+ * same merged document, whether they ran the merge or waited on another request's merge of it.
+ */
+public class ConcurrentGroupMetadataMergeTest
+        extends AbstractContentManagementTest
+{
+
+    private static final int REQUESTS = 100;
+
+    @Rule
+    public ExpectationServer server = new ExpectationServer();
+
+    @Test
+    public void run()
+        throws Exception
+    {
+        final String repo1 = "repo1";
+        final String repo2 = "repo2";
+        final String path = "org/foo/bar/maven-metadata.xml";
+
+        /* @formatter:off */
+        final String repo1Content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<metadata>\n" +
+            "  <groupId>org.foo</groupId>\n" +
+            "  <artifactId>bar</artifactId>\n" +
+            "  <versioning>\n" +
+            "    <latest>1.0</latest>\n" +
+            "    <release>1.0</release>\n" +
+            "    <versions>\n" +
+            "      <version>1.0</version>\n" +
+            "    </versions>\n" +
+            "    <lastUpdated>20150722164334</lastUpdated>\n" +
+            "  </versioning>\n" +
+            "</metadata>\n";
+
+        final String repo2Content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<metadata>\n" +
+            "  <groupId>org.foo</groupId>\n" +
+            "  <artifactId>bar</artifactId>\n" +
+            "  <versioning>\n" +
+            "    <latest>1.1</latest>\n" +
+            "    <release>1.1</release>\n" +
+            "    <versions>\n" +
+            "      <version>1.1</version>\n" +
+            "    </versions>\n" +
+            "    <lastUpdated>20150822164334</lastUpdated>\n" +
+            "  </versioning>\n" +
+            "</metadata>\n";
+
+        final String mergedContent = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<metadata>\n" +
+            "  <groupId>org.foo</groupId>\n" +
+            "  <artifactId>bar</artifactId>\n" +
+            "  <versioning>\n" +
+            "    <latest>1.1</latest>\n" +
+            "    <release>1.1</release>\n" +
+            "    <versions>\n" +
+            "      <version>1.0</version>\n" +
+            "      <version>1.1</version>\n" +
+            "    </versions>\n" +
+            "    <lastUpdated>20150822164334</lastUpdated>\n" +
+            "  </versioning>\n" +
+            "</metadata>\n";
+        /* @formatter:on */
+
+        server.expect( server.formatUrl( repo1, path ), 200, repo1Content );
+        server.expect( server.formatUrl( repo2, path ), 200, repo2Content );
+
+        RemoteRepository remote1 = new RemoteRepository( repo1, server.formatUrl( repo1 ) );
+        remote1 = client.stores()
+                        .create( remote1, "adding remote", RemoteRepository.class );
+
+        RemoteRepository remote2 = new RemoteRepository( repo2, server.formatUrl( repo2 ) );
+        remote2 = client.stores()
+                        .create( remote2, "adding remote", RemoteRepository.class );
+
+        Group g = new Group( "test", remote1.getKey(), remote2.getKey() );
+        g = client.stores()
+                  .create( g, "adding group", Group.class );
+
+        final String groupName = g.getName();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( REQUESTS );
+        final List<Future<String>> results = new ArrayList<>();
+        for ( int i = 0; i < REQUESTS; i++ )
+        {
+            results.add( executor.submit( (Callable<String>) () -> {
+                start.await();
+                try (InputStream stream = client.content()
+                                                .get( group, groupName, path ))
+                {
+                    assertThat( stream, notNullValue() );
+                    return IOUtils.toString( stream );
+                }
+            } ) );
+        }
+
+        start.countDown();
+        try
+        {
+            for ( final Future<String> result : results )
+            {
+                assertThat( result.get( 60, TimeUnit.SECONDS ), equalTo( mergedContent ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected boolean createStandardTestStructures()
+    {
+        return false;
+    }
+}
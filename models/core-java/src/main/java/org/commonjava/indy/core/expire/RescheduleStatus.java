@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.expire;
+
+import java.util.Date;
+
+/**
+ * Progress of a bulk reschedule of a store's content expirations, which runs in the background after the store's
+ * timeout settings change.
+ */
+public class RescheduleStatus
+{
+
+    public enum State
+    {
+        QUEUED, RUNNING, DONE, SUPERSEDED, FAILED
+    }
+
+    private String store;
+
+    private int timeoutSeconds;
+
+    private State state;
+
+    private long total;
+
+    private long processed;
+
+    private long rescheduled;
+
+    private Date started;
+
+    private Date finished;
+
+    private String error;
+
+    public RescheduleStatus(){}
+
+    public RescheduleStatus( String store, int timeoutSeconds, State state )
+    {
+        this.store = store;
+        this.timeoutSeconds = timeoutSeconds;
+        this.state = state;
+    }
+
+    public String getStore()
+    {
+        return store;
+    }
+
+    public void setStore( String store )
+    {
+        this.store = store;
+    }
+
+    public int getTimeoutSeconds()
+    {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds( int timeoutSeconds )
+    {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    public void setState( State state )
+    {
+        this.state = state;
+    }
+
+    public long getTotal()
+    {
+        return total;
+    }
+
+    public void setTotal( long total )
+    {
+        this.total = total;
+    }
+
+    public long getProcessed()
+    {
+        return processed;
+    }
+
+    public void setProcessed( long processed )
+    {
+        this.processed = processed;
+    }
+
+    public long getRescheduled()
+    {
+        return rescheduled;
+    }
+
+    public void setRescheduled( long rescheduled )
+    {
+        this.rescheduled = rescheduled;
+    }
+
+    public Date getStarted()
+    {
+        return started;
+    }
+
+    public void setStarted( Date started )
+    {
+        this.started = started;
+    }
+
+    public Date getFinished()
+    {
+        return finished;
+    }
+
+    public void setFinished( Date finished )
+    {
+        this.finished = finished;
+    }
+
+    public String getError()
+    {
+        return error;
+    }
+
+    public void setError( String error )
+    {
+        this.error = error;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RescheduleStatus{" +
+                "store='" + store + '\'' +
+                ", timeoutSeconds=" + timeoutSeconds +
+                ", state=" + state +
+                ", processed=" + processed + "/" + total +
+                ", rescheduled=" + rescheduled +
+                '}';
+    }
+}
@@ -29,6 +29,12 @@ public class Group
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Metadata key that turns on hedged retrieval for a group. The value is either "true", or the number of upcoming
+     * remote members to probe for existence while an earlier member is being tried.
+     */
+    public static final String METADATA_HEDGED_RETRIEVAL = "hedged-retrieval";
+
     private List<StoreKey> constituents;
 
     Group()
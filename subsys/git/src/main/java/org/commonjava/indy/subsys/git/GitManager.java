@@ -23,15 +23,15 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.RmCommand;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.api.errors.NoFilepatternException;
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.IndexDiff.StageState;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revplot.PlotCommit;
@@ -39,13 +39,11 @@ import org.eclipse.jgit.revplot.PlotCommitList;
 import org.eclipse.jgit.revplot.PlotLane;
 import org.eclipse.jgit.revplot.PlotWalk;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevTree;
-import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
-import org.eclipse.jgit.treewalk.CanonicalTreeParser;
-import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +60,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -240,6 +239,31 @@ public class GitManager
         return addAndCommitPaths( summary, paths );
     }
 
+    /**
+     * File-based variant of {@link #commitChanges(ChangeSummary, Collection, Collection)}.
+     */
+    public GitManager commitFileChanges( final ChangeSummary summary, final Collection<File> added,
+                                         final Collection<File> deleted )
+        throws GitSubsystemException
+    {
+        return commitChanges( summary, relativizeAll( added ), relativizeAll( deleted ) );
+    }
+
+    private Set<String> relativizeAll( final Collection<File> files )
+    {
+        final Set<String> paths = new LinkedHashSet<>();
+        for ( final File f : files )
+        {
+            final String path = relativize( f );
+            if ( path != null && path.length() > 0 )
+            {
+                paths.add( path );
+            }
+        }
+
+        return paths;
+    }
+
     private String relativize( final File f )
     {
         return Paths.get( rootDir.toURI() )
@@ -255,36 +279,78 @@ public class GitManager
 
     public GitManager addAndCommitPaths( final ChangeSummary summary, final Collection<String> paths )
         throws GitSubsystemException
+    {
+        return commitChanges( summary, paths, Collections.<String>emptySet() );
+    }
+
+    /**
+     * Stage the given additions / modifications and deletions, then record them all in a single commit. If staging
+     * leaves the index identical to HEAD for these paths, no commit is made.
+     */
+    public GitManager commitChanges( final ChangeSummary summary, final Collection<String> addedPaths,
+                                     final Collection<String> deletedPaths )
+        throws GitSubsystemException
     {
         lockAnd(me->{
-            if ( !verifyChangesExist( paths ) )
+            final Set<String> paths = new LinkedHashSet<>( addedPaths );
+            paths.addAll( deletedPaths );
+            if ( paths.isEmpty() )
             {
-                logger.info( "No actual changes in:\n  {}\n\nSkipping commit.", join( paths, "\n  " ) );
-                return this;
+                return me;
             }
 
             try
             {
-                final AddCommand add = git.add();
-                final CommitCommand commit = git.commit();
-                for ( final String filepath : paths )
+                final Set<String> toRemove = new LinkedHashSet<>();
+                if ( !deletedPaths.isEmpty() )
+                {
+                    final DirCache index = repo.readDirCache();
+                    for ( final String path : deletedPaths )
+                    {
+                        if ( index.findEntry( path ) > -1 )
+                        {
+                            toRemove.add( path );
+                        }
+                    }
+                }
+
+                if ( !toRemove.isEmpty() )
                 {
-                    add.addFilepattern( filepath );
+                    final RmCommand rm = git.rm();
+                    toRemove.forEach( rm::addFilepattern );
+
+                    logger.info( "Deleting:\n  " + join( toRemove, "\n  " ) + "\n\nSummary: " + summary );
+                    rm.call();
                 }
 
-                logger.info( "Adding:\n  " + join( paths, "\n  " ) + "\n\nSummary: " + summary );
+                if ( !addedPaths.isEmpty() )
+                {
+                    final AddCommand add = git.add();
+                    addedPaths.forEach( add::addFilepattern );
 
-                add.call();
+                    logger.info( "Adding:\n  " + join( addedPaths, "\n  " ) + "\n\nSummary: " + summary );
+                    add.call();
+                }
 
-                commit.setMessage( buildMessage( summary, paths ) ).setAuthor( summary.getUser(), email ).call();
+                if ( !verifyChangesExist( paths ) )
+                {
+                    logger.info( "No actual changes in:\n  {}\n\nSkipping commit.", join( paths, "\n  " ) );
+                    return me;
+                }
+
+                git.commit().setMessage( buildMessage( summary, paths ) ).setAuthor( summary.getUser(), email ).call();
             }
             catch ( final NoFilepatternException e )
             {
-                throw new GitSubsystemException( "Cannot add to git: " + e.getMessage(), e );
+                throw new GitSubsystemException( "Cannot commit to git: " + e.getMessage(), e );
             }
-            catch ( final GitAPIException e )
+            catch ( final GitAPIException | JGitInternalException e )
+            {
+                throw new GitSubsystemException( "Cannot commit to git: " + e.getMessage(), e );
+            }
+            catch ( final IOException e )
             {
-                throw new GitSubsystemException( "Cannot add to git: " + e.getMessage(), e );
+                throw new GitSubsystemException( "Cannot read git index: " + e.getMessage(), e );
             }
 
             return me;
@@ -293,62 +359,41 @@ public class GitManager
         return this;
     }
 
+    /**
+     * Compare the (already staged) index entries for the given paths against HEAD. Only the index and the HEAD tree
+     * are walked, so the cost doesn't grow with the size of the working tree.
+     */
     private boolean verifyChangesExist( final Collection<String> paths )
         throws GitSubsystemException
     {
         return lockAnd(me->{
             try
             {
-                final DiffFormatter formatter = new DiffFormatter( System.out );
-                formatter.setRepository( repo );
-
                 // resolve the HEAD object
-                final ObjectId oid = repo.resolve( Constants.HEAD );
+                final ObjectId oid = repo.resolve( Constants.HEAD + "^{tree}" );
                 if ( oid == null )
                 {
                     // if there's no head, then these must be real changes...
                     return true;
                 }
 
-                // reset a new tree object to the HEAD
-                final RevWalk walk = new RevWalk( repo );
-                final RevCommit commit = walk.parseCommit( oid );
-                final RevTree treeWalk = walk.parseTree( commit );
-
-                // construct filters for the paths we're trying to add/commit
-                final List<TreeFilter> filters = new ArrayList<>();
-                for ( final String path : paths )
+                final TreeWalk walk = new TreeWalk( repo );
+                try
                 {
-                    filters.add( PathFilter.create( path ) );
-                }
+                    walk.addTree( oid );
+                    walk.addTree( new DirCacheIterator( repo.readDirCache() ) );
+                    walk.setRecursive( true );
 
-                // we're interested in trees with an actual diff. This should improve walk performance.
-                filters.add( TreeFilter.ANY_DIFF );
+                    // we're not interested in WHAT the differences are, only that there are differences.
+                    walk.setFilter( AndTreeFilter.create( PathFilterGroup.createFromStrings( paths ),
+                                                          TreeFilter.ANY_DIFF ) );
 
-                // set the path filters from above
-                walk.setTreeFilter( AndTreeFilter.create( filters ) );
-
-                // setup the tree for doing the comparison vs. uncommitted files
-                final CanonicalTreeParser tree = new CanonicalTreeParser();
-                final ObjectReader oldReader = repo.newObjectReader();
-                try
-                {
-                    tree.reset( oldReader, treeWalk.getId() );
+                    return walk.next();
                 }
                 finally
                 {
-                    oldReader.release();
+                    walk.release();
                 }
-                walk.dispose();
-
-                // this iterator will actually scan the uncommitted files for diff'ing
-                final FileTreeIterator files = new FileTreeIterator( repo );
-
-                // do the scan.
-                final List<DiffEntry> entries = formatter.scan( tree, files );
-
-                // we're not interested in WHAT the differences are, only that there are differences.
-                return entries != null && !entries.isEmpty();
             }
             catch ( final IOException e )
             {
@@ -26,6 +26,7 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.Collections;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -88,6 +89,39 @@ public class GitManagerTest extends AbstractGitManagerTest
                              .getSummary(), equalTo( log ) );
     }
 
+    @Test
+    public void commitAddsAndDeletesTogetherAndSkipUnchangedContent()
+        throws Exception
+    {
+        final File root = unpackRepo( "test-indy-data.zip" );
+
+        final File cloneDir = temp.newFolder();
+        FileUtils.forceDelete( cloneDir );
+
+        final GitConfig config = new GitConfig( cloneDir, root.toURI()
+                                                              .toURL()
+                                                              .toExternalForm(), false );
+        final GitManager git = new GitManager( config );
+
+        final File keep = new File( cloneDir, "keep.txt" );
+        final File gone = new File( cloneDir, "gone.txt" );
+        FileUtils.write( keep, "keep" );
+        FileUtils.write( gone, "gone" );
+        git.addAndCommitFiles( new ChangeSummary( "test", "first" ), keep, gone );
+
+        FileUtils.write( keep, "keep, changed" );
+        FileUtils.forceDelete( gone );
+        git.commitChanges( new ChangeSummary( "test", "second" ), Collections.singleton( "keep.txt" ),
+                           Collections.singleton( "gone.txt" ) );
+
+        assertThat( git.getChangelog( keep, 0, -1 ).size(), equalTo( 2 ) );
+        assertThat( git.getChangelog( gone, 0, -1 ).size(), equalTo( 2 ) );
+        assertThat( git.getHeadCommit( gone ).getSummary(), equalTo( "second" ) );
+
+        git.addAndCommitFiles( new ChangeSummary( "test", "third" ), keep );
+        assertThat( git.getChangelog( keep, 0, -1 ).size(), equalTo( 2 ) );
+    }
+
 
 
 }
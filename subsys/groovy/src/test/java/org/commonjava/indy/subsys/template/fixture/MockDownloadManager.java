@@ -222,4 +222,11 @@ public class MockDownloadManager implements DownloadManager
     {
         return false;
     }
+
+    @Override
+    public boolean checkExists( ArtifactStore store, String path )
+            throws IndyWorkflowException
+    {
+        return false;
+    }
 }
@@ -8,6 +8,7 @@ import org.commonjava.indy.measure.annotation.MetricNamed;
 import org.commonjava.indy.metrics.conf.IndyMetricsConfig;
 import org.commonjava.indy.metrics.healthcheck.IndyHealthCheckRegistrySet;
 import org.commonjava.indy.metrics.healthcheck.IndyHealthCheck;
+import org.commonjava.indy.metrics.jaxrs.interceptor.MetricsDescriptor;
 import org.commonjava.indy.metrics.jvm.IndyJVMInstrumentation;
 import org.commonjava.indy.metrics.reporter.ReporterIntializer;
 import org.slf4j.Logger;
@@ -18,7 +19,11 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -44,6 +49,8 @@ public class IndyMetricsManager
     @Inject
     IndyMetricsConfig config;
 
+    private final Map<Method, MetricsDescriptor> descriptors = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void initMetric()
     {
@@ -70,16 +77,51 @@ public class IndyMetricsManager
         }
     }
 
+    /**
+     * Resolve the timers and meters named by the method's {@link IndyMetrics} annotation, once per method.
+     */
+    public MetricsDescriptor getDescriptor( Method method )
+    {
+        MetricsDescriptor descriptor = descriptors.get( method );
+        if ( descriptor == null )
+        {
+            descriptor = descriptors.computeIfAbsent( method, this::resolveDescriptor );
+        }
+
+        return descriptor;
+    }
+
+    private MetricsDescriptor resolveDescriptor( Method method )
+    {
+        IndyMetrics metrics = method.getAnnotation( IndyMetrics.class );
+        if ( metrics == null )
+        {
+            return MetricsDescriptor.NONE;
+        }
+
+        Measure measures = metrics.measure();
+        Measure exceptions = metrics.exceptions();
+
+        logger.debug( "Resolving metrics for: {}", method );
+        return new MetricsDescriptor( Stream.of( measures.timers() )
+                                            .map( named -> getTimer( metrics, measures, named ) )
+                                            .toArray( Timer[]::new ),
+                                      Stream.of( measures.meters() )
+                                            .map( named -> getMeter( metrics, measures, named ) )
+                                            .toArray( Meter[]::new ),
+                                      Stream.of( exceptions.meters() )
+                                            .map( named -> getMeter( metrics, exceptions, named ) )
+                                            .toArray( Meter[]::new ) );
+    }
+
     public Timer getTimer( IndyMetrics metrics, Measure measures, MetricNamed named )
     {
-        logger.info( "call in IndyMetricsManager.getTimer" );
         Class<?> c = getClass( metrics, measures, named );
         return this.metricRegistry.timer( name( c, named.name() ) );
     }
 
     public Meter getMeter( IndyMetrics metrics, Measure measures, MetricNamed named )
     {
-        logger.info( "call in IndyMetricsManager.getMeter" );
         Class<?> c = getClass( metrics, measures, named );
         return metricRegistry.meter( name( c, named.name() ) );
     }
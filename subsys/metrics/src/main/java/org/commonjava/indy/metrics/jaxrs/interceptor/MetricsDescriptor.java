@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2011 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.metrics.jaxrs.interceptor;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timers and meters an {@link org.commonjava.indy.measure.annotation.IndyMetrics} annotated method reports to,
+ * resolved once so that recording an invocation doesn't look anything up or allocate.
+ */
+public final class MetricsDescriptor
+{
+    public static final MetricsDescriptor NONE = new MetricsDescriptor( new Timer[0], new Meter[0], new Meter[0] );
+
+    private final Timer[] timers;
+
+    private final Meter[] meters;
+
+    private final Meter[] exceptionMeters;
+
+    public MetricsDescriptor( final Timer[] timers, final Meter[] meters, final Meter[] exceptionMeters )
+    {
+        this.timers = timers;
+        this.meters = meters;
+        this.exceptionMeters = exceptionMeters;
+    }
+
+    public boolean isEmpty()
+    {
+        return timers.length == 0 && meters.length == 0 && exceptionMeters.length == 0;
+    }
+
+    /**
+     * Record one invocation that started at {@code startNanos} (from {@link System#nanoTime()}).
+     */
+    public void record( final long startNanos, final boolean failed )
+    {
+        final long elapsed = System.nanoTime() - startNanos;
+        for ( final Timer timer : timers )
+        {
+            timer.update( elapsed, TimeUnit.NANOSECONDS );
+        }
+
+        if ( failed )
+        {
+            for ( final Meter meter : exceptionMeters )
+            {
+                meter.mark();
+            }
+        }
+
+        for ( final Meter meter : meters )
+        {
+            meter.mark();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertThat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -284,4 +285,151 @@ public abstract class GroupDataManagerTCK
         assertThat( gKeys.contains( g2.getKey() ), equalTo( Boolean.TRUE )  );
     }
 
+    @Test
+    public void groupsContainingFollowsMembershipChanges()
+            throws Exception
+    {
+        final StoreDataManager manager = getFixtureProvider().getDataManager();
+        final StoreKey central = new StoreKey( StoreType.remote, "central" );
+        final StoreKey repo2 = new StoreKey( StoreType.remote, "repo2" );
+        Group g1 = new Group( "g1", central );
+
+        store( g1 );
+
+        assertThat( groupKeys( manager.getGroupsContaining( central ) ), equalTo( Collections.singleton( g1.getKey() ) ) );
+        assertThat( manager.getGroupsContaining( repo2 ).isEmpty(), equalTo( Boolean.TRUE ) );
+
+        Group changed = g1.copyOf();
+        changed.removeConstituent( central );
+        changed.addConstituent( repo2 );
+        store( changed );
+
+        assertThat( manager.getGroupsContaining( central ).isEmpty(), equalTo( Boolean.TRUE ) );
+        assertThat( groupKeys( manager.getGroupsContaining( repo2 ) ), equalTo( Collections.singleton( g1.getKey() ) ) );
+
+        manager.deleteArtifactStore( g1.getKey(), summary, new EventMetadata() );
+
+        assertThat( manager.getGroupsContaining( repo2 ).isEmpty(), equalTo( Boolean.TRUE ) );
+    }
+
+    @Test
+    public void groupsAffectedByFollowsNestedMembershipChanges()
+            throws Exception
+    {
+        final StoreDataManager manager = getFixtureProvider().getDataManager();
+        final StoreKey central = new StoreKey( StoreType.remote, "central" );
+        Group g1 = new Group( "g1", central );
+        Group g2 = new Group( "g2", g1.getKey() );
+        Group g3 = new Group( "g3", g2.getKey() );
+
+        store( g1, g2, g3 );
+
+        assertThat( groupKeys( manager.getGroupsAffectedBy( central ) ),
+                    equalTo( keySet( g1.getKey(), g2.getKey(), g3.getKey() ) ) );
+
+        // cut the chain in the middle; g3 no longer sees central
+        Group changed = g3.copyOf();
+        changed.removeConstituent( g2.getKey() );
+        store( changed );
+
+        assertThat( groupKeys( manager.getGroupsAffectedBy( central ) ), equalTo( keySet( g1.getKey(), g2.getKey() ) ) );
+
+        manager.deleteArtifactStore( g1.getKey(), summary, new EventMetadata() );
+
+        // g2 still lists the deleted g1 as a member, but g1 no longer lists central
+        assertThat( manager.getGroupsAffectedBy( central ).isEmpty(), equalTo( Boolean.TRUE ) );
+        assertThat( groupKeys( manager.getGroupsAffectedBy( g1.getKey() ) ), equalTo( keySet( g2.getKey() ) ) );
+    }
+
+    @Test
+    public void clearDropsGroupMembership()
+            throws Exception
+    {
+        final StoreDataManager manager = getFixtureProvider().getDataManager();
+        final StoreKey central = new StoreKey( StoreType.remote, "central" );
+        store( new Group( "g1", central ) );
+
+        manager.clear( summary );
+
+        assertThat( manager.getGroupsContaining( central ).isEmpty(), equalTo( Boolean.TRUE ) );
+        assertThat( manager.getGroupsAffectedBy( central ).isEmpty(), equalTo( Boolean.TRUE ) );
+    }
+
+    @Test
+    public void orderedConcreteStoresFollowNestedMembershipChanges()
+            throws Exception
+    {
+        final StoreDataManager manager = getFixtureProvider().getDataManager();
+        final StoreKey central = new StoreKey( StoreType.remote, "central" );
+        final StoreKey repo2 = new StoreKey( StoreType.remote, "repo2" );
+        Group inner = new Group( "inner", central );
+        Group outer = new Group( "outer", inner.getKey() );
+
+        store( inner, outer );
+
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), false ) ),
+                    equalTo( Collections.singletonList( central ) ) );
+
+        Group changed = inner.copyOf();
+        changed.addConstituent( repo2 );
+        store( changed );
+
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), false ) ),
+                    equalTo( Arrays.asList( central, repo2 ) ) );
+
+        manager.deleteArtifactStore( central, summary, new EventMetadata() );
+
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), false ) ),
+                    equalTo( Collections.singletonList( repo2 ) ) );
+        assertThat( storeKeys( manager.getOrderedStoresInGroup( outer.getName(), false ) ),
+                    equalTo( Arrays.asList( outer.getKey(), inner.getKey() ) ) );
+    }
+
+    @Test
+    public void enabledOnlyOrderingFollowsDisabledMembers()
+            throws Exception
+    {
+        final StoreDataManager manager = getFixtureProvider().getDataManager();
+        final StoreKey central = new StoreKey( StoreType.remote, "central" );
+        final StoreKey repo2 = new StoreKey( StoreType.remote, "repo2" );
+        Group inner = new Group( "inner", central, repo2 );
+        Group outer = new Group( "outer", inner.getKey() );
+
+        store( inner, outer );
+
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), true ) ),
+                    equalTo( Arrays.asList( central, repo2 ) ) );
+
+        ArtifactStore disabled = manager.getArtifactStore( central ).copyOf();
+        disabled.setDisabled( true );
+        manager.storeArtifactStore( disabled, summary, new EventMetadata() );
+
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), true ) ),
+                    equalTo( Collections.singletonList( repo2 ) ) );
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), false ) ),
+                    equalTo( Arrays.asList( central, repo2 ) ) );
+
+        ArtifactStore enabled = manager.getArtifactStore( central ).copyOf();
+        enabled.setDisabled( false );
+        manager.storeArtifactStore( enabled, summary, new EventMetadata() );
+
+        assertThat( storeKeys( manager.getOrderedConcreteStoresInGroup( outer.getName(), true ) ),
+                    equalTo( Arrays.asList( central, repo2 ) ) );
+    }
+
+    private List<StoreKey> storeKeys( final List<? extends ArtifactStore> stores )
+    {
+        return stores.stream().map( ArtifactStore::getKey ).collect( Collectors.toList() );
+    }
+
+    private Set<StoreKey> groupKeys( final Set<Group> groups )
+    {
+        return groups.stream().map( Group::getKey ).collect( Collectors.toSet() );
+    }
+
+    private Set<StoreKey> keySet( final StoreKey... keys )
+    {
+        return new HashSet<>( Arrays.asList( keys ) );
+    }
+
 }
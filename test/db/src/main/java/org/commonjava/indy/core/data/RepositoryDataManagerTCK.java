@@ -146,6 +146,32 @@ public abstract class RepositoryDataManagerTCK
         assertThat( r.getName(), equalTo( repo2.getName() ) );
     }
 
+    @Test
+    public void findRemoteRepositoryFollowsUrlChanges()
+        throws Exception
+    {
+        final StoreDataManager manager = getFixtureProvider().getDataManager();
+
+        final RemoteRepository repo = new RemoteRepository( "test", "http://repo.example.invalid/maven2/" );
+        storeRemoteRepository( repo );
+
+        assertThat( manager.findRemoteRepository( "https://repo.example.invalid/maven2" ).getKey(),
+                    equalTo( repo.getKey() ) );
+        assertThat( manager.findRemoteRepository( "http://repo.example.invalid/other/" ), nullValue() );
+
+        final RemoteRepository moved = repo.copyOf();
+        moved.setUrl( "http://mirror.example.invalid/maven2" );
+        storeRemoteRepository( moved );
+
+        assertThat( manager.findRemoteRepository( "http://repo.example.invalid/maven2/" ), nullValue() );
+        assertThat( manager.findRemoteRepository( "http://mirror.example.invalid/maven2/" ).getKey(),
+                    equalTo( repo.getKey() ) );
+
+        manager.deleteArtifactStore( repo.getKey(), summary );
+
+        assertThat( manager.findRemoteRepository( "http://mirror.example.invalid/maven2/" ), nullValue() );
+    }
+
     private void storeRemoteRepository( final RemoteRepository repo )
         throws Exception
     {